@@ -0,0 +1,132 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.benchmark.executor;
+
+import io.opentelemetry.api.GlobalOpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class ExecutorBenchmark {
+
+  private static final int TASKS = 1000;
+
+  private ExecutorService threadPool;
+  private ForkJoinPool forkJoinPool;
+  private Span parentSpan;
+
+  @Setup
+  public void setup() {
+    threadPool = Executors.newFixedThreadPool(4);
+    forkJoinPool = new ForkJoinPool(4);
+    parentSpan =
+        GlobalOpenTelemetry.getTracer("executor-benchmark").spanBuilder("parent").startSpan();
+  }
+
+  @TearDown
+  public void tearDown() {
+    parentSpan.end();
+    threadPool.shutdown();
+    forkJoinPool.shutdown();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(TASKS)
+  public void threadPoolExecute() throws InterruptedException {
+    CountDownLatch latch = new CountDownLatch(TASKS);
+    try (io.opentelemetry.context.Scope ignored = parentSpan.makeCurrent()) {
+      for (int i = 0; i < TASKS; i++) {
+        threadPool.execute(new CountDownTask(latch));
+      }
+    }
+    latch.await();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(TASKS)
+  public void forkJoinPoolExecute() throws InterruptedException {
+    CountDownLatch latch = new CountDownLatch(TASKS);
+    try (io.opentelemetry.context.Scope ignored = parentSpan.makeCurrent()) {
+      for (int i = 0; i < TASKS; i++) {
+        forkJoinPool.execute(new CountDownAction(latch));
+      }
+    }
+    latch.await();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(TASKS)
+  public void forkJoinTaskFork() {
+    try (io.opentelemetry.context.Scope ignored = parentSpan.makeCurrent()) {
+      forkJoinPool.invoke(new ForkingAction(TASKS));
+    }
+  }
+
+  // not a lambda, lambdas are always wrapped instead of having the context attached to them
+  private static class CountDownTask implements Runnable {
+    private final CountDownLatch latch;
+
+    CountDownTask(CountDownLatch latch) {
+      this.latch = latch;
+    }
+
+    @Override
+    public void run() {
+      latch.countDown();
+    }
+  }
+
+  private static class CountDownAction extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final CountDownLatch latch;
+
+    CountDownAction(CountDownLatch latch) {
+      this.latch = latch;
+    }
+
+    @Override
+    protected void compute() {
+      latch.countDown();
+    }
+  }
+
+  // forks one task per unit of work
+  private static class ForkingAction extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final int tasks;
+
+    ForkingAction(int tasks) {
+      this.tasks = tasks;
+    }
+
+    @Override
+    protected void compute() {
+      if (tasks <= 1) {
+        return;
+      }
+      int half = tasks / 2;
+      invokeAll(new ForkingAction(half), new ForkingAction(tasks - half));
+    }
+  }
+}
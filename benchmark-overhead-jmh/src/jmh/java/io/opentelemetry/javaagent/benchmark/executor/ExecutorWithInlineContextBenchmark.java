@@ -0,0 +1,11 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.benchmark.executor;
+
+import org.openjdk.jmh.annotations.Fork;
+
+@Fork(jvmArgsAppend = "-Dotel.instrumentation.executors.experimental.inline-context.enabled=true")
+public class ExecutorWithInlineContextBenchmark extends ExecutorBenchmark {}
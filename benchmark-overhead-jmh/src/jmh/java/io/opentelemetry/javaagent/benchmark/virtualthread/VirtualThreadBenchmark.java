@@ -0,0 +1,63 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.benchmark.virtualthread;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Spawns 1M virtual threads through an instrumented {@code
+ * Executors.newVirtualThreadPerTaskExecutor()}; every task yields once so that its virtual thread
+ * is unmounted and mounted again. Requires running on Java 21 or newer.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class VirtualThreadBenchmark {
+
+  private static final int TASKS = 1_000_000;
+
+  private ExecutorService executor;
+
+  @Setup
+  public void setup() throws ReflectiveOperationException {
+    // this module is compiled for java 17
+    executor =
+        (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+  }
+
+  @TearDown
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Benchmark
+  public void spawn() throws InterruptedException {
+    CountDownLatch latch = new CountDownLatch(TASKS);
+    for (int i = 0; i < TASKS; i++) {
+      executor.execute(
+          () -> {
+            Thread.yield();
+            latch.countDown();
+          });
+    }
+    latch.await();
+  }
+}
@@ -0,0 +1,11 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.benchmark.virtualthread;
+
+import org.openjdk.jmh.annotations.Fork;
+
+@Fork(jvmArgsAppend = "-Dotel.javaagent.experimental.call-depth.slots=true")
+public class VirtualThreadWithCallDepthSlotsBenchmark extends VirtualThreadBenchmark {}
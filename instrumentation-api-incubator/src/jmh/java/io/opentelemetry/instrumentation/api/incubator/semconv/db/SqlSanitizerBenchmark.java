@@ -0,0 +1,94 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.instrumentation.api.incubator.semconv.db;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@Fork(3)
+@Warmup(iterations = 10, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@State(Scope.Thread)
+public class SqlSanitizerBenchmark {
+
+  @Param({"select", "join", "update", "inList", "batchInsert", "createTable"})
+  public String shape;
+
+  // 0 sanitizes whole statements
+  @Param({"0", "1024"})
+  public int maxInputLength;
+
+  private String statement;
+
+  @Setup
+  public void setUp() {
+    switch (shape) {
+      case "select":
+        statement = "SELECT id, name, email FROM users WHERE id = 12345 AND status = 'active'";
+        break;
+      case "join":
+        statement =
+            "SELECT o.id, o.total, c.name FROM orders o JOIN customers c ON o.customer_id = c.id "
+                + "LEFT JOIN shipments s ON s.order_id = o.id WHERE o.created > '2024-01-01' "
+                + "AND c.region IN ('EU', 'US') ORDER BY o.created DESC LIMIT 50";
+        break;
+      case "update":
+        statement =
+            "UPDATE accounts SET balance = balance - 100.50, updated = '2024-06-01 12:00:00' "
+                + "WHERE id = 42 AND version = 7";
+        break;
+      case "inList":
+        statement = inList(5_000);
+        break;
+      case "batchInsert":
+        statement = batchInsert(20_000);
+        break;
+      case "createTable":
+        statement =
+            "CREATE TABLE IF NOT EXISTS audit_log (id BIGINT PRIMARY KEY, payload VARCHAR(4000), "
+                + "created TIMESTAMP DEFAULT CURRENT_TIMESTAMP)";
+        break;
+      default:
+        throw new IllegalArgumentException(shape);
+    }
+  }
+
+  @Benchmark
+  public SqlStatementInfo sanitize() {
+    return AutoSqlSanitizer.sanitize(statement, SqlDialect.DEFAULT, maxInputLength);
+  }
+
+  private static String inList(int size) {
+    StringBuilder sb = new StringBuilder("SELECT * FROM products WHERE id IN (0");
+    for (int i = 1; i < size; i++) {
+      sb.append(", ").append(i);
+    }
+    return sb.append(")").toString();
+  }
+
+  private static String batchInsert(int rows) {
+    StringBuilder sb = new StringBuilder("INSERT INTO events (id, type, payload) VALUES ");
+    for (int i = 0; i < rows; i++) {
+      if (i > 0) {
+        sb.append(", ");
+      }
+      sb.append('(').append(i).append(", 'click', '{\"x\": ").append(i).append("}')");
+    }
+    return sb.toString();
+  }
+}
@@ -8,6 +8,7 @@ package io.opentelemetry.instrumentation.api.incubator.semconv.db;
 import static io.opentelemetry.instrumentation.api.internal.SupportabilityMetrics.CounterNames.SQL_STATEMENT_SANITIZER_CACHE_MISS;
 
 import com.google.auto.value.AutoValue;
+import io.opentelemetry.instrumentation.api.internal.ConfigPropertiesUtil;
 import io.opentelemetry.instrumentation.api.internal.SupportabilityMetrics;
 import io.opentelemetry.instrumentation.api.internal.cache.Cache;
 import javax.annotation.Nullable;
@@ -19,17 +20,94 @@ import javax.annotation.Nullable;
 public final class SqlStatementSanitizer {
   private static final SupportabilityMetrics supportability = SupportabilityMetrics.instance();
 
+  private static final int CACHE_SIZE =
+      ConfigPropertiesUtil.getInt(
+          "otel.instrumentation.experimental.db-statement-sanitizer.cache-size", 1000);
+  // 0 means that the cache is bounded only by the number of entries
+  private static final int CACHE_MAX_CHARACTERS =
+      ConfigPropertiesUtil.getInt(
+          "otel.instrumentation.experimental.db-statement-sanitizer.cache-max-characters", 0);
+  // 0 means that statements of any length are cached
+  private static final int CACHE_MAX_STATEMENT_LENGTH =
+      ConfigPropertiesUtil.getInt(
+          "otel.instrumentation.experimental.db-statement-sanitizer.cache-max-statement-length", 0);
+
+  // 0 means that whole statements are sanitized
+  private static final int MAX_INPUT_LENGTH =
+      ConfigPropertiesUtil.getInt(
+          "otel.instrumentation.experimental.db-statement-sanitizer.max-input-length", 0);
+
   private static final Cache<CacheKey, SqlStatementInfo> sqlToStatementInfoCache =
-      Cache.bounded(1000);
+      createCache(CACHE_SIZE, CACHE_MAX_CHARACTERS);
 
   public static SqlStatementSanitizer create(boolean statementSanitizationEnabled) {
-    return new SqlStatementSanitizer(statementSanitizationEnabled);
+    return new SqlStatementSanitizer(
+        statementSanitizationEnabled,
+        sqlToStatementInfoCache,
+        maxCachedStatementLength(CACHE_MAX_STATEMENT_LENGTH, CACHE_MAX_CHARACTERS),
+        MAX_INPUT_LENGTH);
+  }
+
+  // visible for testing
+  static SqlStatementSanitizer create(
+      boolean statementSanitizationEnabled,
+      Cache<CacheKey, SqlStatementInfo> cache,
+      int maxCachedStatementLength,
+      int maxInputLength) {
+    return new SqlStatementSanitizer(
+        statementSanitizationEnabled, cache, maxCachedStatementLength, maxInputLength);
+  }
+
+  // visible for testing
+  static Cache<CacheKey, SqlStatementInfo> createCache(int maxEntries, int maxCharacters) {
+    if (maxCharacters <= 0) {
+      return Cache.bounded("sql statements", maxEntries);
+    }
+    // every entry is charged at least the number of characters each entry may retain on average,
+    // so that the cache holds neither more than maxEntries entries nor more than maxCharacters
+    // characters
+    int minimumWeight = Math.max(1, maxCharacters / Math.max(1, maxEntries));
+    return Cache.weighted(
+        maxCharacters, (key, info) -> Math.max(minimumWeight, retainedCharacters(key, info)));
+  }
+
+  private static int retainedCharacters(CacheKey key, SqlStatementInfo info) {
+    String fullStatement = info.getFullStatement();
+    long characters =
+        (long) key.getStatement().length() + (fullStatement == null ? 0 : fullStatement.length());
+    return (int) Math.min(Integer.MAX_VALUE, characters);
+  }
+
+  private static int maxCachedStatementLength(int maxStatementLength, int maxCharacters) {
+    // an entry (statement plus its sanitized copy) that alone exceeds the character limit would
+    // flush the whole cache before being evicted itself
+    int limit = maxCharacters / 2;
+    if (maxCharacters > 0 && (maxStatementLength <= 0 || maxStatementLength > limit)) {
+      return Math.max(1, limit);
+    }
+    return maxStatementLength;
   }
 
   private final boolean statementSanitizationEnabled;
+  private final Cache<CacheKey, SqlStatementInfo> cache;
+  private final int maxCachedStatementLength;
+  private final int maxInputLength;
 
-  private SqlStatementSanitizer(boolean statementSanitizationEnabled) {
+  private SqlStatementSanitizer(
+      boolean statementSanitizationEnabled,
+      Cache<CacheKey, SqlStatementInfo> cache,
+      int maxCachedStatementLength,
+      int maxInputLength) {
     this.statementSanitizationEnabled = statementSanitizationEnabled;
+    this.cache = cache;
+    // statements that are only partially sanitized are cheap to sanitize again, and caching them
+    // would retain (and hash) the whole statement
+    if (maxInputLength > 0
+        && (maxCachedStatementLength <= 0 || maxCachedStatementLength > maxInputLength)) {
+      maxCachedStatementLength = maxInputLength;
+    }
+    this.maxCachedStatementLength = maxCachedStatementLength;
+    this.maxInputLength = maxInputLength;
   }
 
   public SqlStatementInfo sanitize(@Nullable String statement) {
@@ -40,7 +118,11 @@ public final class SqlStatementSanitizer {
     if (!statementSanitizationEnabled || statement == null) {
       return SqlStatementInfo.create(statement, null, null);
     }
-    return sqlToStatementInfoCache.computeIfAbsent(
+    if (maxCachedStatementLength > 0 && statement.length() > maxCachedStatementLength) {
+      supportability.incrementCounter(SQL_STATEMENT_SANITIZER_CACHE_MISS);
+      return AutoSqlSanitizer.sanitize(statement, dialect, maxInputLength);
+    }
+    return cache.computeIfAbsent(
         CacheKey.create(statement, dialect),
         k -> {
           supportability.incrementCounter(SQL_STATEMENT_SANITIZER_CACHE_MISS);
@@ -11,6 +11,7 @@ import io.opentelemetry.context.Context;
 import io.opentelemetry.instrumentation.api.incubator.semconv.net.PeerServiceResolver;
 import io.opentelemetry.instrumentation.api.incubator.semconv.net.internal.UrlParser;
 import io.opentelemetry.instrumentation.api.instrumenter.AttributesExtractor;
+import io.opentelemetry.instrumentation.api.internal.SpanOnlyAttributesProvider;
 import io.opentelemetry.instrumentation.api.semconv.http.HttpClientAttributesGetter;
 import java.util.function.Supplier;
 import javax.annotation.Nullable;
@@ -21,7 +22,7 @@ import javax.annotation.Nullable;
  * specification</a>.
  */
 public final class HttpClientPeerServiceAttributesExtractor<REQUEST, RESPONSE>
-    implements AttributesExtractor<REQUEST, RESPONSE> {
+    implements AttributesExtractor<REQUEST, RESPONSE>, SpanOnlyAttributesProvider {
 
   // copied from PeerIncubatingAttributes
   private static final AttributeKey<String> PEER_SERVICE = AttributeKey.stringKey("peer.service");
@@ -92,4 +93,14 @@ public final class HttpClientPeerServiceAttributesExtractor<REQUEST, RESPONSE>
     }
     return UrlParser.getPath(urlFull);
   }
+
+  /**
+   * This method is internal and is hence not for public use. Its API is unstable and can change at
+   * any time.
+   */
+  @Override
+  public boolean internalIsSpanOnly() {
+    // peer.service is neither used for sampling (it's an end attribute) nor in metrics
+    return true;
+  }
 }
@@ -20,6 +20,7 @@ import io.opentelemetry.context.Context;
 import io.opentelemetry.context.ContextKey;
 import io.opentelemetry.instrumentation.api.instrumenter.OperationListener;
 import io.opentelemetry.instrumentation.api.instrumenter.OperationMetrics;
+import io.opentelemetry.instrumentation.api.internal.FusedOperationListener;
 import io.opentelemetry.instrumentation.api.internal.OperationMetricsUtil;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
@@ -29,7 +30,7 @@ import java.util.logging.Logger;
  * href="https://github.com/open-telemetry/semantic-conventions/blob/v1.26.0/docs/messaging/messaging-metrics.md#consumer-metrics">Consumer
  * metrics</a>.
  */
-public final class MessagingConsumerMetrics implements OperationListener {
+public final class MessagingConsumerMetrics implements OperationListener, FusedOperationListener {
   private static final double NANOS_PER_S = TimeUnit.SECONDS.toNanos(1);
 
   // copied from MessagingIncubatingAttributes
@@ -84,11 +85,27 @@ public final class MessagingConsumerMetrics implements OperationListener {
       return;
     }
 
-    Attributes attributes = state.startAttributes().toBuilder().putAll(endAttributes).build();
-    receiveDurationHistogram.record(
-        (endNanos - state.startTimeNanos()) / NANOS_PER_S, attributes, context);
+    internalOnEnd(
+        context, state.startAttributes(), endAttributes, state.startTimeNanos(), endNanos);
+  }
 
-    long receiveMessagesCount = getReceiveMessagesCount(state.startAttributes(), endAttributes);
+  /**
+   * This method is internal and is hence not for public use. Its API is unstable and can change at
+   * any time.
+   */
+  @Override
+  public void internalOnEnd(
+      Context context,
+      Attributes startAttributes,
+      Attributes endAttributes,
+      long startNanos,
+      long endNanos) {
+    Attributes attributes =
+        OperationMetricsUtil.mergeAttributes(
+            MessagingMetricsAdvice.MESSAGING_ATTRIBUTES, startAttributes, endAttributes);
+    receiveDurationHistogram.record((endNanos - startNanos) / NANOS_PER_S, attributes, context);
+
+    long receiveMessagesCount = getReceiveMessagesCount(startAttributes, endAttributes);
     receiveMessageCount.add(receiveMessagesCount, attributes, context);
   }
 
@@ -17,6 +17,7 @@ import io.opentelemetry.context.Context;
 import io.opentelemetry.context.ContextKey;
 import io.opentelemetry.instrumentation.api.instrumenter.OperationListener;
 import io.opentelemetry.instrumentation.api.instrumenter.OperationMetrics;
+import io.opentelemetry.instrumentation.api.internal.FusedOperationListener;
 import io.opentelemetry.instrumentation.api.internal.OperationMetricsUtil;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
@@ -26,7 +27,7 @@ import java.util.logging.Logger;
  * href="https://github.com/open-telemetry/semantic-conventions/blob/v1.26.0/docs/messaging/messaging-metrics.md#metric-messagingpublishduration">Producer
  * metrics</a>.
  */
-public final class MessagingProducerMetrics implements OperationListener {
+public final class MessagingProducerMetrics implements OperationListener, FusedOperationListener {
   private static final double NANOS_PER_S = TimeUnit.SECONDS.toNanos(1);
 
   private static final ContextKey<MessagingProducerMetrics.State> MESSAGING_PRODUCER_METRICS_STATE =
@@ -69,10 +70,26 @@ public final class MessagingProducerMetrics implements OperationListener {
       return;
     }
 
-    Attributes attributes = state.startAttributes().toBuilder().putAll(endAttributes).build();
+    internalOnEnd(
+        context, state.startAttributes(), endAttributes, state.startTimeNanos(), endNanos);
+  }
+
+  /**
+   * This method is internal and is hence not for public use. Its API is unstable and can change at
+   * any time.
+   */
+  @Override
+  public void internalOnEnd(
+      Context context,
+      Attributes startAttributes,
+      Attributes endAttributes,
+      long startNanos,
+      long endNanos) {
+    Attributes attributes =
+        OperationMetricsUtil.mergeAttributes(
+            MessagingMetricsAdvice.MESSAGING_ATTRIBUTES, startAttributes, endAttributes);
 
-    publishDurationHistogram.record(
-        (endNanos - state.startTimeNanos()) / NANOS_PER_S, attributes, context);
+    publishDurationHistogram.record((endNanos - startNanos) / NANOS_PER_S, attributes, context);
   }
 
   @AutoValue
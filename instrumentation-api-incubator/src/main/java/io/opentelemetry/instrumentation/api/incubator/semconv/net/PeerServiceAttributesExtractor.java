@@ -9,6 +9,7 @@ import io.opentelemetry.api.common.AttributeKey;
 import io.opentelemetry.api.common.AttributesBuilder;
 import io.opentelemetry.context.Context;
 import io.opentelemetry.instrumentation.api.instrumenter.AttributesExtractor;
+import io.opentelemetry.instrumentation.api.internal.SpanOnlyAttributesProvider;
 import io.opentelemetry.instrumentation.api.semconv.network.ServerAttributesGetter;
 import javax.annotation.Nullable;
 
@@ -18,7 +19,7 @@ import javax.annotation.Nullable;
  * specification</a>.
  */
 public final class PeerServiceAttributesExtractor<REQUEST, RESPONSE>
-    implements AttributesExtractor<REQUEST, RESPONSE> {
+    implements AttributesExtractor<REQUEST, RESPONSE>, SpanOnlyAttributesProvider {
 
   // copied from PeerIncubatingAttributes
   private static final AttributeKey<String> PEER_SERVICE = AttributeKey.stringKey("peer.service");
@@ -74,4 +75,14 @@ public final class PeerServiceAttributesExtractor<REQUEST, RESPONSE>
     }
     return peerServiceResolver.resolveService(host, port, null);
   }
+
+  /**
+   * This method is internal and is hence not for public use. Its API is unstable and can change at
+   * any time.
+   */
+  @Override
+  public boolean internalIsSpanOnly() {
+    // peer.service is neither used for sampling (it's an end attribute) nor in metrics
+    return true;
+  }
 }
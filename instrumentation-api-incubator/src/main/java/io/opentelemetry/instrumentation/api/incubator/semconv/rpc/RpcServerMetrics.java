@@ -16,6 +16,7 @@ import io.opentelemetry.context.Context;
 import io.opentelemetry.context.ContextKey;
 import io.opentelemetry.instrumentation.api.instrumenter.OperationListener;
 import io.opentelemetry.instrumentation.api.instrumenter.OperationMetrics;
+import io.opentelemetry.instrumentation.api.internal.FusedOperationListener;
 import io.opentelemetry.instrumentation.api.internal.OperationMetricsUtil;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
@@ -25,7 +26,7 @@ import java.util.logging.Logger;
  * href="https://github.com/open-telemetry/semantic-conventions/blob/main/docs/rpc/rpc-metrics.md#rpc-server">RPC
  * server metrics</a>.
  */
-public final class RpcServerMetrics implements OperationListener {
+public final class RpcServerMetrics implements OperationListener, FusedOperationListener {
 
   private static final double NANOS_PER_MS = TimeUnit.MILLISECONDS.toNanos(1);
 
@@ -72,9 +73,25 @@ public final class RpcServerMetrics implements OperationListener {
           context);
       return;
     }
+    internalOnEnd(
+        context, state.startAttributes(), endAttributes, state.startTimeNanos(), endNanos);
+  }
+
+  /**
+   * This method is internal and is hence not for public use. Its API is unstable and can change at
+   * any time.
+   */
+  @Override
+  public void internalOnEnd(
+      Context context,
+      Attributes startAttributes,
+      Attributes endAttributes,
+      long startNanos,
+      long endNanos) {
     serverDurationHistogram.record(
-        (endNanos - state.startTimeNanos()) / NANOS_PER_MS,
-        state.startAttributes().toBuilder().putAll(endAttributes).build(),
+        (endNanos - startNanos) / NANOS_PER_MS,
+        OperationMetricsUtil.mergeAttributes(
+            RpcMetricsAdvice.DURATION_ATTRIBUTES, startAttributes, endAttributes),
         context);
   }
 
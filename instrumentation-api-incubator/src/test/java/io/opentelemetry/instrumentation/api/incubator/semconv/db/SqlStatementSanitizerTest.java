@@ -7,6 +7,7 @@ package io.opentelemetry.instrumentation.api.incubator.semconv.db;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 
+import io.opentelemetry.instrumentation.api.internal.cache.Cache;
 import java.util.Random;
 import java.util.function.Function;
 import java.util.stream.Stream;
@@ -71,6 +72,101 @@ public class SqlStatementSanitizerTest {
     assertThat(result.getMainIdentifier()).isEqualTo(expected.getMainIdentifier());
   }
 
+  @Test
+  void cacheBoundedByEntries() {
+    Cache<SqlStatementSanitizer.CacheKey, SqlStatementInfo> cache =
+        SqlStatementSanitizer.createCache(10, 1000);
+    SqlStatementSanitizer sanitizer = SqlStatementSanitizer.create(true, cache, 0, 0);
+
+    for (int i = 0; i < 11; i++) {
+      sanitizer.sanitize("SELECT * FROM table" + i);
+    }
+
+    assertThat(cache.get(cacheKey("SELECT * FROM table0"))).isNull();
+    assertThat(cache.get(cacheKey("SELECT * FROM table10"))).isNotNull();
+  }
+
+  @Test
+  void cacheBoundedByCharacters() {
+    Cache<SqlStatementSanitizer.CacheKey, SqlStatementInfo> cache =
+        SqlStatementSanitizer.createCache(10, 1000);
+    SqlStatementSanitizer sanitizer = SqlStatementSanitizer.create(true, cache, 0, 0);
+
+    StringBuilder sb = new StringBuilder("SELECT * FROM table WHERE name = '");
+    while (sb.length() < 600) {
+      sb.append('x');
+    }
+    String longStatement = sb.append("'").toString();
+    sanitizer.sanitize(longStatement);
+    assertThat(cache.get(cacheKey(longStatement))).isNotNull();
+
+    // together with 5 short statements the long one exceeds the character limit
+    for (int i = 0; i < 5; i++) {
+      sanitizer.sanitize("SELECT * FROM table" + i);
+    }
+
+    assertThat(cache.get(cacheKey(longStatement))).isNull();
+    assertThat(cache.get(cacheKey("SELECT * FROM table0"))).isNotNull();
+  }
+
+  @Test
+  void longStatementsAreNotCached() {
+    Cache<SqlStatementSanitizer.CacheKey, SqlStatementInfo> cache = Cache.bounded(10);
+    SqlStatementSanitizer sanitizer = SqlStatementSanitizer.create(true, cache, 30, 0);
+
+    SqlStatementInfo result = sanitizer.sanitize("SELECT * FROM table WHERE id = 12345");
+    sanitizer.sanitize("SELECT * FROM table");
+
+    assertThat(result)
+        .isEqualTo(SqlStatementInfo.create("SELECT * FROM table WHERE id = ?", "SELECT", "table"));
+    assertThat(cache.get(cacheKey("SELECT * FROM table WHERE id = 12345"))).isNull();
+    assertThat(cache.get(cacheKey("SELECT * FROM table"))).isNotNull();
+  }
+
+  @Test
+  void inputLengthLimit() {
+    StringBuilder sb = new StringBuilder("INSERT INTO table (a, b) VALUES ('secret', 1)");
+    for (int i = 0; i < 10_000; i++) {
+      sb.append(", ('secret', ").append(i).append(")");
+    }
+    String query = sb.toString();
+    Cache<SqlStatementSanitizer.CacheKey, SqlStatementInfo> cache = Cache.bounded(10);
+    SqlStatementSanitizer sanitizer = SqlStatementSanitizer.create(true, cache, 0, 60);
+
+    SqlStatementInfo result = sanitizer.sanitize(query);
+
+    assertThat(result)
+        .isEqualTo(
+            SqlStatementInfo.create(
+                "INSERT INTO table (a, b) VALUES (?, ?), (?, ?)...", "INSERT", "table"));
+    assertThat(cache.get(cacheKey(query))).isNull();
+  }
+
+  @Test
+  void inputLengthLimitDoesNotSplitTokens() {
+    SqlStatementInfo result =
+        AutoSqlSanitizer.sanitize(
+            "SELECT * FROM table WHERE name = 'a very long secret value'", SqlDialect.DEFAULT, 40);
+
+    assertThat(result)
+        .isEqualTo(
+            SqlStatementInfo.create("SELECT * FROM table WHERE name = ?", "SELECT", "table"));
+  }
+
+  @Test
+  void inputLengthLimitNotReached() {
+    String query = "SELECT * FROM table WHERE id = 1";
+
+    SqlStatementInfo result = AutoSqlSanitizer.sanitize(query, SqlDialect.DEFAULT, query.length());
+
+    assertThat(result)
+        .isEqualTo(SqlStatementInfo.create("SELECT * FROM table WHERE id = ?", "SELECT", "table"));
+  }
+
+  private static SqlStatementSanitizer.CacheKey cacheKey(String statement) {
+    return SqlStatementSanitizer.CacheKey.create(statement, SqlDialect.DEFAULT);
+  }
+
   @Test
   void lotsOfTicksDontCauseStackOverflowOrLongRuntimes() {
     String s = "'";
@@ -6,12 +6,14 @@
 package io.opentelemetry.instrumentation.api.instrumenter;
 
 import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.Attributes;
 import io.opentelemetry.api.trace.Span;
 import io.opentelemetry.api.trace.SpanBuilder;
 import io.opentelemetry.api.trace.SpanKind;
 import io.opentelemetry.api.trace.Tracer;
 import io.opentelemetry.context.Context;
 import io.opentelemetry.context.ContextKey;
+import io.opentelemetry.instrumentation.api.internal.FusedOperationListener;
 import io.opentelemetry.instrumentation.api.internal.HttpRouteState;
 import io.opentelemetry.instrumentation.api.internal.InstrumenterAccess;
 import io.opentelemetry.instrumentation.api.internal.InstrumenterUtil;
@@ -45,6 +47,9 @@ public class Instrumenter<REQUEST, RESPONSE> {
   private static final ContextKey<OperationListener[]> START_OPERATION_LISTENERS =
       ContextKey.named("instrumenter-start-operation-listeners");
 
+  private static final ContextKey<OperationStart> OPERATION_START =
+      ContextKey.named("instrumenter-operation-start");
+
   /**
    * Returns a new {@link InstrumenterBuilder}.
    *
@@ -75,10 +80,14 @@ public class Instrumenter<REQUEST, RESPONSE> {
   private final SpanStatusExtractor<? super REQUEST, ? super RESPONSE> spanStatusExtractor;
   private final SpanLinksExtractor<? super REQUEST>[] spanLinksExtractors;
   private final AttributesExtractor<? super REQUEST, ? super RESPONSE>[] attributesExtractors;
+  private final AttributesExtractor<? super REQUEST, ? super RESPONSE>[]
+      spanOnlyAttributesExtractors;
   private final ContextCustomizer<? super REQUEST>[] contextCustomizers;
   private final OperationListener[] operationListeners;
+  private final boolean hasFusedOperationListeners;
   private final ErrorCauseExtractor errorCauseExtractor;
   private final boolean propagateOperationListenersToOnEnd;
+  private final boolean reuseScratchObjects;
   private final boolean enabled;
   private final SpanSuppressor spanSuppressor;
 
@@ -90,11 +99,16 @@ public class Instrumenter<REQUEST, RESPONSE> {
     this.spanKindExtractor = builder.spanKindExtractor;
     this.spanStatusExtractor = builder.spanStatusExtractor;
     this.spanLinksExtractors = builder.spanLinksExtractors.toArray(new SpanLinksExtractor[0]);
-    this.attributesExtractors = builder.attributesExtractors.toArray(new AttributesExtractor[0]);
+    this.attributesExtractors =
+        builder.buildAttributesExtractors(false).toArray(new AttributesExtractor[0]);
+    this.spanOnlyAttributesExtractors =
+        builder.buildAttributesExtractors(true).toArray(new AttributesExtractor[0]);
     this.contextCustomizers = builder.contextCustomizers.toArray(new ContextCustomizer[0]);
     this.operationListeners = builder.buildOperationListeners().toArray(new OperationListener[0]);
+    this.hasFusedOperationListeners = hasFusedOperationListeners(operationListeners);
     this.errorCauseExtractor = builder.errorCauseExtractor;
     this.propagateOperationListenersToOnEnd = builder.propagateOperationListenersToOnEnd;
+    this.reuseScratchObjects = builder.reuseScratchObjects;
     this.enabled = builder.enabled;
     this.spanSuppressor = builder.buildSpanSuppressor();
   }
@@ -172,12 +186,47 @@ public class Instrumenter<REQUEST, RESPONSE> {
       spanBuilder.setStartTimestamp(startTime);
     }
 
-    SpanLinksBuilder spanLinksBuilder = new SpanLinksBuilderImpl(spanBuilder);
-    for (SpanLinksExtractor<? super REQUEST> spanLinksExtractor : spanLinksExtractors) {
-      spanLinksExtractor.extract(spanLinksBuilder, parentContext, request);
+    InstrumenterScratch scratch = reuseScratchObjects ? InstrumenterScratch.get() : null;
+
+    if (spanLinksExtractors.length != 0) {
+      SpanLinksBuilderImpl spanLinksBuilder =
+          scratch != null
+              ? scratch.acquireSpanLinksBuilder(spanBuilder)
+              : new SpanLinksBuilderImpl(spanBuilder);
+      try {
+        for (SpanLinksExtractor<? super REQUEST> spanLinksExtractor : spanLinksExtractors) {
+          spanLinksExtractor.extract(spanLinksBuilder, parentContext, request);
+        }
+      } finally {
+        if (scratch != null) {
+          scratch.releaseSpanLinksBuilder(spanLinksBuilder);
+        }
+      }
     }
 
-    UnsafeAttributes attributes = new UnsafeAttributes();
+    // start attributes are handed over to context customizers and operation listeners, which are
+    // allowed to retain them (e.g. http.server.active_requests keeps them until the operation
+    // ends), so they can only be reused when there is nobody to hand them over to
+    UnsafeAttributes attributes =
+        scratch != null && contextCustomizers.length == 0 && operationListeners.length == 0
+            ? scratch.acquireAttributes()
+            : new UnsafeAttributes();
+    try {
+      return doStart(parentContext, request, startTime, spanKind, spanBuilder, attributes);
+    } finally {
+      if (scratch != null) {
+        scratch.releaseAttributes(attributes);
+      }
+    }
+  }
+
+  private Context doStart(
+      Context parentContext,
+      REQUEST request,
+      @Nullable Instant startTime,
+      SpanKind spanKind,
+      SpanBuilder spanBuilder,
+      UnsafeAttributes attributes) {
     for (AttributesExtractor<? super REQUEST, ? super RESPONSE> extractor : attributesExtractors) {
       extractor.onStart(attributes, parentContext, request);
     }
@@ -196,12 +245,28 @@ public class Instrumenter<REQUEST, RESPONSE> {
     Span span = spanBuilder.setParent(context).startSpan();
     context = context.with(span);
 
+    if (spanOnlyAttributesExtractors.length != 0 && span.isRecording()) {
+      UnsafeAttributes spanOnlyAttributes = new UnsafeAttributes();
+      for (AttributesExtractor<? super REQUEST, ? super RESPONSE> extractor :
+          spanOnlyAttributesExtractors) {
+        extractor.onStart(spanOnlyAttributes, parentContext, request);
+      }
+      span.setAllAttributes(spanOnlyAttributes);
+    }
+
     if (operationListeners.length != 0) {
       // operation listeners run after span start, so that they have access to the current span
       // for capturing exemplars
       long startNanos = getNanos(startTime);
+      if (hasFusedOperationListeners) {
+        // a single entry shared by all fused listeners replaces their per-listener state
+        context = context.with(OPERATION_START, new OperationStart(attributes, startNanos));
+      }
       for (int i = 0; i < operationListeners.length; i++) {
-        context = operationListeners[i].onStart(context, attributes, startNanos);
+        OperationListener operationListener = operationListeners[i];
+        if (!(operationListener instanceof FusedOperationListener)) {
+          context = operationListener.onStart(context, attributes, startNanos);
+        }
       }
     }
     if (propagateOperationListenersToOnEnd || context.get(START_OPERATION_LISTENERS) != null) {
@@ -237,25 +302,75 @@ public class Instrumenter<REQUEST, RESPONSE> {
       span.recordException(error);
     }
 
-    UnsafeAttributes attributes = new UnsafeAttributes();
-    for (AttributesExtractor<? super REQUEST, ? super RESPONSE> extractor : attributesExtractors) {
-      extractor.onEnd(attributes, context, request, response, error);
-    }
-    span.setAllAttributes(attributes);
+    InstrumenterScratch scratch = reuseScratchObjects ? InstrumenterScratch.get() : null;
 
-    OperationListener[] operationListeners = context.get(START_OPERATION_LISTENERS);
-    if (operationListeners == null) {
-      operationListeners = this.operationListeners;
-    }
-    if (operationListeners.length != 0) {
-      long endNanos = getNanos(endTime);
-      for (int i = operationListeners.length - 1; i >= 0; i--) {
-        operationListeners[i].onEnd(context, attributes, endNanos);
+    UnsafeAttributes attributes =
+        scratch != null ? scratch.acquireAttributes() : new UnsafeAttributes();
+    try {
+      for (AttributesExtractor<? super REQUEST, ? super RESPONSE> extractor :
+          attributesExtractors) {
+        extractor.onEnd(attributes, context, request, response, error);
+      }
+      span.setAllAttributes(attributes);
+
+      if (spanOnlyAttributesExtractors.length != 0 && span.isRecording()) {
+        UnsafeAttributes spanOnlyAttributes = new UnsafeAttributes();
+        for (AttributesExtractor<? super REQUEST, ? super RESPONSE> extractor :
+            spanOnlyAttributesExtractors) {
+          extractor.onEnd(spanOnlyAttributes, context, request, response, error);
+        }
+        span.setAllAttributes(spanOnlyAttributes);
+      }
+
+      OperationListener[] operationListeners = context.get(START_OPERATION_LISTENERS);
+      if (operationListeners == null) {
+        operationListeners = this.operationListeners;
+      }
+      if (operationListeners.length != 0) {
+        long endNanos = getNanos(endTime);
+        OperationStart operationStart = null;
+        // the reused scratch attributes are cleared once this method returns, listeners other than
+        // the fused ones may keep the attributes they are given so they get an immutable copy
+        Attributes listenerAttributes = scratch != null ? null : attributes;
+        for (int i = operationListeners.length - 1; i >= 0; i--) {
+          OperationListener operationListener = operationListeners[i];
+          if (operationListener instanceof FusedOperationListener) {
+            if (operationStart == null) {
+              operationStart = context.get(OPERATION_START);
+            }
+            if (operationStart != null) {
+              ((FusedOperationListener) operationListener)
+                  .internalOnEnd(
+                      context,
+                      operationStart.attributes,
+                      attributes,
+                      operationStart.startNanos,
+                      endNanos);
+              continue;
+            }
+          }
+          // also used when the start state of a fused listener is missing, it'll log that
+          if (listenerAttributes == null) {
+            listenerAttributes = attributes.build();
+          }
+          operationListener.onEnd(context, listenerAttributes, endNanos);
+        }
+      }
+    } finally {
+      if (scratch != null) {
+        scratch.releaseAttributes(attributes);
       }
     }
 
-    SpanStatusBuilder spanStatusBuilder = new SpanStatusBuilderImpl(span);
-    spanStatusExtractor.extract(spanStatusBuilder, request, response, error);
+    SpanStatusBuilderImpl spanStatusBuilder =
+        scratch != null ? scratch.acquireSpanStatusBuilder(span) : new SpanStatusBuilderImpl(span);
+    try {
+      spanStatusExtractor.extract(spanStatusBuilder, request, response, error);
+    } finally {
+      if (scratch != null) {
+        scratch.releaseSpanStatusBuilder(spanStatusBuilder);
+      }
+    }
 
     if (endTime != null) {
       span.end(endTime);
@@ -264,6 +379,15 @@ public class Instrumenter<REQUEST, RESPONSE> {
     }
   }
 
+  private static boolean hasFusedOperationListeners(OperationListener[] operationListeners) {
+    for (OperationListener operationListener : operationListeners) {
+      if (operationListener instanceof FusedOperationListener) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   private static long getNanos(@Nullable Instant time) {
     if (time == null) {
       return System.nanoTime();
@@ -271,6 +395,16 @@ public class Instrumenter<REQUEST, RESPONSE> {
     return TimeUnit.SECONDS.toNanos(time.getEpochSecond()) + time.getNano();
   }
 
+  private static final class OperationStart {
+    final Attributes attributes;
+    final long startNanos;
+
+    OperationStart(Attributes attributes, long startNanos) {
+      this.attributes = attributes;
+      this.startNanos = startNanos;
+    }
+  }
+
   static {
     InstrumenterUtil.setInstrumenterAccess(
         new InstrumenterAccess() {
@@ -26,6 +26,7 @@ import io.opentelemetry.instrumentation.api.internal.InstrumenterUtil;
 import io.opentelemetry.instrumentation.api.internal.SchemaUrlProvider;
 import io.opentelemetry.instrumentation.api.internal.SpanKey;
 import io.opentelemetry.instrumentation.api.internal.SpanKeyProvider;
+import io.opentelemetry.instrumentation.api.internal.SpanOnlyAttributesProvider;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
@@ -49,6 +50,14 @@ public final class InstrumenterBuilder<REQUEST, RESPONSE> {
           ConfigPropertiesUtil.getString(
               "otel.instrumentation.experimental.span-suppression-strategy"));
 
+  private static final boolean reuseScratchObjectsDefault =
+      ConfigPropertiesUtil.getBoolean(
+          "otel.instrumentation.experimental.instrumenter.reuse-scratch-objects", false);
+
+  private static final boolean skipSpanOnlyExtractorsDefault =
+      ConfigPropertiesUtil.getBoolean(
+          "otel.instrumentation.experimental.instrumenter.skip-span-only-extractors", false);
+
   final OpenTelemetry openTelemetry;
   final String instrumentationName;
   final SpanNameExtractor<? super REQUEST> spanNameExtractor;
@@ -67,6 +76,8 @@ public final class InstrumenterBuilder<REQUEST, RESPONSE> {
       SpanStatusExtractor.getDefault();
   ErrorCauseExtractor errorCauseExtractor = ErrorCauseExtractor.getDefault();
   boolean propagateOperationListenersToOnEnd = false;
+  boolean reuseScratchObjects = reuseScratchObjectsDefault;
+  boolean skipSpanOnlyExtractors = skipSpanOnlyExtractorsDefault;
   boolean enabled = true;
 
   InstrumenterBuilder(
@@ -371,10 +382,33 @@ public final class InstrumenterBuilder<REQUEST, RESPONSE> {
         .collect(Collectors.toSet());
   }
 
+  List<AttributesExtractor<? super REQUEST, ? super RESPONSE>> buildAttributesExtractors(
+      boolean spanOnly) {
+    if (!skipSpanOnlyExtractors) {
+      return spanOnly ? new ArrayList<>() : new ArrayList<>(attributesExtractors);
+    }
+    return attributesExtractors.stream()
+        .filter(extractor -> isSpanOnly(extractor) == spanOnly)
+        .collect(Collectors.toList());
+  }
+
+  private static boolean isSpanOnly(AttributesExtractor<?, ?> extractor) {
+    return extractor instanceof SpanOnlyAttributesProvider
+        && ((SpanOnlyAttributesProvider) extractor).internalIsSpanOnly();
+  }
+
   private void propagateOperationListenersToOnEnd() {
     propagateOperationListenersToOnEnd = true;
   }
 
+  private void setReuseScratchObjects(boolean reuseScratchObjects) {
+    this.reuseScratchObjects = reuseScratchObjects;
+  }
+
+  private void setSkipSpanOnlyExtractors(boolean skipSpanOnlyExtractors) {
+    this.skipSpanOnlyExtractors = skipSpanOnlyExtractors;
+  }
+
   private interface InstrumenterConstructor<RQ, RS> {
     Instrumenter<RQ, RS> create(InstrumenterBuilder<RQ, RS> builder);
 
@@ -417,6 +451,18 @@ public final class InstrumenterBuilder<REQUEST, RESPONSE> {
               InstrumenterBuilder<RQ, RS> builder) {
             builder.propagateOperationListenersToOnEnd();
           }
+
+          @Override
+          public <RQ, RS> void setReuseScratchObjects(
+              InstrumenterBuilder<RQ, RS> builder, boolean reuseScratchObjects) {
+            builder.setReuseScratchObjects(reuseScratchObjects);
+          }
+
+          @Override
+          public <RQ, RS> void setSkipSpanOnlyExtractors(
+              InstrumenterBuilder<RQ, RS> builder, boolean skipSpanOnlyExtractors) {
+            builder.setSkipSpanOnlyExtractors(skipSpanOnlyExtractors);
+          }
         });
   }
 }
@@ -0,0 +1,81 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.instrumentation.api.instrumenter;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanBuilder;
+
+/**
+ * Per-thread scratch objects reused by {@link Instrumenter}s that were built with scratch object
+ * reuse enabled. Every object is handed out only when it is not already in use on the current
+ * thread, so an instrumented operation that is started from within an extractor falls back to
+ * allocating fresh objects instead of corrupting the outer operation's state.
+ */
+final class InstrumenterScratch {
+
+  private static final ThreadLocal<InstrumenterScratch> current =
+      ThreadLocal.withInitial(InstrumenterScratch::new);
+
+  private final UnsafeAttributes attributes = new UnsafeAttributes();
+  private final SpanLinksBuilderImpl spanLinksBuilder = new SpanLinksBuilderImpl(null);
+  private final SpanStatusBuilderImpl spanStatusBuilder = new SpanStatusBuilderImpl(null);
+  private boolean attributesInUse;
+  private boolean spanLinksBuilderInUse;
+  private boolean spanStatusBuilderInUse;
+
+  static InstrumenterScratch get() {
+    return current.get();
+  }
+
+  private InstrumenterScratch() {}
+
+  UnsafeAttributes acquireAttributes() {
+    if (attributesInUse) {
+      return new UnsafeAttributes();
+    }
+    attributesInUse = true;
+    return attributes;
+  }
+
+  void releaseAttributes(UnsafeAttributes attributes) {
+    if (attributes == this.attributes) {
+      attributes.clear();
+      attributesInUse = false;
+    }
+  }
+
+  SpanLinksBuilderImpl acquireSpanLinksBuilder(SpanBuilder spanBuilder) {
+    if (spanLinksBuilderInUse) {
+      return new SpanLinksBuilderImpl(spanBuilder);
+    }
+    spanLinksBuilderInUse = true;
+    spanLinksBuilder.setSpanBuilder(spanBuilder);
+    return spanLinksBuilder;
+  }
+
+  void releaseSpanLinksBuilder(SpanLinksBuilderImpl spanLinksBuilder) {
+    if (spanLinksBuilder == this.spanLinksBuilder) {
+      spanLinksBuilder.setSpanBuilder(null);
+      spanLinksBuilderInUse = false;
+    }
+  }
+
+  SpanStatusBuilderImpl acquireSpanStatusBuilder(Span span) {
+    if (spanStatusBuilderInUse) {
+      return new SpanStatusBuilderImpl(span);
+    }
+    spanStatusBuilderInUse = true;
+    spanStatusBuilder.setSpan(span);
+    return spanStatusBuilder;
+  }
+
+  void releaseSpanStatusBuilder(SpanStatusBuilderImpl spanStatusBuilder) {
+    if (spanStatusBuilder == this.spanStatusBuilder) {
+      spanStatusBuilder.setSpan(null);
+      spanStatusBuilderInUse = false;
+    }
+  }
+}
@@ -9,11 +9,17 @@ import com.google.errorprone.annotations.CanIgnoreReturnValue;
 import io.opentelemetry.api.common.Attributes;
 import io.opentelemetry.api.trace.SpanBuilder;
 import io.opentelemetry.api.trace.SpanContext;
+import javax.annotation.Nullable;
 
 final class SpanLinksBuilderImpl implements SpanLinksBuilder {
-  private final SpanBuilder spanBuilder;
+  // not final, instances can be reused by InstrumenterScratch
+  private SpanBuilder spanBuilder;
 
-  SpanLinksBuilderImpl(SpanBuilder spanBuilder) {
+  SpanLinksBuilderImpl(@Nullable SpanBuilder spanBuilder) {
+    this.spanBuilder = spanBuilder;
+  }
+
+  void setSpanBuilder(@Nullable SpanBuilder spanBuilder) {
     this.spanBuilder = spanBuilder;
   }
 
@@ -8,11 +8,17 @@ package io.opentelemetry.instrumentation.api.instrumenter;
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
 import io.opentelemetry.api.trace.Span;
 import io.opentelemetry.api.trace.StatusCode;
+import javax.annotation.Nullable;
 
 final class SpanStatusBuilderImpl implements SpanStatusBuilder {
-  private final Span span;
+  // not final, instances can be reused by InstrumenterScratch
+  private Span span;
 
-  SpanStatusBuilderImpl(Span span) {
+  SpanStatusBuilderImpl(@Nullable Span span) {
+    this.span = span;
+  }
+
+  void setSpan(@Nullable Span span) {
     this.span = span;
   }
 
@@ -0,0 +1,33 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.instrumentation.api.internal;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.instrumentation.api.instrumenter.Instrumenter;
+import io.opentelemetry.instrumentation.api.instrumenter.OperationListener;
+
+/**
+ * An {@link OperationListener} that only needs the start attributes and the start timestamp of an
+ * operation when it ends. When an {@link OperationListener} implementing this interface is
+ * registered with an {@link Instrumenter}, the instrumenter does not call its {@link
+ * OperationListener#onStart(Context, Attributes, long) onStart()} and {@link
+ * OperationListener#onEnd(Context, Attributes, long) onEnd()} methods; instead it keeps the start
+ * attributes and timestamp in a single context entry shared by all such listeners, and calls {@link
+ * #internalOnEnd(Context, Attributes, Attributes, long, long)} when the operation ends.
+ *
+ * <p>This class is internal and is hence not for public use. Its APIs are unstable and can change
+ * at any time.
+ */
+public interface FusedOperationListener {
+
+  void internalOnEnd(
+      Context context,
+      Attributes startAttributes,
+      Attributes endAttributes,
+      long startNanos,
+      long endNanos);
+}
@@ -29,4 +29,10 @@ public interface InstrumenterBuilderAccess {
 
   <REQUEST, RESPONSE> void propagateOperationListenersToOnEnd(
       InstrumenterBuilder<REQUEST, RESPONSE> builder);
+
+  <REQUEST, RESPONSE> void setReuseScratchObjects(
+      InstrumenterBuilder<REQUEST, RESPONSE> builder, boolean reuseScratchObjects);
+
+  <REQUEST, RESPONSE> void setSkipSpanOnlyExtractors(
+      InstrumenterBuilder<REQUEST, RESPONSE> builder, boolean skipSpanOnlyExtractors);
 }
@@ -77,5 +77,39 @@ public final class InstrumenterUtil {
     return builder;
   }
 
+  /**
+   * Makes the {@link Instrumenter} reuse per-thread scratch attributes and span links/status
+   * builders instead of allocating new ones for every operation. {@link
+   * io.opentelemetry.instrumentation.api.instrumenter.OperationListener OperationListener}s are
+   * never handed the reused objects: they get an immutable copy of the end attributes (only the
+   * internal {@link FusedOperationListener}s, which don't retain them, see the reused ones), and
+   * start attributes are only reused when no operation listeners and no context customizers are
+   * registered.
+   */
+  @CanIgnoreReturnValue
+  public static <REQUEST, RESPONSE> InstrumenterBuilder<REQUEST, RESPONSE> setReuseScratchObjects(
+      InstrumenterBuilder<REQUEST, RESPONSE> builder, boolean reuseScratchObjects) {
+    // instrumenterBuilderAccess is guaranteed to be non-null here
+    instrumenterBuilderAccess.setReuseScratchObjects(builder, reuseScratchObjects);
+    return builder;
+  }
+
+  /**
+   * Makes the {@link Instrumenter} skip the {@link
+   * io.opentelemetry.instrumentation.api.instrumenter.AttributesExtractor AttributesExtractor}s
+   * that declare themselves {@linkplain SpanOnlyAttributesProvider span-only} when the span is not
+   * recording. Span-only extractors run after the span has been started, so their start attributes
+   * are visible neither to the sampler nor to context customizers; their end attributes are not
+   * passed to operation listeners.
+   */
+  @CanIgnoreReturnValue
+  public static <REQUEST, RESPONSE>
+      InstrumenterBuilder<REQUEST, RESPONSE> setSkipSpanOnlyExtractors(
+          InstrumenterBuilder<REQUEST, RESPONSE> builder, boolean skipSpanOnlyExtractors) {
+    // instrumenterBuilderAccess is guaranteed to be non-null here
+    instrumenterBuilderAccess.setSkipSpanOnlyExtractors(builder, skipSpanOnlyExtractors);
+    return builder;
+  }
+
   private InstrumenterUtil() {}
 }
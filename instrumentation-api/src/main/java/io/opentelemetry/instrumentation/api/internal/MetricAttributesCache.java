@@ -0,0 +1,166 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.instrumentation.api.internal;
+
+import static java.util.logging.Level.FINE;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.common.AttributesBuilder;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+import javax.annotation.Nullable;
+
+/**
+ * A bounded cache of pre-built metric {@link Attributes}, keyed by the values of a fixed list of
+ * low cardinality attribute keys (usually the keys of the metric attributes advice). Recording a
+ * measurement whose attribute values were seen before only requires a lookup, and hands the same
+ * {@link Attributes} instance to the SDK every time, which lets the SDK reuse its cached hash code
+ * when looking up the metric series.
+ *
+ * <p>Once the cache holds {@code capacity} entries no new entries are admitted: already cached
+ * attribute sets keep being served from the cache, while new attribute value combinations are built
+ * on every call. This keeps a cardinality explosion from either growing the cache without bounds or
+ * constantly evicting the frequently used entries.
+ *
+ * <p>This class is internal and is hence not for public use. Its APIs are unstable and can change
+ * at any time.
+ */
+public final class MetricAttributesCache {
+
+  private static final Logger logger = Logger.getLogger(MetricAttributesCache.class.getName());
+
+  private static final int CAPACITY =
+      ConfigPropertiesUtil.getInt(
+          "otel.instrumentation.experimental.metrics.attributes-cache-size", 0);
+
+  /**
+   * Returns a new cache for the given {@code keys}, or {@code null} if caching metric attributes
+   * was not enabled with {@code otel.instrumentation.experimental.metrics.attributes-cache-size}.
+   */
+  @Nullable
+  public static MetricAttributesCache create(List<AttributeKey<?>> keys) {
+    return CAPACITY > 0 ? new MetricAttributesCache(keys, CAPACITY) : null;
+  }
+
+  private final AttributeKey<?>[] keys;
+  private final int capacity;
+  private final ConcurrentMap<CacheKey, Attributes> cache = new ConcurrentHashMap<>();
+  private final AtomicBoolean overflowLogged = new AtomicBoolean();
+  private final ThreadLocal<CacheKey> lookupKey;
+
+  // visible for testing
+  MetricAttributesCache(List<AttributeKey<?>> keys, int capacity) {
+    this.keys = keys.toArray(new AttributeKey<?>[0]);
+    this.capacity = capacity;
+    int size = this.keys.length;
+    this.lookupKey = ThreadLocal.withInitial(() -> new CacheKey(new Object[size]));
+  }
+
+  /**
+   * Returns the attributes consisting of the values of this cache's keys, taken from {@code
+   * endAttributes} or, if not present there, from {@code startAttributes}.
+   */
+  public Attributes get(Attributes startAttributes, Attributes endAttributes) {
+    CacheKey lookup = lookupKey.get();
+    lookup.load(keys, startAttributes, endAttributes);
+    try {
+      Attributes attributes = cache.get(lookup);
+      if (attributes != null) {
+        return attributes;
+      }
+      attributes = build(lookup.values);
+      if (cache.size() < capacity) {
+        Attributes previous = cache.putIfAbsent(lookup.copy(), attributes);
+        if (previous != null) {
+          attributes = previous;
+        }
+      } else {
+        SupportabilityMetrics.instance()
+            .incrementCounter(SupportabilityMetrics.CounterNames.METRIC_ATTRIBUTES_CACHE_OVERFLOW);
+        if (overflowLogged.compareAndSet(false, true)) {
+          logger.log(
+              FINE,
+              "Metric attributes cache for {0} is full, new attribute combinations won't be cached.",
+              Arrays.asList(keys));
+        }
+      }
+      return attributes;
+    } finally {
+      lookup.clear();
+    }
+  }
+
+  private Attributes build(Object[] values) {
+    AttributesBuilder builder = Attributes.builder();
+    for (int i = 0; i < keys.length; i++) {
+      if (values[i] != null) {
+        put(builder, keys[i], values[i]);
+      }
+    }
+    return builder.build();
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> void put(AttributesBuilder builder, AttributeKey<T> key, Object value) {
+    builder.put(key, (T) value);
+  }
+
+  // visible for testing
+  int size() {
+    return cache.size();
+  }
+
+  private static final class CacheKey {
+    private final Object[] values;
+    private int hashCode;
+
+    CacheKey(Object[] values) {
+      this.values = values;
+    }
+
+    void load(AttributeKey<?>[] keys, Attributes startAttributes, Attributes endAttributes) {
+      for (int i = 0; i < keys.length; i++) {
+        Object value = endAttributes.get(keys[i]);
+        if (value == null) {
+          value = startAttributes.get(keys[i]);
+        }
+        values[i] = value;
+      }
+      hashCode = Arrays.hashCode(values);
+    }
+
+    void clear() {
+      Arrays.fill(values, null);
+    }
+
+    CacheKey copy() {
+      CacheKey copy = new CacheKey(values.clone());
+      copy.hashCode = hashCode;
+      return copy;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof CacheKey)) {
+        return false;
+      }
+      return Arrays.equals(values, ((CacheKey) obj).values);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+}
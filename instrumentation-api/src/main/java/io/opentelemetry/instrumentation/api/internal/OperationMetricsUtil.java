@@ -5,13 +5,16 @@
 
 package io.opentelemetry.instrumentation.api.internal;
 
+import io.opentelemetry.api.common.AttributeKey;
 import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.common.AttributesBuilder;
 import io.opentelemetry.api.incubator.metrics.ExtendedDoubleHistogramBuilder;
 import io.opentelemetry.api.metrics.DoubleHistogramBuilder;
 import io.opentelemetry.api.metrics.Meter;
 import io.opentelemetry.context.Context;
 import io.opentelemetry.instrumentation.api.instrumenter.OperationListener;
 import io.opentelemetry.instrumentation.api.instrumenter.OperationMetrics;
+import java.util.List;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.logging.Level;
@@ -34,6 +37,9 @@ public class OperationMetricsUtil {
         @Override
         public void onEnd(Context context, Attributes endAttributes, long endNanos) {}
       };
+  private static final boolean PREFILTER_ATTRIBUTES =
+      ConfigPropertiesUtil.getBoolean(
+          "otel.instrumentation.experimental.metrics.prefilter-attributes", false);
 
   public static OperationMetrics create(
       String description, Function<Meter, OperationListener> factory) {
@@ -69,5 +75,47 @@ public class OperationMetricsUtil {
     };
   }
 
+  /**
+   * Merges the start and end attributes of an operation, end attributes taking precedence. When
+   * {@code otel.instrumentation.experimental.metrics.prefilter-attributes} is enabled only the
+   * attributes listed in {@code adviceKeys} are copied, so that neither this method nor the SDK
+   * applying the attributes advice needs to copy the whole attribute set; note that attributes
+   * retained by a user configured view that are not part of the advice are dropped then.
+   */
+  public static Attributes mergeAttributes(
+      List<AttributeKey<?>> adviceKeys, Attributes startAttributes, Attributes endAttributes) {
+    return mergeAttributes(adviceKeys, startAttributes, endAttributes, PREFILTER_ATTRIBUTES);
+  }
+
+  // visible for testing
+  static Attributes mergeAttributes(
+      List<AttributeKey<?>> adviceKeys,
+      Attributes startAttributes,
+      Attributes endAttributes,
+      boolean prefilter) {
+    if (!prefilter) {
+      return startAttributes.toBuilder().putAll(endAttributes).build();
+    }
+    AttributesBuilder builder = Attributes.builder();
+    for (AttributeKey<?> key : adviceKeys) {
+      copyAttribute(builder, key, startAttributes, endAttributes);
+    }
+    return builder.build();
+  }
+
+  private static <T> void copyAttribute(
+      AttributesBuilder builder,
+      AttributeKey<T> key,
+      Attributes startAttributes,
+      Attributes endAttributes) {
+    T value = endAttributes.get(key);
+    if (value == null) {
+      value = startAttributes.get(key);
+    }
+    if (value != null) {
+      builder.put(key, value);
+    }
+  }
+
   private OperationMetricsUtil() {}
 }
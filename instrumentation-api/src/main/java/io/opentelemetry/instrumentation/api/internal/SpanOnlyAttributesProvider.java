@@ -0,0 +1,22 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.instrumentation.api.internal;
+
+import io.opentelemetry.instrumentation.api.instrumenter.AttributesExtractor;
+
+/**
+ * Declares whether the attributes produced by the {@link AttributesExtractor} that implements this
+ * interface are only used to decorate spans, i.e. they are neither needed by samplers nor by
+ * operation listeners recording metrics. Extractors that do not implement this interface are
+ * assumed to produce attributes relevant for sampling and metrics.
+ *
+ * <p>This class is internal and is hence not for public use. Its APIs are unstable and can change
+ * at any time.
+ */
+public interface SpanOnlyAttributesProvider {
+
+  boolean internalIsSpanOnly();
+}
@@ -124,6 +124,17 @@ public final class SupportabilityMetrics {
   public static final class CounterNames {
     public static final String SQL_STATEMENT_SANITIZER_CACHE_MISS =
         "SqlStatementSanitizer cache miss";
+    public static final String BOUNDED_CACHE_HIT = "Bounded cache hit";
+    public static final String BOUNDED_CACHE_MISS = "Bounded cache miss";
+    public static final String BOUNDED_CACHE_EVICTION = "Bounded cache eviction";
+    public static final String WEAK_MAP_CLEANER_EXPUNGED_ENTRIES =
+        "Weak map entries expunged by cleaner thread";
+    public static final String WEAK_MAP_INLINE_EXPUNGED_ENTRIES =
+        "Weak map entries expunged inline";
+    public static final String METRIC_ATTRIBUTES_CACHE_OVERFLOW =
+        "Metric attributes cache overflow";
+    public static final String NETTY_SERVER_CONTEXTS_BROKEN =
+        "Netty server channels that exceeded the pipelining limit";
 
     private CounterNames() {}
   }
@@ -6,6 +6,7 @@
 package io.opentelemetry.instrumentation.api.internal.cache;
 
 import io.opentelemetry.instrumentation.api.internal.cache.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
+import io.opentelemetry.instrumentation.api.internal.cache.concurrentlinkedhashmap.EntryWeigher;
 import java.util.function.Function;
 import javax.annotation.Nullable;
 
@@ -31,13 +32,47 @@ public interface Cache<K, V> {
    * Returns new bounded cache.
    *
    * <p>Both keys and values are strongly referenced.
+   *
+   * <p>By default the least recently used entries are evicted. When {@code
+   * otel.instrumentation.experimental.cache.frequency-aware-eviction} is enabled entries are
+   * evicted based on how frequently they were used recently instead, which keeps the hit rate up
+   * when many keys are requested only once.
    */
   static <K, V> Cache<K, V> bounded(int capacity) {
+    return bounded("unnamed", capacity);
+  }
+
+  /**
+   * Returns new bounded cache, like {@link #bounded(int)}. The {@code name} identifies the cache in
+   * the hit, miss and eviction counters that are reported with {@code otel.javaagent.debug} when
+   * frequency-aware eviction is enabled.
+   */
+  static <K, V> Cache<K, V> bounded(String name, int capacity) {
+    if (TinyLfuCache.ENABLED) {
+      return new TinyLfuCache<>(name, capacity);
+    }
     ConcurrentLinkedHashMap<K, V> map =
         new ConcurrentLinkedHashMap.Builder<K, V>().maximumWeightedCapacity(capacity).build();
     return new MapBackedCache<>(map);
   }
 
+  /**
+   * Returns new bounded cache whose capacity is the total weight of its entries, as determined by
+   * {@code weigher}, rather than their number. The least recently used entries are evicted when the
+   * total weight exceeds {@code maximumWeight}.
+   *
+   * <p>Both keys and values are strongly referenced.
+   */
+  static <K, V> Cache<K, V> weighted(
+      long maximumWeight, EntryWeigher<? super K, ? super V> weigher) {
+    ConcurrentLinkedHashMap<K, V> map =
+        new ConcurrentLinkedHashMap.Builder<K, V>()
+            .maximumWeightedCapacity(maximumWeight)
+            .weigher(weigher)
+            .build();
+    return new MapBackedCache<>(map);
+  }
+
   /**
    * Returns the cached value associated with the provided {@code key}. If no value is cached yet,
    * computes the value using {@code mappingFunction}, stores the result, and returns it.
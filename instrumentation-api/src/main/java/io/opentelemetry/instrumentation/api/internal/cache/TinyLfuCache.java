@@ -0,0 +1,273 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.instrumentation.api.internal.cache;
+
+import io.opentelemetry.instrumentation.api.internal.ConfigPropertiesUtil;
+import io.opentelemetry.instrumentation.api.internal.SupportabilityMetrics;
+import io.opentelemetry.instrumentation.api.internal.SupportabilityMetrics.CounterNames;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+
+/**
+ * A bounded cache that decides which entries to keep based on how frequently they were accessed
+ * recently (TinyLFU), instead of only on how recently they were accessed (LRU). A new entry is only
+ * admitted into a full cache if it was requested more often than the least recently used entry,
+ * which would be evicted to make room for it; otherwise the new entry is not retained. Scan-like
+ * workloads, where many keys are requested only once, therefore can't flush the frequently used
+ * entries out of the cache.
+ *
+ * <p>Reads don't take any lock: accessed entries are recorded in one of several striped, lossy
+ * buffers (selected by the current thread) which are replayed against the frequency sketch and the
+ * LRU order in batches, by whichever thread manages to acquire the eviction lock. Writes are
+ * applied while holding the eviction lock.
+ */
+final class TinyLfuCache<K, V> implements Cache<K, V> {
+
+  static final boolean ENABLED =
+      ConfigPropertiesUtil.getBoolean(
+          "otel.instrumentation.experimental.cache.frequency-aware-eviction", false);
+
+  private static final int NUMBER_OF_READ_BUFFERS =
+      FrequencySketch.ceilingPowerOfTwo(Runtime.getRuntime().availableProcessors());
+  private static final int READ_BUFFERS_MASK = NUMBER_OF_READ_BUFFERS - 1;
+
+  private final int capacity;
+  private final ConcurrentMap<K, Node<K, V>> data = new ConcurrentHashMap<>();
+  private final ReadBuffer[] readBuffers = new ReadBuffer[NUMBER_OF_READ_BUFFERS];
+  private final Consumer<String> counterIncrementer;
+  private final String hitCounterName;
+  private final String missCounterName;
+  private final String evictionCounterName;
+
+  // guarded by evictionLock
+  private final ReentrantLock evictionLock = new ReentrantLock();
+  private final FrequencySketch sketch;
+  // sentinel of a circular doubly linked list, from least to most recently used
+  private final Node<K, V> lru = new Node<>(null, null);
+
+  TinyLfuCache(String name, int capacity) {
+    this(name, capacity, SupportabilityMetrics.instance()::incrementCounter);
+  }
+
+  // visible for testing
+  TinyLfuCache(String name, int capacity, Consumer<String> counterIncrementer) {
+    this.capacity = Math.max(capacity, 1);
+    this.counterIncrementer = counterIncrementer;
+    // the counters are kept per cache, so that the hit rate of each cache can be told apart
+    this.hitCounterName = CounterNames.BOUNDED_CACHE_HIT + " (" + name + ")";
+    this.missCounterName = CounterNames.BOUNDED_CACHE_MISS + " (" + name + ")";
+    this.evictionCounterName = CounterNames.BOUNDED_CACHE_EVICTION + " (" + name + ")";
+    this.sketch = new FrequencySketch(this.capacity);
+    for (int i = 0; i < NUMBER_OF_READ_BUFFERS; i++) {
+      readBuffers[i] = new ReadBuffer();
+    }
+    lru.prev = lru;
+    lru.next = lru;
+  }
+
+  @Override
+  public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+    V value = get(key);
+    if (value != null) {
+      return value;
+    }
+    value = mappingFunction.apply(key);
+    if (value == null) {
+      return null;
+    }
+    return write(key, value, /* onlyIfAbsent= */ true);
+  }
+
+  @Nullable
+  @Override
+  public V get(K key) {
+    Node<K, V> node = data.get(key);
+    if (node == null) {
+      counterIncrementer.accept(missCounterName);
+      return null;
+    }
+    counterIncrementer.accept(hitCounterName);
+    afterRead(node);
+    return node.value;
+  }
+
+  @Override
+  public void put(K key, V value) {
+    write(key, value, /* onlyIfAbsent= */ false);
+  }
+
+  @Override
+  public void remove(K key) {
+    evictionLock.lock();
+    try {
+      Node<K, V> node = data.remove(key);
+      if (node != null) {
+        unlink(node);
+      }
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  // visible for testing
+  int size() {
+    return data.size();
+  }
+
+  private V write(K key, V value, boolean onlyIfAbsent) {
+    evictionLock.lock();
+    try {
+      drainReadBuffers();
+      sketch.increment(key);
+
+      Node<K, V> existing = data.get(key);
+      if (existing != null) {
+        moveToTail(existing);
+        if (onlyIfAbsent) {
+          return existing.value;
+        }
+        existing.value = value;
+        return value;
+      }
+
+      if (data.size() >= capacity) {
+        Node<K, V> victim = lru.next;
+        if (sketch.frequency(key) <= sketch.frequency(victim.key)) {
+          // the candidate is not used more often than the entry it would replace, don't admit it
+          return value;
+        }
+        data.remove(victim.key);
+        unlink(victim);
+        counterIncrementer.accept(evictionCounterName);
+      }
+
+      Node<K, V> node = new Node<>(key, value);
+      data.put(key, node);
+      linkLast(node);
+      return value;
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  private void afterRead(Node<K, V> node) {
+    ReadBuffer buffer = readBuffers[(int) Thread.currentThread().getId() & READ_BUFFERS_MASK];
+    if (!buffer.offer(node) && evictionLock.tryLock()) {
+      try {
+        drainReadBuffers();
+      } finally {
+        evictionLock.unlock();
+      }
+    }
+  }
+
+  // must be called while holding evictionLock
+  @SuppressWarnings("unchecked")
+  private void drainReadBuffers() {
+    for (ReadBuffer buffer : readBuffers) {
+      // bounded, so that readers that keep refilling the buffer can't stall the draining thread
+      for (int i = 0; i < ReadBuffer.SIZE; i++) {
+        Object node = buffer.poll();
+        if (node == null) {
+          break;
+        }
+        onAccess((Node<K, V>) node);
+      }
+    }
+  }
+
+  private void onAccess(Node<K, V> node) {
+    sketch.increment(node.key);
+    // the node may have been removed after it was read
+    if (node.next != null) {
+      moveToTail(node);
+    }
+  }
+
+  private void linkLast(Node<K, V> node) {
+    node.prev = lru.prev;
+    node.next = lru;
+    lru.prev.next = node;
+    lru.prev = node;
+  }
+
+  private static <K, V> void unlink(Node<K, V> node) {
+    node.prev.next = node.next;
+    node.next.prev = node.prev;
+    node.prev = null;
+    node.next = null;
+  }
+
+  private void moveToTail(Node<K, V> node) {
+    unlink(node);
+    linkLast(node);
+  }
+
+  private static final class Node<K, V> {
+    final K key;
+    volatile V value;
+
+    // guarded by evictionLock
+    @Nullable Node<K, V> prev;
+    @Nullable Node<K, V> next;
+
+    Node(K key, V value) {
+      this.key = key;
+      this.value = value;
+    }
+  }
+
+  /**
+   * A bounded multi producer ring buffer of accessed nodes, drained by the thread holding the
+   * eviction lock. Nodes are dropped when the buffer is full or contended; losing some accesses
+   * only makes the recorded frequencies and recency slightly less precise.
+   */
+  private static final class ReadBuffer {
+    private static final int SIZE = 16;
+    private static final int MASK = SIZE - 1;
+
+    private final AtomicReferenceArray<Object> buffer = new AtomicReferenceArray<>(SIZE);
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    /** Returns {@code false} if the buffer is full and should be drained. */
+    boolean offer(Object node) {
+      long currentHead = head;
+      long currentTail = tail.get();
+      if (currentTail - currentHead >= SIZE) {
+        return false;
+      }
+      if (tail.compareAndSet(currentTail, currentTail + 1)) {
+        buffer.lazySet((int) (currentTail & MASK), node);
+      }
+      return true;
+    }
+
+    // must be called while holding the eviction lock
+    @Nullable
+    Object poll() {
+      long currentHead = head;
+      if (currentHead == tail.get()) {
+        return null;
+      }
+      int index = (int) (currentHead & MASK);
+      Object node = buffer.get(index);
+      if (node == null) {
+        // the slot was claimed, but the node has not been published yet
+        return null;
+      }
+      buffer.lazySet(index, null);
+      head = currentHead + 1;
+      return node;
+    }
+  }
+}
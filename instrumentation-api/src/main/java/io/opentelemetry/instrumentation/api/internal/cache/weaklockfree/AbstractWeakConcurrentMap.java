@@ -25,6 +25,9 @@
 
 package io.opentelemetry.instrumentation.api.internal.cache.weaklockfree;
 
+import io.opentelemetry.instrumentation.api.internal.ConfigPropertiesUtil;
+import io.opentelemetry.instrumentation.api.internal.SupportabilityMetrics;
+import io.opentelemetry.instrumentation.api.internal.SupportabilityMetrics.CounterNames;
 import java.lang.ref.Reference;
 import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
@@ -52,8 +55,21 @@ abstract class AbstractWeakConcurrentMap<K, V, L> implements Iterable<Map.Entry<
 
   private static final ReferenceQueue<Object> REFERENCE_QUEUE = new ReferenceQueue<>();
 
+  // when enabled, stale entries are not removed by the WeakConcurrentMapCleaner thread, but by
+  // threads that modify any of the maps, a bounded number of entries per modification
+  static final boolean COOPERATIVE_CLEANUP =
+      ConfigPropertiesUtil.getBoolean(
+          "otel.instrumentation.experimental.weak-map.cooperative-cleanup", false);
+  // max number of stale entries that are removed per modification in cooperative cleanup mode;
+  // more than one, so that cleanup keeps up with modifications that leave stale entries behind
+  private static final int COOPERATIVE_CLEANUP_BATCH_SIZE = 8;
+
+  private static final SupportabilityMetrics supportability = SupportabilityMetrics.instance();
+
   final ConcurrentMap<WeakKey<K>, V> target;
   private final WeakReference<ConcurrentMap<WeakKey<K>, ?>> weakTarget;
+  // not final, visible for testing
+  private boolean cooperativeCleanup = COOPERATIVE_CLEANUP;
 
   protected AbstractWeakConcurrentMap() {
     this(new ConcurrentHashMap<>());
@@ -95,6 +111,7 @@ abstract class AbstractWeakConcurrentMap<K, V, L> implements Iterable<Map.Entry<
     if (value == null) {
       value = defaultValue(key);
       if (value != null) {
+        cooperativeCleanup();
         V previousValue = target.putIfAbsent(new WeakKey<>(key, weakTarget), value);
         if (previousValue != null) {
           value = previousValue;
@@ -145,6 +162,7 @@ abstract class AbstractWeakConcurrentMap<K, V, L> implements Iterable<Map.Entry<
     if (key == null || value == null) {
       throw new NullPointerException();
     }
+    cooperativeCleanup();
     return target.put(new WeakKey<>(key, weakTarget), value);
   }
 
@@ -164,7 +182,11 @@ abstract class AbstractWeakConcurrentMap<K, V, L> implements Iterable<Map.Entry<
     } finally {
       resetLookupKey(lookupKey);
     }
-    return previous == null ? target.putIfAbsent(new WeakKey<>(key, weakTarget), value) : previous;
+    if (previous != null) {
+      return previous;
+    }
+    cooperativeCleanup();
+    return target.putIfAbsent(new WeakKey<>(key, weakTarget), value);
   }
 
   public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
@@ -178,10 +200,12 @@ abstract class AbstractWeakConcurrentMap<K, V, L> implements Iterable<Map.Entry<
     } finally {
       resetLookupKey(lookupKey);
     }
-    return previous == null
-        ? target.computeIfAbsent(
-            new WeakKey<>(key, weakTarget), ignored -> mappingFunction.apply(key))
-        : previous;
+    if (previous != null) {
+      return previous;
+    }
+    cooperativeCleanup();
+    return target.computeIfAbsent(
+        new WeakKey<>(key, weakTarget), ignored -> mappingFunction.apply(key));
   }
 
   /**
@@ -193,6 +217,7 @@ abstract class AbstractWeakConcurrentMap<K, V, L> implements Iterable<Map.Entry<
     if (key == null || value == null) {
       throw new NullPointerException();
     }
+    cooperativeCleanup();
     return target.putIfAbsent(new WeakKey<>(key, weakTarget), value);
   }
 
@@ -204,6 +229,7 @@ abstract class AbstractWeakConcurrentMap<K, V, L> implements Iterable<Map.Entry<
     if (key == null) {
       throw new NullPointerException();
     }
+    cooperativeCleanup();
     L lookupKey = getLookupKey(key);
     try {
       return target.remove(lookupKey);
@@ -233,11 +259,38 @@ abstract class AbstractWeakConcurrentMap<K, V, L> implements Iterable<Map.Entry<
   public static void expungeStaleEntries() {
     Reference<?> reference;
     while ((reference = REFERENCE_QUEUE.poll()) != null) {
-      removeWeakKey((WeakKey<?>) reference);
+      removeWeakKey((WeakKey<?>) reference, CounterNames.WEAK_MAP_INLINE_EXPUNGED_ENTRIES);
     }
   }
 
-  private static void removeWeakKey(WeakKey<?> weakKey) {
+  /**
+   * Cleans at most {@code maxEntries} unused references.
+   *
+   * @return The number of cleaned references.
+   */
+  public static int expungeStaleEntries(int maxEntries) {
+    int expunged = 0;
+    Reference<?> reference;
+    while (expunged < maxEntries && (reference = REFERENCE_QUEUE.poll()) != null) {
+      removeWeakKey((WeakKey<?>) reference, CounterNames.WEAK_MAP_INLINE_EXPUNGED_ENTRIES);
+      expunged++;
+    }
+    return expunged;
+  }
+
+  private void cooperativeCleanup() {
+    if (cooperativeCleanup) {
+      expungeStaleEntries(COOPERATIVE_CLEANUP_BATCH_SIZE);
+    }
+  }
+
+  // visible for testing
+  void setCooperativeCleanup(boolean cooperativeCleanup) {
+    this.cooperativeCleanup = cooperativeCleanup;
+  }
+
+  private static void removeWeakKey(WeakKey<?> weakKey, String counterName) {
+    supportability.incrementCounter(counterName);
     ConcurrentMap<?, ?> map = weakKey.ownerRef.get();
     if (map != null) {
       map.remove(weakKey);
@@ -259,7 +312,7 @@ abstract class AbstractWeakConcurrentMap<K, V, L> implements Iterable<Map.Entry<
       while (!Thread.interrupted()) {
         Reference<?> reference = REFERENCE_QUEUE.remove();
         if (reference != null) {
-          removeWeakKey((WeakKey<?>) reference);
+          removeWeakKey((WeakKey<?>) reference, CounterNames.WEAK_MAP_CLEANER_EXPUNGED_ENTRIES);
         }
       }
     } catch (InterruptedException ignored) {
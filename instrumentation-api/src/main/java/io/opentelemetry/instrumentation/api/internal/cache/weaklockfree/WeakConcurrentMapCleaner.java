@@ -14,8 +14,13 @@ public final class WeakConcurrentMapCleaner {
 
   private WeakConcurrentMapCleaner() {}
 
+  /**
+   * Starts the thread that removes stale entries of all weak concurrent maps, unless stale entries
+   * are removed cooperatively by threads modifying the maps ({@code
+   * otel.instrumentation.experimental.weak-map.cooperative-cleanup}).
+   */
   public static synchronized void start() {
-    if (thread != null) {
+    if (thread != null || AbstractWeakConcurrentMap.COOPERATIVE_CLEANUP) {
       return;
     }
 
@@ -17,9 +17,12 @@ import io.opentelemetry.context.ContextKey;
 import io.opentelemetry.instrumentation.api.instrumenter.InstrumenterBuilder;
 import io.opentelemetry.instrumentation.api.instrumenter.OperationListener;
 import io.opentelemetry.instrumentation.api.instrumenter.OperationMetrics;
+import io.opentelemetry.instrumentation.api.internal.FusedOperationListener;
+import io.opentelemetry.instrumentation.api.internal.MetricAttributesCache;
 import io.opentelemetry.instrumentation.api.internal.OperationMetricsUtil;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
+import javax.annotation.Nullable;
 
 /**
  * {@link OperationListener} which keeps track of <a
@@ -28,7 +31,7 @@ import java.util.logging.Logger;
  *
  * @since 2.0.0
  */
-public final class HttpServerMetrics implements OperationListener {
+public final class HttpServerMetrics implements OperationListener, FusedOperationListener {
 
   private static final double NANOS_PER_S = TimeUnit.SECONDS.toNanos(1);
 
@@ -48,6 +51,7 @@ public final class HttpServerMetrics implements OperationListener {
   }
 
   private final DoubleHistogram duration;
+  @Nullable private final MetricAttributesCache attributesCache;
 
   private HttpServerMetrics(Meter meter) {
     DoubleHistogramBuilder stableDurationBuilder =
@@ -58,6 +62,7 @@ public final class HttpServerMetrics implements OperationListener {
             .setExplicitBucketBoundariesAdvice(HttpMetricsAdvice.DURATION_SECONDS_BUCKETS);
     HttpMetricsAdvice.applyServerDurationAdvice(stableDurationBuilder);
     duration = stableDurationBuilder.build();
+    attributesCache = MetricAttributesCache.create(HttpMetricsAdvice.SERVER_DURATION_ATTRIBUTES);
   }
 
   @Override
@@ -78,9 +83,28 @@ public final class HttpServerMetrics implements OperationListener {
       return;
     }
 
-    Attributes attributes = state.startAttributes().toBuilder().putAll(endAttributes).build();
+    internalOnEnd(
+        context, state.startAttributes(), endAttributes, state.startTimeNanos(), endNanos);
+  }
 
-    duration.record((endNanos - state.startTimeNanos()) / NANOS_PER_S, attributes, context);
+  /**
+   * This method is internal and is hence not for public use. Its API is unstable and can change at
+   * any time.
+   */
+  @Override
+  public void internalOnEnd(
+      Context context,
+      Attributes startAttributes,
+      Attributes endAttributes,
+      long startNanos,
+      long endNanos) {
+    Attributes attributes =
+        attributesCache != null
+            ? attributesCache.get(startAttributes, endAttributes)
+            : OperationMetricsUtil.mergeAttributes(
+                HttpMetricsAdvice.SERVER_DURATION_ATTRIBUTES, startAttributes, endAttributes);
+
+    duration.record((endNanos - startNanos) / NANOS_PER_S, attributes, context);
   }
 
   @AutoValue
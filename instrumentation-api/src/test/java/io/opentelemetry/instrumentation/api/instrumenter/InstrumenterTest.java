@@ -25,16 +25,21 @@ import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
 import io.opentelemetry.context.Context;
 import io.opentelemetry.context.ContextKey;
 import io.opentelemetry.context.propagation.TextMapGetter;
+import io.opentelemetry.instrumentation.api.internal.FusedOperationListener;
+import io.opentelemetry.instrumentation.api.internal.InstrumenterUtil;
 import io.opentelemetry.instrumentation.api.internal.SchemaUrlProvider;
 import io.opentelemetry.instrumentation.api.internal.SpanKey;
 import io.opentelemetry.instrumentation.api.internal.SpanKeyProvider;
+import io.opentelemetry.instrumentation.api.internal.SpanOnlyAttributesProvider;
 import io.opentelemetry.sdk.common.InstrumentationScopeInfo;
 import io.opentelemetry.sdk.testing.junit5.OpenTelemetryExtension;
 import io.opentelemetry.sdk.trace.data.LinkData;
 import io.opentelemetry.sdk.trace.data.StatusData;
+import java.time.Instant;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -114,6 +119,32 @@ class InstrumenterTest {
     }
   }
 
+  static class SpanOnlyAttributesExtractor
+      implements AttributesExtractor<Map<String, String>, Map<String, String>>,
+          SpanOnlyAttributesProvider {
+
+    @Override
+    public void onStart(
+        AttributesBuilder attributes, Context parentContext, Map<String, String> request) {
+      attributes.put("req3", request.get("req3"));
+    }
+
+    @Override
+    public void onEnd(
+        AttributesBuilder attributes,
+        Context context,
+        Map<String, String> request,
+        Map<String, String> response,
+        @Nullable Throwable error) {
+      attributes.put("resp3", response.get("resp3"));
+    }
+
+    @Override
+    public boolean internalIsSpanOnly() {
+      return true;
+    }
+  }
+
   static class AttributesExtractorWithSchemaUrl
       implements AttributesExtractor<Map<String, String>, Map<String, String>>, SchemaUrlProvider {
 
@@ -471,6 +502,61 @@ class InstrumenterTest {
     assertThat(endContext.get()).isTrue();
   }
 
+  @Test
+  void fusedOperationListeners() {
+    AtomicReference<Attributes> startAttributes = new AtomicReference<>();
+    AtomicReference<Attributes> endAttributes = new AtomicReference<>();
+    AtomicReference<Long> duration = new AtomicReference<>();
+
+    class TestFusedOperationListener implements OperationListener, FusedOperationListener {
+      @Override
+      public Context onStart(Context context, Attributes startAttributes, long startNanos) {
+        throw new AssertionError("onStart() must not be called for fused listeners");
+      }
+
+      @Override
+      public void onEnd(Context context, Attributes endAttributes, long endNanos) {
+        throw new AssertionError("onEnd() must not be called for fused listeners");
+      }
+
+      @Override
+      public void internalOnEnd(
+          Context context, Attributes start, Attributes end, long startNanos, long endNanos) {
+        startAttributes.set(start.toBuilder().build());
+        endAttributes.set(end.toBuilder().build());
+        duration.set(endNanos - startNanos);
+      }
+    }
+
+    Instrumenter<Map<String, String>, Map<String, String>> instrumenter =
+        Instrumenter.<Map<String, String>, Map<String, String>>builder(
+                otelTesting.getOpenTelemetry(), "test", unused -> "span")
+            .addAttributesExtractor(new AttributesExtractor1())
+            .addOperationListener(new TestFusedOperationListener())
+            .buildInstrumenter();
+
+    Context context =
+        InstrumenterUtil.startAndEnd(
+            instrumenter,
+            Context.root(),
+            REQUEST,
+            RESPONSE,
+            null,
+            Instant.ofEpochSecond(1),
+            Instant.ofEpochSecond(3));
+
+    assertThat(Span.fromContext(context).getSpanContext().isValid()).isTrue();
+    assertThat(startAttributes.get())
+        .containsOnly(
+            entry(AttributeKey.stringKey("req1"), "req1_value"),
+            entry(AttributeKey.stringKey("req2"), "req2_value"));
+    assertThat(endAttributes.get())
+        .containsOnly(
+            entry(AttributeKey.stringKey("resp1"), "resp1_value"),
+            entry(AttributeKey.stringKey("resp2"), "resp2_value"));
+    assertThat(duration.get()).isEqualTo(TimeUnit.SECONDS.toNanos(2));
+  }
+
   @Test
   void operationMetrics() {
     AtomicReference<Context> startContext = new AtomicReference<>();
@@ -544,6 +630,197 @@ class InstrumenterTest {
     assertThat(context.get(testKey)).isEqualTo("testVal");
   }
 
+  @Test
+  void reuseScratchObjects() {
+    Instrumenter<Map<String, String>, Map<String, String>> nestedInstrumenter =
+        InstrumenterUtil.setReuseScratchObjects(
+                Instrumenter.<Map<String, String>, Map<String, String>>builder(
+                        otelTesting.getOpenTelemetry(), "test", unused -> "nested")
+                    .addAttributesExtractor(new AttributesExtractor2()),
+                true)
+            .buildInstrumenter();
+    Instrumenter<Map<String, String>, Map<String, String>> instrumenter =
+        InstrumenterUtil.setReuseScratchObjects(
+                Instrumenter.<Map<String, String>, Map<String, String>>builder(
+                        otelTesting.getOpenTelemetry(), "test", unused -> "span")
+                    .addAttributesExtractor(new AttributesExtractor1())
+                    .addAttributesExtractor(
+                        AttributesExtractor.constant(AttributeKey.stringKey("key"), "value"))
+                    .addAttributesExtractor(
+                        new AttributesExtractor<Map<String, String>, Map<String, String>>() {
+                          @Override
+                          public void onStart(
+                              AttributesBuilder attributes,
+                              Context parentContext,
+                              Map<String, String> request) {
+                            // operation started while the outer one is extracting its attributes
+                            Context nested = nestedInstrumenter.start(parentContext, request);
+                            nestedInstrumenter.end(nested, request, RESPONSE, null);
+                          }
+
+                          @Override
+                          public void onEnd(
+                              AttributesBuilder attributes,
+                              Context context,
+                              Map<String, String> request,
+                              @Nullable Map<String, String> response,
+                              @Nullable Throwable error) {}
+                        })
+                    .addSpanLinksExtractor(new LinksExtractor()),
+                true)
+            .buildInstrumenter();
+
+    for (int i = 0; i < 2; i++) {
+      Context context = instrumenter.start(Context.root(), REQUEST);
+      instrumenter.end(context, REQUEST, RESPONSE, new IllegalStateException("test"));
+    }
+
+    otelTesting
+        .assertTraces()
+        .hasTracesSatisfyingExactly(
+            trace ->
+                trace.hasSpansSatisfyingExactly(
+                    span ->
+                        span.hasName("nested")
+                            .hasStatus(StatusData.unset())
+                            .hasTotalRecordedLinks(0)
+                            .hasAttributesSatisfyingExactly(
+                                equalTo(AttributeKey.stringKey("req2"), "req2_2_value"),
+                                equalTo(AttributeKey.stringKey("req3"), "req3_value"),
+                                equalTo(AttributeKey.stringKey("resp2"), "resp2_2_value"),
+                                equalTo(AttributeKey.stringKey("resp3"), "resp3_value"))),
+            trace ->
+                trace.hasSpansSatisfyingExactly(
+                    span ->
+                        span.hasName("span")
+                            .hasStatus(StatusData.error())
+                            .hasLinks(expectedSpanLink())
+                            .hasAttributesSatisfyingExactly(
+                                equalTo(AttributeKey.stringKey("req1"), "req1_value"),
+                                equalTo(AttributeKey.stringKey("req2"), "req2_value"),
+                                equalTo(AttributeKey.stringKey("key"), "value"),
+                                equalTo(AttributeKey.stringKey("resp1"), "resp1_value"),
+                                equalTo(AttributeKey.stringKey("resp2"), "resp2_value"))),
+            trace -> trace.hasSpansSatisfyingExactly(span -> span.hasName("nested")),
+            trace ->
+                trace.hasSpansSatisfyingExactly(
+                    span ->
+                        span.hasName("span")
+                            .hasStatus(StatusData.error())
+                            .hasLinks(expectedSpanLink())
+                            .hasAttributesSatisfyingExactly(
+                                equalTo(AttributeKey.stringKey("req1"), "req1_value"),
+                                equalTo(AttributeKey.stringKey("req2"), "req2_value"),
+                                equalTo(AttributeKey.stringKey("key"), "value"),
+                                equalTo(AttributeKey.stringKey("resp1"), "resp1_value"),
+                                equalTo(AttributeKey.stringKey("resp2"), "resp2_value"))));
+  }
+
+  @Test
+  void reuseScratchObjectsWithRetainingOperationListener() {
+    AtomicReference<Attributes> endAttributes = new AtomicReference<>();
+    Instrumenter<Map<String, String>, Map<String, String>> instrumenter =
+        InstrumenterUtil.setReuseScratchObjects(
+                Instrumenter.<Map<String, String>, Map<String, String>>builder(
+                        otelTesting.getOpenTelemetry(), "test", unused -> "span")
+                    .addAttributesExtractor(new AttributesExtractor1())
+                    .addOperationListener(
+                        new OperationListener() {
+                          @Override
+                          public Context onStart(
+                              Context context, Attributes startAttributes, long startNanos) {
+                            return context;
+                          }
+
+                          @Override
+                          public void onEnd(Context context, Attributes attributes, long endNanos) {
+                            // keeps the attributes after the operation has ended
+                            endAttributes.set(attributes);
+                          }
+                        }),
+                true)
+            .buildInstrumenter();
+
+    Context context = instrumenter.start(Context.root(), REQUEST);
+    instrumenter.end(context, REQUEST, RESPONSE, null);
+
+    assertThat(endAttributes.get())
+        .isEqualTo(
+            Attributes.of(
+                AttributeKey.stringKey("resp1"),
+                "resp1_value",
+                AttributeKey.stringKey("resp2"),
+                "resp2_value"));
+  }
+
+  @Test
+  void skipSpanOnlyExtractors() {
+    AtomicReference<Attributes> endAttributes = new AtomicReference<>();
+    OperationListener operationListener =
+        new OperationListener() {
+          @Override
+          public Context onStart(Context context, Attributes startAttributes, long startNanos) {
+            return context;
+          }
+
+          @Override
+          public void onEnd(Context context, Attributes attributes, long endNanos) {
+            endAttributes.set(attributes.toBuilder().build());
+          }
+        };
+
+    Instrumenter<Map<String, String>, Map<String, String>> instrumenter =
+        InstrumenterUtil.setSkipSpanOnlyExtractors(
+                Instrumenter.<Map<String, String>, Map<String, String>>builder(
+                        otelTesting.getOpenTelemetry(), "test", unused -> "span")
+                    .addAttributesExtractor(new AttributesExtractor1())
+                    .addAttributesExtractor(new SpanOnlyAttributesExtractor())
+                    .addOperationListener(operationListener),
+                true)
+            .buildInstrumenter();
+
+    Context unsampledParent =
+        Context.root()
+            .with(
+                Span.wrap(
+                    SpanContext.createFromRemoteParent(
+                        LINK_TRACE_ID,
+                        LINK_SPAN_ID,
+                        TraceFlags.getDefault(),
+                        TraceState.getDefault())));
+    Context context = instrumenter.start(unsampledParent, REQUEST);
+    assertThat(Span.fromContext(context).isRecording()).isFalse();
+    instrumenter.end(context, REQUEST, RESPONSE, null);
+
+    assertThat(endAttributes.get())
+        .containsOnly(
+            entry(AttributeKey.stringKey("resp1"), "resp1_value"),
+            entry(AttributeKey.stringKey("resp2"), "resp2_value"));
+
+    context = instrumenter.start(Context.root(), REQUEST);
+    instrumenter.end(context, REQUEST, RESPONSE, null);
+
+    assertThat(endAttributes.get())
+        .containsOnly(
+            entry(AttributeKey.stringKey("resp1"), "resp1_value"),
+            entry(AttributeKey.stringKey("resp2"), "resp2_value"));
+
+    otelTesting
+        .assertTraces()
+        .hasTracesSatisfyingExactly(
+            trace ->
+                trace.hasSpansSatisfyingExactly(
+                    span ->
+                        span.hasName("span")
+                            .hasAttributesSatisfyingExactly(
+                                equalTo(AttributeKey.stringKey("req1"), "req1_value"),
+                                equalTo(AttributeKey.stringKey("req2"), "req2_value"),
+                                equalTo(AttributeKey.stringKey("req3"), "req3_value"),
+                                equalTo(AttributeKey.stringKey("resp1"), "resp1_value"),
+                                equalTo(AttributeKey.stringKey("resp2"), "resp2_value"),
+                                equalTo(AttributeKey.stringKey("resp3"), "resp3_value"))));
+  }
+
   @Test
   void shouldDisableInstrumenter() {
     Instrumenter<String, String> instrumenter =
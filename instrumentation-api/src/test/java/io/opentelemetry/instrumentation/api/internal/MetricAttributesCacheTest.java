@@ -0,0 +1,78 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.instrumentation.api.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class MetricAttributesCacheTest {
+
+  private static final AttributeKey<String> ROUTE = AttributeKey.stringKey("route");
+  private static final AttributeKey<Long> STATUS = AttributeKey.longKey("status");
+  private static final List<AttributeKey<?>> KEYS = Arrays.asList(ROUTE, STATUS);
+
+  @Test
+  void returnsCachedAttributes() {
+    MetricAttributesCache cache = new MetricAttributesCache(KEYS, 10);
+
+    Attributes first =
+        cache.get(
+            Attributes.of(ROUTE, "/users/{id}", AttributeKey.stringKey("other"), "x"),
+            Attributes.of(STATUS, 200L));
+    Attributes second = cache.get(Attributes.of(ROUTE, "/users/{id}"), Attributes.of(STATUS, 200L));
+
+    assertThat(first).isEqualTo(Attributes.of(ROUTE, "/users/{id}", STATUS, 200L));
+    assertThat(second).isSameAs(first);
+    assertThat(cache.size()).isEqualTo(1);
+  }
+
+  @Test
+  void endAttributesTakePrecedence() {
+    MetricAttributesCache cache = new MetricAttributesCache(KEYS, 10);
+
+    Attributes attributes =
+        cache.get(
+            Attributes.of(ROUTE, "/", STATUS, 200L),
+            Attributes.of(ROUTE, "/users/{id}", STATUS, 404L));
+
+    assertThat(attributes).isEqualTo(Attributes.of(ROUTE, "/users/{id}", STATUS, 404L));
+  }
+
+  @Test
+  void missingValues() {
+    MetricAttributesCache cache = new MetricAttributesCache(KEYS, 10);
+
+    Attributes withoutStatus = cache.get(Attributes.of(ROUTE, "/"), Attributes.empty());
+    Attributes withStatus = cache.get(Attributes.of(ROUTE, "/"), Attributes.of(STATUS, 500L));
+
+    assertThat(withoutStatus).isEqualTo(Attributes.of(ROUTE, "/"));
+    assertThat(withStatus).isEqualTo(Attributes.of(ROUTE, "/", STATUS, 500L));
+    assertThat(cache.size()).isEqualTo(2);
+  }
+
+  @Test
+  void overflow() {
+    MetricAttributesCache cache = new MetricAttributesCache(KEYS, 2);
+
+    Attributes first = cache.get(Attributes.of(ROUTE, "/1"), Attributes.empty());
+    cache.get(Attributes.of(ROUTE, "/2"), Attributes.empty());
+    Attributes third = cache.get(Attributes.of(ROUTE, "/3"), Attributes.empty());
+
+    // entries admitted before the cache filled up keep being served from the cache
+    assertThat(cache.get(Attributes.of(ROUTE, "/1"), Attributes.empty())).isSameAs(first);
+    // new combinations are still recorded correctly, just not cached
+    assertThat(third).isEqualTo(Attributes.of(ROUTE, "/3"));
+    assertThat(cache.get(Attributes.of(ROUTE, "/3"), Attributes.empty()))
+        .isEqualTo(third)
+        .isNotSameAs(third);
+    assertThat(cache.size()).isEqualTo(2);
+  }
+}
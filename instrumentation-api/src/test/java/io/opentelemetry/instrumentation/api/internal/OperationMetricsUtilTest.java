@@ -7,6 +7,8 @@ package io.opentelemetry.instrumentation.api.internal;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
 import io.opentelemetry.api.metrics.DoubleHistogramBuilder;
 import io.opentelemetry.api.metrics.Meter;
 import io.opentelemetry.api.metrics.MeterProvider;
@@ -14,6 +16,8 @@ import io.opentelemetry.instrumentation.api.instrumenter.OperationMetrics;
 import io.opentelemetry.instrumentation.testing.junit.InstrumentationExtension;
 import io.opentelemetry.instrumentation.testing.junit.LibraryInstrumentationExtension;
 import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
@@ -69,6 +73,27 @@ class OperationMetricsUtilTest {
     assertThat(warning).isTrue();
   }
 
+  @Test
+  void mergeAttributes() {
+    AttributeKey<String> startKey = AttributeKey.stringKey("start");
+    AttributeKey<String> overriddenKey = AttributeKey.stringKey("overridden");
+    AttributeKey<String> highCardinalityKey = AttributeKey.stringKey("high-cardinality");
+    Attributes startAttributes =
+        Attributes.of(startKey, "start", overriddenKey, "start", highCardinalityKey, "start");
+    Attributes endAttributes = Attributes.of(overriddenKey, "end");
+    List<AttributeKey<?>> adviceKeys = Arrays.asList(startKey, overriddenKey);
+
+    assertThat(
+            OperationMetricsUtil.mergeAttributes(
+                adviceKeys, startAttributes, endAttributes, /* prefilter= */ false))
+        .isEqualTo(
+            Attributes.of(startKey, "start", overriddenKey, "end", highCardinalityKey, "start"));
+    assertThat(
+            OperationMetricsUtil.mergeAttributes(
+                adviceKeys, startAttributes, endAttributes, /* prefilter= */ true))
+        .isEqualTo(Attributes.of(startKey, "start", overriddenKey, "end"));
+  }
+
   private static DoubleHistogramBuilder proxyDoubleHistogramBuilder(Meter meter) {
     return (DoubleHistogramBuilder)
         Proxy.newProxyInstance(
@@ -0,0 +1,147 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.instrumentation.api.internal.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class TinyLfuCacheTest {
+
+  private final List<String> counters = Collections.synchronizedList(new ArrayList<>());
+
+  @Test
+  void basicOperations() {
+    TinyLfuCache<String, String> cache = new TinyLfuCache<>("test", 1, counters::add);
+
+    assertThat(cache.computeIfAbsent("bear", unused -> "roar")).isEqualTo("roar");
+    assertThat(cache.computeIfAbsent("bear", unused -> "growl")).isEqualTo("roar");
+    assertThat(cache.size()).isEqualTo(1);
+
+    cache.put("bear", "growl");
+    assertThat(cache.get("bear")).isEqualTo("growl");
+
+    cache.remove("bear");
+    assertThat(cache.get("bear")).isNull();
+    assertThat(cache.size()).isEqualTo(0);
+
+    cache.put("cat", "meow");
+    assertThat(cache.get("cat")).isEqualTo("meow");
+    assertThat(cache.computeIfAbsent("dog", unused -> null)).isNull();
+    assertThat(cache.size()).isEqualTo(1);
+  }
+
+  @Test
+  void admitsFrequentlyUsedKeys() {
+    TinyLfuCache<String, String> cache = new TinyLfuCache<>("test", 1, counters::add);
+
+    cache.put("cat", "meow");
+
+    // used once, not more often than "cat"
+    assertThat(cache.computeIfAbsent("dog", unused -> "bark")).isEqualTo("bark");
+    assertThat(cache.get("dog")).isNull();
+    assertThat(cache.get("cat")).isEqualTo("meow");
+
+    // used often enough to replace "cat"
+    for (int i = 0; i < 5; i++) {
+      cache.computeIfAbsent("dog", unused -> "bark");
+    }
+    assertThat(cache.get("dog")).isEqualTo("bark");
+    assertThat(cache.get("cat")).isNull();
+    assertThat(cache.size()).isEqualTo(1);
+  }
+
+  @Test
+  void scanResistant() {
+    TinyLfuCache<Integer, String> cache = new TinyLfuCache<>("test", 100, counters::add);
+
+    // hot keys interleaved with many keys that are used only once; an LRU cache of the same size
+    // would evict every hot key before it is used again
+    for (int i = 0; i < 10_000; i++) {
+      cache.computeIfAbsent(i % 100, String::valueOf);
+      cache.computeIfAbsent(1000 + i, String::valueOf);
+    }
+
+    int hits = 0;
+    for (int i = 0; i < 100; i++) {
+      if (cache.get(i) != null) {
+        hits++;
+      }
+    }
+    assertThat(hits).isGreaterThan(90);
+    assertThat(cache.size()).isEqualTo(100);
+  }
+
+  @Test
+  void concurrentAccess() throws Exception {
+    TinyLfuCache<Integer, Integer> cache = new TinyLfuCache<>("test", 50, counters::add);
+    int threads = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  start.await();
+                  ThreadLocalRandom random = ThreadLocalRandom.current();
+                  for (int i = 0; i < 10_000; i++) {
+                    int key = random.nextInt(200);
+                    switch (random.nextInt(10)) {
+                      case 0:
+                        cache.remove(key);
+                        break;
+                      case 1:
+                        cache.put(key, key);
+                        break;
+                      default:
+                        assertThat(cache.computeIfAbsent(key, k -> k)).isEqualTo(key);
+                    }
+                  }
+                  return null;
+                }));
+      }
+      start.countDown();
+      for (Future<?> future : futures) {
+        future.get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertThat(cache.size()).isLessThanOrEqualTo(50);
+  }
+
+  @Test
+  void countsHitsMissesAndEvictions() {
+    TinyLfuCache<String, String> cache = new TinyLfuCache<>("test", 1, counters::add);
+
+    cache.computeIfAbsent("cat", unused -> "meow");
+    cache.computeIfAbsent("cat", unused -> "meow");
+    for (int i = 0; i < 3; i++) {
+      cache.computeIfAbsent("dog", unused -> "bark");
+    }
+
+    assertThat(counters)
+        .containsExactly(
+            "Bounded cache miss (test)",
+            "Bounded cache hit (test)",
+            "Bounded cache miss (test)",
+            "Bounded cache miss (test)",
+            "Bounded cache miss (test)",
+            "Bounded cache eviction (test)");
+  }
+}
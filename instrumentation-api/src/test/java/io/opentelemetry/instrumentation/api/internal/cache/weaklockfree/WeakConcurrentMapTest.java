@@ -0,0 +1,52 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.instrumentation.api.internal.cache.weaklockfree;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import org.junit.jupiter.api.Test;
+
+class WeakConcurrentMapTest {
+
+  @Test
+  void expungeBoundedNumberOfStaleEntries() {
+    WeakConcurrentMap<Object, String> map = new WeakConcurrentMap<>(false);
+    for (int i = 0; i < 20; i++) {
+      map.put(new Object(), "value");
+    }
+    assertThat(map.approximateSize()).isEqualTo(20);
+
+    await()
+        .untilAsserted(
+            () -> {
+              System.gc();
+              assertThat(AbstractWeakConcurrentMap.expungeStaleEntries(5)).isBetween(0, 5);
+              assertThat(map.approximateSize()).isZero();
+            });
+  }
+
+  @Test
+  void cooperativeCleanup() {
+    WeakConcurrentMap<Object, String> map = new WeakConcurrentMap<>(false);
+    map.setCooperativeCleanup(true);
+    for (int i = 0; i < 20; i++) {
+      map.put(new Object(), "value");
+    }
+    assertThat(map.approximateSize()).isEqualTo(20);
+
+    await()
+        .untilAsserted(
+            () -> {
+              System.gc();
+              int sizeBefore = map.approximateSize();
+              // modifying the map expunges a bounded number of stale entries first
+              map.remove(new Object());
+              assertThat(sizeBefore - map.approximateSize()).isBetween(0, 8);
+              assertThat(map.approximateSize()).isZero();
+            });
+  }
+}
@@ -31,7 +31,8 @@ public class ElasticsearchClientAttributeExtractor
 
   private static final String PATH_PARTS_ATTRIBUTE_PREFIX = "db.elasticsearch.path_parts.";
 
-  private static final Cache<String, AttributeKey<String>> pathPartKeysCache = Cache.bounded(64);
+  private static final Cache<String, AttributeKey<String>> pathPartKeysCache =
+      Cache.bounded("elasticsearch path part keys", 64);
 
   private final Set<String> knownMethods;
 
@@ -5,11 +5,17 @@
 
 package io.opentelemetry.javaagent.bootstrap.executors;
 
+import static java.util.logging.Level.FINE;
+
+import io.opentelemetry.api.baggage.Baggage;
+import io.opentelemetry.api.trace.Span;
 import io.opentelemetry.context.Context;
 import io.opentelemetry.instrumentation.api.internal.ContextPropagationDebug;
 import io.opentelemetry.instrumentation.api.util.VirtualField;
 import io.opentelemetry.javaagent.bootstrap.InstrumentedTaskClasses;
 import java.util.concurrent.ExecutorService;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
 import javax.annotation.Nullable;
 
 /**
@@ -17,14 +23,67 @@ import javax.annotation.Nullable;
  */
 public final class ExecutorAdviceHelper {
 
-  private static final ThreadLocal<Boolean> propagationDisabled = new ThreadLocal<>();
+  private static final Logger logger = Logger.getLogger(ExecutorAdviceHelper.class.getName());
+
+  // Carrier threads disable and re-enable propagation every time a virtual thread is mounted, so
+  // the flag is kept in a holder that stays attached to the thread once created: setting a thread
+  // local again after removing it allocates a new thread local map entry every time. Threads that
+  // only check the flag (e.g. virtual threads submitting tasks) never allocate a holder.
+  private static final ThreadLocal<PropagationDisabled> propagationDisabled = new ThreadLocal<>();
+
+  private static final ClassValue<Boolean> OBSERVABLE_CONTEXT_ONLY =
+      new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> executorClass) {
+          Predicate<String> executors = observableContextOnlyExecutors;
+          return executors != null && executors.test(executorClass.getName());
+        }
+      };
+
+  @Nullable private static volatile Predicate<String> observableContextOnlyExecutors;
+  private static volatile boolean inlineContext;
+
+  /**
+   * Sets whether the context is stored directly in the tasks that support it, see {@link
+   * #attachContextToTaskInline(Context, VirtualField, Object)}. This method is called internally
+   * from the agent class loader before the instrumentations are installed.
+   */
+  public static void setInlineContext(boolean inlineContext) {
+    ExecutorAdviceHelper.inlineContext = inlineContext;
+  }
+
+  /**
+   * Returns whether the context is stored directly in the tasks that support it instead of in a
+   * {@link PropagatedContext} holder.
+   */
+  public static boolean isInlineContext() {
+    return inlineContext;
+  }
+
+  /**
+   * Sets the executors, by class name, that only propagate contexts that carry something
+   * observable, see {@link #shouldPropagateContext(Context, Object, Object)}. This method is called
+   * internally from the agent class loader.
+   */
+  public static void setObservableContextOnlyExecutors(Predicate<String> executorClassNames) {
+    if (observableContextOnlyExecutors != null) {
+      logger.warning("Observable context only executors were already set earlier; returning.");
+      return;
+    }
+    observableContextOnlyExecutors = executorClassNames;
+  }
 
   /**
    * Temporarily disable context propagation for current thread. Call {@link #enablePropagation()}
    * to re-enable the propagation.
    */
   public static void disablePropagation() {
-    propagationDisabled.set(Boolean.TRUE);
+    PropagationDisabled holder = propagationDisabled.get();
+    if (holder == null) {
+      holder = new PropagationDisabled();
+      propagationDisabled.set(holder);
+    }
+    holder.disabled = true;
   }
 
   /**
@@ -32,12 +91,16 @@ public final class ExecutorAdviceHelper {
    * #disablePropagation()}.
    */
   public static void enablePropagation() {
-    propagationDisabled.remove();
+    PropagationDisabled holder = propagationDisabled.get();
+    if (holder != null) {
+      holder.disabled = false;
+    }
   }
 
   // visible for testing
   public static boolean isPropagationDisabled() {
-    return propagationDisabled.get() != null;
+    PropagationDisabled holder = propagationDisabled.get();
+    return holder != null && holder.disabled;
   }
 
   /**
@@ -59,6 +122,33 @@ public final class ExecutorAdviceHelper {
     return InstrumentedTaskClasses.canInstrumentTaskClass(task.getClass());
   }
 
+  /**
+   * Like {@link #shouldPropagateContext(Context, Object)}, but when {@code executor} is configured
+   * to only propagate observable contexts, {@code context} is not propagated unless it carries a
+   * valid span context or baggage. A span context that is not sampled is still propagated, so that
+   * the spans created in the task keep the sampling decision instead of becoming new roots. Other
+   * context values can't be detected, a context that only carries them is not propagated.
+   */
+  public static boolean shouldPropagateContext(
+      Context context, @Nullable Object task, Object executor) {
+    if (observableContextOnlyExecutors != null
+        && OBSERVABLE_CONTEXT_ONLY.get(executor.getClass())
+        && !isObservable(context)) {
+      return false;
+    }
+    return shouldPropagateContext(context, task);
+  }
+
+  // there is no way to list the keys of a context, so only the span and the baggage are checked
+  private static boolean isObservable(Context context) {
+    Span span = Span.fromContextOrNull(context);
+    if (span != null && span.getSpanContext().isValid()) {
+      return true;
+    }
+    Baggage baggage = Baggage.fromContextOrNull(context);
+    return baggage != null && !baggage.isEmpty();
+  }
+
   /**
    * Associate {@code context} with passed {@code task} using {@code virtualField}. Once the context
    * is attached, {@link TaskAdviceHelper} can be used to make that context current during {@code
@@ -90,6 +180,55 @@ public final class ExecutorAdviceHelper {
     return propagatedContext;
   }
 
+  /**
+   * Associate {@code context} with passed {@code task} by storing it directly in {@code
+   * virtualField}, without a {@link PropagatedContext} holder. Like {@link
+   * #attachContextToTask(Context, VirtualField, Object)}, a context that is already attached to the
+   * task is not replaced. Once the context is attached, {@link
+   * TaskAdviceHelper#makeInlineContextCurrent(VirtualField, Object)} makes it current during {@code
+   * task} execution.
+   *
+   * @return whether the context was attached
+   */
+  public static <T> boolean attachContextToTaskInline(
+      Context context, VirtualField<T, Context> virtualField, T task) {
+    // like in attachContextToTask() this is not an atomic operation, when the task is submitted to
+    // >1 executors at roughly the same time one of them loses the context
+    Context attached = virtualField.get(task);
+    if (attached != null) {
+      // if task already has the requested context then we might be inside a nested call to execute
+      // where an outer call already attached state
+      if (attached != context
+          && ContextPropagationDebug.unwrap(attached) != context
+          && logger.isLoggable(FINE)) {
+        logger.log(
+            FINE,
+            "Failed to propagate context because previous propagated context is already set; new: {0}, old: {1}",
+            new Object[] {context, attached});
+      }
+      return false;
+    }
+
+    virtualField.set(task, ContextPropagationDebug.addDebugInfo(context, task));
+    return true;
+  }
+
+  /**
+   * Clean up the context attached by {@link #attachContextToTaskInline(Context, VirtualField,
+   * Object)} in case of any submission errors. Call this method after the submission method has
+   * exited.
+   */
+  public static <T> void cleanUpAfterSubmitInline(
+      boolean attached,
+      @Nullable Throwable throwable,
+      VirtualField<T, Context> virtualField,
+      T task) {
+    if (attached && throwable != null) {
+      // setting the field to null removes it from the fallback map
+      virtualField.set(task, null);
+    }
+  }
+
   /**
    * Clean up {@code propagatedContext} in case of any submission errors. Call this method after the
    * submission method has exited.
@@ -129,5 +268,21 @@ public final class ExecutorAdviceHelper {
     }
   }
 
+  /** Clean context attached to the given task without a {@link PropagatedContext} holder. */
+  public static <T> void cleanInlineContext(VirtualField<T, Context> virtualField, T task) {
+    if (isPropagationDisabled()) {
+      return;
+    }
+
+    if (virtualField.get(task) != null) {
+      // setting the field to null removes it from the fallback map
+      virtualField.set(task, null);
+    }
+  }
+
+  private static final class PropagationDisabled {
+    boolean disabled;
+  }
+
   private ExecutorAdviceHelper() {}
 }
@@ -32,5 +32,38 @@ public final class TaskAdviceHelper {
     return null;
   }
 
+  /**
+   * Make the {@link Context} that is stored directly in the {@code virtualField} of this {@code
+   * task} current and return the resulting scope. Will return {@code null} if there's no context
+   * attached to this {@code task}.
+   */
+  @Nullable
+  public static <T> Scope makeInlineContextCurrent(VirtualField<T, Context> virtualField, T task) {
+    Context context = virtualField.get(task);
+    if (context != null) {
+      // setting the field to null removes it from the fallback map
+      virtualField.set(task, null);
+      return context.makeCurrent();
+    }
+    return null;
+  }
+
+  /**
+   * Returns {@code scope}, or {@code newScope} when {@code scope} is {@code null}. When a task has
+   * more than one context attached only the first one is made current, so {@code newScope} is
+   * closed in that case.
+   */
+  @Nullable
+  public static Scope firstScope(@Nullable Scope scope, @Nullable Scope newScope) {
+    if (newScope == null) {
+      return scope;
+    }
+    if (scope != null) {
+      newScope.close();
+      return scope;
+    }
+    return newScope;
+  }
+
   private TaskAdviceHelper() {}
 }
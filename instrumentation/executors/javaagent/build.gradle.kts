@@ -12,6 +12,8 @@ muzzle {
 dependencies {
   bootstrap(project(":instrumentation:executors:bootstrap"))
 
+  compileOnly("io.opentelemetry:opentelemetry-sdk-extension-autoconfigure")
+
   testImplementation(project(":instrumentation:executors:testing"))
   testImplementation("org.scala-lang:scala-library:2.11.12")
   testCompileOnly(project(":instrumentation:executors:bootstrap"))
@@ -42,6 +44,42 @@ testing {
         }
       }
     }
+
+    val testInlineContext by registering(JvmTestSuite::class) {
+      sources {
+        java {
+          setSrcDirs(listOf("src/test/java"))
+        }
+      }
+
+      dependencies {
+        implementation(project(":instrumentation:executors:testing"))
+        compileOnly(project(":instrumentation:executors:bootstrap"))
+        compileOnly(project(":javaagent-bootstrap"))
+      }
+
+      targets {
+        all {
+          testTask.configure {
+            jvmArgs("-Dotel.instrumentation.executors.experimental.inline-context.enabled=true")
+          }
+        }
+      }
+    }
+
+    val testObservableContextOnly by registering(JvmTestSuite::class) {
+      dependencies {
+        implementation(project(":instrumentation:executors:testing"))
+      }
+
+      targets {
+        all {
+          testTask.configure {
+            jvmArgs("-Dotel.instrumentation.executors.experimental.observable-context-only=java.util.concurrent.ThreadPoolExecutor")
+          }
+        }
+      }
+    }
   }
 }
 
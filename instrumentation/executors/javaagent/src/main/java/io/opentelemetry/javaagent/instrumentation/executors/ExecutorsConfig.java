@@ -0,0 +1,52 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.instrumentation.executors;
+
+import static java.util.Collections.emptyList;
+
+import io.opentelemetry.javaagent.bootstrap.internal.AgentInstrumentationConfig;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.Predicate;
+import javax.annotation.Nullable;
+
+final class ExecutorsConfig {
+
+  /**
+   * Whether the context is stored directly in a field of the JDK executor tasks ({@code
+   * execute(Runnable)} and {@link java.util.concurrent.ForkJoinTask}) instead of in a {@link
+   * io.opentelemetry.javaagent.bootstrap.executors.PropagatedContext} holder, which saves an
+   * allocation per submitted task. A {@link Runnable} or {@link java.util.concurrent.Callable} that
+   * is submitted with {@code submit()}, {@code schedule()}, {@code invokeAll()} or {@code
+   * invokeAny()} still uses the holder, because it is shared with the {@link
+   * java.util.concurrent.Future} that wraps the task, so that cancelling the future clears it.
+   */
+  static boolean inlineContext() {
+    return AgentInstrumentationConfig.get()
+        .getBoolean("otel.instrumentation.executors.experimental.inline-context.enabled", false);
+  }
+
+  /**
+   * Returns the executors, by class name, that don't propagate contexts without a valid span
+   * context or baggage, or {@code null} when there are none. {@code *} selects all executors.
+   */
+  @Nullable
+  static Predicate<String> observableContextOnlyExecutors() {
+    List<String> executors =
+        AgentInstrumentationConfig.get()
+            .getList(
+                "otel.instrumentation.executors.experimental.observable-context-only", emptyList());
+    if (executors.isEmpty()) {
+      return null;
+    }
+    if (executors.contains("*")) {
+      return executorClassName -> true;
+    }
+    return new HashSet<>(executors)::contains;
+  }
+
+  private ExecutorsConfig() {}
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.instrumentation.executors;
+
+import com.google.auto.service.AutoService;
+import io.opentelemetry.javaagent.bootstrap.executors.ExecutorAdviceHelper;
+import io.opentelemetry.javaagent.tooling.BeforeAgentListener;
+import io.opentelemetry.sdk.autoconfigure.AutoConfiguredOpenTelemetrySdk;
+import java.util.function.Predicate;
+
+/**
+ * Passes the executors configuration to {@link ExecutorAdviceHelper} before the instrumentations
+ * are installed. The advice reads the configuration at runtime, so that the type instrumentations
+ * apply the same advice no matter how the agent is configured.
+ */
+@AutoService(BeforeAgentListener.class)
+public class ExecutorsConfigInstaller implements BeforeAgentListener {
+
+  @Override
+  public void beforeAgent(AutoConfiguredOpenTelemetrySdk autoConfiguredOpenTelemetrySdk) {
+    ExecutorAdviceHelper.setInlineContext(ExecutorsConfig.inlineContext());
+    Predicate<String> observableContextOnlyExecutors =
+        ExecutorsConfig.observableContextOnlyExecutors();
+    if (observableContextOnlyExecutors != null) {
+      ExecutorAdviceHelper.setObservableContextOnlyExecutors(observableContextOnlyExecutors);
+    }
+  }
+}
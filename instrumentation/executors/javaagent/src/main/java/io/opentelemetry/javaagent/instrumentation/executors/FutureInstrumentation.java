@@ -10,6 +10,7 @@ import static java.util.logging.Level.FINE;
 import static net.bytebuddy.matcher.ElementMatchers.named;
 import static net.bytebuddy.matcher.ElementMatchers.returns;
 
+import io.opentelemetry.context.Context;
 import io.opentelemetry.instrumentation.api.util.VirtualField;
 import io.opentelemetry.javaagent.bootstrap.executors.ExecutorAdviceHelper;
 import io.opentelemetry.javaagent.bootstrap.executors.PropagatedContext;
@@ -19,6 +20,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.Future;
 import java.util.logging.Logger;
 import net.bytebuddy.asm.Advice;
@@ -107,6 +109,12 @@ public class FutureInstrumentation implements TypeInstrumentation {
       VirtualField<Future<?>, PropagatedContext> virtualField =
           VirtualField.find(Future.class, PropagatedContext.class);
       ExecutorAdviceHelper.cleanPropagatedContext(virtualField, future);
+      // a fork join task is its own future, the context may be stored directly in the task
+      if (ExecutorAdviceHelper.isInlineContext() && future instanceof ForkJoinTask) {
+        VirtualField<ForkJoinTask<?>, Context> inlineVirtualField =
+            VirtualField.find(ForkJoinTask.class, Context.class);
+        ExecutorAdviceHelper.cleanInlineContext(inlineVirtualField, (ForkJoinTask<?>) future);
+      }
     }
   }
 }
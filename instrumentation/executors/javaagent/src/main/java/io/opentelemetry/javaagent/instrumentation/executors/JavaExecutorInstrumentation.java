@@ -8,6 +8,7 @@ package io.opentelemetry.javaagent.instrumentation.executors;
 import static io.opentelemetry.javaagent.extension.matcher.AgentElementMatchers.hasSuperType;
 import static io.opentelemetry.javaagent.instrumentation.executors.ExecutorMatchers.executorNameMatcher;
 import static io.opentelemetry.javaagent.instrumentation.executors.ExecutorMatchers.isExecutor;
+import static java.util.Arrays.asList;
 import static net.bytebuddy.matcher.ElementMatchers.is;
 import static net.bytebuddy.matcher.ElementMatchers.named;
 import static net.bytebuddy.matcher.ElementMatchers.namedOneOf;
@@ -41,17 +42,31 @@ public class JavaExecutorInstrumentation implements TypeInstrumentation {
 
   @Override
   public void transform(TypeTransformer transformer) {
-    transformer.applyAdviceToMethod(
-        named("execute").and(takesArgument(0, Runnable.class)).and(takesArguments(1)),
-        JavaExecutorInstrumentation.class.getName() + "$SetExecuteRunnableStateAdvice");
-    // Netty uses addTask as the actual core of their submission; there are non-standard variations
-    // like execute(Runnable,boolean) that aren't caught by standard instrumentation
-    transformer.applyAdviceToMethod(
-        named("addTask").and(takesArgument(0, Runnable.class)).and(takesArguments(1)),
-        JavaExecutorInstrumentation.class.getName() + "$SetExecuteRunnableStateAdvice");
-    transformer.applyAdviceToMethod(
-        named("execute").and(takesArgument(0, ForkJoinTask.class)),
-        JavaExecutorInstrumentation.class.getName() + "$SetJavaForkJoinStateAdvice");
+    // both advice sets are applied and the one that matches the configuration attaches the context,
+    // so that muzzle sees the virtual fields of both no matter how the agent is configured
+    for (String executeRunnableAdvice :
+        asList("$SetExecuteRunnableStateAdvice", "$SetExecuteRunnableInlineContextAdvice")) {
+      transformer.applyAdviceToMethod(
+          named("execute").and(takesArgument(0, Runnable.class)).and(takesArguments(1)),
+          JavaExecutorInstrumentation.class.getName() + executeRunnableAdvice);
+      // Netty uses addTask as the actual core of their submission; there are non-standard
+      // variations like execute(Runnable,boolean) that aren't caught by standard instrumentation
+      transformer.applyAdviceToMethod(
+          named("addTask").and(takesArgument(0, Runnable.class)).and(takesArguments(1)),
+          JavaExecutorInstrumentation.class.getName() + executeRunnableAdvice);
+    }
+    for (String forkJoinAdvice :
+        asList("$SetJavaForkJoinStateAdvice", "$SetJavaForkJoinInlineContextAdvice")) {
+      transformer.applyAdviceToMethod(
+          named("execute").and(takesArgument(0, ForkJoinTask.class)),
+          JavaExecutorInstrumentation.class.getName() + forkJoinAdvice);
+      transformer.applyAdviceToMethod(
+          named("submit").and(takesArgument(0, ForkJoinTask.class)),
+          JavaExecutorInstrumentation.class.getName() + forkJoinAdvice);
+      transformer.applyAdviceToMethod(
+          named("invoke").and(takesArgument(0, ForkJoinTask.class)),
+          JavaExecutorInstrumentation.class.getName() + forkJoinAdvice);
+    }
     transformer.applyAdviceToMethod(
         named("submit")
             .and(takesArgument(0, Runnable.class))
@@ -62,16 +77,10 @@ public class JavaExecutorInstrumentation implements TypeInstrumentation {
             .and(takesArgument(0, Callable.class))
             .and(returns(hasSuperType(is(Future.class)))),
         JavaExecutorInstrumentation.class.getName() + "$SetCallableStateAdvice");
-    transformer.applyAdviceToMethod(
-        named("submit").and(takesArgument(0, ForkJoinTask.class)),
-        JavaExecutorInstrumentation.class.getName() + "$SetJavaForkJoinStateAdvice");
     transformer.applyAdviceToMethod(
         namedOneOf("invokeAny", "invokeAll").and(takesArgument(0, Collection.class)),
         JavaExecutorInstrumentation.class.getName()
             + "$SetCallableStateForCallableCollectionAdvice");
-    transformer.applyAdviceToMethod(
-        named("invoke").and(takesArgument(0, ForkJoinTask.class)),
-        JavaExecutorInstrumentation.class.getName() + "$SetJavaForkJoinStateAdvice");
     transformer.applyAdviceToMethod(
         named("schedule")
             .and(takesArgument(0, Runnable.class))
@@ -89,9 +98,12 @@ public class JavaExecutorInstrumentation implements TypeInstrumentation {
 
     @Advice.OnMethodEnter(suppress = Throwable.class)
     public static PropagatedContext enterJobSubmit(
-        @Advice.Argument(value = 0, readOnly = false) Runnable task) {
+        @Advice.This Object executor, @Advice.Argument(value = 0, readOnly = false) Runnable task) {
+      if (ExecutorAdviceHelper.isInlineContext()) {
+        return null;
+      }
       Context context = Java8BytecodeBridge.currentContext();
-      if (!ExecutorAdviceHelper.shouldPropagateContext(context, task)) {
+      if (!ExecutorAdviceHelper.shouldPropagateContext(context, task, executor)) {
         return null;
       }
       if (ContextPropagatingRunnable.shouldDecorateRunnable(task)) {
@@ -114,13 +126,48 @@ public class JavaExecutorInstrumentation implements TypeInstrumentation {
     }
   }
 
+  @SuppressWarnings("unused")
+  public static class SetExecuteRunnableInlineContextAdvice {
+
+    @Advice.OnMethodEnter(suppress = Throwable.class)
+    public static boolean enterJobSubmit(
+        @Advice.This Object executor, @Advice.Argument(value = 0, readOnly = false) Runnable task) {
+      if (!ExecutorAdviceHelper.isInlineContext()) {
+        return false;
+      }
+      Context context = Java8BytecodeBridge.currentContext();
+      if (!ExecutorAdviceHelper.shouldPropagateContext(context, task, executor)) {
+        return false;
+      }
+      if (ContextPropagatingRunnable.shouldDecorateRunnable(task)) {
+        task = ContextPropagatingRunnable.propagateContext(task, context);
+        return false;
+      }
+      VirtualField<Runnable, Context> virtualField =
+          VirtualField.find(Runnable.class, Context.class);
+      return ExecutorAdviceHelper.attachContextToTaskInline(context, virtualField, task);
+    }
+
+    @Advice.OnMethodExit(onThrowable = Throwable.class, suppress = Throwable.class)
+    public static void exitJobSubmit(
+        @Advice.Argument(0) Runnable task,
+        @Advice.Enter boolean attached,
+        @Advice.Thrown Throwable throwable) {
+      VirtualField<Runnable, Context> virtualField =
+          VirtualField.find(Runnable.class, Context.class);
+      ExecutorAdviceHelper.cleanUpAfterSubmitInline(attached, throwable, virtualField, task);
+    }
+  }
+
   @SuppressWarnings("unused")
   public static class SetJavaForkJoinStateAdvice {
 
     @Advice.OnMethodEnter(suppress = Throwable.class)
-    public static PropagatedContext enterJobSubmit(@Advice.Argument(0) ForkJoinTask<?> task) {
+    public static PropagatedContext enterJobSubmit(
+        @Advice.This Object executor, @Advice.Argument(0) ForkJoinTask<?> task) {
       Context context = Java8BytecodeBridge.currentContext();
-      if (ExecutorAdviceHelper.shouldPropagateContext(context, task)) {
+      if (!ExecutorAdviceHelper.isInlineContext()
+          && ExecutorAdviceHelper.shouldPropagateContext(context, task, executor)) {
         VirtualField<ForkJoinTask<?>, PropagatedContext> virtualField =
             VirtualField.find(ForkJoinTask.class, PropagatedContext.class);
         return ExecutorAdviceHelper.attachContextToTask(context, virtualField, task);
@@ -139,14 +186,41 @@ public class JavaExecutorInstrumentation implements TypeInstrumentation {
     }
   }
 
+  @SuppressWarnings("unused")
+  public static class SetJavaForkJoinInlineContextAdvice {
+
+    @Advice.OnMethodEnter(suppress = Throwable.class)
+    public static boolean enterJobSubmit(
+        @Advice.This Object executor, @Advice.Argument(0) ForkJoinTask<?> task) {
+      Context context = Java8BytecodeBridge.currentContext();
+      if (ExecutorAdviceHelper.isInlineContext()
+          && ExecutorAdviceHelper.shouldPropagateContext(context, task, executor)) {
+        VirtualField<ForkJoinTask<?>, Context> virtualField =
+            VirtualField.find(ForkJoinTask.class, Context.class);
+        return ExecutorAdviceHelper.attachContextToTaskInline(context, virtualField, task);
+      }
+      return false;
+    }
+
+    @Advice.OnMethodExit(onThrowable = Throwable.class, suppress = Throwable.class)
+    public static void exitJobSubmit(
+        @Advice.Argument(0) ForkJoinTask<?> task,
+        @Advice.Enter boolean attached,
+        @Advice.Thrown Throwable throwable) {
+      VirtualField<ForkJoinTask<?>, Context> virtualField =
+          VirtualField.find(ForkJoinTask.class, Context.class);
+      ExecutorAdviceHelper.cleanUpAfterSubmitInline(attached, throwable, virtualField, task);
+    }
+  }
+
   @SuppressWarnings("unused")
   public static class SetSubmitRunnableStateAdvice {
 
     @Advice.OnMethodEnter(suppress = Throwable.class)
     public static PropagatedContext enterJobSubmit(
-        @Advice.Argument(value = 0, readOnly = false) Runnable task) {
+        @Advice.This Object executor, @Advice.Argument(value = 0, readOnly = false) Runnable task) {
       Context context = Java8BytecodeBridge.currentContext();
-      if (ExecutorAdviceHelper.shouldPropagateContext(context, task)) {
+      if (ExecutorAdviceHelper.shouldPropagateContext(context, task, executor)) {
         VirtualField<Runnable, PropagatedContext> virtualField =
             VirtualField.find(Runnable.class, PropagatedContext.class);
         return ExecutorAdviceHelper.attachContextToTask(context, virtualField, task);
@@ -175,9 +249,10 @@ public class JavaExecutorInstrumentation implements TypeInstrumentation {
   public static class SetCallableStateAdvice {
 
     @Advice.OnMethodEnter(suppress = Throwable.class)
-    public static PropagatedContext enterJobSubmit(@Advice.Argument(0) Callable<?> task) {
+    public static PropagatedContext enterJobSubmit(
+        @Advice.This Object executor, @Advice.Argument(0) Callable<?> task) {
       Context context = Java8BytecodeBridge.currentContext();
-      if (ExecutorAdviceHelper.shouldPropagateContext(context, task)) {
+      if (ExecutorAdviceHelper.shouldPropagateContext(context, task, executor)) {
         VirtualField<Callable<?>, PropagatedContext> virtualField =
             VirtualField.find(Callable.class, PropagatedContext.class);
         return ExecutorAdviceHelper.attachContextToTask(context, virtualField, task);
@@ -207,14 +282,14 @@ public class JavaExecutorInstrumentation implements TypeInstrumentation {
 
     @Advice.OnMethodEnter(suppress = Throwable.class)
     public static Collection<?> submitEnter(
-        @Advice.Argument(0) Collection<? extends Callable<?>> tasks) {
+        @Advice.This Object executor, @Advice.Argument(0) Collection<? extends Callable<?>> tasks) {
       if (tasks == null) {
         return Collections.emptyList();
       }
 
       Context context = Java8BytecodeBridge.currentContext();
       for (Callable<?> task : tasks) {
-        if (ExecutorAdviceHelper.shouldPropagateContext(context, task)) {
+        if (ExecutorAdviceHelper.shouldPropagateContext(context, task, executor)) {
           VirtualField<Callable<?>, PropagatedContext> virtualField =
               VirtualField.find(Callable.class, PropagatedContext.class);
           ExecutorAdviceHelper.attachContextToTask(context, virtualField, task);
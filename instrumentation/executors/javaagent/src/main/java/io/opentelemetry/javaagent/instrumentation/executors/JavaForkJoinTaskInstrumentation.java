@@ -45,9 +45,14 @@ public class JavaForkJoinTaskInstrumentation implements TypeInstrumentation {
     transformer.applyAdviceToMethod(
         named("exec").and(takesArguments(0)).and(not(isAbstract())),
         JavaForkJoinTaskInstrumentation.class.getName() + "$ForkJoinTaskAdvice");
+    // like in JavaExecutorInstrumentation both advices are applied, the one that matches the
+    // configuration attaches the context
     transformer.applyAdviceToMethod(
         named("fork").and(takesArguments(0)),
         JavaForkJoinTaskInstrumentation.class.getName() + "$ForkAdvice");
+    transformer.applyAdviceToMethod(
+        named("fork").and(takesArguments(0)),
+        JavaForkJoinTaskInstrumentation.class.getName() + "$ForkInlineContextAdvice");
   }
 
   @SuppressWarnings("unused")
@@ -57,38 +62,49 @@ public class JavaForkJoinTaskInstrumentation implements TypeInstrumentation {
      * When {@link ForkJoinTask} object is submitted to {@link ForkJoinPool} as {@link Runnable} or
      * {@link Callable} it will not get wrapped, instead it will be casted to {@code ForkJoinTask}
      * directly. This means state is still stored in {@code Runnable} or {@code Callable} and we
-     * need to use that state.
+     * need to use that state. When the context is stored directly in the tasks, tasks that are
+     * submitted with a future still have the context in a {@link PropagatedContext}.
      */
     @Advice.OnMethodEnter(suppress = Throwable.class)
     public static Scope enter(@Advice.This ForkJoinTask<?> task) {
+      boolean inlineContext = ExecutorAdviceHelper.isInlineContext();
+      Scope scope = null;
+      if (inlineContext) {
+        VirtualField<ForkJoinTask<?>, Context> inlineVirtualField =
+            VirtualField.find(ForkJoinTask.class, Context.class);
+        scope = TaskAdviceHelper.makeInlineContextCurrent(inlineVirtualField, task);
+      }
       VirtualField<ForkJoinTask<?>, PropagatedContext> virtualField =
           VirtualField.find(ForkJoinTask.class, PropagatedContext.class);
-      Scope scope = TaskAdviceHelper.makePropagatedContextCurrent(virtualField, task);
+      scope =
+          TaskAdviceHelper.firstScope(
+              scope, TaskAdviceHelper.makePropagatedContextCurrent(virtualField, task));
       if (task instanceof Runnable) {
+        if (inlineContext) {
+          VirtualField<Runnable, Context> runnableInlineVirtualField =
+              VirtualField.find(Runnable.class, Context.class);
+          scope =
+              TaskAdviceHelper.firstScope(
+                  scope,
+                  TaskAdviceHelper.makeInlineContextCurrent(
+                      runnableInlineVirtualField, (Runnable) task));
+        }
         VirtualField<Runnable, PropagatedContext> runnableVirtualField =
             VirtualField.find(Runnable.class, PropagatedContext.class);
-        Scope newScope =
-            TaskAdviceHelper.makePropagatedContextCurrent(runnableVirtualField, (Runnable) task);
-        if (null != newScope) {
-          if (null != scope) {
-            newScope.close();
-          } else {
-            scope = newScope;
-          }
-        }
+        scope =
+            TaskAdviceHelper.firstScope(
+                scope,
+                TaskAdviceHelper.makePropagatedContextCurrent(
+                    runnableVirtualField, (Runnable) task));
       }
       if (task instanceof Callable) {
         VirtualField<Callable<?>, PropagatedContext> callableVirtualField =
             VirtualField.find(Callable.class, PropagatedContext.class);
-        Scope newScope =
-            TaskAdviceHelper.makePropagatedContextCurrent(callableVirtualField, (Callable<?>) task);
-        if (null != newScope) {
-          if (null != scope) {
-            newScope.close();
-          } else {
-            scope = newScope;
-          }
-        }
+        scope =
+            TaskAdviceHelper.firstScope(
+                scope,
+                TaskAdviceHelper.makePropagatedContextCurrent(
+                    callableVirtualField, (Callable<?>) task));
       }
       return scope;
     }
@@ -107,7 +123,8 @@ public class JavaForkJoinTaskInstrumentation implements TypeInstrumentation {
     @Advice.OnMethodEnter(suppress = Throwable.class)
     public static PropagatedContext enterFork(@Advice.This ForkJoinTask<?> task) {
       Context context = Java8BytecodeBridge.currentContext();
-      if (ExecutorAdviceHelper.shouldPropagateContext(context, task)) {
+      if (!ExecutorAdviceHelper.isInlineContext()
+          && ExecutorAdviceHelper.shouldPropagateContext(context, task)) {
         VirtualField<ForkJoinTask<?>, PropagatedContext> virtualField =
             VirtualField.find(ForkJoinTask.class, PropagatedContext.class);
         return ExecutorAdviceHelper.attachContextToTask(context, virtualField, task);
@@ -125,4 +142,30 @@ public class JavaForkJoinTaskInstrumentation implements TypeInstrumentation {
       ExecutorAdviceHelper.cleanUpAfterSubmit(propagatedContext, throwable, virtualField, task);
     }
   }
+
+  @SuppressWarnings("unused")
+  public static class ForkInlineContextAdvice {
+
+    @Advice.OnMethodEnter(suppress = Throwable.class)
+    public static boolean enterFork(@Advice.This ForkJoinTask<?> task) {
+      Context context = Java8BytecodeBridge.currentContext();
+      if (ExecutorAdviceHelper.isInlineContext()
+          && ExecutorAdviceHelper.shouldPropagateContext(context, task)) {
+        VirtualField<ForkJoinTask<?>, Context> virtualField =
+            VirtualField.find(ForkJoinTask.class, Context.class);
+        return ExecutorAdviceHelper.attachContextToTaskInline(context, virtualField, task);
+      }
+      return false;
+    }
+
+    @Advice.OnMethodExit(onThrowable = Throwable.class, suppress = Throwable.class)
+    public static void exitFork(
+        @Advice.This ForkJoinTask<?> task,
+        @Advice.Enter boolean attached,
+        @Advice.Thrown Throwable throwable) {
+      VirtualField<ForkJoinTask<?>, Context> virtualField =
+          VirtualField.find(ForkJoinTask.class, Context.class);
+      ExecutorAdviceHelper.cleanUpAfterSubmitInline(attached, throwable, virtualField, task);
+    }
+  }
 }
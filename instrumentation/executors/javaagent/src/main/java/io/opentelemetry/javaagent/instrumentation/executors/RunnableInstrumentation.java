@@ -10,8 +10,10 @@ import static net.bytebuddy.matcher.ElementMatchers.isPublic;
 import static net.bytebuddy.matcher.ElementMatchers.named;
 import static net.bytebuddy.matcher.ElementMatchers.takesArguments;
 
+import io.opentelemetry.context.Context;
 import io.opentelemetry.context.Scope;
 import io.opentelemetry.instrumentation.api.util.VirtualField;
+import io.opentelemetry.javaagent.bootstrap.executors.ExecutorAdviceHelper;
 import io.opentelemetry.javaagent.bootstrap.executors.PropagatedContext;
 import io.opentelemetry.javaagent.bootstrap.executors.TaskAdviceHelper;
 import io.opentelemetry.javaagent.extension.instrumentation.TypeInstrumentation;
@@ -39,9 +41,18 @@ public class RunnableInstrumentation implements TypeInstrumentation {
 
     @Advice.OnMethodEnter(suppress = Throwable.class)
     public static Scope enter(@Advice.This Runnable thiz) {
+      Scope scope = null;
+      if (ExecutorAdviceHelper.isInlineContext()) {
+        VirtualField<Runnable, Context> inlineVirtualField =
+            VirtualField.find(Runnable.class, Context.class);
+        scope = TaskAdviceHelper.makeInlineContextCurrent(inlineVirtualField, thiz);
+      }
+      // tasks that are submitted with a future and by other instrumentations have the context in a
+      // PropagatedContext even when the context is stored directly in the tasks
       VirtualField<Runnable, PropagatedContext> virtualField =
           VirtualField.find(Runnable.class, PropagatedContext.class);
-      return TaskAdviceHelper.makePropagatedContextCurrent(virtualField, thiz);
+      return TaskAdviceHelper.firstScope(
+          scope, TaskAdviceHelper.makePropagatedContextCurrent(virtualField, thiz));
     }
 
     @Advice.OnMethodExit(onThrowable = Throwable.class, suppress = Throwable.class)
@@ -0,0 +1,111 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.instrumentation.executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.opentelemetry.api.baggage.Baggage;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.TraceFlags;
+import io.opentelemetry.api.trace.TraceState;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.ContextKey;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.instrumentation.testing.junit.AgentInstrumentationExtension;
+import io.opentelemetry.instrumentation.testing.junit.InstrumentationExtension;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+// ThreadPoolExecutor is configured to only propagate observable contexts via
+// otel.instrumentation.executors.experimental.observable-context-only
+class ObservableContextOnlyTest {
+
+  @RegisterExtension
+  static final InstrumentationExtension testing = AgentInstrumentationExtension.create();
+
+  private static final ExecutorService configuredExecutor =
+      new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+  private static final ExecutorService otherExecutor = new ForkJoinPool(1);
+
+  private static final ContextKey<String> KEY = ContextKey.named("test");
+
+  private static final Span notSampledSpan =
+      Span.wrap(
+          SpanContext.create(
+              "ff01020304050600ff0a0b0c0d0e0f00",
+              "090a0b0c0d0e0f00",
+              TraceFlags.getDefault(),
+              TraceState.getDefault()));
+
+  @AfterAll
+  static void tearDown() {
+    configuredExecutor.shutdown();
+    otherExecutor.shutdown();
+  }
+
+  @Test
+  void doesNotPropagateContextWithoutSpanOrBaggage() throws Exception {
+    Context propagated;
+    try (Scope ignored = Context.current().with(KEY, "value").makeCurrent()) {
+      propagated = configuredExecutor.submit(Context::current).get(10, TimeUnit.SECONDS);
+    }
+
+    assertThat(propagated.get(KEY)).isNull();
+  }
+
+  @Test
+  void propagatesNotSampledSpan() throws Exception {
+    Context propagated;
+    try (Scope ignored = notSampledSpan.makeCurrent()) {
+      propagated = configuredExecutor.submit(Context::current).get(10, TimeUnit.SECONDS);
+    }
+
+    // the spans created in the task keep the sampling decision
+    assertThat(Span.fromContext(propagated).getSpanContext())
+        .isEqualTo(notSampledSpan.getSpanContext());
+  }
+
+  @Test
+  void propagatesRecordingSpan() throws Exception {
+    Span propagated =
+        testing.runWithSpan(
+            "parent",
+            () -> {
+              assertThat(Span.current().isRecording()).isTrue();
+              return configuredExecutor.submit(Span::current).get(10, TimeUnit.SECONDS);
+            });
+
+    assertThat(propagated.isRecording()).isTrue();
+  }
+
+  @Test
+  void propagatesBaggage() throws Exception {
+    Baggage baggage = Baggage.builder().put("test", "test").build();
+    Context propagated;
+    try (Scope ignored = baggage.makeCurrent()) {
+      propagated = configuredExecutor.submit(Context::current).get(10, TimeUnit.SECONDS);
+    }
+
+    assertThat(Baggage.fromContext(propagated).getEntryValue("test")).isEqualTo("test");
+  }
+
+  @Test
+  void otherExecutorsPropagateContextWithoutSpanOrBaggage() throws Exception {
+    Context propagated;
+    try (Scope ignored = Context.current().with(KEY, "value").makeCurrent()) {
+      propagated = otherExecutor.submit(Context::current).get(10, TimeUnit.SECONDS);
+    }
+
+    assertThat(propagated.get(KEY)).isEqualTo("value");
+  }
+}
@@ -32,7 +32,8 @@ public final class LoggingEventMapper {
 
   public static final LoggingEventMapper INSTANCE = new LoggingEventMapper();
 
-  private static final Cache<String, AttributeKey<String>> mdcAttributeKeys = Cache.bounded(100);
+  private static final Cache<String, AttributeKey<String>> mdcAttributeKeys =
+      Cache.bounded("jboss-logmanager mdc attribute keys", 100);
 
   private final List<String> captureMdcAttributes;
 
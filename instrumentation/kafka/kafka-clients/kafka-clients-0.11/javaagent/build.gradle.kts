@@ -50,10 +50,19 @@ tasks {
     include("**/KafkaClientSuppressReceiveSpansTest.*")
   }
 
+  val testBatchProcess by registering(Test::class) {
+    filter {
+      includeTestsMatching("KafkaClientBatchProcessTest")
+    }
+    include("**/KafkaClientBatchProcessTest.*")
+    jvmArgs("-Dotel.instrumentation.kafka.experimental.batch-process.enabled=true")
+  }
+
   test {
     filter {
       excludeTestsMatching("KafkaClientPropagationDisabledTest")
       excludeTestsMatching("KafkaClientSuppressReceiveSpansTest")
+      excludeTestsMatching("KafkaClientBatchProcessTest")
     }
     jvmArgs("-Dotel.instrumentation.messaging.experimental.receive-telemetry.enabled=true")
   }
@@ -61,5 +70,6 @@ tasks {
   check {
     dependsOn(testPropagationDisabled)
     dependsOn(testReceiveSpansDisabled)
+    dependsOn(testBatchProcess)
   }
 }
@@ -6,7 +6,9 @@
 package io.opentelemetry.javaagent.instrumentation.kafkaclients.v0_11;
 
 import static io.opentelemetry.javaagent.bootstrap.kafka.KafkaClientsConsumerProcessTracing.wrappingEnabledSupplier;
+import static io.opentelemetry.javaagent.instrumentation.kafkaclients.v0_11.KafkaSingletons.consumerBatchProcessInstrumenter;
 import static io.opentelemetry.javaagent.instrumentation.kafkaclients.v0_11.KafkaSingletons.consumerProcessInstrumenter;
+import static io.opentelemetry.javaagent.instrumentation.kafkaclients.v0_11.KafkaSingletons.isBatchProcessEnabled;
 import static net.bytebuddy.matcher.ElementMatchers.isMethod;
 import static net.bytebuddy.matcher.ElementMatchers.isPublic;
 import static net.bytebuddy.matcher.ElementMatchers.named;
@@ -16,6 +18,7 @@ import static net.bytebuddy.matcher.ElementMatchers.takesArguments;
 
 import io.opentelemetry.instrumentation.kafka.internal.KafkaConsumerContext;
 import io.opentelemetry.instrumentation.kafka.internal.KafkaConsumerContextUtil;
+import io.opentelemetry.instrumentation.kafka.internal.TracingBatchIterator;
 import io.opentelemetry.instrumentation.kafka.internal.TracingIterable;
 import io.opentelemetry.instrumentation.kafka.internal.TracingIterator;
 import io.opentelemetry.instrumentation.kafka.internal.TracingList;
@@ -115,9 +118,23 @@ public class ConsumerRecordsInstrumentation implements TypeInstrumentation {
       // case it's important to overwrite the leaked span instead of suppressing the correct span
       // (https://github.com/open-telemetry/opentelemetry-java-instrumentation/issues/1947)
       KafkaConsumerContext consumerContext = KafkaConsumerContextUtil.get(records);
-      iterator =
-          TracingIterator.wrap(
-              iterator, consumerProcessInstrumenter(), wrappingEnabledSupplier(), consumerContext);
+      if (isBatchProcessEnabled()) {
+        // one process span for the whole batch, the records are linked to it
+        iterator =
+            TracingBatchIterator.wrap(
+                iterator,
+                consumerBatchProcessInstrumenter(),
+                wrappingEnabledSupplier(),
+                records,
+                consumerContext);
+      } else {
+        iterator =
+            TracingIterator.wrap(
+                iterator,
+                consumerProcessInstrumenter(),
+                wrappingEnabledSupplier(),
+                consumerContext);
+      }
     }
   }
 }
@@ -0,0 +1,188 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.instrumentation.kafkaclients.v0_11;
+
+import static io.opentelemetry.instrumentation.testing.util.TelemetryDataUtil.orderByRootSpanKind;
+import static io.opentelemetry.sdk.testing.assertj.OpenTelemetryAssertions.equalTo;
+import static io.opentelemetry.semconv.incubating.MessagingIncubatingAttributes.MESSAGING_BATCH_MESSAGE_COUNT;
+import static io.opentelemetry.semconv.incubating.MessagingIncubatingAttributes.MESSAGING_DESTINATION_NAME;
+import static io.opentelemetry.semconv.incubating.MessagingIncubatingAttributes.MESSAGING_KAFKA_MESSAGE_OFFSET;
+import static io.opentelemetry.semconv.incubating.MessagingIncubatingAttributes.MESSAGING_OPERATION;
+import static io.opentelemetry.semconv.incubating.MessagingIncubatingAttributes.MESSAGING_SYSTEM;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.instrumentation.kafka.internal.KafkaClientBaseTest;
+import io.opentelemetry.instrumentation.testing.junit.AgentInstrumentationExtension;
+import io.opentelemetry.instrumentation.testing.junit.InstrumentationExtension;
+import io.opentelemetry.sdk.trace.data.LinkData;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+class KafkaClientBatchProcessTest extends KafkaClientBaseTest {
+  @RegisterExtension
+  static final InstrumentationExtension testing = AgentInstrumentationExtension.create();
+
+  @Test
+  void testBatchProcessSpan() throws Exception {
+    testing.runWithSpan(
+        "parent",
+        () -> {
+          producer.send(new ProducerRecord<>(SHARED_TOPIC, 10, "first")).get(5, TimeUnit.SECONDS);
+          producer.send(new ProducerRecord<>(SHARED_TOPIC, 20, "second")).get(5, TimeUnit.SECONDS);
+        });
+
+    awaitUntilConsumerIsReady();
+    @SuppressWarnings("PreferJavaTimeOverload")
+    ConsumerRecords<?, ?> records = consumer.poll(Duration.ofSeconds(5).toMillis());
+    assertThat(records.count()).isEqualTo(2);
+    for (ConsumerRecord<?, ?> record : records) {
+      testing.runWithSpan("processing " + record.key(), () -> {});
+    }
+
+    AtomicReference<SpanData> producer1 = new AtomicReference<>();
+    AtomicReference<SpanData> producer2 = new AtomicReference<>();
+    testing.waitAndAssertSortedTraces(
+        orderByRootSpanKind(SpanKind.INTERNAL, SpanKind.CONSUMER),
+        trace -> {
+          trace.hasSpansSatisfyingExactly(
+              span -> span.hasName("parent").hasKind(SpanKind.INTERNAL).hasNoParent(),
+              span ->
+                  span.hasName(SHARED_TOPIC + " publish")
+                      .hasKind(SpanKind.PRODUCER)
+                      .hasParent(trace.getSpan(0)),
+              span ->
+                  span.hasName(SHARED_TOPIC + " publish")
+                      .hasKind(SpanKind.PRODUCER)
+                      .hasParent(trace.getSpan(0)));
+
+          producer1.set(trace.getSpan(1));
+          producer2.set(trace.getSpan(2));
+        },
+        trace ->
+            trace.hasSpansSatisfyingExactly(
+                span ->
+                    span.hasName(SHARED_TOPIC + " process")
+                        .hasKind(SpanKind.CONSUMER)
+                        .hasNoParent()
+                        .hasLinks(
+                            LinkData.create(producer1.get().getSpanContext()),
+                            LinkData.create(producer2.get().getSpanContext()))
+                        .hasAttributesSatisfying(
+                            equalTo(MESSAGING_SYSTEM, "kafka"),
+                            equalTo(MESSAGING_DESTINATION_NAME, SHARED_TOPIC),
+                            equalTo(MESSAGING_OPERATION, "process"),
+                            equalTo(MESSAGING_BATCH_MESSAGE_COUNT, 2)),
+                span -> span.hasName("processing 10").hasParent(trace.getSpan(0)),
+                span -> span.hasName("processing 20").hasParent(trace.getSpan(0))));
+  }
+
+  @Test
+  void testBatchProcessSpanEndsOnNextPoll() throws Exception {
+    testing.runWithSpan(
+        "parent",
+        () -> {
+          producer.send(new ProducerRecord<>(SHARED_TOPIC, 10, "first")).get(5, TimeUnit.SECONDS);
+          producer.send(new ProducerRecord<>(SHARED_TOPIC, 20, "second")).get(5, TimeUnit.SECONDS);
+        });
+
+    awaitUntilConsumerIsReady();
+    @SuppressWarnings("PreferJavaTimeOverload")
+    ConsumerRecords<?, ?> records = consumer.poll(Duration.ofSeconds(5).toMillis());
+    assertThat(records.count()).isEqualTo(2);
+    for (ConsumerRecord<?, ?> record : records) {
+      testing.runWithSpan("processing " + record.key(), () -> {});
+      // leave the loop before the iterator is exhausted
+      break;
+    }
+    // the batch span is still current until the next poll
+    assertThat(Span.current().getSpanContext().isValid()).isTrue();
+
+    @SuppressWarnings("PreferJavaTimeOverload")
+    ConsumerRecords<?, ?> nextRecords = consumer.poll(Duration.ofMillis(100).toMillis());
+    assertThat(nextRecords.count()).isZero();
+    assertThat(Span.current().getSpanContext().isValid()).isFalse();
+
+    AtomicReference<SpanData> producer1 = new AtomicReference<>();
+    AtomicReference<SpanData> producer2 = new AtomicReference<>();
+    testing.waitAndAssertSortedTraces(
+        orderByRootSpanKind(SpanKind.INTERNAL, SpanKind.CONSUMER),
+        trace -> {
+          trace.hasSpansSatisfyingExactly(
+              span -> span.hasName("parent").hasKind(SpanKind.INTERNAL).hasNoParent(),
+              span ->
+                  span.hasName(SHARED_TOPIC + " publish")
+                      .hasKind(SpanKind.PRODUCER)
+                      .hasParent(trace.getSpan(0)),
+              span ->
+                  span.hasName(SHARED_TOPIC + " publish")
+                      .hasKind(SpanKind.PRODUCER)
+                      .hasParent(trace.getSpan(0)));
+
+          producer1.set(trace.getSpan(1));
+          producer2.set(trace.getSpan(2));
+        },
+        trace ->
+            trace.hasSpansSatisfyingExactly(
+                span ->
+                    span.hasName(SHARED_TOPIC + " process")
+                        .hasKind(SpanKind.CONSUMER)
+                        .hasNoParent()
+                        .hasLinks(
+                            LinkData.create(producer1.get().getSpanContext()),
+                            LinkData.create(producer2.get().getSpanContext()))
+                        .hasAttributesSatisfying(equalTo(MESSAGING_BATCH_MESSAGE_COUNT, 2)),
+                span -> span.hasName("processing 10").hasParent(trace.getSpan(0))));
+  }
+
+  @Test
+  void testRecordsWithTopicPartitionKeepRecordSpans()
+      throws ExecutionException, InterruptedException, TimeoutException {
+    producer
+        .send(new ProducerRecord<>(SHARED_TOPIC, partition, null, "hello"))
+        .get(5, TimeUnit.SECONDS);
+
+    awaitUntilConsumerIsReady();
+    @SuppressWarnings("PreferJavaTimeOverload")
+    ConsumerRecords<?, ?> consumerRecords = consumer.poll(Duration.ofSeconds(5).toMillis());
+    List<? extends ConsumerRecord<?, ?>> recordsInPartition =
+        consumerRecords.records(topicPartition);
+    assertThat(recordsInPartition.size()).isEqualTo(1);
+    // only the iterator of the whole batch creates a batch process span, the records of a
+    // partition still get a process span each
+    for (ConsumerRecord<?, ?> record : recordsInPartition) {
+      assertThat(record.value()).isEqualTo("hello");
+    }
+
+    testing.waitAndAssertTraces(
+        trace ->
+            trace.hasSpansSatisfyingExactly(
+                span ->
+                    span.hasName(SHARED_TOPIC + " publish")
+                        .hasKind(SpanKind.PRODUCER)
+                        .hasNoParent(),
+                span ->
+                    span.hasName(SHARED_TOPIC + " process")
+                        .hasKind(SpanKind.CONSUMER)
+                        .hasParent(trace.getSpan(0))
+                        .hasAttributesSatisfying(
+                            equalTo(MESSAGING_OPERATION, "process"),
+                            equalTo(
+                                MESSAGING_KAFKA_MESSAGE_OFFSET,
+                                recordsInPartition.get(0).offset()))));
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.instrumentation.kafka.internal;
+
+import io.opentelemetry.api.baggage.propagation.W3CBaggagePropagator;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.propagation.TextMapPropagator;
+import io.opentelemetry.instrumentation.api.instrumenter.SpanLinksBuilder;
+import io.opentelemetry.instrumentation.api.instrumenter.SpanLinksExtractor;
+import io.opentelemetry.instrumentation.api.internal.PropagatorBasedSpanLinksExtractor;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@Fork(3)
+@Warmup(iterations = 10, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@State(Scope.Thread)
+public class KafkaRecordSpanLinksExtractorBenchmark {
+
+  private static final TextMapPropagator propagator =
+      TextMapPropagator.composite(
+          W3CTraceContextPropagator.getInstance(), W3CBaggagePropagator.getInstance());
+
+  // number of headers of the record, one of them is the traceparent when there are any
+  @Param({"0", "1", "20"})
+  public int headers;
+
+  private final SpanLinksExtractor<KafkaProcessRequest> propagatorLinksExtractor =
+      new PropagatorBasedSpanLinksExtractor<>(propagator, KafkaConsumerRecordGetter.INSTANCE);
+  private final KafkaRecordSpanLinksExtractor recordLinksExtractor =
+      new KafkaRecordSpanLinksExtractor(propagator);
+
+  private KafkaProcessRequest request;
+  private BlackholeSpanLinksBuilder spanLinks;
+
+  @Setup
+  public void setUp(Blackhole blackhole) {
+    RecordHeaders recordHeaders = new RecordHeaders();
+    for (int i = 1; i < headers; i++) {
+      recordHeaders.add("header-" + i, ("value-" + i).getBytes(StandardCharsets.UTF_8));
+    }
+    if (headers > 0) {
+      recordHeaders.add(
+          "traceparent",
+          "00-ff000000000000000000000000000041-ff00000000000041-01"
+              .getBytes(StandardCharsets.UTF_8));
+    }
+    ConsumerRecord<String, String> record =
+        new ConsumerRecord<>(
+            "topic", 0, 0, 0, TimestampType.CREATE_TIME, 0, 0, 0, "key", "value", recordHeaders);
+    request = KafkaProcessRequest.create(record, "group", "client");
+    spanLinks = new BlackholeSpanLinksBuilder(blackhole);
+  }
+
+  @Benchmark
+  public void propagator() {
+    propagatorLinksExtractor.extract(spanLinks, Context.root(), request);
+  }
+
+  @Benchmark
+  public void headers() {
+    recordLinksExtractor.extract(spanLinks, Context.root(), request);
+  }
+
+  private static class BlackholeSpanLinksBuilder implements SpanLinksBuilder {
+    private final Blackhole blackhole;
+
+    BlackholeSpanLinksBuilder(Blackhole blackhole) {
+      this.blackhole = blackhole;
+    }
+
+    @Override
+    public SpanLinksBuilder addLink(SpanContext spanContext) {
+      blackhole.consume(spanContext);
+      return this;
+    }
+
+    @Override
+    public SpanLinksBuilder addLink(SpanContext spanContext, Attributes attributes) {
+      blackhole.consume(spanContext);
+      return this;
+    }
+  }
+}
@@ -5,33 +5,47 @@
 
 package io.opentelemetry.instrumentation.kafka.internal;
 
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
 import io.opentelemetry.context.Context;
 import io.opentelemetry.context.propagation.TextMapPropagator;
 import io.opentelemetry.instrumentation.api.instrumenter.SpanLinksBuilder;
 import io.opentelemetry.instrumentation.api.instrumenter.SpanLinksExtractor;
-import io.opentelemetry.instrumentation.api.internal.PropagatorBasedSpanLinksExtractor;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 
 final class KafkaBatchProcessSpanLinksExtractor implements SpanLinksExtractor<KafkaReceiveRequest> {
 
-  private final SpanLinksExtractor<KafkaProcessRequest> singleRecordLinkExtractor;
+  private final KafkaRecordSpanLinksExtractor singleRecordLinkExtractor;
+  private final boolean skipNotSampledParent;
 
   KafkaBatchProcessSpanLinksExtractor(TextMapPropagator propagator) {
-    this.singleRecordLinkExtractor =
-        new PropagatorBasedSpanLinksExtractor<>(propagator, KafkaConsumerRecordGetter.INSTANCE);
+    this(propagator, false);
+  }
+
+  /**
+   * When {@code skipNotSampledParent} is set the records are not linked when the parent span is not
+   * sampled, so the context of every record is only extracted for batches that can be sampled.
+   */
+  KafkaBatchProcessSpanLinksExtractor(TextMapPropagator propagator, boolean skipNotSampledParent) {
+    this.singleRecordLinkExtractor = new KafkaRecordSpanLinksExtractor(propagator);
+    this.skipNotSampledParent = skipNotSampledParent;
   }
 
   @Override
   public void extract(
       SpanLinksBuilder spanLinks, Context parentContext, KafkaReceiveRequest request) {
+    if (skipNotSampledParent) {
+      SpanContext parentSpanContext = Span.fromContext(parentContext).getSpanContext();
+      if (parentSpanContext.isValid() && !parentSpanContext.isSampled()) {
+        return;
+      }
+    }
 
     for (ConsumerRecord<?, ?> record : request.getRecords()) {
       // explicitly passing root to avoid situation where context propagation is turned off and the
       // parent (CONSUMER receive) span is linked
       singleRecordLinkExtractor.extract(
-          spanLinks,
-          Context.root(),
-          KafkaProcessRequest.create(record, request.getConsumerGroup(), request.getClientId()));
+          spanLinks, Context.root(), record, request.getConsumerGroup(), request.getClientId());
     }
   }
 }
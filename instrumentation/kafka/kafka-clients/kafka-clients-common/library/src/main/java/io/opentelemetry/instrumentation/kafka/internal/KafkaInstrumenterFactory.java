@@ -18,7 +18,6 @@ import io.opentelemetry.instrumentation.api.instrumenter.ErrorCauseExtractor;
 import io.opentelemetry.instrumentation.api.instrumenter.Instrumenter;
 import io.opentelemetry.instrumentation.api.instrumenter.InstrumenterBuilder;
 import io.opentelemetry.instrumentation.api.instrumenter.SpanKindExtractor;
-import io.opentelemetry.instrumentation.api.internal.PropagatorBasedSpanLinksExtractor;
 import java.util.Collections;
 import java.util.List;
 import org.apache.kafka.clients.producer.RecordMetadata;
@@ -147,9 +146,7 @@ public final class KafkaInstrumenterFactory {
 
     if (messagingReceiveInstrumentationEnabled) {
       builder.addSpanLinksExtractor(
-          new PropagatorBasedSpanLinksExtractor<>(
-              openTelemetry.getPropagators().getTextMapPropagator(),
-              KafkaConsumerRecordGetter.INSTANCE));
+          new KafkaRecordSpanLinksExtractor(openTelemetry.getPropagators().getTextMapPropagator()));
       return builder.buildInstrumenter(SpanKindExtractor.alwaysConsumer());
     } else {
       return builder.buildConsumerInstrumenter(KafkaConsumerRecordGetter.INSTANCE);
@@ -157,6 +154,21 @@ public final class KafkaInstrumenterFactory {
   }
 
   public Instrumenter<KafkaReceiveRequest, Void> createBatchProcessInstrumenter() {
+    return createBatchProcessInstrumenter(false);
+  }
+
+  /**
+   * Creates the instrumenter for the process spans that {@link TracingBatchIterator} creates for
+   * whole {@link org.apache.kafka.clients.consumer.ConsumerRecords} batches. Unlike {@link
+   * #createBatchProcessInstrumenter()} it doesn't link the records when the parent span is not
+   * sampled.
+   */
+  public Instrumenter<KafkaReceiveRequest, Void> createIteratorBatchProcessInstrumenter() {
+    return createBatchProcessInstrumenter(true);
+  }
+
+  private Instrumenter<KafkaReceiveRequest, Void> createBatchProcessInstrumenter(
+      boolean skipNotSampledParentLinks) {
     KafkaReceiveAttributesGetter getter = KafkaReceiveAttributesGetter.INSTANCE;
     MessageOperation operation = MessageOperation.PROCESS;
 
@@ -169,7 +181,7 @@ public final class KafkaInstrumenterFactory {
         .addAttributesExtractor(KafkaReceiveAttributesExtractor.INSTANCE)
         .addSpanLinksExtractor(
             new KafkaBatchProcessSpanLinksExtractor(
-                openTelemetry.getPropagators().getTextMapPropagator()))
+                openTelemetry.getPropagators().getTextMapPropagator(), skipNotSampledParentLinks))
         .setErrorCauseExtractor(errorCauseExtractor)
         .buildInstrumenter(SpanKindExtractor.alwaysConsumer());
   }
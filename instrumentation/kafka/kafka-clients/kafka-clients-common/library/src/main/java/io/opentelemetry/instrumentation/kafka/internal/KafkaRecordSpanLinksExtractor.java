@@ -0,0 +1,147 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.instrumentation.kafka.internal;
+
+import static java.util.Arrays.asList;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.TraceFlags;
+import io.opentelemetry.api.trace.TraceState;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.propagation.TextMapPropagator;
+import io.opentelemetry.instrumentation.api.instrumenter.SpanLinksBuilder;
+import io.opentelemetry.instrumentation.api.instrumenter.SpanLinksExtractor;
+import io.opentelemetry.instrumentation.api.internal.PropagatorBasedSpanLinksExtractor;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import javax.annotation.Nullable;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+
+/**
+ * Links the span that produced a record. When the propagator only reads the W3C trace context and
+ * baggage headers, the {@code traceparent} header is looked up by name and parsed straight from its
+ * bytes, without decoding it or any other header into a string, and the baggage, which isn't used
+ * by links, is not decoded at all. Headers that can't be parsed that way, e.g. when a {@code
+ * tracestate} is present, are extracted with the propagator.
+ */
+final class KafkaRecordSpanLinksExtractor implements SpanLinksExtractor<KafkaProcessRequest> {
+
+  private static final String TRACEPARENT = "traceparent";
+  private static final String TRACESTATE = "tracestate";
+  private static final Set<String> TRACE_CONTEXT_FIELDS =
+      new HashSet<>(asList(TRACEPARENT, TRACESTATE, "baggage"));
+
+  // version 00 is "00-" + 32 hex digits trace id + "-" + 16 hex digits span id + "-" + 2 hex digits
+  // trace flags
+  private static final int TRACEPARENT_LENGTH = 55;
+  private static final int TRACE_ID_OFFSET = 3;
+  private static final int TRACE_ID_LENGTH = 32;
+  private static final int SPAN_ID_OFFSET = 36;
+  private static final int SPAN_ID_LENGTH = 16;
+  private static final int TRACE_FLAGS_OFFSET = 53;
+
+  private final SpanLinksExtractor<KafkaProcessRequest> propagatorLinksExtractor;
+  private final boolean parseTraceparent;
+
+  KafkaRecordSpanLinksExtractor(TextMapPropagator propagator) {
+    this.propagatorLinksExtractor =
+        new PropagatorBasedSpanLinksExtractor<>(propagator, KafkaConsumerRecordGetter.INSTANCE);
+    Collection<String> fields = propagator.fields();
+    this.parseTraceparent =
+        fields.contains(TRACEPARENT) && TRACE_CONTEXT_FIELDS.containsAll(fields);
+  }
+
+  @Override
+  public void extract(
+      SpanLinksBuilder spanLinks, Context parentContext, KafkaProcessRequest request) {
+    if (!parseTraceparent || !extractFromHeaders(spanLinks, parentContext, request.getRecord())) {
+      propagatorLinksExtractor.extract(spanLinks, parentContext, request);
+    }
+  }
+
+  /**
+   * Like {@link #extract(SpanLinksBuilder, Context, KafkaProcessRequest)}, but only creates the
+   * request when the propagator is needed.
+   */
+  void extract(
+      SpanLinksBuilder spanLinks,
+      Context parentContext,
+      ConsumerRecord<?, ?> record,
+      @Nullable String consumerGroup,
+      @Nullable String clientId) {
+    if (!parseTraceparent || !extractFromHeaders(spanLinks, parentContext, record)) {
+      propagatorLinksExtractor.extract(
+          spanLinks, parentContext, KafkaProcessRequest.create(record, consumerGroup, clientId));
+    }
+  }
+
+  // returns false when the propagator has to extract the link
+  private static boolean extractFromHeaders(
+      SpanLinksBuilder spanLinks, Context parentContext, ConsumerRecord<?, ?> record) {
+    Headers headers = record.headers();
+    Header traceparent = headers.lastHeader(TRACEPARENT);
+    if (traceparent == null) {
+      // like the propagator, link the span of the parent context when there is nothing to extract
+      spanLinks.addLink(Span.fromContext(parentContext).getSpanContext());
+      return true;
+    }
+    if (headers.lastHeader(TRACESTATE) != null) {
+      return false;
+    }
+    SpanContext spanContext = parseTraceparent(traceparent.value());
+    if (spanContext == null) {
+      return false;
+    }
+    spanLinks.addLink(spanContext);
+    return true;
+  }
+
+  // parses only the canonical form of version 00, anything else is left to the propagator
+  @Nullable
+  static SpanContext parseTraceparent(@Nullable byte[] value) {
+    if (value == null
+        || value.length != TRACEPARENT_LENGTH
+        || value[0] != '0'
+        || value[1] != '0'
+        || value[TRACE_ID_OFFSET - 1] != '-'
+        || value[SPAN_ID_OFFSET - 1] != '-'
+        || value[TRACE_FLAGS_OFFSET - 1] != '-'
+        || !isLowerHex(value, TRACE_ID_OFFSET, TRACE_ID_LENGTH)
+        || !isLowerHex(value, SPAN_ID_OFFSET, SPAN_ID_LENGTH)
+        || !isLowerHex(value, TRACE_FLAGS_OFFSET, 2)) {
+      return null;
+    }
+    SpanContext spanContext =
+        SpanContext.createFromRemoteParent(
+            new String(value, TRACE_ID_OFFSET, TRACE_ID_LENGTH, StandardCharsets.US_ASCII),
+            new String(value, SPAN_ID_OFFSET, SPAN_ID_LENGTH, StandardCharsets.US_ASCII),
+            TraceFlags.fromByte(
+                (byte)
+                    ((hexValue(value[TRACE_FLAGS_OFFSET]) << 4)
+                        | hexValue(value[TRACE_FLAGS_OFFSET + 1]))),
+            TraceState.getDefault());
+    return spanContext.isValid() ? spanContext : null;
+  }
+
+  private static boolean isLowerHex(byte[] value, int offset, int length) {
+    for (int i = offset; i < offset + length; i++) {
+      byte b = value[i];
+      if ((b < '0' || b > '9') && (b < 'a' || b > 'f')) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int hexValue(byte b) {
+    return b <= '9' ? b - '0' : b - 'a' + 10;
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.instrumentation.kafka.internal;
+
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.instrumentation.api.instrumenter.Instrumenter;
+import java.util.Iterator;
+import java.util.function.BooleanSupplier;
+import javax.annotation.Nullable;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+
+/**
+ * Like {@link TracingIterator}, but creates a single process span for the whole {@link
+ * ConsumerRecords} batch instead of one span per record. The span is started when the first record
+ * is returned and ended when the iterator is exhausted, the records are linked to it.
+ *
+ * <p>When the records are not iterated to the end, e.g. because the loop over them is left with
+ * {@code break} or an exception, the span stays open and current on the polling thread until the
+ * next batch is polled or iterated on that thread, see {@link #endOpenBatch()}.
+ *
+ * <p>This class is internal and is hence not for public use. Its APIs are unstable and can change
+ * at any time.
+ */
+public class TracingBatchIterator<K, V> implements Iterator<ConsumerRecord<K, V>> {
+
+  // the batch whose span is open on the current thread
+  private static final ThreadLocal<TracingBatchIterator<?, ?>> openBatch = new ThreadLocal<>();
+
+  private final Iterator<ConsumerRecord<K, V>> delegateIterator;
+  private final Instrumenter<KafkaReceiveRequest, Void> instrumenter;
+  private final BooleanSupplier wrappingEnabled;
+  private final ConsumerRecords<?, ?> records;
+  private final KafkaConsumerContext consumerContext;
+
+  /*
+   * Note: this may potentially create problems if this iterator is used from different threads. But
+   * at the moment we cannot do much about this.
+   */
+  private boolean started;
+  @Nullable private KafkaReceiveRequest request;
+  @Nullable private Context context;
+  @Nullable private Scope scope;
+
+  private TracingBatchIterator(
+      Iterator<ConsumerRecord<K, V>> delegateIterator,
+      Instrumenter<KafkaReceiveRequest, Void> instrumenter,
+      BooleanSupplier wrappingEnabled,
+      ConsumerRecords<?, ?> records,
+      KafkaConsumerContext consumerContext) {
+    this.delegateIterator = delegateIterator;
+    this.instrumenter = instrumenter;
+    this.wrappingEnabled = wrappingEnabled;
+    this.records = records;
+    this.consumerContext = consumerContext;
+  }
+
+  public static <K, V> Iterator<ConsumerRecord<K, V>> wrap(
+      Iterator<ConsumerRecord<K, V>> delegateIterator,
+      Instrumenter<KafkaReceiveRequest, Void> instrumenter,
+      BooleanSupplier wrappingEnabled,
+      ConsumerRecords<?, ?> records,
+      KafkaConsumerContext consumerContext) {
+    // iterating the records again starts a new batch
+    endOpenBatch();
+    if (wrappingEnabled.getAsBoolean() && !records.isEmpty()) {
+      return new TracingBatchIterator<>(
+          delegateIterator, instrumenter, wrappingEnabled, records, consumerContext);
+    }
+    return delegateIterator;
+  }
+
+  @Override
+  public boolean hasNext() {
+    boolean hasNext = delegateIterator.hasNext();
+    if (!hasNext) {
+      closeScopeAndEndSpan();
+    }
+    return hasNext;
+  }
+
+  @Override
+  public ConsumerRecord<K, V> next() {
+    ConsumerRecord<K, V> next = delegateIterator.next();
+    if (!started && wrappingEnabled.getAsBoolean()) {
+      started = true;
+      // like in TracingIterator, span creation is not suppressed with Instrumenter.shouldStart()
+      // so that a leaked consumer span in the context is overwritten
+      Context receiveContext = consumerContext.getContext();
+      // use the receive CONSUMER as parent if it's available
+      Context parentContext = receiveContext != null ? receiveContext : Context.current();
+      request = KafkaReceiveRequest.create(consumerContext, records);
+      context = instrumenter.start(parentContext, request);
+      scope = context.makeCurrent();
+      openBatch.set(this);
+    }
+    return next;
+  }
+
+  /**
+   * Ends the span of the batch that was not iterated to the end on the current thread, and closes
+   * its scope. Needs to be called before the next batch is polled.
+   */
+  public static void endOpenBatch() {
+    TracingBatchIterator<?, ?> batch = openBatch.get();
+    if (batch != null) {
+      batch.closeScopeAndEndSpan();
+    }
+  }
+
+  private void closeScopeAndEndSpan() {
+    if (scope != null) {
+      if (openBatch.get() == this) {
+        openBatch.remove();
+      }
+      scope.close();
+      instrumenter.end(context, request, null, null);
+      scope = null;
+      request = null;
+      context = null;
+    }
+  }
+
+  @Override
+  public void remove() {
+    delegateIterator.remove();
+  }
+}
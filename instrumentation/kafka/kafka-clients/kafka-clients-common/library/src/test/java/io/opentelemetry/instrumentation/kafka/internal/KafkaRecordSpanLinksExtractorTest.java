@@ -0,0 +1,238 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.instrumentation.kafka.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.opentelemetry.api.baggage.propagation.W3CBaggagePropagator;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.SpanId;
+import io.opentelemetry.api.trace.TraceFlags;
+import io.opentelemetry.api.trace.TraceId;
+import io.opentelemetry.api.trace.TraceState;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.propagation.TextMapPropagator;
+import io.opentelemetry.instrumentation.api.instrumenter.SpanLinksBuilder;
+import io.opentelemetry.instrumentation.api.instrumenter.SpanLinksExtractor;
+import io.opentelemetry.instrumentation.api.internal.PropagatorBasedSpanLinksExtractor;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class KafkaRecordSpanLinksExtractorTest {
+  private static final String TRACE_ID = TraceId.fromLongs(0, 123);
+  private static final String SPAN_ID = SpanId.fromLong(456);
+
+  private static final TextMapPropagator propagator =
+      TextMapPropagator.composite(
+          W3CTraceContextPropagator.getInstance(), W3CBaggagePropagator.getInstance());
+
+  private final SpanLinksExtractor<KafkaProcessRequest> underTest =
+      new KafkaRecordSpanLinksExtractor(propagator);
+  private final SpanLinksExtractor<KafkaProcessRequest> propagatorLinksExtractor =
+      new PropagatorBasedSpanLinksExtractor<>(propagator, KafkaConsumerRecordGetter.INSTANCE);
+
+  @Test
+  void shouldParseTraceparent() {
+    assertThat(parseTraceparent(String.format("00-%s-%s-01", TRACE_ID, SPAN_ID)))
+        .isEqualTo(
+            SpanContext.createFromRemoteParent(
+                TRACE_ID, SPAN_ID, TraceFlags.getSampled(), TraceState.getDefault()));
+  }
+
+  @Test
+  void shouldParseTraceFlags() {
+    assertThat(parseTraceparent(String.format("00-%s-%s-00", TRACE_ID, SPAN_ID)).getTraceFlags())
+        .isEqualTo(TraceFlags.getDefault());
+    assertThat(parseTraceparent(String.format("00-%s-%s-03", TRACE_ID, SPAN_ID)).getTraceFlags())
+        .isEqualTo(TraceFlags.fromByte((byte) 0x03));
+    assertThat(parseTraceparent(String.format("00-%s-%s-a1", TRACE_ID, SPAN_ID)).getTraceFlags())
+        .isEqualTo(TraceFlags.fromByte((byte) 0xa1));
+  }
+
+  @ParameterizedTest
+  @ValueSource(
+      strings = {
+        // upper case hex
+        "00-0000000000000000000000000000007B-00000000000001c8-01",
+        "00-0000000000000000000000000000007b-00000000000001C8-01",
+        "00-0000000000000000000000000000007b-00000000000001c8-0A",
+        // invalid ids
+        "00-00000000000000000000000000000000-00000000000001c8-01",
+        "00-0000000000000000000000000000007b-0000000000000000-01",
+        // wrong length
+        "00-0000000000000000000000000000007b-00000000000001c8-1",
+        "00-0000000000000000000000000000007b-00000000000001c8-01-",
+        "00-000000000000000000000000000007b-00000000000001c8-01",
+        // other versions
+        "01-0000000000000000000000000000007b-00000000000001c8-01",
+        "01-0000000000000000000000000000007b-00000000000001c8-01-extra",
+        "ff-0000000000000000000000000000007b-00000000000001c8-01",
+        // wrong separators
+        "00_0000000000000000000000000000007b-00000000000001c8-01",
+        "00-0000000000000000000000000000007b_00000000000001c8-01",
+        "00-0000000000000000000000000000007b-00000000000001c8_01",
+        // not hex
+        "00-0000000000000000000000000000007g-00000000000001c8-01",
+        "00-0000000000000000000000000000007b-00000000000001c8-0x",
+        ""
+      })
+  void shouldLeaveInvalidTraceparentToPropagator(String traceparent) {
+    assertThat(parseTraceparent(traceparent)).isNull();
+
+    ConsumerRecord<?, ?> record = record(traceparent, null);
+    assertThat(links(underTest, Context.root(), record))
+        .isEqualTo(links(propagatorLinksExtractor, Context.root(), record));
+  }
+
+  @Test
+  void shouldNotParseMissingTraceparentValue() {
+    assertThat(KafkaRecordSpanLinksExtractor.parseTraceparent(null)).isNull();
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"00", "01", "03"})
+  void shouldExtractLinkLikePropagator(String traceFlags) {
+    ConsumerRecord<?, ?> record =
+        record(String.format("00-%s-%s-%s", TRACE_ID, SPAN_ID, traceFlags), null);
+
+    List<SpanContext> links = links(underTest, Context.root(), record);
+
+    assertThat(links)
+        .containsExactly(
+            SpanContext.createFromRemoteParent(
+                TRACE_ID,
+                SPAN_ID,
+                TraceFlags.fromByte(Byte.parseByte(traceFlags, 16)),
+                TraceState.getDefault()))
+        .isEqualTo(links(propagatorLinksExtractor, Context.root(), record));
+  }
+
+  @Test
+  void shouldExtractTracestateWithPropagator() {
+    ConsumerRecord<?, ?> record =
+        record(String.format("00-%s-%s-01", TRACE_ID, SPAN_ID), "foo=bar");
+
+    List<SpanContext> links = links(underTest, Context.root(), record);
+
+    assertThat(links)
+        .containsExactly(
+            SpanContext.createFromRemoteParent(
+                TRACE_ID,
+                SPAN_ID,
+                TraceFlags.getSampled(),
+                TraceState.builder().put("foo", "bar").build()))
+        .isEqualTo(links(propagatorLinksExtractor, Context.root(), record));
+  }
+
+  @Test
+  void shouldLinkParentSpanWithoutTraceparent() {
+    Context parentContext =
+        Context.root()
+            .with(
+                Span.wrap(
+                    SpanContext.create(
+                        TraceId.fromLongs(0, 789),
+                        SpanId.fromLong(987),
+                        TraceFlags.getSampled(),
+                        TraceState.getDefault())));
+    ConsumerRecord<?, ?> record = record(null, null);
+
+    assertThat(links(underTest, parentContext, record))
+        .isEqualTo(links(propagatorLinksExtractor, parentContext, record));
+    assertThat(links(underTest, Context.root(), record))
+        .isEqualTo(links(propagatorLinksExtractor, Context.root(), record));
+  }
+
+  @Test
+  void shouldUseRequestlessExtractLikeRequestExtract() {
+    KafkaRecordSpanLinksExtractor extractor = new KafkaRecordSpanLinksExtractor(propagator);
+    ConsumerRecord<?, ?> record = record(String.format("00-%s-%s-01", TRACE_ID, SPAN_ID), null);
+    ConsumerRecord<?, ?> invalidRecord = record("00-invalid", null);
+
+    assertThat(linksWithoutRequest(extractor, record))
+        .isEqualTo(links(underTest, Context.root(), record));
+    assertThat(linksWithoutRequest(extractor, invalidRecord))
+        .isEqualTo(links(underTest, Context.root(), invalidRecord));
+  }
+
+  @Test
+  void shouldUsePropagatorForOtherFields() {
+    // a propagator that reads other headers, the traceparent header must not be parsed on its own
+    TextMapPropagator propagator = TextMapPropagator.noop();
+    SpanLinksExtractor<KafkaProcessRequest> extractor =
+        new KafkaRecordSpanLinksExtractor(propagator);
+    ConsumerRecord<?, ?> record = record(String.format("00-%s-%s-01", TRACE_ID, SPAN_ID), null);
+
+    assertThat(links(extractor, Context.root(), record))
+        .isEqualTo(
+            links(
+                new PropagatorBasedSpanLinksExtractor<>(
+                    propagator, KafkaConsumerRecordGetter.INSTANCE),
+                Context.root(),
+                record));
+  }
+
+  private static SpanContext parseTraceparent(String traceparent) {
+    return KafkaRecordSpanLinksExtractor.parseTraceparent(
+        traceparent.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static ConsumerRecord<?, ?> record(String traceparent, String tracestate) {
+    RecordHeaders headers = new RecordHeaders();
+    if (traceparent != null) {
+      headers.add("traceparent", traceparent.getBytes(StandardCharsets.UTF_8));
+    }
+    if (tracestate != null) {
+      headers.add("tracestate", tracestate.getBytes(StandardCharsets.UTF_8));
+    }
+    headers.add("baggage", "key=value".getBytes(StandardCharsets.UTF_8));
+    return new ConsumerRecord<>(
+        "topic", 0, 0, 0, TimestampType.CREATE_TIME, 0, 0, 0, "key", "value", headers);
+  }
+
+  private static List<SpanContext> links(
+      SpanLinksExtractor<KafkaProcessRequest> extractor,
+      Context parentContext,
+      ConsumerRecord<?, ?> record) {
+    LinksCollector spanLinks = new LinksCollector();
+    extractor.extract(
+        spanLinks, parentContext, KafkaProcessRequest.create(record, "group", "client"));
+    return spanLinks.links;
+  }
+
+  private static List<SpanContext> linksWithoutRequest(
+      KafkaRecordSpanLinksExtractor extractor, ConsumerRecord<?, ?> record) {
+    LinksCollector spanLinks = new LinksCollector();
+    extractor.extract(spanLinks, Context.root(), record, "group", "client");
+    return spanLinks.links;
+  }
+
+  private static final class LinksCollector implements SpanLinksBuilder {
+    final List<SpanContext> links = new ArrayList<>();
+
+    @Override
+    public SpanLinksBuilder addLink(SpanContext spanContext) {
+      links.add(spanContext);
+      return this;
+    }
+
+    @Override
+    public SpanLinksBuilder addLink(SpanContext spanContext, Attributes attributes) {
+      links.add(spanContext);
+      return this;
+    }
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.instrumentation.kafka.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.SpanId;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.TraceFlags;
+import io.opentelemetry.api.trace.TraceId;
+import io.opentelemetry.api.trace.TraceState;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.instrumentation.api.instrumenter.Instrumenter;
+import io.opentelemetry.instrumentation.testing.junit.InstrumentationExtension;
+import io.opentelemetry.instrumentation.testing.junit.LibraryInstrumentationExtension;
+import io.opentelemetry.sdk.trace.data.LinkData;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+class TracingBatchIteratorTest {
+
+  @RegisterExtension
+  static final InstrumentationExtension testing = LibraryInstrumentationExtension.create();
+
+  private static final String TRACE_ID = TraceId.fromLongs(0, 123);
+
+  private final Instrumenter<KafkaReceiveRequest, Void> instrumenter =
+      new KafkaInstrumenterFactory(testing.getOpenTelemetry(), "test")
+          .createIteratorBatchProcessInstrumenter();
+  private final ConsumerRecords<String, String> records =
+      new ConsumerRecords<>(
+          Collections.singletonMap(
+              new TopicPartition("topic", 0), Arrays.asList(record(1), record(2), record(3))));
+
+  @AfterEach
+  void tearDown() {
+    TracingBatchIterator.endOpenBatch();
+  }
+
+  @Test
+  void shouldEndSpanWhenAllRecordsAreIterated() {
+    Iterator<ConsumerRecord<String, String>> iterator =
+        wrap(KafkaConsumerContext.create(null, null, null));
+    while (iterator.hasNext()) {
+      iterator.next();
+      assertThat(Span.current().getSpanContext().isValid()).isTrue();
+    }
+
+    assertThat(Span.current().getSpanContext().isValid()).isFalse();
+    // the records are linked even without a receive span
+    testing.waitAndAssertTraces(
+        trace ->
+            trace.hasSpansSatisfyingExactly(
+                span ->
+                    span.hasName("topic process")
+                        .hasKind(SpanKind.CONSUMER)
+                        .hasNoParent()
+                        .hasLinks(
+                            LinkData.create(link(1)),
+                            LinkData.create(link(2)),
+                            LinkData.create(link(3)))));
+  }
+
+  @Test
+  void shouldEndSpanOfUnfinishedBatchOnNextPoll() {
+    Iterator<ConsumerRecord<String, String>> iterator =
+        wrap(KafkaConsumerContext.create(null, null, null));
+    iterator.next();
+    // leaving the loop early leaves the span current
+    assertThat(Span.current().getSpanContext().isValid()).isTrue();
+    assertThat(testing.spans()).isEmpty();
+
+    // done by the poll() instrumentation
+    TracingBatchIterator.endOpenBatch();
+
+    assertThat(Span.current().getSpanContext().isValid()).isFalse();
+    assertThat(testing.spans()).hasSize(1);
+  }
+
+  @Test
+  void shouldEndSpanOfUnfinishedBatchWhenIteratedAgain() {
+    Iterator<ConsumerRecord<String, String>> first =
+        wrap(KafkaConsumerContext.create(null, null, null));
+    first.next();
+
+    Iterator<ConsumerRecord<String, String>> second =
+        wrap(KafkaConsumerContext.create(null, null, null));
+    assertThat(Span.current().getSpanContext().isValid()).isFalse();
+    assertThat(testing.spans()).hasSize(1);
+    while (second.hasNext()) {
+      second.next();
+    }
+    // finishing the first iterator doesn't end its span again
+    while (first.hasNext()) {
+      first.next();
+    }
+    TracingBatchIterator.endOpenBatch();
+
+    assertThat(Span.current().getSpanContext().isValid()).isFalse();
+    assertThat(testing.spans()).hasSize(2);
+  }
+
+  @Test
+  void shouldNotCreateSpanForNotSampledReceiveSpan() {
+    Context receiveContext =
+        Context.root()
+            .with(
+                Span.wrap(
+                    SpanContext.create(
+                        TraceId.fromLongs(0, 789),
+                        SpanId.fromLong(987),
+                        TraceFlags.getDefault(),
+                        TraceState.getDefault())));
+    Iterator<ConsumerRecord<String, String>> iterator =
+        wrap(KafkaConsumerContext.create(receiveContext, null, null));
+    while (iterator.hasNext()) {
+      iterator.next();
+    }
+
+    assertThat(Span.current().getSpanContext().isValid()).isFalse();
+    assertThat(testing.spans()).isEmpty();
+  }
+
+  private Iterator<ConsumerRecord<String, String>> wrap(KafkaConsumerContext consumerContext) {
+    return TracingBatchIterator.wrap(
+        records.iterator(), instrumenter, () -> true, records, consumerContext);
+  }
+
+  private static SpanContext link(int spanId) {
+    return SpanContext.createFromRemoteParent(
+        TRACE_ID, SpanId.fromLong(spanId), TraceFlags.getSampled(), TraceState.getDefault());
+  }
+
+  private static ConsumerRecord<String, String> record(int spanId) {
+    RecordHeaders headers = new RecordHeaders();
+    headers.add(
+        "traceparent",
+        String.format("00-%s-%s-01", TRACE_ID, SpanId.fromLong(spanId))
+            .getBytes(StandardCharsets.UTF_8));
+    return new ConsumerRecord<>(
+        "topic", 0, spanId, 0, TimestampType.CREATE_TIME, 0, 0, 0, "key", "value", headers);
+  }
+}
@@ -43,9 +43,9 @@ public final class LogEventMapper<T> {
   private static final String SPECIAL_MAP_MESSAGE_ATTRIBUTE = "message";
 
   private static final Cache<String, AttributeKey<String>> contextDataAttributeKeyCache =
-      Cache.bounded(100);
+      Cache.bounded("log4j context data attribute keys", 100);
   private static final Cache<String, AttributeKey<String>> mapMessageAttributeKeyCache =
-      Cache.bounded(100);
+      Cache.bounded("log4j map message attribute keys", 100);
 
   private static final AttributeKey<String> LOG_MARKER = AttributeKey.stringKey("log4j.marker");
 
@@ -60,8 +60,10 @@ public final class LoggingEventMapper {
   private static final boolean supportsKeyValuePairs = supportsKeyValuePairs();
   private static final boolean supportsMultipleMarkers = supportsMultipleMarkers();
   private static final boolean supportsLogstashMarkers = supportsLogstashMarkers();
-  private static final Cache<String, AttributeKey<String>> mdcAttributeKeys = Cache.bounded(100);
-  private static final Cache<String, AttributeKey<String>> attributeKeys = Cache.bounded(100);
+  private static final Cache<String, AttributeKey<String>> mdcAttributeKeys =
+      Cache.bounded("logback mdc attribute keys", 100);
+  private static final Cache<String, AttributeKey<String>> attributeKeys =
+      Cache.bounded("logback attribute keys", 100);
 
   private static final AttributeKey<List<String>> LOG_MARKER =
       AttributeKey.stringArrayKey("logback.marker");
@@ -7,8 +7,8 @@ package io.opentelemetry.instrumentation.netty.v4_1.internal;
 
 import io.netty.channel.Channel;
 import io.netty.util.Attribute;
-import java.util.ArrayDeque;
-import java.util.Deque;
+import io.opentelemetry.instrumentation.api.internal.SupportabilityMetrics;
+import javax.annotation.Nullable;
 
 /**
  * A helper class for keeping track of incoming requests and spans associated with them.
@@ -18,10 +18,18 @@ import java.util.Deque;
  */
 public final class ServerContexts {
   private static final int PIPELINING_LIMIT = 1000;
+  private static final int INITIAL_PIPELINED_CAPACITY = 4;
+
   // With http pipelining multiple requests can be sent on the same connection. Responses should be
-  // sent in the same order the requests came in. We use this deque to store the request context
-  // and pop elements as responses are sent.
-  private final Deque<ServerContext> serverContexts = new ArrayDeque<>();
+  // sent in the same order the requests came in. We keep the request contexts in a queue and pop
+  // elements as responses are sent. Most connections don't pipeline, so the oldest context is kept
+  // in its own field and the ring buffer behind it is only allocated once a request arrives before
+  // the response to the previous one was sent. Like the rest of the channel pipeline, this class
+  // is only used from the event loop of the channel.
+  @Nullable private ServerContext first;
+  @Nullable private ServerContext[] pipelined;
+  private int pipelinedHead;
+  private int pipelinedSize;
   private volatile boolean broken = false;
 
   private ServerContexts() {}
@@ -45,20 +53,42 @@ public final class ServerContexts {
     return serverContexts != null ? serverContexts.peekFirst() : null;
   }
 
+  @Nullable
   public ServerContext peekFirst() {
-    return serverContexts.peekFirst();
+    return first;
   }
 
+  @Nullable
   public ServerContext peekLast() {
-    return serverContexts.peekFirst();
+    return peekFirst();
   }
 
+  @Nullable
   public ServerContext pollFirst() {
-    return serverContexts.pollFirst();
+    ServerContext result = first;
+    if (pipelinedSize == 0) {
+      first = null;
+    } else {
+      first = pipelined[pipelinedHead];
+      pipelined[pipelinedHead] = null;
+      pipelinedHead = (pipelinedHead + 1) & (pipelined.length - 1);
+      pipelinedSize--;
+    }
+    return result;
   }
 
+  @Nullable
   public ServerContext pollLast() {
-    return serverContexts.pollLast();
+    if (pipelinedSize == 0) {
+      ServerContext result = first;
+      first = null;
+      return result;
+    }
+    pipelinedSize--;
+    int index = (pipelinedHead + pipelinedSize) & (pipelined.length - 1);
+    ServerContext result = pipelined[index];
+    pipelined[index] = null;
+    return result;
   }
 
   public void addLast(ServerContext context) {
@@ -67,13 +97,46 @@ public final class ServerContexts {
     }
     // If the pipelining limit is exceeded we'll stop tracing and mark the channel as broken.
     // Exceeding the limit indicates that there is good chance that server context are not removed
-    // from the deque and there could be a memory leak. This could happen when http server decides
+    // from the queue and there could be a memory leak. This could happen when http server decides
     // not to send response to some requests, for example see
     // https://github.com/open-telemetry/opentelemetry-java-instrumentation/issues/11942
-    if (serverContexts.size() > PIPELINING_LIMIT) {
+    if (size() > PIPELINING_LIMIT) {
       broken = true;
-      serverContexts.clear();
+      clear();
+      SupportabilityMetrics.instance()
+          .incrementCounter(SupportabilityMetrics.CounterNames.NETTY_SERVER_CONTEXTS_BROKEN);
+    }
+    if (first == null) {
+      first = context;
+      return;
     }
-    serverContexts.addLast(context);
+    if (pipelined == null) {
+      pipelined = new ServerContext[INITIAL_PIPELINED_CAPACITY];
+    } else if (pipelinedSize == pipelined.length) {
+      growPipelined();
+    }
+    pipelined[(pipelinedHead + pipelinedSize) & (pipelined.length - 1)] = context;
+    pipelinedSize++;
+  }
+
+  private int size() {
+    return first == null ? 0 : pipelinedSize + 1;
+  }
+
+  // the capacity is kept a power of two so that indexes wrap with a mask
+  private void growPipelined() {
+    ServerContext[] grown = new ServerContext[pipelined.length * 2];
+    int headLength = pipelined.length - pipelinedHead;
+    System.arraycopy(pipelined, pipelinedHead, grown, 0, headLength);
+    System.arraycopy(pipelined, 0, grown, headLength, pipelinedHead);
+    pipelined = grown;
+    pipelinedHead = 0;
+  }
+
+  private void clear() {
+    first = null;
+    pipelined = null;
+    pipelinedHead = 0;
+    pipelinedSize = 0;
   }
 }
@@ -0,0 +1,82 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.instrumentation.netty.v4_1.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpVersion;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.instrumentation.netty.v4.common.HttpRequestAndChannel;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class ServerContextsTest {
+
+  private final EmbeddedChannel channel = new EmbeddedChannel();
+
+  @Test
+  void singleRequest() {
+    ServerContexts serverContexts = ServerContexts.getOrCreate(channel);
+    ServerContext serverContext = serverContext();
+
+    serverContexts.addLast(serverContext);
+
+    assertThat(ServerContexts.get(channel)).isSameAs(serverContexts);
+    assertThat(ServerContexts.peekFirst(channel)).isSameAs(serverContext);
+    assertThat(serverContexts.pollFirst()).isSameAs(serverContext);
+    assertThat(serverContexts.pollFirst()).isNull();
+    assertThat(serverContexts.pollLast()).isNull();
+  }
+
+  @Test
+  void pipelinedRequests() {
+    ServerContexts serverContexts = ServerContexts.getOrCreate(channel);
+    List<ServerContext> expected = new ArrayList<>();
+    // enough requests to wrap around and grow the pipelined contexts a few times
+    for (int i = 0; i < 10; i++) {
+      ServerContext serverContext = serverContext();
+      serverContexts.addLast(serverContext);
+      expected.add(serverContext);
+      if (i % 3 == 0) {
+        assertThat(serverContexts.pollFirst()).isSameAs(expected.remove(0));
+      }
+    }
+    ServerContext last = serverContext();
+    serverContexts.addLast(last);
+    assertThat(serverContexts.pollLast()).isSameAs(last);
+
+    for (ServerContext serverContext : expected) {
+      assertThat(serverContexts.peekFirst()).isSameAs(serverContext);
+      assertThat(serverContexts.pollFirst()).isSameAs(serverContext);
+    }
+    assertThat(serverContexts.pollFirst()).isNull();
+  }
+
+  @Test
+  void pipeliningLimit() {
+    ServerContexts serverContexts = ServerContexts.getOrCreate(channel);
+    for (int i = 0; i < 1002; i++) {
+      serverContexts.addLast(serverContext());
+    }
+
+    // the channel is broken, the contexts were dropped and new ones are ignored
+    ServerContext serverContext = serverContext();
+    serverContexts.addLast(serverContext);
+    assertThat(serverContexts.pollFirst()).isNotNull().isNotSameAs(serverContext);
+    assertThat(serverContexts.pollFirst()).isNull();
+  }
+
+  private ServerContext serverContext() {
+    return ServerContext.create(
+        Context.root(),
+        HttpRequestAndChannel.create(
+            new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/"), channel));
+  }
+}
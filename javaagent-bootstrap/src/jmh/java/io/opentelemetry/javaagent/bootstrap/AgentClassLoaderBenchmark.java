@@ -0,0 +1,151 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.bootstrap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how long it takes to create an agent class loader and load the classes of an agent jar
+ * into it, like it happens during agent startup. The agent jar is built from the classes of the jmh
+ * jar, laid out like the classes of the agent class loader in the agent jar.
+ */
+@Fork(3)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@BenchmarkMode(Mode.SingleShotTime)
+@State(Scope.Benchmark)
+public class AgentClassLoaderBenchmark {
+
+  private static final String INTERNAL_JAR_FILE_NAME = "inst";
+
+  // DEFLATED is how the agent jar is built by default, STORED is how it is built with
+  // -PuncompressedJavaagentJar=true
+  @Param({"DEFLATED", "STORED"})
+  public String compression;
+
+  private File agentJar;
+  private List<String> classNames;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    File sourceJar =
+        new File(Benchmark.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+    agentJar = File.createTempFile("agent-class-loader-benchmark", ".jar");
+    List<String> entryClassNames = writeAgentJar(sourceJar, agentJar, "STORED".equals(compression));
+
+    // keep only the classes whose dependencies can be loaded by the agent class loader
+    classNames = new ArrayList<>();
+    AgentClassLoader classLoader = newAgentClassLoader();
+    for (String className : entryClassNames) {
+      try {
+        Class.forName(className, false, classLoader);
+        classNames.add(className);
+      } catch (ClassNotFoundException | LinkageError ignored) {
+        // not loadable
+      }
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(agentJar.toPath());
+  }
+
+  @Benchmark
+  public int loadClasses() throws ClassNotFoundException {
+    AgentClassLoader classLoader = newAgentClassLoader();
+    int loaded = 0;
+    for (String className : classNames) {
+      if (classLoader.loadClass(className) != null) {
+        loaded++;
+      }
+    }
+    return loaded;
+  }
+
+  private AgentClassLoader newAgentClassLoader() {
+    return new AgentClassLoader(agentJar, INTERNAL_JAR_FILE_NAME, false);
+  }
+
+  private static List<String> writeAgentJar(File sourceJar, File agentJar, boolean stored)
+      throws IOException {
+    List<String> classNames = new ArrayList<>();
+    try (JarFile jarFile = new JarFile(sourceJar);
+        OutputStream outputStream = Files.newOutputStream(agentJar.toPath());
+        JarOutputStream jarOutputStream = new JarOutputStream(outputStream, manifest())) {
+      Enumeration<JarEntry> entries = jarFile.entries();
+      while (entries.hasMoreElements()) {
+        JarEntry jarEntry = entries.nextElement();
+        String name = jarEntry.getName();
+        if (!name.endsWith(".class") || name.contains("-")) {
+          continue;
+        }
+        byte[] bytes = readAllBytes(jarFile, jarEntry);
+        ZipEntry entry = new ZipEntry(INTERNAL_JAR_FILE_NAME + "/" + name + "data");
+        if (stored) {
+          CRC32 crc = new CRC32();
+          crc.update(bytes);
+          entry.setMethod(ZipEntry.STORED);
+          entry.setSize(bytes.length);
+          entry.setCrc(crc.getValue());
+        }
+        jarOutputStream.putNextEntry(entry);
+        jarOutputStream.write(bytes);
+        jarOutputStream.closeEntry();
+        classNames.add(name.substring(0, name.length() - ".class".length()).replace('/', '.'));
+      }
+    }
+    return classNames;
+  }
+
+  private static Manifest manifest() {
+    Manifest manifest = new Manifest();
+    manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    return manifest;
+  }
+
+  private static byte[] readAllBytes(JarFile jarFile, JarEntry jarEntry) throws IOException {
+    byte[] bytes = new byte[(int) jarEntry.getSize()];
+    try (InputStream inputStream = jarFile.getInputStream(jarEntry)) {
+      int offset = 0;
+      int read;
+      while (offset < bytes.length
+          && (read = inputStream.read(bytes, offset, bytes.length - offset)) != -1) {
+        offset += read;
+      }
+    }
+    return bytes;
+  }
+}
@@ -16,6 +16,7 @@ import java.net.URL;
 import java.net.URLClassLoader;
 import java.net.URLConnection;
 import java.net.URLStreamHandler;
+import java.nio.ByteBuffer;
 import java.security.AllPermission;
 import java.security.CodeSource;
 import java.security.Permission;
@@ -63,6 +64,8 @@ public class AgentClassLoader extends URLClassLoader {
   private final BootstrapClassLoaderProxy bootstrapProxy;
 
   private final JarFile jarFile;
+  // null when the agent jar couldn't be indexed, then entries are looked up from the jar file
+  @Nullable private final AgentJarIndex jarIndex;
   private final URL jarBase;
   private final String jarEntryPrefix;
   private final CodeSource codeSource;
@@ -110,6 +113,7 @@ public class AgentClassLoader extends URLClassLoader {
     } catch (IOException e) {
       throw new IllegalStateException("Unable to open agent jar", e);
     }
+    jarIndex = AgentJarIndex.create(javaagentFile, jarEntryPrefix);
 
     if (!AGENT_INITIALIZER_JAR.isEmpty()) {
       URL url;
@@ -155,6 +159,9 @@ public class AgentClassLoader extends URLClassLoader {
       // first search agent classes
       if (clazz == null) {
         clazz = findAgentClass(name);
+        if (clazz != null) {
+          ClassDataSharing.classDefined(clazz);
+        }
       }
       // search from parent and urls added to this loader
       if (clazz == null) {
@@ -169,8 +176,19 @@ public class AgentClassLoader extends URLClassLoader {
   }
 
   private Class<?> findAgentClass(String name) throws ClassNotFoundException {
-    JarEntry jarEntry = findJarEntry(name.replace('.', '/') + ".class");
-    if (jarEntry != null) {
+    String entryName = findJarEntryName(name.replace('.', '/') + ".class");
+    if (entryName != null) {
+      // classes that are stored without compression are defined directly from the mapped jar
+      ByteBuffer storedBytes = jarIndex != null ? jarIndex.getStoredEntry(entryName) : null;
+      if (storedBytes != null) {
+        definePackageIfNeeded(name);
+        return defineClass(name, storedBytes, codeSource);
+      }
+
+      JarEntry jarEntry = jarFile.getJarEntry(entryName);
+      if (jarEntry == null) {
+        return null;
+      }
       byte[] bytes;
       try {
         bytes = getJarEntryBytes(jarEntry);
@@ -236,18 +254,39 @@ public class AgentClassLoader extends URLClassLoader {
     return index == -1 ? null : className.substring(0, index);
   }
 
-  private JarEntry findJarEntry(String name) {
+  @Nullable
+  private String findJarEntryName(String name) {
     // shading renames .class to .classdata
     boolean isClass = name.endsWith(".class");
     if (isClass) {
       name += getClassSuffix();
     }
 
+    if (jarIndex != null && AgentJarIndex.isIndexable(name)) {
+      return findIndexedJarEntryName(jarIndex, name);
+    }
+
     JarEntry jarEntry = jarFile.getJarEntry(jarEntryPrefix + name);
     if (MULTI_RELEASE_JAR_ENABLE) {
       jarEntry = findVersionedJarEntry(jarEntry, name);
     }
-    return jarEntry;
+    return jarEntry != null ? jarEntry.getName() : null;
+  }
+
+  @Nullable
+  private String findIndexedJarEntryName(AgentJarIndex jarIndex, String name) {
+    // same logic as in findVersionedJarEntry, versions are searched only when the jar has any
+    if (MULTI_RELEASE_JAR_ENABLE && jarIndex.hasVersionedEntries() && !name.startsWith(META_INF)) {
+      for (int version = JAVA_VERSION; version >= MIN_MULTI_RELEASE_JAR_JAVA_VERSION; version--) {
+        String versionedName = jarEntryPrefix + META_INF_VERSIONS + version + "/" + name;
+        if (jarIndex.contains(versionedName)) {
+          return versionedName;
+        }
+      }
+    }
+
+    String entryName = jarEntryPrefix + name;
+    return jarIndex.contains(entryName) ? entryName : null;
   }
 
   // suffix appended to class resource names
@@ -296,17 +335,15 @@ public class AgentClassLoader extends URLClassLoader {
   }
 
   private URL findJarResource(String name) {
-    JarEntry jarEntry = findJarEntry(name);
-    return getJarEntryUrl(jarEntry);
+    return getJarEntryUrl(findJarEntryName(name));
   }
 
-  private URL getJarEntryUrl(JarEntry jarEntry) {
-    if (jarEntry != null) {
+  private URL getJarEntryUrl(@Nullable String entryName) {
+    if (entryName != null) {
       try {
-        return new URL(jarBase, jarEntry.getName());
+        return new URL(jarBase, entryName);
       } catch (MalformedURLException e) {
-        throw new IllegalStateException(
-            "Failed to construct url for jar entry " + jarEntry.getName(), e);
+        throw new IllegalStateException("Failed to construct url for jar entry " + entryName, e);
       }
     }
 
@@ -374,7 +411,7 @@ public class AgentClassLoader extends URLClassLoader {
       // find from agent jar
       if (agentClassLoader != null) {
         JarEntry jarEntry = agentClassLoader.jarFile.getJarEntry(resourceName);
-        return agentClassLoader.getJarEntryUrl(jarEntry);
+        return agentClassLoader.getJarEntryUrl(jarEntry != null ? jarEntry.getName() : null);
       }
       return null;
     }
@@ -0,0 +1,288 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.bootstrap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import javax.annotation.Nullable;
+
+/**
+ * Index of the entries of the agent jar that are under the internal jar prefix, built from the
+ * central directory of the memory mapped agent jar. Finding an entry doesn't allocate, and the
+ * contents of entries that are stored without compression are returned as a view of the mapped
+ * file, so that classes can be defined from them without inflating or copying them.
+ *
+ * <p>Only entry names that consist of ASCII characters can be looked up, for other names the {@link
+ * java.util.jar.JarFile} needs to be used.
+ *
+ * <p>This class is thread safe.
+ */
+final class AgentJarIndex {
+
+  private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+  private static final int LOCAL_HEADER_LENGTH = 30;
+  private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+  private static final int CENTRAL_HEADER_LENGTH = 46;
+  private static final int END_SIGNATURE = 0x06054b50;
+  private static final int END_LENGTH = 22;
+  private static final int ZIP64_END_LOCATOR_SIGNATURE = 0x07064b50;
+  private static final int ZIP64_END_LOCATOR_LENGTH = 20;
+  private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+  private static final int MAX_COMMENT_LENGTH = 0xFFFF;
+  private static final int ZIP64_MAGIC = 0xFFFFFFFF;
+  private static final int METHOD_STORED = 0;
+
+  private static final String META_INF_VERSIONS = "META-INF/versions/";
+
+  private final ByteBuffer buffer;
+  // open addressing hash table of the offsets of the central directory headers of the indexed
+  // entries, offset + 1 is stored so that 0 marks an empty slot
+  private final int[] table;
+  private final int mask;
+  private final boolean hasVersionedEntries;
+
+  private AgentJarIndex(ByteBuffer buffer, int[] table, int mask, boolean hasVersionedEntries) {
+    this.buffer = buffer;
+    this.table = table;
+    this.mask = mask;
+    this.hasVersionedEntries = hasVersionedEntries;
+  }
+
+  /**
+   * Returns the index of the entries that start with {@code prefix}, or {@code null} when the jar
+   * can't be indexed.
+   */
+  @Nullable
+  static AgentJarIndex create(File file, String prefix) {
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        FileChannel channel = randomAccessFile.getChannel()) {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        return null;
+      }
+      ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      buffer.order(ByteOrder.LITTLE_ENDIAN);
+      return create(buffer, prefix);
+    } catch (IOException | RuntimeException e) {
+      // fall back to looking up the entries from the jar file
+      return null;
+    }
+  }
+
+  @Nullable
+  private static AgentJarIndex create(ByteBuffer buffer, String prefix) {
+    int end = findEnd(buffer);
+    if (end < 0) {
+      return null;
+    }
+    long entries = buffer.getShort(end + 10) & 0xFFFF;
+    long directoryOffset = buffer.getInt(end + 16) & 0xFFFFFFFFL;
+    if (entries == 0xFFFF || directoryOffset == (ZIP64_MAGIC & 0xFFFFFFFFL)) {
+      int locator = end - ZIP64_END_LOCATOR_LENGTH;
+      if (locator < 0 || buffer.getInt(locator) != ZIP64_END_LOCATOR_SIGNATURE) {
+        return null;
+      }
+      long zip64End = buffer.getLong(locator + 8);
+      if (zip64End < 0
+          || zip64End > buffer.limit() - 56
+          || buffer.getInt((int) zip64End) != ZIP64_END_SIGNATURE) {
+        return null;
+      }
+      entries = buffer.getLong((int) zip64End + 32);
+      directoryOffset = buffer.getLong((int) zip64End + 48);
+    }
+    if (entries < 0 || entries > Integer.MAX_VALUE / 4 || directoryOffset > end) {
+      return null;
+    }
+
+    byte[] prefixBytes = ascii(prefix);
+    if (prefixBytes == null) {
+      return null;
+    }
+    int capacity = Integer.highestOneBit((int) Math.max(1, entries) * 2 - 1) << 1;
+    int[] table = new int[capacity];
+    int mask = capacity - 1;
+    boolean hasVersionedEntries = false;
+    byte[] versionsBytes = ascii(prefix + META_INF_VERSIONS);
+
+    int position = (int) directoryOffset;
+    for (long i = 0; i < entries; i++) {
+      if (position + CENTRAL_HEADER_LENGTH > end
+          || buffer.getInt(position) != CENTRAL_HEADER_SIGNATURE) {
+        return null;
+      }
+      int nameLength = buffer.getShort(position + 28) & 0xFFFF;
+      int extraLength = buffer.getShort(position + 30) & 0xFFFF;
+      int commentLength = buffer.getShort(position + 32) & 0xFFFF;
+      int nameOffset = position + CENTRAL_HEADER_LENGTH;
+      if (nameOffset + nameLength > end) {
+        return null;
+      }
+      if (startsWith(buffer, nameOffset, nameLength, prefixBytes)) {
+        int slot = hash(buffer, nameOffset, nameLength) & mask;
+        while (table[slot] != 0) {
+          slot = (slot + 1) & mask;
+        }
+        table[slot] = position + 1;
+        hasVersionedEntries |= startsWith(buffer, nameOffset, nameLength, versionsBytes);
+      }
+      position = nameOffset + nameLength + extraLength + commentLength;
+    }
+
+    return new AgentJarIndex(buffer, table, mask, hasVersionedEntries);
+  }
+
+  private static int findEnd(ByteBuffer buffer) {
+    int limit = buffer.limit();
+    int min = Math.max(0, limit - END_LENGTH - MAX_COMMENT_LENGTH);
+    for (int position = limit - END_LENGTH; position >= min; position--) {
+      if (buffer.getInt(position) == END_SIGNATURE
+          && position + END_LENGTH + (buffer.getShort(position + 20) & 0xFFFF) == limit) {
+        return position;
+      }
+    }
+    return -1;
+  }
+
+  /** Returns whether there are entries under {@code META-INF/versions/} of the internal jar. */
+  boolean hasVersionedEntries() {
+    return hasVersionedEntries;
+  }
+
+  /**
+   * Returns whether the jar contains an entry with the given name. Must only be called for names
+   * that consist of ASCII characters, see {@link #isIndexable(String)}.
+   */
+  boolean contains(String name) {
+    return find(name) >= 0;
+  }
+
+  /**
+   * Returns the contents of the entry with the given name, or {@code null} when the jar doesn't
+   * contain the entry or the entry is compressed.
+   */
+  @Nullable
+  ByteBuffer getStoredEntry(String name) {
+    int header = find(name);
+    if (header < 0) {
+      return null;
+    }
+    int method = buffer.getShort(header + 10) & 0xFFFF;
+    int compressedSize = buffer.getInt(header + 20);
+    int size = buffer.getInt(header + 24);
+    int localHeader = buffer.getInt(header + 42);
+    if (method != METHOD_STORED
+        || size != compressedSize
+        || size == ZIP64_MAGIC
+        || localHeader == ZIP64_MAGIC
+        || localHeader < 0
+        || localHeader > buffer.limit() - LOCAL_HEADER_LENGTH
+        || buffer.getInt(localHeader) != LOCAL_HEADER_SIGNATURE) {
+      return null;
+    }
+    int start =
+        localHeader
+            + LOCAL_HEADER_LENGTH
+            + (buffer.getShort(localHeader + 26) & 0xFFFF)
+            + (buffer.getShort(localHeader + 28) & 0xFFFF);
+    if (size < 0 || start > buffer.limit() - size) {
+      return null;
+    }
+    ByteBuffer entry = buffer.duplicate();
+    // cast for compatibility with java 8, where these methods are defined only in Buffer
+    ((Buffer) entry).position(start);
+    ((Buffer) entry).limit(start + size);
+    return entry.slice();
+  }
+
+  /** Returns whether the given name can be looked up in this index. */
+  static boolean isIndexable(String name) {
+    for (int i = 0; i < name.length(); i++) {
+      if (name.charAt(i) >= 0x80) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // returns the offset of the central directory header of the entry, or -1
+  private int find(String name) {
+    int slot = hash(name) & mask;
+    while (true) {
+      int header = table[slot] - 1;
+      if (header < 0) {
+        return -1;
+      }
+      if (nameEquals(header, name)) {
+        return header;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  private boolean nameEquals(int header, String name) {
+    int nameLength = buffer.getShort(header + 28) & 0xFFFF;
+    if (nameLength != name.length()) {
+      return false;
+    }
+    int nameOffset = header + CENTRAL_HEADER_LENGTH;
+    for (int i = 0; i < nameLength; i++) {
+      if (buffer.get(nameOffset + i) != name.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int hash(String name) {
+    int hash = 0;
+    for (int i = 0; i < name.length(); i++) {
+      hash = 31 * hash + name.charAt(i);
+    }
+    return spread(hash);
+  }
+
+  private static int hash(ByteBuffer buffer, int offset, int length) {
+    int hash = 0;
+    for (int i = 0; i < length; i++) {
+      hash = 31 * hash + buffer.get(offset + i);
+    }
+    return spread(hash);
+  }
+
+  private static int spread(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+
+  private static boolean startsWith(ByteBuffer buffer, int offset, int length, byte[] prefix) {
+    if (length < prefix.length) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length; i++) {
+      if (buffer.get(offset + i) != prefix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Nullable
+  private static byte[] ascii(String value) {
+    if (!isIndexable(value)) {
+      return null;
+    }
+    byte[] bytes = new byte[value.length()];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte) value.charAt(i);
+    }
+    return bytes;
+  }
+}
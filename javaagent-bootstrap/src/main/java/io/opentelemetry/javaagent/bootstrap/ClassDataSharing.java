@@ -0,0 +1,71 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.bootstrap;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Support for recording the classes defined by the agent class loaders into a dynamic class data
+ * sharing (CDS) archive, which is created by running the JVM with {@code -XX:ArchiveClassesAtExit}.
+ *
+ * <p>The JVM archives the classes defined by custom class loaders only when they have been linked
+ * by the time it exits. Many agent classes are loaded, e.g. to resolve types while matching, but
+ * never linked, so in a training run the agent class loaders register the classes they define here
+ * and these classes are linked before the JVM exits. When the archive is used, the JVM takes a
+ * class from the archive when a custom class loader defines a class with the same name and bytes,
+ * so the class loaders don't need to do anything else.
+ */
+public final class ClassDataSharing {
+
+  // NOTE it's important not to use logging in this class, because this class is used before logging
+  // is initialized
+
+  public static final String TRAINING_RUN_PROPERTY = "otel.javaagent.experimental.cds.training-run";
+
+  private static final Queue<Class<?>> definedClasses = new ConcurrentLinkedQueue<>();
+
+  // the agent class loader defines classes before the configuration file is read, so the classes
+  // are registered until the agent is configured
+  private static volatile boolean recording = true;
+
+  /**
+   * Enables or disables the training run once the agent configuration, including the configuration
+   * file, is known. The classes registered before are dropped when the training run is disabled.
+   */
+  public static void configure(boolean trainingRun) {
+    if (trainingRun) {
+      // the archive is written after the shutdown hooks have run
+      Runtime.getRuntime()
+          .addShutdownHook(
+              new Thread(ClassDataSharing::linkDefinedClasses, "otel-javaagent-cds-training-run"));
+    } else {
+      recording = false;
+      definedClasses.clear();
+    }
+  }
+
+  /** Registers a class that was defined by one of the agent class loaders. */
+  public static void classDefined(Class<?> clazz) {
+    if (recording) {
+      definedClasses.add(clazz);
+    }
+  }
+
+  private static void linkDefinedClasses() {
+    Class<?> clazz;
+    while ((clazz = definedClasses.poll()) != null) {
+      try {
+        // getting the declared fields links the class
+        clazz.getDeclaredFields();
+      } catch (LinkageError ignored) {
+        // classes that can't be linked are not archived
+      }
+    }
+  }
+
+  private ClassDataSharing() {}
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.bootstrap;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AgentJarIndexTest {
+
+  @TempDir Path tempDir;
+
+  @Test
+  void findsEntriesUnderPrefix() throws IOException {
+    File jar = tempDir.resolve("agent.jar").toFile();
+    try (JarOutputStream jarOutputStream = newJarOutputStream(jar)) {
+      addEntry(jarOutputStream, "inst/a/Stored.classdata", bytes("stored"), true);
+      addEntry(jarOutputStream, "inst/a/Deflated.classdata", bytes("deflated"), false);
+      addEntry(jarOutputStream, "a/Outside.class", bytes("outside"), true);
+    }
+
+    AgentJarIndex index = AgentJarIndex.create(jar, "inst/");
+
+    assertThat(index).isNotNull();
+    assertThat(index.contains("inst/a/Stored.classdata")).isTrue();
+    assertThat(index.contains("inst/a/Deflated.classdata")).isTrue();
+    assertThat(index.contains("inst/a/Missing.classdata")).isFalse();
+    assertThat(index.contains("a/Outside.class")).isFalse();
+    assertThat(index.hasVersionedEntries()).isFalse();
+
+    assertThat(toString(index.getStoredEntry("inst/a/Stored.classdata"))).isEqualTo("stored");
+    // compressed entries need to be read from the jar file
+    assertThat(index.getStoredEntry("inst/a/Deflated.classdata")).isNull();
+    assertThat(index.getStoredEntry("inst/a/Missing.classdata")).isNull();
+  }
+
+  @Test
+  void detectsVersionedEntries() throws IOException {
+    File jar = tempDir.resolve("agent.jar").toFile();
+    try (JarOutputStream jarOutputStream = newJarOutputStream(jar)) {
+      addEntry(jarOutputStream, "inst/a/B.classdata", bytes("base"), true);
+      addEntry(jarOutputStream, "inst/META-INF/versions/11/a/B.classdata", bytes("11"), true);
+    }
+
+    AgentJarIndex index = AgentJarIndex.create(jar, "inst/");
+
+    assertThat(index).isNotNull();
+    assertThat(index.hasVersionedEntries()).isTrue();
+    assertThat(toString(index.getStoredEntry("inst/META-INF/versions/11/a/B.classdata")))
+        .isEqualTo("11");
+  }
+
+  @Test
+  void notAJar() throws IOException {
+    File file = tempDir.resolve("agent.jar").toFile();
+    Files.write(file.toPath(), bytes("not a jar"));
+
+    assertThat(AgentJarIndex.create(file, "inst/")).isNull();
+  }
+
+  @Test
+  void onlyAsciiNamesAreIndexable() {
+    assertThat(AgentJarIndex.isIndexable("inst/a/B.classdata")).isTrue();
+    assertThat(AgentJarIndex.isIndexable("inst/a/Ä.classdata")).isFalse();
+  }
+
+  @Test
+  void agentClassLoaderDefinesStoredClasses() throws Exception {
+    File jar = tempDir.resolve("agent.jar").toFile();
+    String resourceName = Greeting.class.getName().replace('.', '/') + ".class";
+    try (JarOutputStream jarOutputStream = newJarOutputStream(jar)) {
+      addEntry(jarOutputStream, "inst/" + resourceName + "data", classBytes(resourceName), true);
+    }
+
+    AgentClassLoader classLoader = new AgentClassLoader(jar, "inst", false);
+    Class<?> clazz = classLoader.loadClass(Greeting.class.getName());
+
+    assertThat(clazz.getClassLoader()).isSameAs(classLoader);
+    assertThat(classLoader.findResource(resourceName)).isNotNull();
+  }
+
+  private static JarOutputStream newJarOutputStream(File file) throws IOException {
+    Manifest manifest = new Manifest();
+    manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    OutputStream outputStream = Files.newOutputStream(file.toPath());
+    return new JarOutputStream(outputStream, manifest);
+  }
+
+  private static void addEntry(
+      JarOutputStream jarOutputStream, String name, byte[] bytes, boolean stored)
+      throws IOException {
+    ZipEntry entry = new ZipEntry(name);
+    if (stored) {
+      CRC32 crc = new CRC32();
+      crc.update(bytes);
+      entry.setMethod(ZipEntry.STORED);
+      entry.setSize(bytes.length);
+      entry.setCrc(crc.getValue());
+    }
+    jarOutputStream.putNextEntry(entry);
+    jarOutputStream.write(bytes);
+    jarOutputStream.closeEntry();
+  }
+
+  private static byte[] classBytes(String resourceName) throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    try (InputStream inputStream =
+        AgentJarIndexTest.class.getClassLoader().getResourceAsStream(resourceName)) {
+      byte[] buffer = new byte[4096];
+      int read;
+      while ((read = inputStream.read(buffer)) != -1) {
+        outputStream.write(buffer, 0, read);
+      }
+    }
+    return outputStream.toByteArray();
+  }
+
+  private static byte[] bytes(String value) {
+    return value.getBytes(UTF_8);
+  }
+
+  private static String toString(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.get(bytes);
+    return new String(bytes, UTF_8);
+  }
+
+  static class Greeting {}
+}
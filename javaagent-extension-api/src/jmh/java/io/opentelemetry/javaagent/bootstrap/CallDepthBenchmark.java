@@ -0,0 +1,75 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.bootstrap;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@Fork(3)
+@Warmup(iterations = 10, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@State(Scope.Thread)
+public class CallDepthBenchmark {
+
+  // simulates nested advice of different instrumentations on the same call stack
+  private static final Class<?>[] KEYS = {
+    String.class,
+    Integer.class,
+    Long.class,
+    Double.class,
+    Float.class,
+    Short.class,
+    Byte.class,
+    Character.class,
+    Boolean.class,
+    Object.class,
+    Thread.class,
+    Runnable.class
+  };
+
+  @Setup
+  public void setUp() {
+    for (Class<?> key : KEYS) {
+      CallDepthThreadLocalMap.getCallDepth(key);
+      CallDepthSlots.getCallDepth(key);
+    }
+  }
+
+  @Benchmark
+  public int threadLocalMap() {
+    int result = 0;
+    for (Class<?> key : KEYS) {
+      result += CallDepthThreadLocalMap.getCallDepth(key).getAndIncrement();
+    }
+    for (Class<?> key : KEYS) {
+      result += CallDepthThreadLocalMap.getCallDepth(key).decrementAndGet();
+    }
+    return result;
+  }
+
+  @Benchmark
+  public int slots() {
+    int result = 0;
+    for (Class<?> key : KEYS) {
+      result += CallDepthSlots.getCallDepth(key).getAndIncrement();
+    }
+    for (Class<?> key : KEYS) {
+      result += CallDepthSlots.getCallDepth(key).decrementAndGet();
+    }
+    return result;
+  }
+}
@@ -5,6 +5,8 @@
 
 package io.opentelemetry.javaagent.bootstrap;
 
+import io.opentelemetry.instrumentation.api.internal.ConfigPropertiesUtil;
+
 /**
  * A utility to track nested calls in an instrumentation.
  *
@@ -22,6 +24,9 @@ package io.opentelemetry.javaagent.bootstrap;
  */
 public final class CallDepth {
 
+  private static final boolean USE_SLOTS =
+      ConfigPropertiesUtil.getBoolean("otel.javaagent.experimental.call-depth.slots", false);
+
   private int depth;
 
   CallDepth() {
@@ -35,6 +40,9 @@ public final class CallDepth {
    * <p>The returned instance is unique per given class and per thread.
    */
   public static CallDepth forClass(Class<?> cls) {
+    if (USE_SLOTS) {
+      return CallDepthSlots.getCallDepth(cls);
+    }
     return CallDepthThreadLocalMap.getCallDepth(cls);
   }
 
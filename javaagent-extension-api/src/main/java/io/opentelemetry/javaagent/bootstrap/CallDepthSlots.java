@@ -0,0 +1,69 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.bootstrap;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stores the {@link CallDepth} instances of a thread in a single array, indexed by a slot number
+ * that is assigned to every key class once. Compared to {@link CallDepthThreadLocalMap}, which uses
+ * a separate {@link ThreadLocal} per key class, looking up a call depth costs a single {@link
+ * ThreadLocal} lookup and an array access no matter how many key classes are in use, and every
+ * thread holds a single thread local map entry.
+ *
+ * <p>Slot numbers are never reused, the per thread arrays grow with the number of distinct key
+ * classes used during the lifetime of the JVM. The array is allocated only once a thread actually
+ * uses a call depth and is only as large as the highest slot used on that thread, which keeps the
+ * footprint of many short-lived (e.g. virtual) threads small.
+ */
+final class CallDepthSlots {
+
+  private static final AtomicInteger nextSlot = new AtomicInteger();
+
+  private static final ClassValue<Integer> SLOTS =
+      new ClassValue<Integer>() {
+        @Override
+        protected Integer computeValue(Class<?> type) {
+          return nextSlot.getAndIncrement();
+        }
+      };
+
+  private static final CallDepth[] EMPTY = new CallDepth[0];
+
+  private static final ThreadLocal<CallDepth[]> TLS =
+      new ThreadLocal<CallDepth[]>() {
+        @Override
+        protected CallDepth[] initialValue() {
+          return EMPTY;
+        }
+      };
+
+  static CallDepth getCallDepth(Class<?> k) {
+    int slot = SLOTS.get(k);
+    CallDepth[] callDepths = TLS.get();
+    if (slot < callDepths.length) {
+      CallDepth callDepth = callDepths[slot];
+      if (callDepth != null) {
+        return callDepth;
+      }
+    }
+    return newCallDepth(slot);
+  }
+
+  private static CallDepth newCallDepth(int slot) {
+    CallDepth[] callDepths = TLS.get();
+    if (slot >= callDepths.length) {
+      callDepths = Arrays.copyOf(callDepths, Math.max(slot + 1, callDepths.length * 2));
+      TLS.set(callDepths);
+    }
+    CallDepth callDepth = new CallDepth();
+    callDepths[slot] = callDepth;
+    return callDepth;
+  }
+
+  private CallDepthSlots() {}
+}
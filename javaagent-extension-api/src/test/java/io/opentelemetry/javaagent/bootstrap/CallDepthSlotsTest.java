@@ -0,0 +1,61 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.bootstrap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class CallDepthSlotsTest {
+
+  @Test
+  void incrementDecrement() {
+    assertThat(CallDepthSlots.getCallDepth(String.class).getAndIncrement()).isZero();
+    assertThat(CallDepthSlots.getCallDepth(Integer.class).getAndIncrement()).isZero();
+
+    assertThat(CallDepthSlots.getCallDepth(String.class).getAndIncrement()).isOne();
+    assertThat(CallDepthSlots.getCallDepth(Integer.class).getAndIncrement()).isOne();
+
+    assertThat(CallDepthSlots.getCallDepth(String.class).decrementAndGet()).isOne();
+    assertThat(CallDepthSlots.getCallDepth(Integer.class).decrementAndGet()).isOne();
+
+    assertThat(CallDepthSlots.getCallDepth(String.class).decrementAndGet()).isZero();
+    assertThat(CallDepthSlots.getCallDepth(Integer.class).decrementAndGet()).isZero();
+  }
+
+  @Test
+  void manyKeyClasses() {
+    Class<?>[] keys = {
+      Long.class, Double.class, Float.class, Short.class, Byte.class, Character.class,
+      Boolean.class, Object.class, Thread.class, Runnable.class, Number.class, Void.class
+    };
+    for (Class<?> key : keys) {
+      assertThat(CallDepthSlots.getCallDepth(key).getAndIncrement()).isZero();
+    }
+    for (Class<?> key : keys) {
+      assertThat(CallDepthSlots.getCallDepth(key).decrementAndGet()).isZero();
+    }
+  }
+
+  @Test
+  void perThread() throws InterruptedException {
+    CallDepth callDepth = CallDepthSlots.getCallDepth(CharSequence.class);
+    assertThat(callDepth.getAndIncrement()).isZero();
+
+    AtomicInteger otherThreadDepth = new AtomicInteger(-1);
+    Thread thread =
+        new Thread(
+            () ->
+                otherThreadDepth.set(
+                    CallDepthSlots.getCallDepth(CharSequence.class).getAndIncrement()));
+    thread.start();
+    thread.join();
+
+    assertThat(otherThreadDepth).hasValue(0);
+    assertThat(callDepth.decrementAndGet()).isZero();
+  }
+}
@@ -0,0 +1,10 @@
+plugins {
+  id("otel.java-conventions")
+  id("otel.publish-conventions")
+}
+
+group = "io.opentelemetry.javaagent"
+
+otelJava {
+  minJavaVersionSupported.set(JavaVersion.VERSION_11)
+}
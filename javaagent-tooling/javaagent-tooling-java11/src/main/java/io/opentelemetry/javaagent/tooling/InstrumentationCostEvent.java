@@ -0,0 +1,35 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.tooling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("io.opentelemetry.javaagent.InstrumentationCost")
+@Label("Instrumentation Cost")
+@Description("Cumulative time the agent spent on an instrumentation in one phase of class loading")
+@Category({"OpenTelemetry", "Java Agent"})
+@StackTrace(false)
+final class InstrumentationCostEvent extends Event {
+
+  @Label("Instrumentation Name")
+  String instrumentationName;
+
+  @Label("Phase")
+  String phase;
+
+  @Label("Count")
+  long count;
+
+  @Label("Total Duration")
+  @Timespan(Timespan.NANOSECONDS)
+  long totalDuration;
+}
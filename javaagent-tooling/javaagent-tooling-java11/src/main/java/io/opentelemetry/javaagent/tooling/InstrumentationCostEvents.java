@@ -0,0 +1,44 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.tooling;
+
+import java.util.function.Consumer;
+import jdk.jfr.FlightRecorder;
+
+/**
+ * Emits the instrumentation costs recorded by the agent as periodic JFR events, in every chunk of a
+ * recording. This class requires Java 11 and the {@code jdk.jfr} module, callers need to handle the
+ * {@link LinkageError} that is thrown when they are not available.
+ */
+public final class InstrumentationCostEvents {
+
+  /** Receives the cumulative cost of an instrumentation in one phase. */
+  @FunctionalInterface
+  public interface Recorder {
+    void record(String instrumentationName, String phase, long count, long durationNanos);
+  }
+
+  /**
+   * Registers the periodic event, {@code snapshot} is called with a {@link Recorder} that emits an
+   * event for each recorded cost.
+   */
+  public static void register(Consumer<Recorder> snapshot) {
+    FlightRecorder.addPeriodicEvent(
+        InstrumentationCostEvent.class, () -> snapshot.accept(InstrumentationCostEvents::emit));
+  }
+
+  private static void emit(
+      String instrumentationName, String phase, long count, long durationNanos) {
+    InstrumentationCostEvent event = new InstrumentationCostEvent();
+    event.instrumentationName = instrumentationName;
+    event.phase = phase;
+    event.count = count;
+    event.totalDuration = durationNanos;
+    event.commit();
+  }
+
+  private InstrumentationCostEvents() {}
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.tooling;
+
+import static io.opentelemetry.javaagent.extension.matcher.AgentElementMatchers.hasClassesNamed;
+import static net.bytebuddy.matcher.ElementMatchers.isAnnotatedWith;
+import static net.bytebuddy.matcher.ElementMatchers.isInterface;
+import static net.bytebuddy.matcher.ElementMatchers.nameStartsWith;
+import static net.bytebuddy.matcher.ElementMatchers.named;
+import static net.bytebuddy.matcher.ElementMatchers.none;
+import static net.bytebuddy.matcher.ElementMatchers.not;
+
+import io.opentelemetry.javaagent.bootstrap.DefineClassHelper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.IllegalClassFormatException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.concurrent.TimeUnit;
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.agent.builder.AgentBuilder;
+import net.bytebuddy.agent.builder.AgentBuilderUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how long it takes to find out that none of the transformations apply to a class, with
+ * transformations that are shaped like the ones of real instrumentation modules: matching by name,
+ * by name prefix, by one of several names and by annotation, each guarded by a {@code
+ * hasClassesNamed()} class loader matcher.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 10, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@State(Scope.Thread)
+public class TypeMatchingBenchmark {
+
+  private static final int MODULES = 100;
+
+  private ClassFileTransformer transformer;
+  private URLClassLoader classLoader;
+  private String className;
+  private byte[] classBytes;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    DefineClassHelper.internalSetHandler(DefineClassHandler.INSTANCE);
+
+    AgentBuilder agentBuilder =
+        new AgentBuilder.Default(new ByteBuddy())
+            .with(AgentBuilder.DescriptionStrategy.Default.POOL_ONLY)
+            .disableClassFormatChanges()
+            .ignore(none());
+    for (int i = 0; i < MODULES; i++) {
+      String library = "com.example.library" + i + ".";
+      agentBuilder =
+          agentBuilder
+              .type(named(library + "Client"), hasClassesNamed(library + "Client"))
+              .transform((builder, type, loader, module, protectionDomain) -> builder)
+              .type(
+                  nameStartsWith(library + "internal.").and(not(isInterface())),
+                  hasClassesNamed(library + "Client"))
+              .transform((builder, type, loader, module, protectionDomain) -> builder)
+              .type(
+                  named(library + "Server").or(named(library + "AsyncServer")),
+                  hasClassesNamed(library + "Server"))
+              .transform((builder, type, loader, module, protectionDomain) -> builder)
+              .type(isAnnotatedWith(named(library + "Traced")), hasClassesNamed(library + "Traced"))
+              .transform((builder, type, loader, module, protectionDomain) -> builder);
+    }
+    transformer = AgentBuilderUtil.optimize(agentBuilder).makeRaw();
+
+    classLoader = new URLClassLoader(new URL[0], TypeMatchingBenchmark.class.getClassLoader());
+    className = ApplicationClass.class.getName();
+    try (InputStream inputStream =
+        TypeMatchingBenchmark.class.getResourceAsStream(
+            "/" + className.replace('.', '/') + ".class")) {
+      classBytes = readAllBytes(inputStream);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    classLoader.close();
+  }
+
+  @Benchmark
+  public byte[] unmatchedClass() throws IllegalClassFormatException {
+    // sets up the super types of the class, like it happens when a class is defined by the agent
+    DefineClassHelper.Handler.DefineClassContext context =
+        DefineClassHandler.INSTANCE.beforeDefineClass(
+            classLoader, className, classBytes, 0, classBytes.length);
+    try {
+      return transformer.transform(
+          classLoader, className.replace('.', '/'), null, null, classBytes);
+    } finally {
+      DefineClassHandler.INSTANCE.afterDefineClass(context);
+    }
+  }
+
+  private static byte[] readAllBytes(InputStream inputStream) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[4096];
+    int read;
+    while ((read = inputStream.read(buffer)) != -1) {
+      out.write(buffer, 0, read);
+    }
+    return out.toByteArray();
+  }
+
+  @SuppressWarnings("unused")
+  private static class ApplicationClass implements Runnable {
+    @Override
+    public void run() {}
+  }
+}
@@ -43,6 +43,8 @@ import io.opentelemetry.javaagent.tooling.field.VirtualFieldImplementationInstal
 import io.opentelemetry.javaagent.tooling.ignore.IgnoredClassLoadersMatcher;
 import io.opentelemetry.javaagent.tooling.ignore.IgnoredTypesBuilderImpl;
 import io.opentelemetry.javaagent.tooling.ignore.IgnoredTypesMatcher;
+import io.opentelemetry.javaagent.tooling.ignore.NeverMatchingClassLoadersMatcher;
+import io.opentelemetry.javaagent.tooling.instrumentation.InstrumentationCost;
 import io.opentelemetry.javaagent.tooling.muzzle.AgentTooling;
 import io.opentelemetry.javaagent.tooling.util.Trie;
 import io.opentelemetry.sdk.autoconfigure.AutoConfiguredOpenTelemetrySdk;
@@ -55,6 +57,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.LogManager;
 import java.util.logging.Logger;
 import java.util.stream.Stream;
@@ -85,6 +88,18 @@ public class AgentInstaller {
   private static final String FORCE_SYNCHRONOUS_AGENT_LISTENERS_CONFIG =
       "otel.javaagent.experimental.force-synchronous-agent-listeners";
 
+  // number of threads used to match the classes that were loaded before the agent was installed, 0
+  // means that the classes are matched on the thread that installs the agent
+  private static final String RETRANSFORMATION_THREADS_CONFIG =
+      "otel.javaagent.experimental.retransformation.threads";
+  // number of classes retransformed with one Instrumentation#retransformClasses() call, 0 means
+  // that all classes are retransformed with a single call
+  private static final String RETRANSFORMATION_BATCH_SIZE_CONFIG =
+      "otel.javaagent.experimental.retransformation.batch-size";
+  // whether the helper classes of an instrumentation are defined in a class loader all at once
+  private static final String BATCH_HELPER_INJECTION_CONFIG =
+      "otel.javaagent.experimental.helper-injection.batch.enabled";
+
   private static final String STRICT_CONTEXT_STRESSOR_MILLIS =
       "otel.javaagent.testing.strict-context-stressor-millis";
 
@@ -122,6 +137,18 @@ public class AgentInstaller {
     EmbeddedInstrumentationProperties.setPropertiesLoader(extensionClassLoader);
     setDefineClassHandler();
     FieldBackedImplementationConfiguration.configure(earlyConfig);
+    TransformationCache transformationCache = TransformationCache.initialize(earlyConfig);
+
+    int retransformationThreads = earlyConfig.getInt(RETRANSFORMATION_THREADS_CONFIG, 0);
+    int retransformationBatchSize = earlyConfig.getInt(RETRANSFORMATION_BATCH_SIZE_CONFIG, 0);
+    ParallelDiscoveryStrategy parallelDiscoveryStrategy = null;
+    AgentBuilder.RedefinitionStrategy.DiscoveryStrategy discoveryStrategy =
+        new RedefinitionDiscoveryStrategy();
+    if (retransformationThreads > 0) {
+      parallelDiscoveryStrategy =
+          new ParallelDiscoveryStrategy(discoveryStrategy, retransformationThreads);
+      discoveryStrategy = parallelDiscoveryStrategy;
+    }
 
     AgentBuilder agentBuilder =
         new AgentBuilder.Default(
@@ -133,21 +160,22 @@ public class AgentInstaller {
                     .with(InstrumentedType.Factory.Default.FROZEN))
             .with(AgentBuilder.TypeStrategy.Default.DECORATE)
             .disableClassFormatChanges()
-            .with(AgentBuilder.RedefinitionStrategy.RETRANSFORMATION)
-            .with(new RedefinitionDiscoveryStrategy())
             .with(AgentBuilder.DescriptionStrategy.Default.POOL_ONLY)
             .with(AgentTooling.poolStrategy())
             .with(AgentTooling.transformListener())
             .with(AgentTooling.locationStrategy());
+    agentBuilder =
+        withRetransformation(agentBuilder, discoveryStrategy, retransformationBatchSize, null);
     if (JavaModule.isSupported()) {
       agentBuilder = agentBuilder.with(new ExposeAgentBootstrapListener(inst));
     }
     if (logger.isLoggable(FINE)) {
       agentBuilder =
-          agentBuilder
-              .with(AgentBuilder.RedefinitionStrategy.RETRANSFORMATION)
-              .with(new RedefinitionDiscoveryStrategy())
-              .with(new RedefinitionLoggingListener())
+          withRetransformation(
+                  agentBuilder,
+                  discoveryStrategy,
+                  retransformationBatchSize,
+                  new RedefinitionLoggingListener())
               .with(new TransformLoggingListener());
     }
 
@@ -172,7 +200,15 @@ public class AgentInstaller {
     }
 
     agentBuilder = agentBuilder.with(new ClassLoadListener());
-    agentBuilder = configureIgnoredTypes(sdkConfig, extensionClassLoader, agentBuilder);
+    HelperInjector.setBatchInjection(sdkConfig.getBoolean(BATCH_HELPER_INJECTION_CONFIG, false));
+    NeverMatchingClassLoadersMatcher neverMatchingClassLoadersMatcher =
+        NeverMatchingClassLoadersMatcher.create(sdkConfig);
+    agentBuilder =
+        configureIgnoredTypes(sdkConfig, extensionClassLoader, agentBuilder, transformationCache);
+    if (InstrumentationCost.initialize(
+        sdkConfig, autoConfiguredSdk != null ? autoConfiguredSdk.getOpenTelemetrySdk() : null)) {
+      agentBuilder = agentBuilder.with(InstrumentationCost.transformationListener());
+    }
 
     int numberOfLoadedExtensions = 0;
     for (AgentExtension agentExtension : loadOrdered(AgentExtension.class, extensionClassLoader)) {
@@ -197,8 +233,14 @@ public class AgentInstaller {
       }
     }
     logger.log(FINE, "Installed {0} extension(s)", numberOfLoadedExtensions);
+    if (neverMatchingClassLoadersMatcher != null) {
+      neverMatchingClassLoadersMatcher.instrumentationsInstalled();
+    }
 
     agentBuilder = AgentBuilderUtil.optimize(agentBuilder);
+    if (parallelDiscoveryStrategy != null) {
+      parallelDiscoveryStrategy.setMatcher(AgentBuilderUtil.retransformationMatcher(agentBuilder));
+    }
     ResettableClassFileTransformer resettableClassFileTransformer = agentBuilder.installOn(inst);
     instrumentationInstalled = true;
     ClassFileTransformerHolder.setClassFileTransformer(resettableClassFileTransformer);
@@ -208,6 +250,23 @@ public class AgentInstaller {
     runAfterAgentListeners(agentListeners, autoConfiguredSdk, sdkConfig);
   }
 
+  private static AgentBuilder withRetransformation(
+      AgentBuilder agentBuilder,
+      AgentBuilder.RedefinitionStrategy.DiscoveryStrategy discoveryStrategy,
+      int batchSize,
+      @Nullable AgentBuilder.RedefinitionStrategy.Listener listener) {
+    AgentBuilder.RedefinitionListenable.WithoutBatchStrategy retransformation =
+        agentBuilder.with(AgentBuilder.RedefinitionStrategy.RETRANSFORMATION);
+    AgentBuilder.RedefinitionListenable redefinitionListenable =
+        batchSize > 0
+            ? retransformation
+                .with(
+                    AgentBuilder.RedefinitionStrategy.BatchAllocator.ForFixedSize.ofSize(batchSize))
+                .with(discoveryStrategy)
+            : retransformation.with(discoveryStrategy);
+    return listener != null ? redefinitionListenable.with(listener) : redefinitionListenable;
+  }
+
   private static void installEarlyInstrumentation(
       AgentBuilder agentBuilder, Instrumentation instrumentation) {
     // We are only going to install the virtual fields here. Installing virtual field changes class
@@ -270,7 +329,10 @@ public class AgentInstaller {
   }
 
   private static AgentBuilder configureIgnoredTypes(
-      ConfigProperties config, ClassLoader extensionClassLoader, AgentBuilder agentBuilder) {
+      ConfigProperties config,
+      ClassLoader extensionClassLoader,
+      AgentBuilder agentBuilder,
+      @Nullable TransformationCache transformationCache) {
     IgnoredTypesBuilderImpl builder = new IgnoredTypesBuilderImpl();
     for (IgnoredTypesConfigurer configurer :
         loadOrdered(IgnoredTypesConfigurer.class, extensionClassLoader)) {
@@ -280,13 +342,19 @@ public class AgentInstaller {
     Trie<Boolean> ignoredTasksTrie = builder.buildIgnoredTasksTrie();
     InstrumentedTaskClasses.setIgnoredTaskClassesPredicate(ignoredTasksTrie::contains);
 
-    return agentBuilder
-        .ignore(any(), new IgnoredClassLoadersMatcher(builder.buildIgnoredClassLoadersTrie()))
-        .or(new IgnoredTypesMatcher(builder.buildIgnoredTypesTrie()))
-        .or(
-            (typeDescription, classLoader, module, classBeingRedefined, protectionDomain) -> {
-              return HelperInjector.isInjectedClass(classLoader, typeDescription.getName());
-            });
+    AgentBuilder.Ignored ignored =
+        agentBuilder
+            .ignore(any(), new IgnoredClassLoadersMatcher(builder.buildIgnoredClassLoadersTrie()))
+            .or(new IgnoredTypesMatcher(builder.buildIgnoredTypesTrie()))
+            .or(
+                (typeDescription, classLoader, module, classBeingRedefined, protectionDomain) -> {
+                  return HelperInjector.isInjectedClass(classLoader, typeDescription.getName());
+                });
+    if (transformationCache == null) {
+      return ignored;
+    }
+    // evaluated last, so that only the types that are not ignored anyway are recorded
+    return ignored.or(transformationCache).with(transformationCache.listener());
   }
 
   private static void addHttpServerResponseCustomizers(ClassLoader extensionClassLoader) {
@@ -372,8 +440,20 @@ public class AgentInstaller {
     private static final Logger logger =
         Logger.getLogger(RedefinitionLoggingListener.class.getName());
 
+    private long startNanos;
+
     @Override
-    public void onBatch(int index, List<Class<?>> batch, List<Class<?>> types) {}
+    public void onBatch(int index, List<Class<?>> batch, List<Class<?>> types) {
+      if (index == 0) {
+        startNanos = System.nanoTime();
+      }
+      if (logger.isLoggable(FINE)) {
+        logger.log(
+            FINE,
+            "Retransforming batch {0} with {1} classes, {2} classes in total",
+            new Object[] {index + 1, batch.size(), types.size()});
+      }
+    }
 
     @Override
     public Iterable<? extends List<Class<?>>> onError(
@@ -389,7 +469,19 @@ public class AgentInstaller {
 
     @Override
     public void onComplete(
-        int amount, List<Class<?>> types, Map<List<Class<?>>, Throwable> failures) {}
+        int amount, List<Class<?>> types, Map<List<Class<?>>, Throwable> failures) {
+      if (amount > 0 && logger.isLoggable(FINE)) {
+        logger.log(
+            FINE,
+            "Retransformed {0} classes in {1} batches in {2} ms, {3} batches failed",
+            new Object[] {
+              types.size(),
+              amount,
+              TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos),
+              failures.size()
+            });
+      }
+    }
   }
 
   static class TransformLoggingListener extends AgentBuilder.Listener.Adapter {
@@ -9,6 +9,7 @@ import io.opentelemetry.context.Context;
 import io.opentelemetry.instrumentation.api.internal.cache.weaklockfree.WeakConcurrentMapCleaner;
 import io.opentelemetry.javaagent.bootstrap.AgentInitializer;
 import io.opentelemetry.javaagent.bootstrap.AgentStarter;
+import io.opentelemetry.javaagent.bootstrap.ClassDataSharing;
 import io.opentelemetry.javaagent.extension.instrumentation.internal.AsmApi;
 import io.opentelemetry.javaagent.tooling.config.EarlyInitAgentConfig;
 import java.io.File;
@@ -71,6 +72,8 @@ public class AgentStarterImpl implements AgentStarter {
     installTransformers();
 
     EarlyInitAgentConfig earlyConfig = EarlyInitAgentConfig.create();
+    ClassDataSharing.configure(
+        earlyConfig.getBoolean(ClassDataSharing.TRAINING_RUN_PROPERTY, false));
     extensionClassLoader = createExtensionClassLoader(getClass().getClassLoader(), earlyConfig);
 
     String loggerImplementationName = earlyConfig.getString("otel.javaagent.logging");
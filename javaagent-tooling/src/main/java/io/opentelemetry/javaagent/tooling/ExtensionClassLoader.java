@@ -6,6 +6,7 @@
 package io.opentelemetry.javaagent.tooling;
 
 import io.opentelemetry.context.Context;
+import io.opentelemetry.javaagent.bootstrap.ClassDataSharing;
 import io.opentelemetry.javaagent.tooling.config.EarlyInitAgentConfig;
 import java.io.File;
 import java.io.FileOutputStream;
@@ -197,6 +198,13 @@ public class ExtensionClassLoader extends URLClassLoader {
     return super.getPermissions(codesource);
   }
 
+  @Override
+  protected Class<?> findClass(String name) throws ClassNotFoundException {
+    Class<?> clazz = super.findClass(name);
+    ClassDataSharing.classDefined(clazz);
+    return clazz;
+  }
+
   private ExtensionClassLoader(
       URL url, ClassLoader parent, boolean isSecurityManagerSupportEnabled) {
     super(new URL[] {url}, parent);
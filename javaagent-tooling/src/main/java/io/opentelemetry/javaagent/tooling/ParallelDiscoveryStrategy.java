@@ -0,0 +1,176 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.tooling;
+
+import static java.util.logging.Level.FINE;
+
+import io.opentelemetry.javaagent.tooling.muzzle.AgentTooling;
+import java.lang.instrument.Instrumentation;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import javax.annotation.Nullable;
+import net.bytebuddy.agent.builder.AgentBuilder;
+import net.bytebuddy.pool.TypePool;
+import net.bytebuddy.utility.JavaModule;
+
+/**
+ * Runs the type matchers for the already loaded classes on a pool of worker threads, and passes on
+ * to byte buddy only the classes that may be transformed. Byte buddy matches the remaining classes
+ * again, one by one, before retransforming them, so this only moves the work of ruling out classes
+ * that aren't instrumented off the thread that installs the agent.
+ */
+final class ParallelDiscoveryStrategy
+    implements AgentBuilder.RedefinitionStrategy.DiscoveryStrategy {
+
+  private static final Logger logger = Logger.getLogger(ParallelDiscoveryStrategy.class.getName());
+
+  // classes are matched in chunks to reduce the number of tasks submitted to the executor
+  private static final int CHUNKS_PER_THREAD = 4;
+
+  private final AgentBuilder.RedefinitionStrategy.DiscoveryStrategy delegate;
+  private final int threads;
+  @Nullable private volatile AgentBuilder.RawMatcher matcher;
+
+  ParallelDiscoveryStrategy(
+      AgentBuilder.RedefinitionStrategy.DiscoveryStrategy delegate, int threads) {
+    this.delegate = delegate;
+    this.threads = threads;
+  }
+
+  /** Sets the matcher that decides whether a class may be transformed. */
+  void setMatcher(AgentBuilder.RawMatcher matcher) {
+    this.matcher = matcher;
+  }
+
+  @Override
+  public Iterable<Iterable<Class<?>>> resolve(Instrumentation instrumentation) {
+    AgentBuilder.RawMatcher matcher = this.matcher;
+    Iterable<Iterable<Class<?>>> types = delegate.resolve(instrumentation);
+    if (matcher == null) {
+      return types;
+    }
+    return () -> {
+      Iterator<Iterable<Class<?>>> iterator = types.iterator();
+      return new Iterator<Iterable<Class<?>>>() {
+        @Override
+        public boolean hasNext() {
+          return iterator.hasNext();
+        }
+
+        @Override
+        public Iterable<Class<?>> next() {
+          return filter(instrumentation, matcher, iterator.next());
+        }
+      };
+    };
+  }
+
+  private List<Class<?>> filter(
+      Instrumentation instrumentation, AgentBuilder.RawMatcher matcher, Iterable<Class<?>> types) {
+    long startNanos = System.nanoTime();
+    List<Class<?>> candidates = new ArrayList<>();
+    for (Class<?> type : types) {
+      if (instrumentation.isModifiableClass(type)) {
+        candidates.add(type);
+      }
+    }
+    if (candidates.isEmpty()) {
+      return candidates;
+    }
+
+    int chunkSize = Math.max(1, candidates.size() / (threads * CHUNKS_PER_THREAD) + 1);
+    List<Future<List<Class<?>>>> futures = new ArrayList<>();
+    ExecutorService executor = Executors.newFixedThreadPool(threads, new WorkerThreadFactory());
+    try {
+      for (int i = 0; i < candidates.size(); i += chunkSize) {
+        List<Class<?>> chunk = candidates.subList(i, Math.min(candidates.size(), i + chunkSize));
+        futures.add(executor.submit(() -> filter(matcher, chunk)));
+      }
+      List<Class<?>> result = new ArrayList<>();
+      for (int i = 0; i < futures.size(); i++) {
+        try {
+          result.addAll(futures.get(i).get());
+        } catch (ExecutionException e) {
+          // let byte buddy decide about the classes of the failed chunk
+          result.addAll(
+              candidates.subList(i * chunkSize, Math.min(candidates.size(), (i + 1) * chunkSize)));
+        }
+      }
+      if (logger.isLoggable(FINE)) {
+        logger.log(
+            FINE,
+            "Matched {0} loaded classes on {1} threads in {2} ms, {3} may be transformed",
+            new Object[] {
+              candidates.size(),
+              threads,
+              TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos),
+              result.size()
+            });
+      }
+      return result;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return candidates;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static List<Class<?>> filter(AgentBuilder.RawMatcher matcher, List<Class<?>> types) {
+    List<Class<?>> result = new ArrayList<>();
+    for (Class<?> type : types) {
+      if (mayTransform(matcher, type)) {
+        result.add(type);
+      }
+    }
+    return result;
+  }
+
+  private static boolean mayTransform(AgentBuilder.RawMatcher matcher, Class<?> type) {
+    try {
+      ClassLoader classLoader = type.getClassLoader();
+      JavaModule module = JavaModule.ofType(type);
+      TypePool.Resolution resolution =
+          AgentTooling.poolStrategy()
+              .typePool(
+                  AgentTooling.locationStrategy().classFileLocator(classLoader, module),
+                  classLoader)
+              .describe(type.getName());
+      // e.g. classes that don't have a class file, like lambdas and other hidden classes, are left
+      // to byte buddy
+      if (!resolution.isResolved()) {
+        return true;
+      }
+      return matcher.matches(
+          resolution.resolve(), classLoader, module, type, type.getProtectionDomain());
+    } catch (RuntimeException | LinkageError e) {
+      // byte buddy will report the error when it matches the class
+      return true;
+    }
+  }
+
+  private static class WorkerThreadFactory implements ThreadFactory {
+    private final AtomicInteger threadNumber = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread =
+          new Thread(runnable, "otel-javaagent-retransformation-" + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      thread.setContextClassLoader(null);
+      return thread;
+    }
+  }
+}
@@ -0,0 +1,504 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.tooling;
+
+import static java.util.logging.Level.FINE;
+import static java.util.logging.Level.WARNING;
+
+import io.opentelemetry.instrumentation.api.internal.cache.Cache;
+import io.opentelemetry.javaagent.bootstrap.JavaagentFileHolder;
+import io.opentelemetry.javaagent.tooling.config.EarlyInitAgentConfig;
+import io.opentelemetry.javaagent.tooling.muzzle.AgentCachingPoolStrategy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.ProtectionDomain;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import javax.annotation.Nullable;
+import net.bytebuddy.agent.builder.AgentBuilder;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.utility.JavaModule;
+
+/**
+ * An opt-in cache of type matching results that survives JVM restarts, enabled by setting {@code
+ * otel.javaagent.experimental.transformation-cache.directory}. It records the types that no
+ * instrumentation matched, which are then ignored without running any type matcher on the next
+ * start, and the muzzle verdicts for the application and platform class loaders.
+ *
+ * <p>The results are stored under a fingerprint of the agent jar, the extensions, the agent
+ * configuration, the JVM and the checksums of all jars on the class path; a change to any of them
+ * makes the agent start over with an empty cache. Only types loaded from jars on the class path
+ * (including jars nested in them, e.g. in Spring Boot executable jars) are cached, the matching
+ * results of other types may depend on classes that are not part of the fingerprint.
+ *
+ * <p>The cache is written when the JVM shuts down.
+ */
+public final class TransformationCache implements AgentBuilder.RawMatcher {
+
+  private static final Logger logger = Logger.getLogger(TransformationCache.class.getName());
+
+  static final String DIRECTORY_CONFIG =
+      "otel.javaagent.experimental.transformation-cache.directory";
+
+  private static final String FILE_SUFFIX = ".otel-transformation-cache";
+  private static final int MAGIC = 0x4f54_5443;
+  private static final int FORMAT_VERSION = 1;
+
+  // class loaders that load exactly the class path, which is covered by the fingerprint
+  private static final Set<String> CLASS_PATH_LOADERS =
+      new HashSet<>(
+          Arrays.asList(
+              "jdk.internal.loader.ClassLoaders$AppClassLoader",
+              "jdk.internal.loader.ClassLoaders$PlatformClassLoader",
+              "sun.misc.Launcher$AppClassLoader",
+              "sun.misc.Launcher$ExtClassLoader"));
+
+  @Nullable private static volatile TransformationCache instance;
+
+  private final Path file;
+  private final String fingerprint;
+  // paths of the class path jars, as they appear in code source locations
+  private final List<String> classPathJars;
+  // location key (class loader type and code source) -> names of types that were not matched
+  private final Map<String, Set<String>> unmatchedTypes = new ConcurrentHashMap<>();
+  // class loader type and instrumentation module -> muzzle verdict
+  private final Map<String, Boolean> muzzleVerdicts = new ConcurrentHashMap<>();
+  private final Cache<ProtectionDomain, String> locationKeys = Cache.weak();
+  private final ThreadLocal<PendingType> pendingTypes = ThreadLocal.withInitial(PendingType::new);
+  private final AgentBuilder.Listener listener = new RecordingListener();
+  private volatile boolean modified;
+
+  /** Returns the cache, or {@code null} if it is not enabled. */
+  @Nullable
+  public static TransformationCache get() {
+    return instance;
+  }
+
+  @Nullable
+  static TransformationCache initialize(EarlyInitAgentConfig config) {
+    String directory = config.getString(DIRECTORY_CONFIG);
+    if (directory == null || directory.isEmpty()) {
+      return null;
+    }
+
+    long start = System.nanoTime();
+    List<File> classPathJars = getClassPathJars();
+    String fingerprint = computeFingerprint(config, classPathJars);
+    List<String> classPathJarPaths = new ArrayList<>();
+    for (File jar : classPathJars) {
+      classPathJarPaths.add(jar.toURI().getRawPath());
+    }
+    TransformationCache cache =
+        new TransformationCache(
+            Paths.get(directory, fingerprint + FILE_SUFFIX), fingerprint, classPathJarPaths);
+    cache.read();
+    if (logger.isLoggable(FINE)) {
+      logger.log(
+          FINE,
+          "Loaded transformation cache {0} in {1} ms",
+          new Object[] {cache.file, (System.nanoTime() - start) / 1_000_000});
+    }
+
+    AgentCachingPoolStrategy.setResolutionFailureListener(cache::onResolutionFailure);
+    Thread writer = new Thread(cache::write, "otel-transformation-cache-writer");
+    Runtime.getRuntime().addShutdownHook(writer);
+    instance = cache;
+    return cache;
+  }
+
+  // visible for testing
+  TransformationCache(Path file, String fingerprint, List<String> classPathJars) {
+    this.file = file;
+    this.fingerprint = fingerprint;
+    this.classPathJars = classPathJars;
+  }
+
+  /** Returns the listener that records the types that were not matched by any instrumentation. */
+  AgentBuilder.Listener listener() {
+    return listener;
+  }
+
+  /** Ignores the types that were not matched by any instrumentation in a previous run. */
+  @Override
+  public boolean matches(
+      TypeDescription typeDescription,
+      @Nullable ClassLoader classLoader,
+      @Nullable JavaModule module,
+      @Nullable Class<?> classBeingRedefined,
+      @Nullable ProtectionDomain protectionDomain) {
+    PendingType pendingType = pendingTypes.get();
+    pendingType.clear();
+
+    String locationKey = getLocationKey(classLoader, protectionDomain);
+    if (locationKey == null) {
+      return false;
+    }
+    String typeName = typeDescription.getName();
+    Set<String> types = unmatchedTypes.get(locationKey);
+    if (types != null && types.contains(typeName)) {
+      return true;
+    }
+    // recorded by the listener, unless an instrumentation matches it
+    pendingType.locationKey = locationKey;
+    pendingType.typeName = typeName;
+    return false;
+  }
+
+  /**
+   * Notifies the cache that an instrumentation matched the type that is currently being
+   * transformed, so that it is not recorded as unmatched even if muzzle rejects the
+   * instrumentation.
+   */
+  public void onTypeMatched() {
+    pendingTypes.get().typeMatched = true;
+  }
+
+  /**
+   * Notifies the cache that a type could not be resolved while the current type was matched. The
+   * matchers that needed the type didn't match, but may match on the next start, so the current
+   * type is not recorded as unmatched.
+   */
+  // visible for testing
+  void onResolutionFailure() {
+    pendingTypes.get().resolutionFailed = true;
+  }
+
+  /** Returns the muzzle verdict recorded in a previous run, or {@code null} if there is none. */
+  @Nullable
+  public Boolean getMuzzleVerdict(String instrumentationModuleName, ClassLoader classLoader) {
+    String key = getMuzzleKey(instrumentationModuleName, classLoader);
+    return key == null ? null : muzzleVerdicts.get(key);
+  }
+
+  public void putMuzzleVerdict(
+      String instrumentationModuleName, ClassLoader classLoader, boolean verdict) {
+    String key = getMuzzleKey(instrumentationModuleName, classLoader);
+    if (key != null && muzzleVerdicts.put(key, verdict) == null) {
+      modified = true;
+    }
+  }
+
+  @Nullable
+  private static String getMuzzleKey(String instrumentationModuleName, ClassLoader classLoader) {
+    String classLoaderName = classLoader.getClass().getName();
+    if (!CLASS_PATH_LOADERS.contains(classLoaderName)) {
+      return null;
+    }
+    return classLoaderName + ' ' + instrumentationModuleName;
+  }
+
+  @Nullable
+  private String getLocationKey(
+      @Nullable ClassLoader classLoader, @Nullable ProtectionDomain protectionDomain) {
+    if (classLoader == null || protectionDomain == null) {
+      return null;
+    }
+    String key = locationKeys.get(protectionDomain);
+    if (key == null) {
+      key = computeLocationKey(classLoader, protectionDomain);
+      locationKeys.put(protectionDomain, key);
+    }
+    return key.isEmpty() ? null : key;
+  }
+
+  private String computeLocationKey(ClassLoader classLoader, ProtectionDomain protectionDomain) {
+    CodeSource codeSource = protectionDomain.getCodeSource();
+    URL location = codeSource == null ? null : codeSource.getLocation();
+    if (location == null) {
+      return "";
+    }
+    String locationString = location.toString();
+    return isClassPathLocation(locationString)
+        ? classLoader.getClass().getName() + ' ' + locationString
+        : "";
+  }
+
+  // a class path jar itself, or a jar nested in it
+  private boolean isClassPathLocation(String location) {
+    for (String jar : classPathJars) {
+      if (location.equals("file:" + jar)
+          || location.startsWith("jar:file:" + jar + "!/")
+          // spring boot 3.2+ nested jar urls
+          || location.startsWith("jar:nested:" + jar + "/!")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void recordUnmatched(String locationKey, String typeName) {
+    if (unmatchedTypes
+        .computeIfAbsent(locationKey, k -> ConcurrentHashMap.newKeySet())
+        .add(typeName)) {
+      modified = true;
+    }
+  }
+
+  // visible for testing
+  void read() {
+    if (!Files.isRegularFile(file)) {
+      return;
+    }
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (in.readInt() != MAGIC
+          || in.readInt() != FORMAT_VERSION
+          || !fingerprint.equals(in.readUTF())) {
+        return;
+      }
+      int locations = in.readInt();
+      for (int i = 0; i < locations; i++) {
+        String locationKey = in.readUTF();
+        int types = in.readInt();
+        Set<String> typeNames = ConcurrentHashMap.newKeySet(types);
+        for (int j = 0; j < types; j++) {
+          typeNames.add(in.readUTF());
+        }
+        unmatchedTypes.put(locationKey, typeNames);
+      }
+      int verdicts = in.readInt();
+      for (int i = 0; i < verdicts; i++) {
+        muzzleVerdicts.put(in.readUTF(), in.readBoolean());
+      }
+    } catch (IOException | RuntimeException e) {
+      logger.log(FINE, "Failed to read transformation cache " + file, e);
+      unmatchedTypes.clear();
+      muzzleVerdicts.clear();
+    }
+  }
+
+  // visible for testing
+  void write() {
+    if (!modified) {
+      return;
+    }
+    try {
+      Path directory = file.toAbsolutePath().getParent();
+      if (directory != null) {
+        Files.createDirectories(directory);
+      }
+      Path tempFile = Files.createTempFile(directory, "transformation-cache", ".tmp");
+      try {
+        try (DataOutputStream out =
+            new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+          out.writeInt(MAGIC);
+          out.writeInt(FORMAT_VERSION);
+          out.writeUTF(fingerprint);
+          // snapshot, types may still be loaded while the JVM shuts down
+          Map<String, Set<String>> types = new TreeMap<>(unmatchedTypes);
+          out.writeInt(types.size());
+          for (Map.Entry<String, Set<String>> entry : types.entrySet()) {
+            List<String> typeNames = new ArrayList<>(entry.getValue());
+            out.writeUTF(entry.getKey());
+            out.writeInt(typeNames.size());
+            for (String typeName : typeNames) {
+              out.writeUTF(typeName);
+            }
+          }
+          Map<String, Boolean> verdicts = new TreeMap<>(muzzleVerdicts);
+          out.writeInt(verdicts.size());
+          for (Map.Entry<String, Boolean> entry : verdicts.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeBoolean(entry.getValue());
+          }
+        }
+        moveAtomically(tempFile, file);
+      } finally {
+        Files.deleteIfExists(tempFile);
+      }
+    } catch (IOException | RuntimeException e) {
+      logger.log(WARNING, "Failed to write transformation cache " + file, e);
+    }
+  }
+
+  private static void moveAtomically(Path source, Path target) throws IOException {
+    try {
+      Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private static List<File> getClassPathJars() {
+    String classPath = System.getProperty("java.class.path");
+    if (classPath == null || classPath.isEmpty()) {
+      return Collections.emptyList();
+    }
+    List<File> jars = new ArrayList<>();
+    for (String entry : classPath.split(File.pathSeparator)) {
+      File file = new File(entry).getAbsoluteFile();
+      // directories can't be checksummed cheaply, types loaded from them are not cached
+      if (file.isFile()) {
+        jars.add(file);
+      }
+    }
+    return jars;
+  }
+
+  private static String computeFingerprint(EarlyInitAgentConfig config, List<File> classPathJars) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+
+    update(digest, String.valueOf(AgentVersion.VERSION));
+    File agentJar = JavaagentFileHolder.getJavaagentFile();
+    if (agentJar != null) {
+      updateWithJar(digest, agentJar);
+    }
+    for (String property :
+        Arrays.asList("java.home", "java.vm.name", "java.vm.vendor", "java.runtime.version")) {
+      update(digest, property + '=' + System.getProperty(property));
+    }
+
+    Map<String, String> agentConfig = new TreeMap<>();
+    for (String name : System.getProperties().stringPropertyNames()) {
+      if (name.startsWith("otel.")) {
+        agentConfig.put(name, System.getProperty(name));
+      }
+    }
+    for (Map.Entry<String, String> entry : System.getenv().entrySet()) {
+      if (entry.getKey().startsWith("OTEL_")) {
+        agentConfig.put(entry.getKey(), entry.getValue());
+      }
+    }
+    for (Map.Entry<String, String> entry : agentConfig.entrySet()) {
+      update(digest, entry.getKey() + '=' + entry.getValue());
+    }
+    String configurationFile = config.getString("otel.javaagent.configuration-file");
+    if (configurationFile != null) {
+      updateWithFile(digest, new File(configurationFile));
+    }
+    String extensions = config.getString(ExtensionClassLoader.EXTENSIONS_CONFIG);
+    if (extensions != null) {
+      for (String extension : extensions.split(",")) {
+        updateWithFile(digest, new File(extension.trim()));
+      }
+    }
+
+    for (File jar : classPathJars) {
+      update(digest, jar.getPath());
+      updateWithJar(digest, jar);
+    }
+
+    StringBuilder fingerprint = new StringBuilder();
+    byte[] hash = digest.digest();
+    // 128 bits are plenty to tell the configurations of one application apart
+    for (int i = 0; i < 16; i++) {
+      fingerprint.append(String.format("%02x", hash[i]));
+    }
+    return fingerprint.toString();
+  }
+
+  private static void updateWithFile(MessageDigest digest, File file) {
+    File[] files = file.isDirectory() ? file.listFiles() : new File[] {file};
+    if (files == null) {
+      return;
+    }
+    Arrays.sort(files);
+    for (File f : files) {
+      update(digest, f.getPath());
+      if (f.getName().endsWith(".jar")) {
+        updateWithJar(digest, f);
+      } else if (f.isFile()) {
+        try {
+          digest.update(Files.readAllBytes(f.toPath()));
+        } catch (IOException e) {
+          update(digest, f.length() + " " + f.lastModified());
+        }
+      }
+    }
+  }
+
+  // the central directory holds the CRC-32 of every entry, which is much cheaper to read than
+  // hashing the content of the whole jar
+  private static void updateWithJar(MessageDigest digest, File jar) {
+    try (ZipFile zipFile = new ZipFile(jar)) {
+      Enumeration<? extends ZipEntry> entries = zipFile.entries();
+      while (entries.hasMoreElements()) {
+        ZipEntry entry = entries.nextElement();
+        update(digest, entry.getName() + ' ' + entry.getCrc() + ' ' + entry.getSize());
+      }
+    } catch (IOException e) {
+      update(digest, jar.length() + " " + jar.lastModified());
+    }
+  }
+
+  private static void update(MessageDigest digest, String value) {
+    digest.update(value.getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+  }
+
+  private static final class PendingType {
+    @Nullable String locationKey;
+    @Nullable String typeName;
+    boolean typeMatched;
+    boolean resolutionFailed;
+
+    void clear() {
+      locationKey = null;
+      typeName = null;
+      typeMatched = false;
+      resolutionFailed = false;
+    }
+  }
+
+  private final class RecordingListener extends AgentBuilder.Listener.Adapter {
+
+    @Override
+    public void onIgnored(
+        TypeDescription typeDescription,
+        @Nullable ClassLoader classLoader,
+        @Nullable JavaModule module,
+        boolean loaded) {
+      PendingType pendingType = pendingTypes.get();
+      if (pendingType.locationKey != null
+          && pendingType.typeName != null
+          && !pendingType.typeMatched
+          && !pendingType.resolutionFailed
+          && pendingType.typeName.equals(typeDescription.getName())) {
+        recordUnmatched(pendingType.locationKey, pendingType.typeName);
+      }
+      pendingType.clear();
+    }
+
+    @Override
+    public void onComplete(
+        String typeName,
+        @Nullable ClassLoader classLoader,
+        @Nullable JavaModule module,
+        boolean loaded) {
+      pendingTypes.get().clear();
+    }
+  }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.tooling.ignore;
+
+import static java.util.logging.Level.FINE;
+import static net.bytebuddy.matcher.ElementMatchers.any;
+import static net.bytebuddy.matcher.ElementMatchers.not;
+
+import io.opentelemetry.instrumentation.api.internal.cache.Cache;
+import io.opentelemetry.javaagent.bootstrap.internal.ClassLoaderMatcherCacheHolder;
+import io.opentelemetry.sdk.autoconfigure.spi.ConfigProperties;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+import javax.annotation.Nullable;
+import net.bytebuddy.matcher.ElementMatcher;
+
+/**
+ * Matches the class loaders that no instrumentation that restricts the class loaders it applies to
+ * applies to, based on what was learned from other class loaders that see the same classes.
+ *
+ * <p>Frameworks like Groovy, JSP compilers and OSGi create many short-lived class loaders that see
+ * the same classes as their siblings, and without this matcher every one of them runs the class
+ * loader matchers and muzzle checks of the instrumentations again. When the class loader matchers
+ * of all these instrumentations reject a class loader, their transformations skip the class loader.
+ * The class loader matchers look for classes, so for a {@link URLClassLoader} their results are
+ * decided by its type, its parent and its URLs. When all instrumentations reject {@link
+ * #CONFIRMATIONS} URL class loaders with the same type, parent and URLs, and none of their siblings
+ * was matched, the class loaders with that type, parent and URLs are skipped without running the
+ * class loader matchers at all. Other class loaders are only skipped after their own class loader
+ * matchers were run.
+ *
+ * <p>Instrumentations that don't restrict the class loaders they apply to are not taken into
+ * account, they would match every class loader. They, and the transformations that are not added by
+ * instrumentation modules, still apply to the classes of the skipped class loaders, the class
+ * loaders are not ignored.
+ */
+public class NeverMatchingClassLoadersMatcher
+    extends ElementMatcher.Junction.AbstractBase<ClassLoader> {
+  private static final Logger logger =
+      Logger.getLogger(NeverMatchingClassLoadersMatcher.class.getName());
+
+  static final String ENABLED_CONFIG =
+      "otel.javaagent.experimental.never-matching-class-loaders.enabled";
+
+  // number of class loaders that need to be rejected by all instrumentations before their siblings
+  // are ignored without running the class loader matchers
+  static final int CONFIRMATIONS = 2;
+
+  // the class loader matchers of all type instrumentations
+  private static final List<ElementMatcher<ClassLoader>> classLoaderMatchers =
+      new CopyOnWriteArrayList<>();
+  @Nullable private static volatile NeverMatchingClassLoadersMatcher instance;
+
+  // the class loader matchers can only prove that no instrumentation applies once all
+  // instrumentations have been installed
+  private volatile boolean instrumentationsInstalled;
+
+  /* Cache of class loader instance -> (true|false). True = no instrumentation applies. */
+  private final Cache<ClassLoader, Boolean> neverMatchesCache = Cache.weak();
+  // what was learned about the class loaders with a given parent, by the class name and the URLs of
+  // the loader
+  private final Cache<ClassLoader, Map<List<String>, Signature>> signatures = Cache.weak();
+  private final Map<List<String>, Signature> bootstrapParentSignatures = new ConcurrentHashMap<>();
+  private final Queue<Signature> allSignatures = new ConcurrentLinkedQueue<>();
+
+  NeverMatchingClassLoadersMatcher() {
+    // URLClassLoader.addURL() changes what the class loader matchers find
+    ClassLoaderMatcherCacheHolder.addCache(neverMatchesCache);
+  }
+
+  /** Returns the matcher when it is enabled in the configuration, or {@code null}. */
+  @Nullable
+  public static NeverMatchingClassLoadersMatcher create(ConfigProperties config) {
+    if (!config.getBoolean(ENABLED_CONFIG, false)) {
+      return null;
+    }
+    NeverMatchingClassLoadersMatcher matcher = new NeverMatchingClassLoadersMatcher();
+    instance = matcher;
+    if (logger.isLoggable(FINE)) {
+      Runtime.getRuntime()
+          .addShutdownHook(
+              new Thread(
+                  () -> logger.log(FINE, "Learned class loaders:\n{0}", matcher.report()),
+                  "otel-javaagent-class-loader-report"));
+    }
+    return matcher;
+  }
+
+  /**
+   * Registers the class loader matcher of a type instrumentation, a class loader is matched only
+   * when none of the registered matchers matches it. Returns the class loader matcher that the type
+   * instrumentation uses, which skips the matched class loaders before running the given matcher.
+   *
+   * <p>The matcher is neither registered nor changed when neither the class loader matcher of the
+   * instrumentation module nor the class loader optimization of the type instrumentation restricts
+   * the class loaders, it would match every class loader.
+   */
+  public static ElementMatcher<ClassLoader> registerClassLoaderMatcher(
+      ElementMatcher<ClassLoader> classLoaderMatcher,
+      ElementMatcher<? super ClassLoader> moduleClassLoaderMatcher,
+      ElementMatcher<? super ClassLoader> classLoaderOptimization) {
+    NeverMatchingClassLoadersMatcher instance = NeverMatchingClassLoadersMatcher.instance;
+    if (instance == null
+        || (any().equals(moduleClassLoaderMatcher) && any().equals(classLoaderOptimization))) {
+      return classLoaderMatcher;
+    }
+    classLoaderMatchers.add(classLoaderMatcher);
+    return not(instance).and(classLoaderMatcher);
+  }
+
+  // visible for testing
+  static void reset() {
+    classLoaderMatchers.clear();
+    instance = null;
+  }
+
+  /** Marks that the class loader matchers of all instrumentations have been registered. */
+  public void instrumentationsInstalled() {
+    instrumentationsInstalled = true;
+  }
+
+  @Override
+  public boolean matches(@Nullable ClassLoader cl) {
+    if (cl == null || !instrumentationsInstalled) {
+      return false;
+    }
+    Boolean neverMatches = neverMatchesCache.get(cl);
+    if (neverMatches != null) {
+      return neverMatches;
+    }
+
+    Signature signature = getSignature(cl);
+    if (signature == null) {
+      // nothing can be learned for the siblings of this class loader
+      return neverMatchesCache.computeIfAbsent(cl, NeverMatchingClassLoadersMatcher::noneMatches);
+    }
+    if (signature.matched) {
+      // don't learn from class loaders whose siblings are instrumented
+      return false;
+    }
+    if (signature.isTrusted()) {
+      signature.skipped.increment();
+      neverMatchesCache.put(cl, true);
+      return true;
+    }
+    return neverMatchesCache.computeIfAbsent(cl, c -> learn(c, signature));
+  }
+
+  @Nullable
+  private Signature getSignature(ClassLoader cl) {
+    // what other class loaders find is not known
+    if (!(cl instanceof URLClassLoader)) {
+      return null;
+    }
+    URL[] urls = ((URLClassLoader) cl).getURLs();
+    // URL.equals() resolves host names, compare the URL strings instead
+    List<String> key = new ArrayList<>(urls.length + 1);
+    key.add(cl.getClass().getName());
+    for (URL url : urls) {
+      key.add(String.valueOf(url));
+    }
+    ClassLoader parent = cl.getParent();
+    Map<List<String>, Signature> parentSignatures =
+        parent == null
+            ? bootstrapParentSignatures
+            : signatures.computeIfAbsent(parent, unused -> new ConcurrentHashMap<>());
+    return parentSignatures.computeIfAbsent(
+        key,
+        unused -> {
+          Signature signature =
+              new Signature(key.get(0), String.valueOf(parent), key.subList(1, key.size()));
+          allSignatures.add(signature);
+          return signature;
+        });
+  }
+
+  private static boolean noneMatches(ClassLoader cl) {
+    for (ElementMatcher<ClassLoader> classLoaderMatcher : classLoaderMatchers) {
+      if (classLoaderMatcher.matches(cl)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean learn(ClassLoader cl, Signature signature) {
+    if (!noneMatches(cl)) {
+      signature.matched = true;
+      return false;
+    }
+    if (signature.rejected.incrementAndGet() == CONFIRMATIONS && logger.isLoggable(FINE)) {
+      logger.log(
+          FINE,
+          "No instrumentation applies to class loaders {0} with parent {1} and URLs {2}, skipping"
+              + " them from now on",
+          new Object[] {signature.loaderClassName, signature.parentName, signature.urls});
+    }
+    return true;
+  }
+
+  /** Returns a report of what was learned about the class loaders, one line per signature. */
+  public String report() {
+    StringBuilder report = new StringBuilder();
+    for (Signature signature : allSignatures) {
+      report
+          .append(signature.loaderClassName)
+          .append(" with parent ")
+          .append(signature.parentName)
+          .append(" and URLs ")
+          .append(signature.urls)
+          .append(": ");
+      if (signature.matched) {
+        report.append("instrumented");
+      } else {
+        report
+            .append(signature.isTrusted() ? "skipped" : "learning")
+            .append(", rejected ")
+            .append(signature.rejected.get())
+            .append(", skipped ")
+            .append(signature.skipped.sum());
+      }
+      report.append('\n');
+    }
+    return report.toString();
+  }
+
+  private static final class Signature {
+    private final String loaderClassName;
+    private final String parentName;
+    private final List<String> urls;
+    // class loaders of this signature that no instrumentation applies to
+    private final AtomicInteger rejected = new AtomicInteger();
+    // class loaders of this signature that were ignored without running the class loader matchers
+    private final LongAdder skipped = new LongAdder();
+    // whether an instrumentation applies to any class loader of this signature
+    private volatile boolean matched;
+
+    Signature(String loaderClassName, String parentName, List<String> urls) {
+      this.loaderClassName = loaderClassName;
+      this.parentName = parentName;
+      this.urls = urls;
+    }
+
+    boolean isTrusted() {
+      return rejected.get() >= CONFIRMATIONS;
+    }
+  }
+}
@@ -0,0 +1,356 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.tooling.instrumentation;
+
+import static io.opentelemetry.api.common.AttributeKey.stringKey;
+import static java.util.logging.Level.FINE;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.javaagent.extension.instrumentation.InstrumentationModule;
+import io.opentelemetry.javaagent.extension.matcher.internal.DelegatingMatcher;
+import io.opentelemetry.javaagent.tooling.HelperInjector;
+import io.opentelemetry.javaagent.tooling.InstrumentationCostEvents;
+import io.opentelemetry.sdk.autoconfigure.spi.ConfigProperties;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+import javax.annotation.Nullable;
+import net.bytebuddy.agent.builder.AgentBuilder;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.matcher.ElementMatcher;
+import net.bytebuddy.utility.JavaModule;
+
+/**
+ * Records how much time the agent spends on each instrumentation while classes are loaded, split
+ * into the phases {@link Phase type matching, muzzle, helper injection and transformation}, and
+ * exposes the cumulative times and counts as metrics and JFR events. Costs are recorded per
+ * instrumentation name, which is also the name that instrumentations are disabled by.
+ *
+ * <p>Recording is disabled by default, then none of the timing matchers, transformers and listeners
+ * are installed.
+ */
+public final class InstrumentationCost {
+
+  private static final Logger logger = Logger.getLogger(InstrumentationCost.class.getName());
+
+  private static final String ENABLED_CONFIG =
+      "otel.javaagent.experimental.instrumentation-cost.enabled";
+
+  private static final String INSTRUMENTATION_SCOPE = "io.opentelemetry.javaagent";
+  private static final AttributeKey<String> INSTRUMENTATION_NAME =
+      stringKey("instrumentation.name");
+  private static final AttributeKey<String> PHASE = stringKey("phase");
+
+  private static final Map<String, InstrumentationCost> costs = new ConcurrentHashMap<>();
+  private static volatile boolean enabled;
+
+  // the instrumentations that apply to the classes that are being transformed on the current
+  // thread, a class can be loaded and transformed while another class is transformed
+  private static final ThreadLocal<TransformationStack> transformations =
+      ThreadLocal.withInitial(TransformationStack::new);
+
+  enum Phase {
+    // running the type and class loader matchers of the type instrumentations
+    TYPE_MATCHING("type_matching"),
+    // checking the muzzle references against a class loader
+    MUZZLE("muzzle"),
+    // injecting the helper classes and resources into a class loader
+    HELPER_INJECTION("helper_injection"),
+    // transforming a class that the instrumentation applies to, when multiple instrumentations
+    // apply to the same class the time is divided evenly between them
+    TRANSFORMATION("transformation");
+
+    private final String attributeValue;
+
+    Phase(String attributeValue) {
+      this.attributeValue = attributeValue;
+    }
+  }
+
+  private final String instrumentationName;
+  private final LongAdder[] counts = newAdders();
+  private final LongAdder[] durations = newAdders();
+
+  // visible for testing
+  InstrumentationCost(String instrumentationName) {
+    this.instrumentationName = instrumentationName;
+  }
+
+  /**
+   * Enables recording when it is configured, and exposes the recorded costs through the metrics of
+   * the given {@link OpenTelemetry} and as JFR events. Returns whether recording is enabled.
+   */
+  public static boolean initialize(ConfigProperties config, @Nullable OpenTelemetry openTelemetry) {
+    if (!config.getBoolean(ENABLED_CONFIG, false)) {
+      return false;
+    }
+    enabled = true;
+    HelperInjector.setInjectionTimeListener(
+        (instrumentationName, durationNanos) -> {
+          InstrumentationCost cost = costs.get(instrumentationName);
+          if (cost != null) {
+            cost.record(Phase.HELPER_INJECTION, durationNanos);
+          }
+        });
+    if (openTelemetry != null) {
+      registerMetrics(openTelemetry.getMeter(INSTRUMENTATION_SCOPE));
+    }
+    registerJfrEvents();
+    return true;
+  }
+
+  /**
+   * Returns the costs of the given instrumentation module, or {@code null} when recording is
+   * disabled.
+   */
+  @Nullable
+  static InstrumentationCost forModule(InstrumentationModule instrumentationModule) {
+    if (!enabled) {
+      return null;
+    }
+    return costs.computeIfAbsent(
+        instrumentationModule.instrumentationName(), InstrumentationCost::new);
+  }
+
+  /** Returns a listener that records the time spent on transforming classes. */
+  public static AgentBuilder.Listener transformationListener() {
+    return new TransformationListener();
+  }
+
+  void record(Phase phase, long durationNanos) {
+    counts[phase.ordinal()].increment();
+    durations[phase.ordinal()].add(durationNanos);
+  }
+
+  // visible for testing
+  long count(Phase phase) {
+    return counts[phase.ordinal()].sum();
+  }
+
+  // visible for testing
+  long durationNanos(Phase phase) {
+    return durations[phase.ordinal()].sum();
+  }
+
+  /** Returns a matcher that records the time spent in the given matcher. */
+  <T> ElementMatcher<T> timeMatching(ElementMatcher<T> matcher) {
+    return new TimedMatcher<>(this, matcher);
+  }
+
+  /**
+   * Returns a transformer that needs to be applied before the other transformers of the
+   * instrumentation, it marks the instrumentation as one of the instrumentations that apply to the
+   * class that is being transformed.
+   */
+  AgentBuilder.Transformer transformationStarted() {
+    return (builder, typeDescription, classLoader, module, protectionDomain) -> {
+      Transformation transformation = transformations.get().current();
+      if (transformation != null) {
+        transformation.add(this);
+      }
+      return builder;
+    };
+  }
+
+  private static void registerMetrics(Meter meter) {
+    meter
+        .counterBuilder("otel.javaagent.instrumentation.duration")
+        .ofDoubles()
+        .setUnit("s")
+        .setDescription("Time the agent spent on an instrumentation while classes were loaded")
+        .buildWithCallback(
+            measurement ->
+                forEach(
+                    (instrumentationName, phase, count, durationNanos) ->
+                        measurement.record(
+                            durationNanos / (double) TimeUnit.SECONDS.toNanos(1),
+                            attributes(instrumentationName, phase))));
+    meter
+        .counterBuilder("otel.javaagent.instrumentation.count")
+        .setUnit("{invocation}")
+        .setDescription("Number of times the agent ran a phase of an instrumentation")
+        .buildWithCallback(
+            measurement ->
+                forEach(
+                    (instrumentationName, phase, count, durationNanos) ->
+                        measurement.record(count, attributes(instrumentationName, phase))));
+  }
+
+  private static Attributes attributes(String instrumentationName, String phase) {
+    return Attributes.of(INSTRUMENTATION_NAME, instrumentationName, PHASE, phase);
+  }
+
+  private static void registerJfrEvents() {
+    try {
+      InstrumentationCostEvents.register(recorder -> forEach(recorder::record));
+    } catch (LinkageError e) {
+      // JFR requires java 11 and the jdk.jfr module
+      logger.log(FINE, "JFR is not available, instrumentation cost events are not emitted", e);
+    }
+  }
+
+  private static void forEach(CostConsumer consumer) {
+    for (InstrumentationCost cost : costs.values()) {
+      for (Phase phase : Phase.values()) {
+        long count = cost.counts[phase.ordinal()].sum();
+        if (count > 0) {
+          consumer.accept(
+              cost.instrumentationName,
+              phase.attributeValue,
+              count,
+              cost.durations[phase.ordinal()].sum());
+        }
+      }
+    }
+  }
+
+  @FunctionalInterface
+  private interface CostConsumer {
+    void accept(String instrumentationName, String phase, long count, long durationNanos);
+  }
+
+  private static LongAdder[] newAdders() {
+    LongAdder[] adders = new LongAdder[Phase.values().length];
+    for (int i = 0; i < adders.length; i++) {
+      adders[i] = new LongAdder();
+    }
+    return adders;
+  }
+
+  private static final class TimedMatcher<T> implements ElementMatcher<T>, DelegatingMatcher {
+
+    private final InstrumentationCost cost;
+    private final ElementMatcher<T> delegate;
+
+    private TimedMatcher(InstrumentationCost cost, ElementMatcher<T> delegate) {
+      this.cost = cost;
+      this.delegate = delegate;
+    }
+
+    @Override
+    public boolean matches(T target) {
+      long startTime = System.nanoTime();
+      try {
+        return delegate.matches(target);
+      } finally {
+        cost.record(Phase.TYPE_MATCHING, System.nanoTime() - startTime);
+      }
+    }
+
+    @Override
+    public ElementMatcher<?> getDelegate() {
+      return delegate;
+    }
+
+    @Override
+    public String toString() {
+      return delegate.toString();
+    }
+  }
+
+  private static final class Transformation {
+
+    private final List<InstrumentationCost> costs = new ArrayList<>();
+    private long discoveryTime;
+    private long startTime;
+    // time spent on transforming other classes while this class was transformed
+    private long nestedNanos;
+
+    void add(InstrumentationCost cost) {
+      if (costs.isEmpty()) {
+        startTime = System.nanoTime();
+        nestedNanos = 0;
+      }
+      // multiple type instrumentations of the same instrumentation can apply to a class
+      if (!costs.contains(cost)) {
+        costs.add(cost);
+      }
+    }
+
+    void complete() {
+      if (costs.isEmpty()) {
+        return;
+      }
+      long share = (System.nanoTime() - startTime - nestedNanos) / costs.size();
+      for (InstrumentationCost cost : costs) {
+        cost.record(Phase.TRANSFORMATION, share);
+      }
+      costs.clear();
+    }
+  }
+
+  // frames are reused, no objects are allocated for a class when the stack is already deep enough
+  private static final class TransformationStack {
+
+    private final List<Transformation> frames = new ArrayList<>();
+    private int depth;
+
+    void push() {
+      if (depth == frames.size()) {
+        frames.add(new Transformation());
+      }
+      Transformation transformation = frames.get(depth++);
+      transformation.costs.clear();
+      transformation.discoveryTime = System.nanoTime();
+    }
+
+    @Nullable
+    Transformation current() {
+      return depth > 0 ? frames.get(depth - 1) : null;
+    }
+
+    void pop() {
+      if (depth == 0) {
+        return;
+      }
+      Transformation transformation = frames.get(--depth);
+      // discard the instrumentations of a class whose transformation failed
+      transformation.costs.clear();
+      // the outer class is charged only for its own transformation
+      Transformation outer = current();
+      if (outer != null && !outer.costs.isEmpty()) {
+        outer.nestedNanos += System.nanoTime() - transformation.discoveryTime;
+      }
+    }
+  }
+
+  // visible for testing
+  static final class TransformationListener extends AgentBuilder.Listener.Adapter {
+
+    @Override
+    public void onDiscovery(
+        String typeName, ClassLoader classLoader, JavaModule module, boolean loaded) {
+      transformations.get().push();
+    }
+
+    @Override
+    public void onTransformation(
+        TypeDescription typeDescription,
+        ClassLoader classLoader,
+        JavaModule module,
+        boolean loaded,
+        DynamicType dynamicType) {
+      Transformation transformation = transformations.get().current();
+      if (transformation != null) {
+        transformation.complete();
+      }
+    }
+
+    @Override
+    public void onComplete(
+        String typeName, ClassLoader classLoader, JavaModule module, boolean loaded) {
+      transformations.get().pop();
+    }
+  }
+}
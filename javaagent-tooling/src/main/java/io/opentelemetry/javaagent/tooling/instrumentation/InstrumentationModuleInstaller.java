@@ -23,6 +23,7 @@ import io.opentelemetry.javaagent.tooling.bytebuddy.LoggingFailSafeMatcher;
 import io.opentelemetry.javaagent.tooling.config.AgentConfig;
 import io.opentelemetry.javaagent.tooling.field.VirtualFieldImplementationInstaller;
 import io.opentelemetry.javaagent.tooling.field.VirtualFieldImplementationInstallerFactory;
+import io.opentelemetry.javaagent.tooling.ignore.NeverMatchingClassLoadersMatcher;
 import io.opentelemetry.javaagent.tooling.instrumentation.indy.ClassInjectorImpl;
 import io.opentelemetry.javaagent.tooling.instrumentation.indy.IndyModuleRegistry;
 import io.opentelemetry.javaagent.tooling.instrumentation.indy.IndyTypeTransformerImpl;
@@ -37,6 +38,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.function.Function;
+import javax.annotation.Nullable;
 import net.bytebuddy.agent.builder.AgentBuilder;
 import net.bytebuddy.description.annotation.AnnotationSource;
 import net.bytebuddy.description.type.TypeDescription;
@@ -115,7 +117,9 @@ public final class InstrumentationModuleInstaller {
           .injectClasses(injectedClassesCollector);
     }
 
-    MuzzleMatcher muzzleMatcher = new MuzzleMatcher(logger, instrumentationModule, config);
+    InstrumentationCost instrumentationCost = InstrumentationCost.forModule(instrumentationModule);
+    MuzzleMatcher muzzleMatcher =
+        new MuzzleMatcher(logger, instrumentationModule, config, instrumentationCost);
 
     Function<ClassLoader, List<HelperClassDefinition>> helperGenerator =
         cl -> {
@@ -145,7 +149,8 @@ public final class InstrumentationModuleInstaller {
     AgentBuilder agentBuilder = parentAgentBuilder;
     for (TypeInstrumentation typeInstrumentation : instrumentationModule.typeInstrumentations()) {
       AgentBuilder.Identified.Extendable extendableAgentBuilder =
-          setTypeMatcher(agentBuilder, instrumentationModule, typeInstrumentation)
+          setTypeMatcher(
+                  agentBuilder, instrumentationModule, typeInstrumentation, instrumentationCost)
               .and(muzzleMatcher)
               .transform(new PatchByteCodeVersionTransformer());
 
@@ -158,6 +163,7 @@ public final class InstrumentationModuleInstaller {
           IndyModuleRegistry.initializeModuleLoaderOnMatch(
               instrumentationModule, extendableAgentBuilder);
       extendableAgentBuilder = extendableAgentBuilder.transform(helperInjector);
+      extendableAgentBuilder = markTransformation(extendableAgentBuilder, instrumentationCost);
       extendableAgentBuilder = contextProvider.injectHelperClasses(extendableAgentBuilder);
       IndyTypeTransformerImpl typeTransformer =
           new IndyTypeTransformerImpl(extendableAgentBuilder, instrumentationModule);
@@ -191,7 +197,9 @@ public final class InstrumentationModuleInstaller {
       return parentAgentBuilder;
     }
 
-    MuzzleMatcher muzzleMatcher = new MuzzleMatcher(logger, instrumentationModule, config);
+    InstrumentationCost instrumentationCost = InstrumentationCost.forModule(instrumentationModule);
+    MuzzleMatcher muzzleMatcher =
+        new MuzzleMatcher(logger, instrumentationModule, config, instrumentationCost);
     AgentBuilder.Transformer helperInjector =
         new HelperInjector(
             instrumentationModule.instrumentationName(),
@@ -206,10 +214,12 @@ public final class InstrumentationModuleInstaller {
     for (TypeInstrumentation typeInstrumentation : typeInstrumentations) {
 
       AgentBuilder.Identified.Extendable extendableAgentBuilder =
-          setTypeMatcher(agentBuilder, instrumentationModule, typeInstrumentation)
+          setTypeMatcher(
+                  agentBuilder, instrumentationModule, typeInstrumentation, instrumentationCost)
               .and(muzzleMatcher)
               .transform(ConstantAdjuster.instance())
               .transform(helperInjector);
+      extendableAgentBuilder = markTransformation(extendableAgentBuilder, instrumentationCost);
       extendableAgentBuilder = contextProvider.injectHelperClasses(extendableAgentBuilder);
       extendableAgentBuilder = contextProvider.rewriteVirtualFieldsCalls(extendableAgentBuilder);
       TypeTransformerImpl typeTransformer = new TypeTransformerImpl(extendableAgentBuilder);
@@ -223,13 +233,27 @@ public final class InstrumentationModuleInstaller {
     return agentBuilder;
   }
 
+  // marks the instrumentation as one of the instrumentations that transform the class, after its
+  // helpers were injected, so that the time spent on the transformation can be recorded
+  private static AgentBuilder.Identified.Extendable markTransformation(
+      AgentBuilder.Identified.Extendable extendableAgentBuilder,
+      @Nullable InstrumentationCost instrumentationCost) {
+    if (instrumentationCost == null) {
+      return extendableAgentBuilder;
+    }
+    return extendableAgentBuilder.transform(instrumentationCost.transformationStarted());
+  }
+
   private static AgentBuilder.Identified.Narrowable setTypeMatcher(
       AgentBuilder agentBuilder,
       InstrumentationModule instrumentationModule,
-      TypeInstrumentation typeInstrumentation) {
+      TypeInstrumentation typeInstrumentation,
+      @Nullable InstrumentationCost instrumentationCost) {
 
     ElementMatcher.Junction<ClassLoader> moduleClassLoaderMatcher =
         instrumentationModule.classLoaderMatcher();
+    ElementMatcher<ClassLoader> classLoaderOptimization =
+        typeInstrumentation.classLoaderOptimization();
 
     ElementMatcher<TypeDescription> typeMatcher =
         new NamedMatcher<>(
@@ -242,15 +266,25 @@ public final class InstrumentationModuleInstaller {
             instrumentationModule.getClass().getSimpleName()
                 + "#"
                 + typeInstrumentation.getClass().getSimpleName(),
-            moduleClassLoaderMatcher.and(typeInstrumentation.classLoaderOptimization()));
+            moduleClassLoaderMatcher.and(classLoaderOptimization));
+
+    ElementMatcher<TypeDescription> failSafeTypeMatcher =
+        new LoggingFailSafeMatcher<>(
+            typeMatcher, "Instrumentation type matcher unexpected exception: " + typeMatcher);
+    ElementMatcher<ClassLoader> failSafeClassLoaderMatcher =
+        new LoggingFailSafeMatcher<>(
+            classLoaderMatcher,
+            "Instrumentation class loader matcher unexpected exception: " + classLoaderMatcher);
+    failSafeClassLoaderMatcher =
+        NeverMatchingClassLoadersMatcher.registerClassLoaderMatcher(
+            failSafeClassLoaderMatcher, moduleClassLoaderMatcher, classLoaderOptimization);
+    if (instrumentationCost != null) {
+      failSafeTypeMatcher = instrumentationCost.timeMatching(failSafeTypeMatcher);
+      failSafeClassLoaderMatcher = instrumentationCost.timeMatching(failSafeClassLoaderMatcher);
+    }
 
     return agentBuilder
-        .type(
-            new LoggingFailSafeMatcher<>(
-                typeMatcher, "Instrumentation type matcher unexpected exception: " + typeMatcher),
-            new LoggingFailSafeMatcher<>(
-                classLoaderMatcher,
-                "Instrumentation class loader matcher unexpected exception: " + classLoaderMatcher))
+        .type(failSafeTypeMatcher, failSafeClassLoaderMatcher)
         .and(
             (typeDescription, classLoader, module, classBeingRedefined, protectionDomain) ->
                 classLoader == null || NOT_DECORATOR_MATCHER.matches(typeDescription));
@@ -12,10 +12,10 @@ import static net.bytebuddy.dynamic.loading.ClassLoadingStrategy.BOOTSTRAP_LOADE
 import io.opentelemetry.instrumentation.api.internal.cache.Cache;
 import io.opentelemetry.javaagent.extension.instrumentation.InstrumentationModule;
 import io.opentelemetry.javaagent.tooling.TransformSafeLogger;
+import io.opentelemetry.javaagent.tooling.TransformationCache;
 import io.opentelemetry.javaagent.tooling.Utils;
 import io.opentelemetry.javaagent.tooling.config.AgentConfig;
 import io.opentelemetry.javaagent.tooling.instrumentation.indy.IndyModuleRegistry;
-import io.opentelemetry.javaagent.tooling.instrumentation.indy.InstrumentationModuleClassLoader;
 import io.opentelemetry.javaagent.tooling.muzzle.Mismatch;
 import io.opentelemetry.javaagent.tooling.muzzle.ReferenceMatcher;
 import io.opentelemetry.sdk.autoconfigure.spi.ConfigProperties;
@@ -24,6 +24,7 @@ import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.annotation.Nullable;
 import net.bytebuddy.agent.builder.AgentBuilder;
 import net.bytebuddy.description.type.TypeDescription;
 import net.bytebuddy.utility.JavaModule;
@@ -42,15 +43,18 @@ class MuzzleMatcher implements AgentBuilder.RawMatcher {
   private final Level muzzleLogLevel;
   private final AtomicBoolean initialized = new AtomicBoolean(false);
   private final Cache<ClassLoader, Boolean> matchCache = Cache.weak();
+  @Nullable private final InstrumentationCost instrumentationCost;
   private volatile ReferenceMatcher referenceMatcher;
 
   MuzzleMatcher(
       TransformSafeLogger instrumentationLogger,
       InstrumentationModule instrumentationModule,
-      ConfigProperties config) {
+      ConfigProperties config,
+      @Nullable InstrumentationCost instrumentationCost) {
     this.instrumentationLogger = instrumentationLogger;
     this.instrumentationModule = instrumentationModule;
     this.muzzleLogLevel = AgentConfig.isDebugModeEnabled(config) ? WARNING : FINE;
+    this.instrumentationCost = instrumentationCost;
   }
 
   @Override
@@ -63,18 +67,52 @@ class MuzzleMatcher implements AgentBuilder.RawMatcher {
     if (classLoader == BOOTSTRAP_LOADER) {
       classLoader = Utils.getBootstrapProxy();
     }
+    TransformationCache transformationCache = TransformationCache.get();
+    if (transformationCache != null) {
+      transformationCache.onTypeMatched();
+    }
+    return matchCache.computeIfAbsent(classLoader, cl -> timedDoesMatch(cl, transformationCache));
+  }
+
+  private boolean timedDoesMatch(
+      ClassLoader classLoader, @Nullable TransformationCache transformationCache) {
+    if (instrumentationCost == null) {
+      return doesMatch(classLoader, transformationCache);
+    }
+    long startTime = System.nanoTime();
+    try {
+      return doesMatch(classLoader, transformationCache);
+    } finally {
+      instrumentationCost.record(InstrumentationCost.Phase.MUZZLE, System.nanoTime() - startTime);
+    }
+  }
+
+  private boolean doesMatch(
+      ClassLoader classLoader, @Nullable TransformationCache transformationCache) {
+    String moduleName = instrumentationModule.getClass().getName();
+    if (transformationCache != null) {
+      Boolean verdict = transformationCache.getMuzzleVerdict(moduleName, classLoader);
+      if (verdict != null) {
+        if (!verdict) {
+          MuzzleFailureCounter.inc();
+        }
+        return verdict;
+      }
+    }
+
+    boolean isMatch;
     if (instrumentationModule.isIndyModule()) {
-      return matchCache.computeIfAbsent(
-          classLoader,
-          cl -> {
-            InstrumentationModuleClassLoader moduleCl =
-                IndyModuleRegistry.createInstrumentationClassLoaderWithoutRegistration(
-                    instrumentationModule, cl);
-            return doesMatch(moduleCl);
-          });
+      isMatch =
+          doesMatch(
+              IndyModuleRegistry.createInstrumentationClassLoaderWithoutRegistration(
+                  instrumentationModule, classLoader));
     } else {
-      return matchCache.computeIfAbsent(classLoader, this::doesMatch);
+      isMatch = doesMatch(classLoader);
+    }
+    if (transformationCache != null) {
+      transformationCache.putMuzzleVerdict(moduleName, classLoader, isMatch);
     }
+    return isMatch;
   }
 
   private boolean doesMatch(ClassLoader classLoader) {
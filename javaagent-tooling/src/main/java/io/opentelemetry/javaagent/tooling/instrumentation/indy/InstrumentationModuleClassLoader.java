@@ -5,6 +5,7 @@
 
 package io.opentelemetry.javaagent.tooling.instrumentation.indy;
 
+import io.opentelemetry.javaagent.bootstrap.ClassDataSharing;
 import io.opentelemetry.javaagent.extension.instrumentation.InstrumentationModule;
 import io.opentelemetry.javaagent.extension.instrumentation.TypeInstrumentation;
 import io.opentelemetry.javaagent.extension.instrumentation.TypeTransformer;
@@ -226,6 +227,7 @@ public class InstrumentationModuleClassLoader extends ClassLoader {
                 java.security.AccessController.doPrivileged(
                     (PrivilegedAction<Class<?>>) () -> defineClassWithPackage(name, bytecode));
           }
+          ClassDataSharing.classDefined(result);
         }
       }
       if (result == null && shouldLoadFromAgent(name)) {
@@ -7,11 +7,18 @@ package net.bytebuddy.agent.builder;
 
 import static java.util.logging.Level.FINE;
 
+import io.opentelemetry.instrumentation.api.internal.cache.Cache;
+import io.opentelemetry.javaagent.bootstrap.internal.ClassLoaderMatcherCacheHolder;
 import io.opentelemetry.javaagent.extension.matcher.internal.DelegatingMatcher;
 import io.opentelemetry.javaagent.extension.matcher.internal.DelegatingSuperTypeMatcher;
 import io.opentelemetry.javaagent.tooling.DefineClassHandler;
+import io.opentelemetry.javaagent.tooling.util.Trie;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.security.ProtectionDomain;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
@@ -21,6 +28,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.Nullable;
 import net.bytebuddy.agent.builder.AgentBuilder.Default.Transformation;
+import net.bytebuddy.description.type.TypeDescription;
 import net.bytebuddy.matcher.BooleanMatcher;
 import net.bytebuddy.matcher.ElementMatcher;
 import net.bytebuddy.matcher.ErasureMatcher;
@@ -41,6 +49,8 @@ public class AgentBuilderUtil {
       getField(AgentBuilder.RawMatcher.Conjunction.class, "matchers");
   private static final Field forElementMatcherField =
       getField(AgentBuilder.RawMatcher.ForElementMatchers.class, "typeMatcher");
+  private static final Field forElementClassLoaderMatcherField =
+      getField(AgentBuilder.RawMatcher.ForElementMatchers.class, "classLoaderMatcher");
   private static final Field nameMatcherField = getField(NameMatcher.class, "matcher");
   private static final Field hasSuperClassMatcherField =
       getField(HasSuperClassMatcher.class, "matcher");
@@ -49,10 +59,15 @@ public class AgentBuilderUtil {
   private static final Field erasureMatcherField = getField(ErasureMatcher.class, "matcher");
   private static final Field conjunctionMatchersField =
       getField(ElementMatcher.Junction.Conjunction.class, "matchers");
+  private static final Field disjunctionMatchersField =
+      getField(ElementMatcher.Junction.Disjunction.class, "matchers");
   private static final Field stringMatcherValueField = getField(StringMatcher.class, "value");
   private static final Field stringMatcherModeField = getField(StringMatcher.class, "mode");
   private static final Field stringSetMatcherValuesField =
       getField(StringSetMatcher.class, "values");
+  // package private in the extension api, the result of AgentElementMatchers.hasClassesNamed()
+  private static final String HAS_CLASSES_NAMED_MATCHER_CLASS_NAME =
+      "io.opentelemetry.javaagent.extension.matcher.ClassLoaderHasClassesNamedMatcher";
 
   private AgentBuilderUtil() {}
 
@@ -71,12 +86,37 @@ public class AgentBuilderUtil {
     return agentBuilder;
   }
 
+  /**
+   * Returns the matcher byte buddy uses to decide whether an already loaded class needs to be
+   * retransformed: the class is not ignored and at least one of the transformations matches it.
+   */
+  public static AgentBuilder.RawMatcher retransformationMatcher(AgentBuilder agentBuilder) {
+    AgentBuilder.Default defaultAgentBuilder = (AgentBuilder.Default) agentBuilder;
+    List<Transformation> transformations = defaultAgentBuilder.transformations;
+    // the index of the optimized transformations only filters them while byte buddy transforms a
+    // class on the current thread, so it is queried directly with the loaded class
+    if (Proxy.isProxyClass(transformations.getClass())
+        && Proxy.getInvocationHandler(transformations) instanceof TransformationIndex) {
+      return new RetransformationMatcher(
+          defaultAgentBuilder.ignoreMatcher,
+          (TransformationIndex) Proxy.getInvocationHandler(transformations));
+    }
+    return new Transformation.SimpleMatcher(defaultAgentBuilder.ignoreMatcher, transformations);
+  }
+
   private static void optimize(AgentBuilder.Default agentBuilder) throws Exception {
     // class names that have a matcher that matches by name
     Set<String> classNames = new HashSet<>();
     // class names that have a matcher that matches subtypes
     Set<String> superTypeNames = new HashSet<>();
+    // class name prefixes that have a matcher that matches by name
+    Trie.Builder<Boolean> classNamePrefixesBuilder = Trie.builder();
+    // class name prefixes that have a matcher that matches subtypes
+    Trie.Builder<Boolean> superTypeNamePrefixesBuilder = Trie.builder();
     List<Transformation> unoptimizedTransformations = new ArrayList<>();
+    // transformations that we can't decompose and transformations that match by name prefix, a
+    // broad prefix would otherwise make every class under it go through all transformations
+    List<Transformation> prefixTransformations = new ArrayList<>();
     List<Transformation> transformations = agentBuilder.transformations;
     for (Transformation transformation : transformations) {
       AgentBuilder.RawMatcher matcher = transformation.getMatcher();
@@ -85,54 +125,187 @@ public class AgentBuilderUtil {
       if (result == null) {
         // we were not able to decompose the matcher
         unoptimizedTransformations.add(transformation);
-      } else if (result.subtype) {
-        superTypeNames.addAll(result.names);
+        prefixTransformations.add(transformation);
       } else {
         classNames.addAll(result.names);
+        superTypeNames.addAll(result.superTypeNames);
+        for (String prefix : result.superTypeNamePrefixes) {
+          superTypeNamePrefixesBuilder.put(prefix, true);
+        }
+        if (!result.namePrefixes.isEmpty()) {
+          for (String prefix : result.namePrefixes) {
+            classNamePrefixesBuilder.put(prefix, true);
+          }
+          prefixTransformations.add(transformation);
+        }
       }
     }
+    TransformationIndex index =
+        new TransformationIndex(
+            transformations,
+            classNames,
+            superTypeNames,
+            classNamePrefixesBuilder.build(),
+            superTypeNamePrefixesBuilder.build(),
+            ClassLoaderFilter.create(unoptimizedTransformations),
+            ClassLoaderFilter.create(prefixTransformations));
 
     List<?> list =
         (List<?>)
             Proxy.newProxyInstance(
-                AgentBuilderUtil.class.getClassLoader(),
-                new Class<?>[] {List.class},
-                (proxy, method, args) -> {
-                  String name = TransformContext.getTransformedClassName();
-                  // iterator() is the only method we expect to be called on this List
-                  if (name != null && "iterator".equals(method.getName())) {
-                    // we know that this class is going to be transformed
-                    if (classNames.contains(name) || superTypeNames.contains(name)) {
-                      return transformations.iterator();
-                    }
-                    // we already know that loading this class is going to fail, no need to
-                    // transform it
-                    if (DefineClassHandler.isFailedClass(name)) {
-                      return Collections.emptyIterator();
-                    }
-                    Set<String> loadingSuperTypes = DefineClassHandler.getSuperTypes();
-                    // super types set should contain at least java.lang.Object if this set is
-                    // empty something unexpected has happened, run all transformations
-                    if (loadingSuperTypes.isEmpty()) {
-                      return transformations.iterator();
-                    }
-                    for (String className : loadingSuperTypes) {
-                      // we know that this class is going to be transformed
-                      if (superTypeNames.contains(className)) {
-                        return transformations.iterator();
-                      }
-                    }
-
-                    // apply only the transformations that we can't decompose
-                    return unoptimizedTransformations.iterator();
-                  }
-
-                  return method.invoke(transformations, args);
-                });
+                AgentBuilderUtil.class.getClassLoader(), new Class<?>[] {List.class}, index);
 
     agentBuilderTransformationsField.set(agentBuilder, list);
   }
 
+  /**
+   * Selects the transformations that may match a class by the names of the class and its super
+   * types, and by the classes its class loader is missing. Used as the transformation list of the
+   * agent builder, it selects them for the class that is being transformed on the current thread.
+   */
+  private static class TransformationIndex implements InvocationHandler {
+    private final List<Transformation> transformations;
+    // class names that have a matcher that matches by name
+    private final Set<String> classNames;
+    // class names that have a matcher that matches subtypes
+    private final Set<String> superTypeNames;
+    // class name prefixes that have a matcher that matches by name
+    private final Trie<Boolean> classNamePrefixes;
+    // class name prefixes that have a matcher that matches subtypes
+    private final Trie<Boolean> superTypeNamePrefixes;
+    private final ClassLoaderFilter unoptimized;
+    private final ClassLoaderFilter unoptimizedAndPrefixed;
+
+    TransformationIndex(
+        List<Transformation> transformations,
+        Set<String> classNames,
+        Set<String> superTypeNames,
+        Trie<Boolean> classNamePrefixes,
+        Trie<Boolean> superTypeNamePrefixes,
+        ClassLoaderFilter unoptimized,
+        ClassLoaderFilter unoptimizedAndPrefixed) {
+      this.transformations = transformations;
+      this.classNames = classNames;
+      this.superTypeNames = superTypeNames;
+      this.classNamePrefixes = classNamePrefixes;
+      this.superTypeNamePrefixes = superTypeNamePrefixes;
+      this.unoptimized = unoptimized;
+      this.unoptimizedAndPrefixed = unoptimizedAndPrefixed;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      TransformedType transformedType = TransformContext.get();
+      String name = transformedType.typeName;
+      // iterator() is the only method we expect to be called on this List
+      if (name != null && "iterator".equals(method.getName())) {
+        // we already know that loading this class is going to fail, no need to transform it
+        if (!isMatchedByName(name) && DefineClassHandler.isFailedClass(name)) {
+          return Collections.emptyIterator();
+        }
+        return select(name, DefineClassHandler.getSuperTypes(), transformedType.classLoader())
+            .iterator();
+      }
+
+      return method.invoke(transformations, args);
+    }
+
+    /**
+     * Returns the transformations that may match the class with the given name, super types (that
+     * include the class itself) and class loader.
+     */
+    List<Transformation> select(
+        String name, Set<String> superTypes, @Nullable ClassLoader classLoader) {
+      // we know that this class is going to be transformed
+      if (isMatchedByName(name)) {
+        return transformations;
+      }
+      // super types set should contain at least java.lang.Object if this set is empty something
+      // unexpected has happened, run all transformations
+      if (superTypes.isEmpty()) {
+        return transformations;
+      }
+      for (String className : superTypes) {
+        // we know that this class is going to be transformed
+        if (superTypeNames.contains(className) || superTypeNamePrefixes.contains(className)) {
+          return transformations;
+        }
+      }
+
+      // apply only the transformations that we can't decompose (and the ones that match the name
+      // prefix of this class), and that are not ruled out by the classes the class loader is
+      // missing
+      if (classNamePrefixes.contains(name)) {
+        return unoptimizedAndPrefixed.get(classLoader);
+      }
+      return unoptimized.get(classLoader);
+    }
+
+    private boolean isMatchedByName(String name) {
+      return classNames.contains(name)
+          || superTypeNames.contains(name)
+          || superTypeNamePrefixes.contains(name);
+    }
+  }
+
+  /**
+   * Like the matcher byte buddy uses to decide whether a loaded class is retransformed, but only
+   * runs the transformations that the index selects for the class. Unlike the transformation list,
+   * the index doesn't depend on the class being transformed on the current thread, so the matcher
+   * can run on any thread.
+   */
+  private static class RetransformationMatcher implements AgentBuilder.RawMatcher {
+    private final AgentBuilder.RawMatcher ignoreMatcher;
+    private final TransformationIndex index;
+
+    RetransformationMatcher(AgentBuilder.RawMatcher ignoreMatcher, TransformationIndex index) {
+      this.ignoreMatcher = ignoreMatcher;
+      this.index = index;
+    }
+
+    @Override
+    public boolean matches(
+        TypeDescription typeDescription,
+        @Nullable ClassLoader classLoader,
+        @Nullable JavaModule module,
+        @Nullable Class<?> classBeingRedefined,
+        @Nullable ProtectionDomain protectionDomain) {
+      if (ignoreMatcher.matches(
+          typeDescription, classLoader, module, classBeingRedefined, protectionDomain)) {
+        return false;
+      }
+      List<Transformation> candidates =
+          classBeingRedefined == null
+              ? index.transformations
+              : index.select(
+                  typeDescription.getName(), superTypeNames(classBeingRedefined), classLoader);
+      for (Transformation transformation : candidates) {
+        if (transformation
+            .getMatcher()
+            .matches(typeDescription, classLoader, module, classBeingRedefined, protectionDomain)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private static Set<String> superTypeNames(Class<?> type) {
+      Set<String> superTypeNames = new HashSet<>();
+      addSuperTypeNames(superTypeNames, type);
+      return superTypeNames;
+    }
+
+    private static void addSuperTypeNames(Set<String> superTypeNames, @Nullable Class<?> type) {
+      if (type == null || !superTypeNames.add(type.getName())) {
+        return;
+      }
+      addSuperTypeNames(superTypeNames, type.getSuperclass());
+      for (Class<?> interfaceType : type.getInterfaces()) {
+        addSuperTypeNames(superTypeNames, interfaceType);
+      }
+    }
+  }
+
   @Nullable
   private static Result inspect(AgentBuilder.RawMatcher matcher) throws Exception {
     if (matcher instanceof AgentBuilder.RawMatcher.Conjunction) {
@@ -179,6 +352,18 @@ public class AgentBuilderUtil {
           return result;
         }
       }
+    } else if (matcher instanceof ElementMatcher.Junction.Disjunction) {
+      // a disjunction can only be decomposed when all of its parts can be decomposed
+      Result result = new Result();
+      for (ElementMatcher<?> elementMatcher :
+          getDelegateMatchers((ElementMatcher.Junction.Disjunction<?>) matcher)) {
+        Result alternative = inspect(elementMatcher);
+        if (alternative == null) {
+          return null;
+        }
+        result.addAll(alternative);
+      }
+      return result.isEmpty() ? null : result;
     }
 
     return null;
@@ -188,8 +373,15 @@ public class AgentBuilderUtil {
   private static Result inspectNameMatcher(NameMatcher<?> nameMatcher) throws Exception {
     ElementMatcher<?> matcher = getDelegateMatcher(nameMatcher);
     if (matcher instanceof StringMatcher) {
-      String value = getStringMatcherValue((StringMatcher) matcher);
-      return Result.named(value);
+      StringMatcher stringMatcher = (StringMatcher) matcher;
+      String value = (String) stringMatcherValueField.get(stringMatcher);
+      StringMatcher.Mode mode = (StringMatcher.Mode) stringMatcherModeField.get(stringMatcher);
+      if (mode == StringMatcher.Mode.EQUALS_FULLY) {
+        return Result.named(value);
+      } else if (mode == StringMatcher.Mode.STARTS_WITH) {
+        return Result.namePrefix(value);
+      }
+      return null;
     } else if (matcher instanceof StringSetMatcher) {
       Set<String> value = getStringSetMatcherValue((StringSetMatcher) matcher);
       return Result.named(value);
@@ -199,18 +391,12 @@ public class AgentBuilderUtil {
   }
 
   private static class Result {
+    // names and name prefixes of the types that the matcher matches
     final Set<String> names = new HashSet<>();
-    // true if matcher matches based on type hierarchy
-    // false if matcher matches based on type name
-    final boolean subtype;
-
-    private Result(boolean subtype) {
-      this.subtype = subtype;
-    }
-
-    private Result() {
-      this(false);
-    }
+    final Set<String> namePrefixes = new HashSet<>();
+    // names and name prefixes of the super types (or the type itself) that the matcher matches
+    final Set<String> superTypeNames = new HashSet<>();
+    final Set<String> superTypeNamePrefixes = new HashSet<>();
 
     @Nullable
     static Result subtype(@Nullable Result value) {
@@ -218,8 +404,11 @@ public class AgentBuilderUtil {
         return null;
       }
 
-      Result result = new Result(true);
-      result.names.addAll(value.names);
+      Result result = new Result();
+      result.superTypeNames.addAll(value.names);
+      result.superTypeNames.addAll(value.superTypeNames);
+      result.superTypeNamePrefixes.addAll(value.namePrefixes);
+      result.superTypeNamePrefixes.addAll(value.superTypeNamePrefixes);
       return result;
     }
 
@@ -243,9 +432,143 @@ public class AgentBuilderUtil {
       return result;
     }
 
+    @Nullable
+    static Result namePrefix(@Nullable String value) {
+      if (value == null) {
+        return null;
+      }
+      Result result = new Result();
+      result.namePrefixes.add(value);
+      return result;
+    }
+
+    void addAll(Result other) {
+      names.addAll(other.names);
+      namePrefixes.addAll(other.namePrefixes);
+      superTypeNames.addAll(other.superTypeNames);
+      superTypeNamePrefixes.addAll(other.superTypeNamePrefixes);
+    }
+
+    boolean isEmpty() {
+      return names.isEmpty()
+          && namePrefixes.isEmpty()
+          && superTypeNames.isEmpty()
+          && superTypeNamePrefixes.isEmpty();
+    }
+
     @Override
     public String toString() {
-      return (subtype ? "subtype of " : "named ") + names;
+      return "named "
+          + names
+          + ", name starts with "
+          + namePrefixes
+          + ", subtype of "
+          + superTypeNames
+          + ", subtype of name starts with "
+          + superTypeNamePrefixes;
+    }
+  }
+
+  /**
+   * Filters the transformations that can't be decomposed by the {@code hasClassesNamed()} class
+   * loader matchers they require: a transformation can't match any class of a class loader that is
+   * missing one of these classes. Like the results of these matchers, the filtered transformations
+   * are cached for every class loader, and the cache is invalidated together with theirs when the
+   * class loader can find new classes, e.g. after {@link java.net.URLClassLoader#addURL}.
+   */
+  private static class ClassLoaderFilter {
+    private final List<Transformation> transformations;
+    private final List<List<ElementMatcher<? super ClassLoader>>> requiredClasses;
+    private final Cache<ClassLoader, List<Transformation>> filtered = Cache.weak();
+
+    private ClassLoaderFilter(
+        List<Transformation> transformations,
+        List<List<ElementMatcher<? super ClassLoader>>> requiredClasses) {
+      this.transformations = transformations;
+      this.requiredClasses = requiredClasses;
+      ClassLoaderMatcherCacheHolder.addCache(filtered);
+    }
+
+    static ClassLoaderFilter create(List<Transformation> transformations) throws Exception {
+      List<List<ElementMatcher<? super ClassLoader>>> requiredClasses = new ArrayList<>();
+      for (Transformation transformation : transformations) {
+        List<ElementMatcher<? super ClassLoader>> matchers = new ArrayList<>();
+        AgentBuilder.RawMatcher.ForElementMatchers elementMatchers =
+            getElementMatchers(transformation.getMatcher());
+        if (elementMatchers != null) {
+          collectHasClassesNamedMatchers(getClassLoaderMatcher(elementMatchers), matchers);
+        }
+        requiredClasses.add(matchers);
+      }
+      return new ClassLoaderFilter(transformations, requiredClasses);
+    }
+
+    List<Transformation> get(@Nullable ClassLoader classLoader) {
+      if (classLoader == null) {
+        return transformations;
+      }
+      // not using computeIfAbsent, the class loader matchers may load classes that are transformed
+      // in turn
+      List<Transformation> result = filtered.get(classLoader);
+      if (result == null) {
+        result = filter(classLoader);
+        filtered.put(classLoader, result);
+      }
+      return result;
+    }
+
+    private List<Transformation> filter(ClassLoader classLoader) {
+      List<Transformation> result = new ArrayList<>();
+      for (int i = 0; i < transformations.size(); i++) {
+        if (hasRequiredClasses(requiredClasses.get(i), classLoader)) {
+          result.add(transformations.get(i));
+        }
+      }
+      return result;
+    }
+
+    private static boolean hasRequiredClasses(
+        List<ElementMatcher<? super ClassLoader>> matchers, ClassLoader classLoader) {
+      for (ElementMatcher<? super ClassLoader> matcher : matchers) {
+        try {
+          if (!matcher.matches(classLoader)) {
+            return false;
+          }
+        } catch (Throwable throwable) {
+          // let the transformation decide
+          return true;
+        }
+      }
+      return true;
+    }
+
+    @Nullable
+    private static AgentBuilder.RawMatcher.ForElementMatchers getElementMatchers(
+        AgentBuilder.RawMatcher matcher) throws Exception {
+      if (matcher instanceof AgentBuilder.RawMatcher.Conjunction) {
+        List<AgentBuilder.RawMatcher> matchers = getDelegateMatchers(matcher);
+        // with our current matchers we only need to inspect the first element of the conjunction
+        return matchers.isEmpty() ? null : getElementMatchers(matchers.get(0));
+      } else if (matcher instanceof AgentBuilder.RawMatcher.ForElementMatchers) {
+        return (AgentBuilder.RawMatcher.ForElementMatchers) matcher;
+      }
+      return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void collectHasClassesNamedMatchers(
+        ElementMatcher<?> matcher, List<ElementMatcher<? super ClassLoader>> matchers)
+        throws Exception {
+      if (matcher instanceof DelegatingMatcher) {
+        collectHasClassesNamedMatchers(((DelegatingMatcher) matcher).getDelegate(), matchers);
+      } else if (matcher instanceof ElementMatcher.Junction.Conjunction) {
+        for (ElementMatcher<?> elementMatcher :
+            getDelegateMatchers((ElementMatcher.Junction.Conjunction<?>) matcher)) {
+          collectHasClassesNamedMatchers(elementMatcher, matchers);
+        }
+      } else if (HAS_CLASSES_NAMED_MATCHER_CLASS_NAME.equals(matcher.getClass().getName())) {
+        matchers.add((ElementMatcher<? super ClassLoader>) matcher);
+      }
     }
   }
 
@@ -254,6 +577,11 @@ public class AgentBuilderUtil {
     return (ElementMatcher<?>) forElementMatcherField.get(matcher);
   }
 
+  private static ElementMatcher<?> getClassLoaderMatcher(
+      AgentBuilder.RawMatcher.ForElementMatchers matcher) throws Exception {
+    return (ElementMatcher<?>) forElementClassLoaderMatcherField.get(matcher);
+  }
+
   private static ElementMatcher<?> getDelegateMatcher(NameMatcher<?> matcher) throws Exception {
     return (ElementMatcher<?>) nameMatcherField.get(matcher);
   }
@@ -284,15 +612,10 @@ public class AgentBuilderUtil {
     return (List<ElementMatcher<?>>) conjunctionMatchersField.get(matcher);
   }
 
-  /**
-   * @return the value given string matcher matches when matcher mode is
-   *     StringMatcher.Mode.EQUALS_FULLY, null otherwise
-   */
-  @Nullable
-  private static String getStringMatcherValue(StringMatcher matcher) throws Exception {
-    String value = (String) stringMatcherValueField.get(matcher);
-    StringMatcher.Mode mode = (StringMatcher.Mode) stringMatcherModeField.get(matcher);
-    return mode == StringMatcher.Mode.EQUALS_FULLY ? value : null;
+  @SuppressWarnings("unchecked")
+  private static List<ElementMatcher<?>> getDelegateMatchers(
+      ElementMatcher.Junction.Disjunction<?> matcher) throws Exception {
+    return (List<ElementMatcher<?>>) disjunctionMatchersField.get(matcher);
   }
 
   @SuppressWarnings("unchecked")
@@ -315,11 +638,11 @@ public class AgentBuilderUtil {
   }
 
   private static class TransformContext extends AgentBuilder.Listener.Adapter {
-    private static final ThreadLocal<String> transformedName = new ThreadLocal<>();
+    private static final ThreadLocal<TransformedType> transformedType =
+        ThreadLocal.withInitial(TransformedType::new);
 
-    @Nullable
-    static String getTransformedClassName() {
-      return transformedName.get();
+    static TransformedType get() {
+      return transformedType.get();
     }
 
     @Override
@@ -329,7 +652,9 @@ public class AgentBuilderUtil {
         @Nullable JavaModule module,
         boolean loaded) {
       if (classLoader != null) {
-        transformedName.set(typeName);
+        transformedType.get().set(typeName, classLoader);
+      } else {
+        transformedType.get().clear();
       }
     }
 
@@ -340,7 +665,7 @@ public class AgentBuilderUtil {
         @Nullable JavaModule module,
         boolean loaded,
         Throwable throwable) {
-      transformedName.remove();
+      transformedType.get().clear();
     }
 
     @Override
@@ -349,7 +674,29 @@ public class AgentBuilderUtil {
         @Nullable ClassLoader classLoader,
         @Nullable JavaModule module,
         boolean loaded) {
-      transformedName.remove();
+      transformedType.get().clear();
+    }
+  }
+
+  // the class loader is only weakly referenced, the thread local must not keep it alive when the
+  // listener is not notified of the end of a transformation
+  private static class TransformedType {
+    @Nullable String typeName;
+    @Nullable private WeakReference<ClassLoader> classLoader;
+
+    void set(String typeName, ClassLoader classLoader) {
+      this.typeName = typeName;
+      this.classLoader = new WeakReference<>(classLoader);
+    }
+
+    @Nullable
+    ClassLoader classLoader() {
+      return classLoader != null ? classLoader.get() : null;
+    }
+
+    void clear() {
+      typeName = null;
+      classLoader = null;
     }
   }
 }
@@ -0,0 +1,118 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.tooling;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.lang.instrument.Instrumentation;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import net.bytebuddy.agent.builder.AgentBuilder;
+import org.junit.jupiter.api.Test;
+
+class ParallelDiscoveryStrategyTest {
+
+  private static final List<Class<?>> LOADED_CLASSES =
+      Arrays.asList(
+          Service.class,
+          Repository.class,
+          Listener.class,
+          Handler.class,
+          Filter.class,
+          Controller.class);
+
+  @Test
+  void passesOnMatchingClasses() {
+    // e.g. the classes loaded while the first batch was retransformed
+    List<Iterable<Class<?>>> batches =
+        Arrays.asList(
+            Arrays.asList(Service.class, Listener.class),
+            Arrays.asList(Repository.class, Handler.class, Filter.class));
+    ParallelDiscoveryStrategy discoveryStrategy =
+        new ParallelDiscoveryStrategy(instrumentation -> batches, 2);
+    discoveryStrategy.setMatcher(
+        (typeDescription, classLoader, module, classBeingRedefined, protectionDomain) ->
+            typeDescription.isInterface());
+
+    assertThat(resolve(discoveryStrategy))
+        .containsExactly(
+            Collections.singletonList(Listener.class), Arrays.asList(Handler.class, Filter.class));
+  }
+
+  @Test
+  void passesOnClassesThatFailToMatch() {
+    ParallelDiscoveryStrategy discoveryStrategy =
+        new ParallelDiscoveryStrategy(
+            instrumentation -> Collections.singletonList(LOADED_CLASSES), 2);
+    discoveryStrategy.setMatcher(
+        (typeDescription, classLoader, module, classBeingRedefined, protectionDomain) -> {
+          if (classBeingRedefined == Repository.class) {
+            throw new IllegalStateException("test");
+          }
+          return false;
+        });
+
+    assertThat(resolve(discoveryStrategy))
+        .containsExactly(Collections.singletonList(Repository.class));
+  }
+
+  @Test
+  void skipsUnmodifiableClasses() {
+    ParallelDiscoveryStrategy discoveryStrategy =
+        new ParallelDiscoveryStrategy(
+            instrumentation -> Collections.singletonList(LOADED_CLASSES), 2);
+    discoveryStrategy.setMatcher(
+        (typeDescription, classLoader, module, classBeingRedefined, protectionDomain) -> true);
+
+    Instrumentation instrumentation = mock(Instrumentation.class);
+    when(instrumentation.isModifiableClass(any()))
+        .thenAnswer(invocation -> invocation.getArgument(0) != Repository.class);
+
+    List<Class<?>> classes = new ArrayList<>();
+    discoveryStrategy.resolve(instrumentation).forEach(batch -> batch.forEach(classes::add));
+    assertThat(classes).doesNotContain(Repository.class).hasSize(LOADED_CLASSES.size() - 1);
+  }
+
+  @Test
+  void withoutMatcherPassesOnAllClasses() {
+    ParallelDiscoveryStrategy discoveryStrategy =
+        new ParallelDiscoveryStrategy(
+            instrumentation -> Collections.singletonList(LOADED_CLASSES), 2);
+
+    assertThat(resolve(discoveryStrategy)).containsExactly(LOADED_CLASSES);
+  }
+
+  interface Listener {}
+
+  interface Handler {}
+
+  interface Filter {}
+
+  static class Service {}
+
+  static class Repository {}
+
+  static class Controller {}
+
+  private static List<List<Class<?>>> resolve(
+      AgentBuilder.RedefinitionStrategy.DiscoveryStrategy discoveryStrategy) {
+    Instrumentation instrumentation = mock(Instrumentation.class);
+    when(instrumentation.isModifiableClass(any())).thenReturn(true);
+
+    List<List<Class<?>>> result = new ArrayList<>();
+    for (Iterable<Class<?>> batch : discoveryStrategy.resolve(instrumentation)) {
+      List<Class<?>> classes = new ArrayList<>();
+      batch.forEach(classes::add);
+      result.add(classes);
+    }
+    return result;
+  }
+}
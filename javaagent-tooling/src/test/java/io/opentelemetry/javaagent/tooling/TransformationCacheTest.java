@@ -0,0 +1,186 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.tooling;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.security.CodeSource;
+import java.security.ProtectionDomain;
+import java.security.cert.Certificate;
+import java.util.Collections;
+import java.util.List;
+import net.bytebuddy.agent.builder.AgentBuilder;
+import net.bytebuddy.description.type.TypeDescription;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TransformationCacheTest {
+
+  private static final List<String> CLASS_PATH_JARS = Collections.singletonList("/app/app.jar");
+  private static final TypeDescription TYPE = TypeDescription.ForLoadedType.of(String.class);
+
+  @TempDir Path tempDir;
+
+  private URLClassLoader classLoader;
+  private ProtectionDomain classPathDomain;
+  private ProtectionDomain otherDomain;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    classLoader = new URLClassLoader(new URL[0], null);
+    classPathDomain =
+        new ProtectionDomain(
+            new CodeSource(
+                new URL("jar:file:/app/app.jar!/BOOT-INF/lib/lib.jar!/"), (Certificate[]) null),
+            null,
+            classLoader,
+            null);
+    otherDomain =
+        new ProtectionDomain(
+            new CodeSource(new URL("file:/webapps/lib/lib.jar"), (Certificate[]) null),
+            null,
+            classLoader,
+            null);
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    classLoader.close();
+  }
+
+  @Test
+  void unmatchedTypesAreIgnoredAfterRestart() {
+    Path file = tempDir.resolve("cache");
+    TransformationCache cache = new TransformationCache(file, "fingerprint", CLASS_PATH_JARS);
+    assertThat(transform(cache, classPathDomain)).isFalse();
+    cache.write();
+
+    TransformationCache restarted = new TransformationCache(file, "fingerprint", CLASS_PATH_JARS);
+    restarted.read();
+    assertThat(restarted.matches(TYPE, classLoader, null, null, classPathDomain)).isTrue();
+  }
+
+  @Test
+  void matchedTypesAreNotCached() {
+    Path file = tempDir.resolve("cache");
+    TransformationCache cache = new TransformationCache(file, "fingerprint", CLASS_PATH_JARS);
+    assertThat(cache.matches(TYPE, classLoader, null, null, classPathDomain)).isFalse();
+    // e.g. muzzle rejected the instrumentation that matched the type
+    cache.onTypeMatched();
+    cache.listener().onIgnored(TYPE, classLoader, null, false);
+    cache.listener().onComplete(TYPE.getName(), classLoader, null, false);
+    cache.write();
+
+    TransformationCache restarted = new TransformationCache(file, "fingerprint", CLASS_PATH_JARS);
+    restarted.read();
+    assertThat(restarted.matches(TYPE, classLoader, null, null, classPathDomain)).isFalse();
+  }
+
+  @Test
+  void typesOutsideOfClassPathAreNotCached() {
+    Path file = tempDir.resolve("cache");
+    TransformationCache cache = new TransformationCache(file, "fingerprint", CLASS_PATH_JARS);
+    assertThat(transform(cache, otherDomain)).isFalse();
+    assertThat(transform(cache, null)).isFalse();
+    cache.write();
+
+    TransformationCache restarted = new TransformationCache(file, "fingerprint", CLASS_PATH_JARS);
+    restarted.read();
+    assertThat(restarted.matches(TYPE, classLoader, null, null, otherDomain)).isFalse();
+    assertThat(restarted.matches(TYPE, classLoader, null, null, null)).isFalse();
+  }
+
+  @Test
+  void onlyClassPathJarsAreCached() throws Exception {
+    Path file = tempDir.resolve("cache");
+    TransformationCache cache = new TransformationCache(file, "fingerprint", CLASS_PATH_JARS);
+    ProtectionDomain jarDomain = protectionDomain("file:/app/app.jar");
+    // contain the path of the class path jar, but are different jars
+    ProtectionDomain otherDirectoryDomain = protectionDomain("file:/other/app/app.jar");
+    ProtectionDomain backupDomain = protectionDomain("file:/app/app.jar.bak");
+    ProtectionDomain nestedBackupDomain = protectionDomain("jar:file:/app/app.jar.bak!/lib.jar!/");
+    transform(cache, jarDomain);
+    transform(cache, otherDirectoryDomain);
+    transform(cache, backupDomain);
+    transform(cache, nestedBackupDomain);
+    cache.write();
+
+    TransformationCache restarted = new TransformationCache(file, "fingerprint", CLASS_PATH_JARS);
+    restarted.read();
+    assertThat(restarted.matches(TYPE, classLoader, null, null, jarDomain)).isTrue();
+    assertThat(restarted.matches(TYPE, classLoader, null, null, otherDirectoryDomain)).isFalse();
+    assertThat(restarted.matches(TYPE, classLoader, null, null, backupDomain)).isFalse();
+    assertThat(restarted.matches(TYPE, classLoader, null, null, nestedBackupDomain)).isFalse();
+  }
+
+  @Test
+  void typesWithResolutionFailuresAreNotCached() {
+    Path file = tempDir.resolve("cache");
+    TransformationCache cache = new TransformationCache(file, "fingerprint", CLASS_PATH_JARS);
+    assertThat(cache.matches(TYPE, classLoader, null, null, classPathDomain)).isFalse();
+    // e.g. the class file of a super type couldn't be read while the type was matched
+    cache.onResolutionFailure();
+    cache.listener().onIgnored(TYPE, classLoader, null, false);
+    cache.listener().onComplete(TYPE.getName(), classLoader, null, false);
+    cache.write();
+
+    TransformationCache restarted = new TransformationCache(file, "fingerprint", CLASS_PATH_JARS);
+    restarted.read();
+    assertThat(restarted.matches(TYPE, classLoader, null, null, classPathDomain)).isFalse();
+  }
+
+  @Test
+  void differentFingerprintInvalidatesCache() {
+    Path file = tempDir.resolve("cache");
+    TransformationCache cache = new TransformationCache(file, "fingerprint", CLASS_PATH_JARS);
+    transform(cache, classPathDomain);
+    cache.putMuzzleVerdict("Module", ClassLoader.getSystemClassLoader(), true);
+    cache.write();
+
+    TransformationCache changed = new TransformationCache(file, "changed", CLASS_PATH_JARS);
+    changed.read();
+    assertThat(changed.matches(TYPE, classLoader, null, null, classPathDomain)).isFalse();
+    assertThat(changed.getMuzzleVerdict("Module", ClassLoader.getSystemClassLoader())).isNull();
+  }
+
+  @Test
+  void muzzleVerdicts() {
+    Path file = tempDir.resolve("cache");
+    ClassLoader systemClassLoader = ClassLoader.getSystemClassLoader();
+    TransformationCache cache = new TransformationCache(file, "fingerprint", CLASS_PATH_JARS);
+    cache.putMuzzleVerdict("Matching", systemClassLoader, true);
+    cache.putMuzzleVerdict("Mismatching", systemClassLoader, false);
+    // not cached, the class path doesn't tell which classes this class loader can load
+    cache.putMuzzleVerdict("Matching", classLoader, true);
+    cache.write();
+
+    TransformationCache restarted = new TransformationCache(file, "fingerprint", CLASS_PATH_JARS);
+    restarted.read();
+    assertThat(restarted.getMuzzleVerdict("Matching", systemClassLoader)).isTrue();
+    assertThat(restarted.getMuzzleVerdict("Mismatching", systemClassLoader)).isFalse();
+    assertThat(restarted.getMuzzleVerdict("Other", systemClassLoader)).isNull();
+    assertThat(restarted.getMuzzleVerdict("Matching", classLoader)).isNull();
+  }
+
+  private ProtectionDomain protectionDomain(String location) throws Exception {
+    return new ProtectionDomain(
+        new CodeSource(new URL(location), (Certificate[]) null), null, classLoader, null);
+  }
+
+  // simulates a transformation in which no instrumentation matched the type
+  private boolean transform(TransformationCache cache, ProtectionDomain protectionDomain) {
+    boolean ignored = cache.matches(TYPE, classLoader, null, null, protectionDomain);
+    AgentBuilder.Listener listener = cache.listener();
+    listener.onIgnored(TYPE, classLoader, null, false);
+    listener.onComplete(TYPE.getName(), classLoader, null, false);
+    return ignored;
+  }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.tooling.ignore;
+
+import static io.opentelemetry.javaagent.tooling.ignore.NeverMatchingClassLoadersMatcher.ENABLED_CONFIG;
+import static net.bytebuddy.matcher.ElementMatchers.any;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+import io.opentelemetry.javaagent.bootstrap.internal.ClassLoaderMatcherCacheHolder;
+import io.opentelemetry.sdk.autoconfigure.spi.ConfigProperties;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.bytebuddy.matcher.ElementMatcher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class NeverMatchingClassLoadersMatcherTest {
+
+  private static final URL APP_JAR = url("file:/app/app.jar");
+  private static final URL OTHER_JAR = url("file:/app/other.jar");
+  // stands for the class loader matcher of an instrumentation module
+  private static final ElementMatcher<ClassLoader> RESTRICTED = cl -> true;
+
+  @Mock ConfigProperties config;
+
+  @AfterEach
+  void tearDown() {
+    NeverMatchingClassLoadersMatcher.reset();
+  }
+
+  @Test
+  void shouldIgnoreSiblingsOfRejectedClassLoaders() {
+    when(config.getBoolean(ENABLED_CONFIG, false)).thenReturn(true);
+    NeverMatchingClassLoadersMatcher underTest = NeverMatchingClassLoadersMatcher.create(config);
+    AtomicInteger rejectedLoaderMatches = new AtomicInteger();
+    NeverMatchingClassLoadersMatcher.registerClassLoaderMatcher(
+        cl -> {
+          if (cl instanceof RejectedLoader) {
+            rejectedLoaderMatches.incrementAndGet();
+          }
+          return false;
+        },
+        RESTRICTED,
+        any());
+    underTest.instrumentationsInstalled();
+
+    ClassLoader parent = new ClassLoader() {};
+    for (int i = 0; i < NeverMatchingClassLoadersMatcher.CONFIRMATIONS; i++) {
+      assertThat(underTest.matches(new RejectedLoader(parent, APP_JAR))).isTrue();
+    }
+    assertThat(rejectedLoaderMatches).hasValue(NeverMatchingClassLoadersMatcher.CONFIRMATIONS);
+
+    // siblings are skipped without running the class loader matchers
+    assertThat(underTest.matches(new RejectedLoader(parent, APP_JAR))).isTrue();
+    assertThat(rejectedLoaderMatches).hasValue(NeverMatchingClassLoadersMatcher.CONFIRMATIONS);
+    // class loaders with another parent are not
+    assertThat(underTest.matches(new RejectedLoader(new ClassLoader() {}, APP_JAR))).isTrue();
+    assertThat(rejectedLoaderMatches).hasValue(NeverMatchingClassLoadersMatcher.CONFIRMATIONS + 1);
+    // neither are class loaders with other URLs
+    assertThat(underTest.matches(new RejectedLoader(parent, OTHER_JAR))).isTrue();
+    assertThat(rejectedLoaderMatches).hasValue(NeverMatchingClassLoadersMatcher.CONFIRMATIONS + 2);
+
+    assertThat(underTest.report())
+        .contains(
+            RejectedLoader.class.getName()
+                + " with parent "
+                + parent
+                + " and URLs ["
+                + APP_JAR
+                + "]: skipped");
+  }
+
+  @Test
+  void shouldNotIgnoreSiblingsWithOtherUrls() {
+    when(config.getBoolean(ENABLED_CONFIG, false)).thenReturn(true);
+    NeverMatchingClassLoadersMatcher underTest = NeverMatchingClassLoadersMatcher.create(config);
+    NeverMatchingClassLoadersMatcher.registerClassLoaderMatcher(
+        cl -> cl instanceof URLClassLoader && ((URLClassLoader) cl).getURLs().length > 1,
+        RESTRICTED,
+        any());
+    underTest.instrumentationsInstalled();
+
+    ClassLoader parent = new ClassLoader() {};
+    for (int i = 0; i < NeverMatchingClassLoadersMatcher.CONFIRMATIONS; i++) {
+      assertThat(underTest.matches(new RejectedLoader(parent, APP_JAR))).isTrue();
+    }
+    // the sibling sees the classes of another jar too
+    assertThat(underTest.matches(new RejectedLoader(parent, APP_JAR, OTHER_JAR))).isFalse();
+  }
+
+  @Test
+  void shouldNotLearnFromClassLoadersWithUnknownClasses() {
+    when(config.getBoolean(ENABLED_CONFIG, false)).thenReturn(true);
+    NeverMatchingClassLoadersMatcher underTest = NeverMatchingClassLoadersMatcher.create(config);
+    AtomicInteger matches = new AtomicInteger();
+    NeverMatchingClassLoadersMatcher.registerClassLoaderMatcher(
+        cl -> {
+          matches.incrementAndGet();
+          return false;
+        },
+        RESTRICTED,
+        any());
+    underTest.instrumentationsInstalled();
+
+    ClassLoader parent = new ClassLoader() {};
+    for (int i = 0; i < NeverMatchingClassLoadersMatcher.CONFIRMATIONS + 1; i++) {
+      assertThat(underTest.matches(new ClassLoader(parent) {})).isTrue();
+    }
+    assertThat(matches).hasValue(NeverMatchingClassLoadersMatcher.CONFIRMATIONS + 1);
+    assertThat(underTest.report()).isEmpty();
+  }
+
+  @Test
+  void shouldMatchAgainAfterUrlIsAdded() {
+    when(config.getBoolean(ENABLED_CONFIG, false)).thenReturn(true);
+    NeverMatchingClassLoadersMatcher underTest = NeverMatchingClassLoadersMatcher.create(config);
+    NeverMatchingClassLoadersMatcher.registerClassLoaderMatcher(
+        cl -> cl instanceof URLClassLoader && ((URLClassLoader) cl).getURLs().length > 1,
+        RESTRICTED,
+        any());
+    underTest.instrumentationsInstalled();
+
+    RejectedLoader classLoader = new RejectedLoader(new ClassLoader() {}, APP_JAR);
+    assertThat(underTest.matches(classLoader)).isTrue();
+
+    classLoader.addURL(OTHER_JAR);
+    // done by the URLClassLoader instrumentation
+    ClassLoaderMatcherCacheHolder.invalidateAllCachesForClassLoader(classLoader);
+    assertThat(underTest.matches(classLoader)).isFalse();
+  }
+
+  @Test
+  void shouldIgnoreInstrumentationsThatMatchAnyClassLoader() {
+    when(config.getBoolean(ENABLED_CONFIG, false)).thenReturn(true);
+    NeverMatchingClassLoadersMatcher underTest = NeverMatchingClassLoadersMatcher.create(config);
+    NeverMatchingClassLoadersMatcher.registerClassLoaderMatcher(cl -> false, RESTRICTED, any());
+    NeverMatchingClassLoadersMatcher.registerClassLoaderMatcher(cl -> true, any(), any());
+    underTest.instrumentationsInstalled();
+
+    assertThat(underTest.matches(new RejectedLoader(new ClassLoader() {}, APP_JAR))).isTrue();
+  }
+
+  @Test
+  void shouldSkipOnlyRestrictedInstrumentations() {
+    when(config.getBoolean(ENABLED_CONFIG, false)).thenReturn(true);
+    NeverMatchingClassLoadersMatcher underTest = NeverMatchingClassLoadersMatcher.create(config);
+    AtomicInteger restrictedMatches = new AtomicInteger();
+    ElementMatcher<ClassLoader> restricted =
+        NeverMatchingClassLoadersMatcher.registerClassLoaderMatcher(
+            cl -> {
+              restrictedMatches.incrementAndGet();
+              return false;
+            },
+            RESTRICTED,
+            any());
+    ElementMatcher<ClassLoader> unrestricted = cl -> true;
+    assertThat(
+            NeverMatchingClassLoadersMatcher.registerClassLoaderMatcher(unrestricted, any(), any()))
+        .isSameAs(unrestricted);
+    underTest.instrumentationsInstalled();
+
+    ClassLoader parent = new ClassLoader() {};
+    for (int i = 0; i < NeverMatchingClassLoadersMatcher.CONFIRMATIONS; i++) {
+      assertThat(restricted.matches(new RejectedLoader(parent, APP_JAR))).isFalse();
+    }
+    int matches = restrictedMatches.get();
+
+    // the restricted instrumentation skips the sibling without running its class loader matcher,
+    // the unrestricted one still applies to it
+    RejectedLoader sibling = new RejectedLoader(parent, APP_JAR);
+    assertThat(restricted.matches(sibling)).isFalse();
+    assertThat(restrictedMatches).hasValue(matches);
+    assertThat(unrestricted.matches(sibling)).isTrue();
+  }
+
+  @Test
+  void shouldNotChangeClassLoaderMatchersWhenDisabled() {
+    ElementMatcher<ClassLoader> matcher = cl -> false;
+
+    assertThat(
+            NeverMatchingClassLoadersMatcher.registerClassLoaderMatcher(matcher, RESTRICTED, any()))
+        .isSameAs(matcher);
+  }
+
+  @Test
+  void shouldNotIgnoreSiblingsOfMatchedClassLoaders() {
+    when(config.getBoolean(ENABLED_CONFIG, false)).thenReturn(true);
+    NeverMatchingClassLoadersMatcher underTest = NeverMatchingClassLoadersMatcher.create(config);
+    AtomicInteger matchedLoaders = new AtomicInteger();
+    NeverMatchingClassLoadersMatcher.registerClassLoaderMatcher(
+        cl -> cl instanceof MatchedLoader && matchedLoaders.getAndIncrement() == 0,
+        RESTRICTED,
+        any());
+    underTest.instrumentationsInstalled();
+
+    ClassLoader parent = new ClassLoader() {};
+    assertThat(underTest.matches(new MatchedLoader(parent))).isFalse();
+    for (int i = 0; i < NeverMatchingClassLoadersMatcher.CONFIRMATIONS + 1; i++) {
+      assertThat(underTest.matches(new MatchedLoader(parent))).isFalse();
+    }
+
+    assertThat(underTest.report())
+        .contains(
+            MatchedLoader.class.getName()
+                + " with parent "
+                + parent
+                + " and URLs ["
+                + APP_JAR
+                + "]: instrumented");
+  }
+
+  @Test
+  void shouldNotLearnBeforeInstrumentationsAreInstalled() {
+    when(config.getBoolean(ENABLED_CONFIG, false)).thenReturn(true);
+    NeverMatchingClassLoadersMatcher underTest = NeverMatchingClassLoadersMatcher.create(config);
+
+    assertThat(underTest.matches(new RejectedLoader(new ClassLoader() {}, APP_JAR))).isFalse();
+    assertThat(underTest.report()).isEmpty();
+  }
+
+  @Test
+  void shouldBeDisabledByDefault() {
+    assertThat(NeverMatchingClassLoadersMatcher.create(config)).isNull();
+  }
+
+  private static URL url(String spec) {
+    try {
+      return new URL(spec);
+    } catch (MalformedURLException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static class RejectedLoader extends URLClassLoader {
+    RejectedLoader(ClassLoader parent, URL... urls) {
+      super(urls, parent);
+    }
+
+    @Override
+    public void addURL(URL url) {
+      super.addURL(url);
+    }
+  }
+
+  private static class MatchedLoader extends URLClassLoader {
+    MatchedLoader(ClassLoader parent) {
+      super(new URL[] {APP_JAR}, parent);
+    }
+  }
+}
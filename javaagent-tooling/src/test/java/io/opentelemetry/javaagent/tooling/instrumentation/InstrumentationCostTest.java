@@ -0,0 +1,158 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.tooling.instrumentation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.opentelemetry.javaagent.tooling.instrumentation.InstrumentationCost.Phase;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import net.bytebuddy.agent.builder.AgentBuilder;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.matcher.ElementMatcher;
+import org.junit.jupiter.api.Test;
+
+class InstrumentationCostTest {
+
+  private static final long SLEEP_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+  private final AgentBuilder.Listener listener = new InstrumentationCost.TransformationListener();
+
+  @Test
+  void divideTransformationTimeBetweenInstrumentations() throws Exception {
+    InstrumentationCost first = new InstrumentationCost("first");
+    InstrumentationCost second = new InstrumentationCost("second");
+
+    discover("com.example.Foo");
+    start(first);
+    start(second);
+    // a second type instrumentation of the same instrumentation
+    start(first);
+    Thread.sleep(TimeUnit.NANOSECONDS.toMillis(SLEEP_NANOS));
+    transform("com.example.Foo");
+    complete("com.example.Foo");
+
+    assertThat(first.count(Phase.TRANSFORMATION)).isEqualTo(1);
+    assertThat(second.count(Phase.TRANSFORMATION)).isEqualTo(1);
+    assertThat(first.durationNanos(Phase.TRANSFORMATION))
+        .isEqualTo(second.durationNanos(Phase.TRANSFORMATION))
+        .isGreaterThanOrEqualTo(SLEEP_NANOS / 2);
+  }
+
+  @Test
+  void discardFailedTransformation() {
+    InstrumentationCost cost = new InstrumentationCost("cost");
+
+    discover("com.example.Foo");
+    start(cost);
+    complete("com.example.Foo");
+    // a transformation that no instrumentation applies to
+    discover("com.example.Bar");
+    transform("com.example.Bar");
+    complete("com.example.Bar");
+
+    assertThat(cost.count(Phase.TRANSFORMATION)).isZero();
+  }
+
+  @Test
+  void accumulatePerThread() throws Exception {
+    InstrumentationCost outer = new InstrumentationCost("outer");
+    InstrumentationCost other = new InstrumentationCost("other");
+
+    discover("com.example.Foo");
+    start(outer);
+
+    CountDownLatch done = new CountDownLatch(1);
+    Thread thread =
+        new Thread(
+            () -> {
+              discover("com.example.Bar");
+              start(other);
+              transform("com.example.Bar");
+              complete("com.example.Bar");
+              done.countDown();
+            });
+    thread.start();
+    assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+
+    assertThat(other.count(Phase.TRANSFORMATION)).isEqualTo(1);
+    assertThat(outer.count(Phase.TRANSFORMATION)).isZero();
+
+    transform("com.example.Foo");
+    complete("com.example.Foo");
+
+    assertThat(outer.count(Phase.TRANSFORMATION)).isEqualTo(1);
+    assertThat(other.count(Phase.TRANSFORMATION)).isEqualTo(1);
+  }
+
+  @Test
+  void nestedTransformation() throws Exception {
+    InstrumentationCost outer = new InstrumentationCost("outer");
+    InstrumentationCost nested = new InstrumentationCost("nested");
+
+    discover("com.example.Foo");
+    start(outer);
+    // loading another class while the outer class is transformed
+    discover("com.example.Bar");
+    start(nested);
+    Thread.sleep(TimeUnit.NANOSECONDS.toMillis(SLEEP_NANOS));
+    transform("com.example.Bar");
+    complete("com.example.Bar");
+    transform("com.example.Foo");
+    complete("com.example.Foo");
+
+    assertThat(nested.count(Phase.TRANSFORMATION)).isEqualTo(1);
+    assertThat(nested.durationNanos(Phase.TRANSFORMATION)).isGreaterThanOrEqualTo(SLEEP_NANOS);
+    assertThat(outer.count(Phase.TRANSFORMATION)).isEqualTo(1);
+    // the outer class is not charged for the transformation of the nested class
+    assertThat(outer.durationNanos(Phase.TRANSFORMATION)).isLessThan(SLEEP_NANOS);
+  }
+
+  @Test
+  void timeMatching() {
+    InstrumentationCost cost = new InstrumentationCost("cost");
+    ElementMatcher<String> matcher = cost.timeMatching(target -> target.startsWith("com."));
+
+    assertThat(matcher.matches("com.example.Foo")).isTrue();
+    assertThat(matcher.matches("org.example.Foo")).isFalse();
+
+    assertThat(cost.count(Phase.TYPE_MATCHING)).isEqualTo(2);
+    assertThat(cost.count(Phase.TRANSFORMATION)).isZero();
+  }
+
+  @Test
+  void timeFailingMatcher() {
+    InstrumentationCost cost = new InstrumentationCost("cost");
+    ElementMatcher<String> matcher =
+        cost.timeMatching(
+            target -> {
+              throw new IllegalStateException("failed");
+            });
+
+    assertThatThrownBy(() -> matcher.matches("com.example.Foo"))
+        .isInstanceOf(IllegalStateException.class);
+
+    assertThat(cost.count(Phase.TYPE_MATCHING)).isEqualTo(1);
+  }
+
+  private void discover(String typeName) {
+    listener.onDiscovery(typeName, null, null, false);
+  }
+
+  private static void start(InstrumentationCost cost) {
+    cost.transformationStarted().transform(null, null, null, null, null);
+  }
+
+  private void transform(String typeName) {
+    listener.onTransformation(
+        new TypeDescription.Latent(typeName, 0, null), null, null, false, null);
+  }
+
+  private void complete(String typeName) {
+    listener.onComplete(typeName, null, null, false);
+  }
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package net.bytebuddy.agent.builder;
+
+import static io.opentelemetry.javaagent.extension.matcher.AgentElementMatchers.hasClassesNamed;
+import static net.bytebuddy.matcher.ElementMatchers.hasSuperType;
+import static net.bytebuddy.matcher.ElementMatchers.isAnnotatedWith;
+import static net.bytebuddy.matcher.ElementMatchers.nameStartsWith;
+import static net.bytebuddy.matcher.ElementMatchers.named;
+import static net.bytebuddy.matcher.ElementMatchers.none;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.opentelemetry.instrumentation.test.utils.GcUtils;
+import io.opentelemetry.javaagent.bootstrap.DefineClassHelper;
+import io.opentelemetry.javaagent.bootstrap.internal.ClassLoaderMatcherCacheHolder;
+import io.opentelemetry.javaagent.tooling.DefineClassHandler;
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.ref.WeakReference;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.description.annotation.AnnotationDescription;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.matcher.ElementMatcher;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class AgentBuilderUtilTest {
+
+  private final List<String> transformed = Collections.synchronizedList(new ArrayList<>());
+
+  @BeforeAll
+  static void setUp() {
+    DefineClassHelper.internalSetHandler(DefineClassHandler.INSTANCE);
+  }
+
+  @Test
+  void matchesByNamePrefix() throws Exception {
+    ClassFileTransformer transformer =
+        transformer(
+            AgentBuilderUtil.optimize(
+                agentBuilder()
+                    .type(nameStartsWith("com.example.internal."))
+                    .transform(record("prefix"))));
+
+    transform(transformer, new MarkerClassLoader(), "com.example.internal.Foo");
+    transform(transformer, new MarkerClassLoader(), "com.example.Foo");
+
+    assertThat(transformed).containsExactly("prefix com.example.internal.Foo");
+  }
+
+  @Test
+  void matchesOneOfNames() throws Exception {
+    ClassFileTransformer transformer =
+        transformer(
+            AgentBuilderUtil.optimize(
+                agentBuilder()
+                    .type(named("com.example.Client").or(named("com.example.AsyncClient")))
+                    .transform(record("named"))));
+
+    transform(transformer, new MarkerClassLoader(), "com.example.Client");
+    transform(transformer, new MarkerClassLoader(), "com.example.AsyncClient");
+    transform(transformer, new MarkerClassLoader(), "com.example.Server");
+
+    assertThat(transformed)
+        .containsExactly("named com.example.Client", "named com.example.AsyncClient");
+  }
+
+  @Test
+  void skipsTransformationsThatRequireMissingClasses() throws Exception {
+    ClassFileTransformer transformer =
+        transformer(
+            AgentBuilderUtil.optimize(
+                agentBuilder()
+                    .type(isAnnotatedWith(Deprecated.class), hasClassesNamed("com.example.Marker"))
+                    .transform(record("present"))
+                    .type(isAnnotatedWith(Deprecated.class), hasClassesNamed("com.example.Missing"))
+                    .transform(record("missing"))));
+
+    transform(transformer, new MarkerClassLoader(), "com.example.Foo");
+    transform(transformer, new MarkerClassLoader(), "com.example.Bar");
+
+    assertThat(transformed).containsExactly("present com.example.Foo", "present com.example.Bar");
+  }
+
+  @Test
+  void reevaluatesMissingClassesAfterCacheInvalidation() throws Exception {
+    ClassFileTransformer transformer =
+        transformer(
+            AgentBuilderUtil.optimize(
+                agentBuilder()
+                    .type(isAnnotatedWith(Deprecated.class), hasClassesNamed("com.example.Added"))
+                    .transform(record("added"))));
+
+    MarkerClassLoader classLoader = new MarkerClassLoader();
+    transform(transformer, classLoader, "com.example.Foo");
+    classLoader.resources.add("com/example/Added.class");
+    transform(transformer, classLoader, "com.example.Bar");
+    ClassLoaderMatcherCacheHolder.invalidateAllCachesForClassLoader(classLoader);
+    transform(transformer, classLoader, "com.example.Baz");
+
+    assertThat(transformed).containsExactly("added com.example.Baz");
+  }
+
+  @Test
+  void doesNotRetainTransformedClassLoader() throws Exception {
+    ClassFileTransformer transformer =
+        transformer(
+            AgentBuilderUtil.optimize(
+                agentBuilder()
+                    .type(isAnnotatedWith(Deprecated.class), hasClassesNamed("com.example.Marker"))
+                    .transform(record("present"))));
+
+    ClassLoader classLoader = new MarkerClassLoader();
+    transform(transformer, classLoader, "com.example.Foo");
+    WeakReference<ClassLoader> classLoaderReference = new WeakReference<>(classLoader);
+    classLoader = null;
+
+    GcUtils.awaitGc(classLoaderReference, Duration.ofSeconds(10));
+
+    assertThat(classLoaderReference.get()).isNull();
+    assertThat(transformed).containsExactly("present com.example.Foo");
+  }
+
+  @Test
+  void retransformationMatcherSelectsTransformationsWithoutTransformContext() {
+    AtomicInteger namedMatches = new AtomicInteger();
+    ElementMatcher.Junction<TypeDescription> countNamedMatches =
+        new ElementMatcher.Junction.AbstractBase<TypeDescription>() {
+          @Override
+          public boolean matches(TypeDescription target) {
+            namedMatches.incrementAndGet();
+            return true;
+          }
+        };
+    AgentBuilder.RawMatcher matcher =
+        AgentBuilderUtil.retransformationMatcher(
+            AgentBuilderUtil.optimize(
+                agentBuilder()
+                    .type(hasSuperType(named(Runnable.class.getName())))
+                    .transform(record("subtype"))
+                    .type(countNamedMatches.and(named(Client.class.getName())))
+                    .transform(record("named"))));
+
+    // not matched while byte buddy transforms a class on this thread, like on the threads that
+    // match the loaded classes in parallel
+    assertThat(matches(matcher, Client.class)).isTrue();
+    assertThat(matches(matcher, Task.class)).isTrue();
+    assertThat(matches(matcher, Server.class)).isFalse();
+    // the transformation that matches by name only runs for the class with that name
+    assertThat(namedMatches).hasValue(1);
+  }
+
+  private static boolean matches(AgentBuilder.RawMatcher matcher, Class<?> type) {
+    return matcher.matches(
+        TypeDescription.ForLoadedType.of(type), type.getClassLoader(), null, type, null);
+  }
+
+  static class Client {}
+
+  static class Server {}
+
+  static class Task implements Runnable {
+    @Override
+    public void run() {}
+  }
+
+  private static AgentBuilder agentBuilder() {
+    return new AgentBuilder.Default(new ByteBuddy())
+        .with(AgentBuilder.DescriptionStrategy.Default.POOL_ONLY)
+        .disableClassFormatChanges()
+        .ignore(none());
+  }
+
+  private static ClassFileTransformer transformer(AgentBuilder agentBuilder) {
+    return agentBuilder.makeRaw();
+  }
+
+  private AgentBuilder.Transformer record(String transformation) {
+    return (builder, typeDescription, classLoader, module, protectionDomain) -> {
+      transformed.add(transformation + " " + typeDescription.getName());
+      return builder;
+    };
+  }
+
+  private static void transform(
+      ClassFileTransformer transformer, ClassLoader classLoader, String className)
+      throws Exception {
+    byte[] classBytes =
+        new ByteBuddy()
+            .subclass(Object.class)
+            .name(className)
+            .annotateType(AnnotationDescription.Builder.ofType(Deprecated.class).build())
+            .make()
+            .getBytes();
+    DefineClassHelper.Handler.DefineClassContext context =
+        DefineClassHandler.INSTANCE.beforeDefineClass(
+            classLoader, className, classBytes, 0, classBytes.length);
+    try {
+      transformer.transform(classLoader, className.replace('.', '/'), null, null, classBytes);
+    } finally {
+      DefineClassHandler.INSTANCE.afterDefineClass(context);
+    }
+  }
+
+  private static class MarkerClassLoader extends ClassLoader {
+    final Set<String> resources = ConcurrentHashMap.newKeySet();
+
+    MarkerClassLoader() {
+      super(AgentBuilderUtilTest.class.getClassLoader());
+      resources.add("com/example/Marker.class");
+    }
+
+    @Override
+    protected URL findResource(String name) {
+      if (resources.contains(name)) {
+        try {
+          return new URL("file:/" + name);
+        } catch (MalformedURLException e) {
+          throw new IllegalStateException(e);
+        }
+      }
+      return null;
+    }
+  }
+}
@@ -240,6 +240,50 @@ tasks {
     dependsOn(shadowJar, baseJavaagentJar)
   }
 
+  // stores the entries of the agent jar without compression, the agent class loader then defines
+  // classes directly from the memory mapped agent jar instead of inflating them, which makes the
+  // agent start faster at the cost of a larger agent jar
+  if (findProperty("uncompressedJavaagentJar") == "true") {
+    listOf(shadowJar, baseJavaagentJar).forEach {
+      it.configure {
+        entryCompression = ZipEntryCompression.STORED
+      }
+    }
+  }
+
+  // runs the agent once to record the classes it loads during startup into a dynamic class data
+  // sharing archive, the archive can only be used with the same JVM that created it, which can be
+  // selected with -PcdsJavaVersion
+  val cdsTrainingRun by registering(JavaExec::class) {
+    dependsOn(shadowJar)
+
+    val trainingDir = layout.buildDirectory.dir("tmp/cdsTrainingRun")
+    val archiveFile = layout.buildDirectory.file("cds/opentelemetry-javaagent.jsa")
+    outputs.file(archiveFile)
+
+    // the main class is loaded from the agent jar, which the jvm appends to the class path; the
+    // class path is left empty so that the archive can be used with any application class path
+    mainClass.set("io.opentelemetry.javaagent.OpenTelemetryAgent")
+    workingDir(trainingDir)
+    jvmArgumentProviders.add(CdsTrainingRunProvider(shadowJar.flatMap { it.archiveFile }, archiveFile))
+
+    val cdsJavaVersion = findProperty("cdsJavaVersion")
+    if (cdsJavaVersion != null) {
+      javaLauncher.set(
+        javaToolchains.launcherFor {
+          languageVersion.set(JavaLanguageVersion.of(cdsJavaVersion.toString()))
+        }
+      )
+    }
+
+    doFirst {
+      delete(archiveFile)
+      delete(trainingDir)
+      mkdir(trainingDir)
+      mkdir(archiveFile.get().asFile.parentFile)
+    }
+  }
+
   if (findProperty("removeJarVersionNumbers") == "true") {
     withType<AbstractArchiveTask>().configureEach {
       archiveVersion.set("")
@@ -424,3 +468,23 @@ class JavaagentProvider(
     "-Dotel.javaagent.testing.transform-safe-logging.enabled=true"
   )
 }
+
+class CdsTrainingRunProvider(
+  @InputFile
+  @PathSensitive(PathSensitivity.RELATIVE)
+  val agentJar: Provider<RegularFile>,
+  @Internal
+  val archiveFile: Provider<RegularFile>,
+) : CommandLineArgumentProvider {
+  override fun asArguments(): Iterable<String> = listOf(
+    "-javaagent:${file(agentJar).absolutePath}",
+    "-XX:ArchiveClassesAtExit=${file(archiveFile).absolutePath}",
+    // required for creating and using an archive while a java agent is attached
+    "-XX:+UnlockDiagnosticVMOptions",
+    "-XX:+AllowArchivingWithJavaAgent",
+    "-Dotel.javaagent.experimental.cds.training-run=true",
+    "-Dotel.traces.exporter=none",
+    "-Dotel.metrics.exporter=none",
+    "-Dotel.logs.exporter=none"
+  )
+}
@@ -5,9 +5,13 @@
 
 package io.opentelemetry.javaagent.tooling;
 
+import io.opentelemetry.instrumentation.api.internal.cache.Cache;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.ref.SoftReference;
 import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import net.bytebuddy.dynamic.DynamicType;
 import net.bytebuddy.utility.StreamDrainer;
 
@@ -31,7 +35,8 @@ public abstract class BytecodeWithUrl {
 
   /**
    * Provides the bytecode of the class. The result is the same as calling {@link URL#openStream()}
-   * on {@link #getUrl()} and draining that stream.
+   * on {@link #getUrl()} and draining that stream. The returned array may be shared with other
+   * callers and must not be modified.
    *
    * @return the bytecode of the class.
    */
@@ -99,6 +104,11 @@ public abstract class BytecodeWithUrl {
 
   private static class Lazy extends BytecodeWithUrl {
 
+    // bytecode that was already read, shared by all instances that read the same class file, so
+    // that a helper class that is injected into many class loaders is read only once
+    private static final Cache<ClassLoader, Map<String, SoftReference<byte[]>>> sharedBytecode =
+        Cache.weak();
+
     private final ClassLoader classLoader;
     private final String resourceName;
 
@@ -119,6 +129,18 @@ public abstract class BytecodeWithUrl {
 
     @Override
     public byte[] getBytecode() {
+      Map<String, SoftReference<byte[]>> classLoaderBytecode =
+          sharedBytecode.computeIfAbsent(classLoader, unused -> new ConcurrentHashMap<>());
+      SoftReference<byte[]> reference = classLoaderBytecode.get(resourceName);
+      byte[] bytecode = reference != null ? reference.get() : null;
+      if (bytecode == null) {
+        bytecode = readBytecode();
+        classLoaderBytecode.put(resourceName, new SoftReference<>(bytecode));
+      }
+      return bytecode;
+    }
+
+    private byte[] readBytecode() {
       try (InputStream bytecodeStream = getUrl().openStream()) {
         return StreamDrainer.DEFAULT.drain(bytecodeStream);
       } catch (IOException e) {
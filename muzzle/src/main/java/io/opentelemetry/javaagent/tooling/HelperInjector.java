@@ -28,7 +28,9 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
+import java.util.function.ObjLongConsumer;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
@@ -62,6 +64,14 @@ public class HelperInjector implements Transformer {
   // see https://github.com/open-telemetry/opentelemetry-java-contrib/tree/main/static-instrumenter
   private static volatile HelperInjectorListener helperInjectorListener;
 
+  // receives the name of the instrumentation and how long injecting its helpers into a class loader
+  // took, used for the instrumentation cost metrics of the agent
+  @Nullable private static volatile ObjLongConsumer<String> injectionTimeListener;
+
+  // whether all helper classes of an instrumentation are defined at once when the first of them is
+  // loaded, instead of one at a time as they are loaded
+  private static volatile boolean batchInjection;
+
   static {
     InjectedClassHelper.internalSetHelperClassDetector(HelperInjector::isInjectedClass);
     InjectedClassHelper.internalSetHelperClassLoader(HelperInjector::loadHelperClass);
@@ -161,6 +171,14 @@ public class HelperInjector implements Transformer {
     helperInjectorListener = listener;
   }
 
+  public static void setInjectionTimeListener(@Nullable ObjLongConsumer<String> listener) {
+    injectionTimeListener = listener;
+  }
+
+  public static void setBatchInjection(boolean enabled) {
+    batchInjection = enabled;
+  }
+
   @Override
   @CanIgnoreReturnValue
   public DynamicType.Builder<?> transform(
@@ -172,6 +190,9 @@ public class HelperInjector implements Transformer {
     injectedClassLoaders.computeIfAbsent(
         maskNullClassLoader(classLoader),
         cl -> {
+          ObjLongConsumer<String> timeListener = injectionTimeListener;
+          long startTime = timeListener != null ? System.nanoTime() : 0;
+
           List<HelperClassDefinition> helpers =
               helperClassesGenerator.apply(unmaskNullClassLoader(cl));
 
@@ -200,6 +221,9 @@ public class HelperInjector implements Transformer {
           if (!isBootClassLoader(cl)) {
             injectHelperResources(cl, classResourcesToInject);
           }
+          if (timeListener != null) {
+            timeListener.accept(requestingName, System.nanoTime() - startTime);
+          }
           return true;
         });
     return builder;
@@ -275,13 +299,17 @@ public class HelperInjector implements Transformer {
 
       Map<String, HelperClassInjector> map =
           helperInjectors.computeIfAbsent(classLoader, (unused) -> new ConcurrentHashMap<>());
+      HelperClassBatch batch =
+          batchInjection && !isBootClassLoader(classLoader)
+              ? new HelperClassBatch(requestingName, classnameToBytes)
+              : null;
       for (Map.Entry<String, Supplier<byte[]>> entry : classnameToBytes.entrySet()) {
         // for boot loader we use a placeholder injector, we only need these classes to be
         // in the injected classes map to later tell which of the classes are injected
         HelperClassInjector injector =
             isBootClassLoader(classLoader)
                 ? BOOT_CLASS_INJECTOR
-                : new HelperClassInjector(entry.getValue());
+                : new HelperClassInjector(entry.getValue(), batch);
         map.put(entry.getKey(), injector);
       }
 
@@ -394,12 +422,22 @@ public class HelperInjector implements Transformer {
 
   private static class HelperClassInjector {
     private final Supplier<byte[]> bytes;
+    @Nullable private final HelperClassBatch batch;
 
     HelperClassInjector(Supplier<byte[]> bytes) {
+      this(bytes, null);
+    }
+
+    HelperClassInjector(Supplier<byte[]> bytes, @Nullable HelperClassBatch batch) {
       this.bytes = bytes;
+      this.batch = batch;
     }
 
     Class<?> inject(ClassLoader classLoader, String className) {
+      if (batch != null) {
+        batch.inject(classLoader);
+      }
+      // when the class was already defined by the batch this only looks it up
       // if security manager is present byte buddy calls
       // checkPermission(new ReflectPermission("suppressAccessChecks")) so we must call class
       // injection with AccessController.doPrivileged when security manager is enabled
@@ -412,6 +450,49 @@ public class HelperInjector implements Transformer {
     }
   }
 
+  /**
+   * The helper classes that one instrumentation injects into one class loader, which are defined
+   * together when the first of them is loaded. Defining them together saves setting up the
+   * injection for each class, and the classes that the batch fails to define are still defined one
+   * at a time when they are loaded.
+   */
+  private static class HelperClassBatch {
+    private final String requestingName;
+    private final Map<String, Supplier<byte[]>> classes;
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    HelperClassBatch(String requestingName, Map<String, Supplier<byte[]>> classes) {
+      this.requestingName = requestingName;
+      this.classes = classes;
+    }
+
+    void inject(ClassLoader classLoader) {
+      // defining a class loads its super types, which may be helper classes of this batch that are
+      // then defined one at a time by the nested call
+      if (!started.compareAndSet(false, true)) {
+        return;
+      }
+      ObjLongConsumer<String> timeListener = injectionTimeListener;
+      long startTime = timeListener != null ? System.nanoTime() : 0;
+      try {
+        Map<String, byte[]> classnameToBytes = resolve(classes);
+        execute(
+            () ->
+                new ClassInjector.UsingReflection(classLoader, PROTECTION_DOMAIN)
+                    .injectRaw(classnameToBytes));
+      } catch (RuntimeException | LinkageError e) {
+        logger.log(
+            FINE,
+            "Failed to define the helper classes of {0} at once in {1}, defining them one at a time",
+            new Object[] {requestingName, classLoader},
+            e);
+      }
+      if (timeListener != null) {
+        timeListener.accept(requestingName, System.nanoTime() - startTime);
+      }
+    }
+  }
+
   @SuppressWarnings("removal") // AccessController is deprecated for removal
   private static <T> T execute(PrivilegedAction<T> action) {
     if (System.getSecurityManager() != null) {
@@ -10,6 +10,7 @@ import io.opentelemetry.instrumentation.api.internal.cache.Cache;
 import io.opentelemetry.javaagent.bootstrap.InstrumentationHolder;
 import io.opentelemetry.javaagent.bootstrap.VirtualFieldAccessorMarker;
 import io.opentelemetry.javaagent.bootstrap.internal.AgentInstrumentationConfig;
+import java.io.IOException;
 import java.lang.instrument.Instrumentation;
 import java.lang.ref.WeakReference;
 import java.lang.reflect.Method;
@@ -46,6 +47,12 @@ import net.bytebuddy.utility.JavaModule;
  * entire application -- without having to create a large number of WeakReference objects.
  *
  * <p>Eviction is handled through a size restriction
+ *
+ * <p>When {@code otel.javaagent.experimental.content-type-cache.enabled} is set, the parsed class
+ * files are additionally shared between class loaders through a cache keyed by the content of the
+ * class file, so that a class that is loaded from the same jar by many class loaders, e.g. in an
+ * application server with many identical deployments, is parsed only once. Every type pool still
+ * resolves the types that such a class refers to with its own class loader.
  */
 public class AgentCachingPoolStrategy implements AgentBuilder.PoolStrategy {
 
@@ -55,6 +62,9 @@ public class AgentCachingPoolStrategy implements AgentBuilder.PoolStrategy {
   private static final boolean REFLECTION_ENABLED =
       AgentInstrumentationConfig.get()
           .getBoolean("otel.instrumentation.internal-reflection.enabled", true);
+  private static final boolean CONTENT_TYPE_CACHE_ENABLED =
+      AgentInstrumentationConfig.get()
+          .getBoolean("otel.javaagent.experimental.content-type-cache.enabled", false);
   private static final Method findLoadedClassMethod = getFindLoadedClassMethod();
 
   static final int TYPE_CAPACITY = 64;
@@ -75,16 +85,32 @@ public class AgentCachingPoolStrategy implements AgentBuilder.PoolStrategy {
    * Single shared Type.Resolution cache -- uses a composite key -- conceptually of loader & name
    */
   final Cache<TypeCacheKey, TypePool.Resolution> sharedResolutionCache =
-      Cache.bounded(TYPE_CAPACITY);
+      Cache.bounded("type resolutions", TYPE_CAPACITY);
 
   // fast path for bootstrap
   final SharedResolutionCacheAdapter bootstrapCacheProvider =
       new SharedResolutionCacheAdapter(BOOTSTRAP_HASH, null, sharedResolutionCache);
 
+  /**
+   * Parsed class files shared between class loaders, keyed by the content of the class file. Every
+   * type pool creates its own type description from a parsed class file, see {@link
+   * ParsedClassFile}.
+   */
+  @Nullable final ContentTypeCache<ParsedClassFile> contentTypeCache;
+
+  @Nullable private static volatile Runnable resolutionFailureListener;
+
   private final AgentLocationStrategy locationStrategy;
 
   public AgentCachingPoolStrategy(AgentLocationStrategy locationStrategy) {
+    this(locationStrategy, CONTENT_TYPE_CACHE_ENABLED);
+  }
+
+  AgentCachingPoolStrategy(
+      AgentLocationStrategy locationStrategy, boolean contentTypeCacheEnabled) {
     this.locationStrategy = locationStrategy;
+    this.contentTypeCache =
+        contentTypeCacheEnabled && ParsedClassFile.isAvailable() ? new ContentTypeCache<>() : null;
   }
 
   private static Method getFindLoadedClassMethod() {
@@ -119,6 +145,22 @@ public class AgentCachingPoolStrategy implements AgentBuilder.PoolStrategy {
     }
   }
 
+  /**
+   * Sets a callback that is run on the resolving thread whenever a type can't be resolved, or its
+   * class file can't be read. Matchers treat such types as not matching, so the caller can tell
+   * that the matching result of the type that is currently being transformed is not reliable.
+   */
+  public static void setResolutionFailureListener(@Nullable Runnable listener) {
+    resolutionFailureListener = listener;
+  }
+
+  private static void onResolutionFailure() {
+    Runnable listener = resolutionFailureListener;
+    if (listener != null) {
+      listener.run();
+    }
+  }
+
   private static boolean canUseFindLoadedClass() {
     return findLoadedClassMethod != null;
   }
@@ -347,13 +389,56 @@ public class AgentCachingPoolStrategy implements AgentBuilder.PoolStrategy {
     protected TypePool.Resolution doResolve(String name) {
       TypePool.Resolution resolution = cacheProvider.find(name);
       if (resolution == null) {
-        // calling super.doDescribe that will locate the class bytes and parse them unlike
-        // doDescribe in this class that returns a lazy resolution without parsing the class bytes
-        resolution = cacheProvider.register(name, super.doDescribe(name));
+        try {
+          // calling super.doDescribe that will locate the class bytes and parse them unlike
+          // doDescribe in this class that returns a lazy resolution without parsing the class
+          // bytes
+          resolution =
+              cacheProvider.register(
+                  name,
+                  contentTypeCache != null && ParsedClassFile.isAvailable()
+                      ? doDescribeByContent(contentTypeCache, name)
+                      : super.doDescribe(name));
+        } catch (RuntimeException exception) {
+          onResolutionFailure();
+          throw exception;
+        }
+      }
+      if (!resolution.isResolved()) {
+        onResolutionFailure();
       }
       return resolution;
     }
 
+    /** Like TypePool.Default.doDescribe, but parses the class bytes only when they are new. */
+    private TypePool.Resolution doDescribeByContent(
+        ContentTypeCache<ParsedClassFile> contentTypeCache, String name) {
+      byte[] classFile;
+      try {
+        ClassFileLocator.Resolution resolution = classFileLocator.locate(name);
+        if (!resolution.isResolved()) {
+          return new TypePool.Resolution.Illegal(name);
+        }
+        classFile = resolution.resolve();
+      } catch (IOException exception) {
+        throw new IllegalStateException("Error while reading class file", exception);
+      }
+      // the content of the class file is used as the key, so a class that was changed by another
+      // agent or by its class loader is not confused with the original class
+      ParsedClassFile parsed =
+          contentTypeCache.computeIfAbsent(
+              name,
+              classFile,
+              () -> ParsedClassFile.parse(classReaderFactory, readerMode, classFile));
+      // the type description resolves the types it refers to through this pool, exactly like a
+      // description that this pool parsed itself
+      TypeDescription typeDescription = parsed.toTypeDescription(this);
+      if (typeDescription == null) {
+        return super.doDescribe(name);
+      }
+      return new TypePool.Resolution.Simple(typeDescription);
+    }
+
     void enterLoadAnnotations() {
       loadingAnnotations.set(Boolean.TRUE);
     }
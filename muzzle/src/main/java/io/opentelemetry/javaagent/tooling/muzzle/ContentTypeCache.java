@@ -0,0 +1,151 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.tooling.muzzle;
+
+import static java.util.logging.Level.FINE;
+
+import io.opentelemetry.instrumentation.api.internal.cache.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import javax.annotation.Nullable;
+
+/**
+ * A cache of values keyed by the class name and the content of the class file, so that a class file
+ * that is loaded by many class loaders, e.g. a jar that is deployed in many applications of an
+ * application server, has to be parsed only once.
+ *
+ * <p>The capacity of the cache adapts to how well it works: it is doubled when entries are evicted
+ * while most lookups hit, and halved when most lookups miss.
+ */
+final class ContentTypeCache<V> {
+
+  private static final Logger logger = Logger.getLogger(ContentTypeCache.class.getName());
+
+  static final int MIN_CAPACITY = 256;
+  static final int MAX_CAPACITY = 4096;
+  // number of lookups after which the capacity is adapted
+  static final int ADAPT_INTERVAL = 4096;
+
+  private static final double GROW_HIT_RATE = 0.5;
+  private static final double SHRINK_HIT_RATE = 0.1;
+
+  private final ConcurrentLinkedHashMap<ContentKey, V> cache;
+  private final AtomicLong lookups = new AtomicLong();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  // hits and evictions when the capacity was adapted the last time, guarded by this
+  private long lastHits;
+  private long lastEvictions;
+
+  ContentTypeCache() {
+    cache =
+        new ConcurrentLinkedHashMap.Builder<ContentKey, V>()
+            .maximumWeightedCapacity(MIN_CAPACITY)
+            .listener((key, value) -> evictions.increment())
+            .build();
+  }
+
+  /**
+   * Returns the value cached for a class file with the given name and content, computing it with
+   * {@code valueSupplier} when there is none.
+   */
+  V computeIfAbsent(String className, byte[] classFile, Supplier<V> valueSupplier) {
+    ContentKey key = new ContentKey(className, classFile);
+    V value = cache.get(key);
+    if (value != null) {
+      hits.increment();
+    } else {
+      value = valueSupplier.get();
+      V existingValue = cache.putIfAbsent(key, value);
+      if (existingValue != null) {
+        value = existingValue;
+      }
+    }
+    if (lookups.incrementAndGet() % ADAPT_INTERVAL == 0) {
+      adaptCapacity();
+    }
+    return value;
+  }
+
+  /** Returns the share of lookups that found a cached value. */
+  double hitRate() {
+    long lookupCount = lookups.get();
+    return lookupCount == 0 ? 0 : hits.sum() / (double) lookupCount;
+  }
+
+  long capacity() {
+    return cache.capacity();
+  }
+
+  private synchronized void adaptCapacity() {
+    long currentHits = hits.sum();
+    long currentEvictions = evictions.sum();
+    double intervalHitRate = (currentHits - lastHits) / (double) ADAPT_INTERVAL;
+    boolean evicted = currentEvictions > lastEvictions;
+    lastHits = currentHits;
+    lastEvictions = currentEvictions;
+
+    long capacity = cache.capacity();
+    long newCapacity = capacity;
+    if (evicted && intervalHitRate >= GROW_HIT_RATE) {
+      newCapacity = Math.min(capacity * 2, MAX_CAPACITY);
+    } else if (intervalHitRate < SHRINK_HIT_RATE) {
+      newCapacity = Math.max(capacity / 2, MIN_CAPACITY);
+    }
+    if (newCapacity != capacity) {
+      cache.setCapacity(newCapacity);
+    }
+    if (logger.isLoggable(FINE)) {
+      logger.log(
+          FINE,
+          "Type description cache hit rate {0} (total {1}), capacity {2}",
+          new Object[] {intervalHitRate, hitRate(), newCapacity});
+    }
+  }
+
+  private static final class ContentKey {
+    private final String className;
+    private final int length;
+    // two independent checksums of the class file, so that class files with the same name and
+    // length that differ are practically never mistaken for each other
+    private final long crc;
+    private final int contentHash;
+
+    ContentKey(String className, byte[] classFile) {
+      CRC32 crc32 = new CRC32();
+      crc32.update(classFile, 0, classFile.length);
+      this.className = className;
+      this.length = classFile.length;
+      this.crc = crc32.getValue();
+      this.contentHash = Arrays.hashCode(classFile);
+    }
+
+    @Override
+    public boolean equals(@Nullable Object obj) {
+      if (obj == this) {
+        return true;
+      }
+      if (!(obj instanceof ContentKey)) {
+        return false;
+      }
+      ContentKey other = (ContentKey) obj;
+      return length == other.length
+          && crc == other.crc
+          && contentHash == other.contentHash
+          && className.equals(other.className);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * contentHash + className.hashCode();
+    }
+  }
+}
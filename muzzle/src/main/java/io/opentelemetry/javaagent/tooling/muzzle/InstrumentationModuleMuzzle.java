@@ -11,6 +11,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import javax.annotation.Nullable;
 
 /**
  * This interface contains methods that muzzle automatically adds to the {@link
@@ -34,6 +35,26 @@ public interface InstrumentationModuleMuzzle {
     }
   }
 
+  /**
+   * Returns the {@link #getMuzzleReferences() references} in a compact form that can be checked
+   * without creating the {@link ClassRef} objects, or {@code null} when the module was compiled
+   * without one.
+   */
+  @Nullable
+  default ReferenceIndex getMuzzleReferenceIndex() {
+    return null;
+  }
+
+  /** See {@link #getMuzzleReferenceIndex()}. */
+  @Nullable
+  static ReferenceIndex getMuzzleReferenceIndex(InstrumentationModule module) {
+    if (module instanceof InstrumentationModuleMuzzle) {
+      return ((InstrumentationModuleMuzzle) module).getMuzzleReferenceIndex();
+    } else {
+      return null;
+    }
+  }
+
   /**
    * Builds the associations between instrumented library classes and instrumentation context
    * classes. Keys (and their subclasses) will be associated with a context class stored in the
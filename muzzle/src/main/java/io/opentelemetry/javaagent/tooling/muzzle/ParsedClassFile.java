@@ -0,0 +1,192 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.tooling.muzzle;
+
+import static java.util.logging.Level.FINE;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import javax.annotation.Nullable;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.ClassFileLocator;
+import net.bytebuddy.pool.TypePool;
+import net.bytebuddy.utility.AsmClassReader;
+import org.objectweb.asm.ClassReader;
+
+/**
+ * A class file parsed by {@link TypePool.Default}, that every type pool creates its own type
+ * description from. {@code TypePool.Default.TypeExtractor} collects the tokens of a class file
+ * while it's parsed and creates a type description from them that resolves the types it refers to,
+ * e.g. its super types and the types of its methods, with the pool that the extractor belongs to. A
+ * parsed class file keeps the tokens, and hands them to an extractor of the requesting pool, so the
+ * type description is created like one that this pool parsed itself, but without parsing the class
+ * file again.
+ *
+ * <p>The tokens are handed over by setting the fields of the extractor that aren't final, and by
+ * adding to the collections that the final fields hold, so no final field is ever written.
+ */
+final class ParsedClassFile {
+
+  private static final Logger logger = Logger.getLogger(ParsedClassFile.class.getName());
+
+  // the tokens of a parsed class file never resolve types through this pool
+  private static final TypePool.Default placeholderTypePool = new ExtractorAccess();
+
+  private static final List<Field> valueFields = new ArrayList<>();
+  private static final List<Field> collectionFields = new ArrayList<>();
+  private static final List<Field> mapFields = new ArrayList<>();
+  private static volatile boolean available;
+
+  static {
+    try {
+      for (Field field : ExtractorAccess.Extractor.class.getSuperclass().getDeclaredFields()) {
+        int modifiers = field.getModifiers();
+        // the extractor is an inner class, its pool is set by the constructor
+        if (Modifier.isStatic(modifiers) || field.isSynthetic()) {
+          continue;
+        }
+        field.setAccessible(true);
+        if (!Modifier.isFinal(modifiers)) {
+          valueFields.add(field);
+        } else if (Collection.class.isAssignableFrom(field.getType())) {
+          collectionFields.add(field);
+        } else if (Map.class.isAssignableFrom(field.getType())) {
+          mapFields.add(field);
+        } else {
+          throw new IllegalStateException("Unexpected final field " + field);
+        }
+      }
+      available = probe();
+    } catch (RuntimeException | LinkageError exception) {
+      logger.log(FINE, "Parsed class files can't be shared", exception);
+    }
+  }
+
+  // creates a type description from the tokens of a parsed class file, and compares it with the
+  // type description that byte buddy creates when it parses the class file itself
+  private static boolean probe() {
+    byte[] classFile = ClassFileLocator.ForClassLoader.read(ParsedClassFile.class);
+    TypePool.Default typePool =
+        new TypePool.Default(
+            new TypePool.CacheProvider.Simple(),
+            ClassFileLocator.ForClassLoader.of(ParsedClassFile.class.getClassLoader()),
+            TypePool.Default.ReaderMode.FAST);
+    TypeDescription expected = typePool.describe(ParsedClassFile.class.getName()).resolve();
+    TypeDescription actual =
+        parse(AsmClassReader.Factory.Default.INSTANCE, TypePool.Default.ReaderMode.FAST, classFile)
+            .createTypeDescription(typePool);
+    if (!expected.getName().equals(actual.getName())
+        || expected.getModifiers() != actual.getModifiers()
+        || !expected.getDeclaredFields().equals(actual.getDeclaredFields())
+        || !expected.getDeclaredMethods().equals(actual.getDeclaredMethods())) {
+      logger.log(FINE, "Parsed class files can't be shared, type descriptions differ");
+      return false;
+    }
+    return true;
+  }
+
+  private final ExtractorAccess.Extractor tokens;
+
+  private ParsedClassFile(ExtractorAccess.Extractor tokens) {
+    this.tokens = tokens;
+  }
+
+  /** Returns whether parsed class files can be shared with this version of Byte Buddy. */
+  static boolean isAvailable() {
+    return available;
+  }
+
+  /** Parses the given class file like a type pool with the given reader factory and mode. */
+  static ParsedClassFile parse(
+      AsmClassReader.Factory classReaderFactory,
+      TypePool.Default.ReaderMode readerMode,
+      byte[] classFile) {
+    ExtractorAccess.Extractor extractor = new ExtractorAccess.Extractor(placeholderTypePool);
+    // the flags of the reader mode, which are not visible
+    classReaderFactory
+        .make(classFile)
+        .accept(
+            extractor, readerMode.isExtended() ? ClassReader.SKIP_FRAMES : ClassReader.SKIP_CODE);
+    return new ParsedClassFile(extractor);
+  }
+
+  /**
+   * Returns a type description of the parsed class file that resolves the types it refers to with
+   * the given type pool, or {@code null} when it can't be created.
+   */
+  @Nullable
+  TypeDescription toTypeDescription(TypePool.Default typePool) {
+    if (!available) {
+      return null;
+    }
+    try {
+      return createTypeDescription(typePool);
+    } catch (RuntimeException exception) {
+      // don't try again for every class that is described
+      available = false;
+      logger.log(
+          FINE, "Failed to create type description, parsed class files aren't shared", exception);
+      return null;
+    }
+  }
+
+  private TypeDescription createTypeDescription(TypePool.Default typePool) {
+    ExtractorAccess.Extractor extractor = new ExtractorAccess.Extractor(typePool);
+    try {
+      for (Field field : valueFields) {
+        field.set(extractor, field.get(tokens));
+      }
+      for (Field field : collectionFields) {
+        addAll(field.get(extractor), field.get(tokens));
+      }
+      for (Field field : mapFields) {
+        putAll(field.get(extractor), field.get(tokens));
+      }
+    } catch (IllegalAccessException exception) {
+      throw new IllegalStateException(exception);
+    }
+    return extractor.toTypeDescription();
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void addAll(Object target, Object source) {
+    ((Collection<Object>) target).addAll((Collection<Object>) source);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void putAll(Object target, Object source) {
+    ((Map<Object, Object>) target).putAll((Map<Object, Object>) source);
+  }
+
+  // the type extractor of TypePool.Default is only visible to its subclasses
+  private static final class ExtractorAccess extends TypePool.Default {
+
+    ExtractorAccess() {
+      super(
+          TypePool.CacheProvider.NoOp.INSTANCE,
+          ClassFileLocator.NoOp.INSTANCE,
+          TypePool.Default.ReaderMode.FAST);
+    }
+
+    private static class Extractor extends TypeExtractor {
+
+      Extractor(TypePool.Default typePool) {
+        typePool.super();
+      }
+
+      // toTypeDescription() is protected
+      @Override
+      protected TypeDescription toTypeDescription() {
+        return super.toTypeDescription();
+      }
+    }
+  }
+}
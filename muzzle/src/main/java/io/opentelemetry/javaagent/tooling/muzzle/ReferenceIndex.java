@@ -0,0 +1,478 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.tooling.muzzle;
+
+import io.opentelemetry.javaagent.tooling.muzzle.references.ClassRef;
+import io.opentelemetry.javaagent.tooling.muzzle.references.ClassRefBuilder;
+import io.opentelemetry.javaagent.tooling.muzzle.references.FieldRef;
+import io.opentelemetry.javaagent.tooling.muzzle.references.Flag;
+import io.opentelemetry.javaagent.tooling.muzzle.references.MethodRef;
+import io.opentelemetry.javaagent.tooling.muzzle.references.Source;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import net.bytebuddy.description.field.FieldDescription;
+import net.bytebuddy.description.method.MethodDescription;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.pool.TypePool;
+import org.objectweb.asm.Type;
+
+/**
+ * A compact representation of the muzzle references of an instrumentation module, generated at
+ * compile time next to {@code InstrumentationModule#getMuzzleReferences()}.
+ *
+ * <p>All strings are stored once in a string table and the references are a flat array of string
+ * table indexes, counts and flag bitsets, so the references can be checked against a class loader
+ * without creating {@link ClassRef} objects. The strings are class names, member names and type
+ * descriptors, which are relocated when the agent is shaded, the same as in {@code
+ * getMuzzleReferences()}. Method descriptors are stored as their return and parameter types for the
+ * same reason, and are put together when the index is decoded.
+ *
+ * <p>The layout of a class reference is: class name, flags, super class name (-1 for none),
+ * interface count and names, field count and fields, method count and methods, source count and
+ * sources. A field is: name, descriptor, flags, declared (0 or 1), source count and sources. A
+ * method is: name, descriptor, flags, source count and sources. A source is: name, line. In the
+ * encoded form the super class name is shifted by one, so that none is 0, and the method descriptor
+ * is stored as the return type, parameter count and parameter types.
+ */
+public final class ReferenceIndex {
+
+  // a flag is stored as the bit at its position in this array
+  private static final Flag[] FLAGS = allFlags();
+
+  // constant strings in the class file are limited to 65535 bytes of modified UTF-8, in which a
+  // char takes up to 3 bytes
+  private static final int MAX_CHUNK_LENGTH = 16 * 1024;
+
+  private final String[] strings;
+  private final int[] data;
+  private final int classCount;
+
+  private ReferenceIndex(String[] strings, int[] data, int classCount) {
+    this.strings = strings;
+    this.data = data;
+    this.classCount = classCount;
+  }
+
+  /**
+   * Decodes an index that was created by {@link #encode(Collection)}. Called by the code that
+   * muzzle generates in the instrumentation modules.
+   */
+  public static ReferenceIndex decode(String[] strings, String[] encodedData) {
+    Decoder decoder = new Decoder(strings, String.join("", encodedData));
+    return decoder.decode();
+  }
+
+  /** Encodes the given references, for the code that muzzle generates at compile time. */
+  public static Encoded encode(Collection<ClassRef> references) {
+    Encoder encoder = new Encoder();
+    encoder.writeInt(references.size());
+    for (ClassRef reference : references) {
+      encoder.writeClass(reference);
+    }
+    return new Encoded(encoder.strings.keySet().toArray(new String[0]), encoder.chunks());
+  }
+
+  /** Returns the number of class references. */
+  int size() {
+    return classCount;
+  }
+
+  /**
+   * Returns whether all references match the types in the given pool. Helper classes are checked by
+   * {@code helperClassMatcher} instead.
+   */
+  boolean matches(
+      TypePool typePool,
+      Predicate<String> helperClassPredicate,
+      Predicate<String> helperClassMatcher) {
+    int offset = 0;
+    for (int i = 0; i < classCount; i++) {
+      String className = strings[data[offset]];
+      boolean matches;
+      try {
+        if (helperClassPredicate.test(className)) {
+          matches = helperClassMatcher.test(className);
+        } else {
+          TypePool.Resolution resolution = typePool.describe(className);
+          matches = resolution.isResolved() && matchesType(offset, resolution.resolve());
+        }
+      } catch (RuntimeException e) {
+        // byte buddy throws an exception when it can't resolve the types that are needed to check
+        // the reference, which is a mismatch too
+        matches = false;
+      }
+      if (!matches) {
+        return false;
+      }
+      offset = skipClass(offset);
+    }
+    return true;
+  }
+
+  private boolean matchesType(int offset, TypeDescription typeOnClasspath) {
+    if (!flagsMatch(data[offset + 1], typeOnClasspath.getActualModifiers(false))) {
+      return false;
+    }
+    int position = offset + 3;
+    position += 1 + data[position];
+
+    int fieldCount = data[position++];
+    for (int i = 0; i < fieldCount; i++) {
+      FieldDescription.InDefinedShape fieldDescription =
+          ReferenceMatcher.findField(
+              strings[data[position]], strings[data[position + 1]], typeOnClasspath);
+      if (fieldDescription == null
+          || !flagsMatch(data[position + 2], fieldDescription.getModifiers())) {
+        return false;
+      }
+      position = skipSources(position + 4);
+    }
+
+    int methodCount = data[position++];
+    for (int i = 0; i < methodCount; i++) {
+      MethodDescription.InDefinedShape methodDescription =
+          ReferenceMatcher.findMethod(
+              strings[data[position]], strings[data[position + 1]], typeOnClasspath);
+      if (methodDescription == null
+          || !flagsMatch(data[position + 2], methodDescription.getModifiers())) {
+        return false;
+      }
+      position = skipSources(position + 3);
+    }
+    return true;
+  }
+
+  private static boolean flagsMatch(int flags, int modifiers) {
+    for (int i = 0; flags != 0; i++, flags >>>= 1) {
+      if ((flags & 1) != 0 && !FLAGS[i].matches(modifiers)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int skipClass(int offset) {
+    int position = offset + 3;
+    position += 1 + data[position];
+    int fieldCount = data[position++];
+    for (int i = 0; i < fieldCount; i++) {
+      position = skipSources(position + 4);
+    }
+    int methodCount = data[position++];
+    for (int i = 0; i < methodCount; i++) {
+      position = skipSources(position + 3);
+    }
+    return skipSources(position);
+  }
+
+  private int skipSources(int position) {
+    return position + 1 + 2 * data[position];
+  }
+
+  /**
+   * Creates the {@link ClassRef references} of the classes whose names match the given predicate.
+   */
+  Map<String, ClassRef> toClassRefs(Predicate<String> classNamePredicate) {
+    Map<String, ClassRef> references = new HashMap<>();
+    int offset = 0;
+    for (int i = 0; i < classCount; i++) {
+      String className = strings[data[offset]];
+      if (classNamePredicate.test(className)) {
+        references.put(className, toClassRef(offset));
+      }
+      offset = skipClass(offset);
+    }
+    return references;
+  }
+
+  private ClassRef toClassRef(int offset) {
+    ClassRefBuilder builder = ClassRef.builder(strings[data[offset]]);
+    for (Flag flag : toFlags(data[offset + 1])) {
+      builder.addFlag(flag);
+    }
+    if (data[offset + 2] != -1) {
+      builder.setSuperClassName(strings[data[offset + 2]]);
+    }
+    int position = offset + 3;
+    int interfaceCount = data[position++];
+    for (int i = 0; i < interfaceCount; i++) {
+      builder.addInterfaceName(strings[data[position++]]);
+    }
+
+    int fieldCount = data[position++];
+    for (int i = 0; i < fieldCount; i++) {
+      builder.addField(
+          toSources(position + 4),
+          toFlags(data[position + 2]),
+          strings[data[position]],
+          Type.getType(strings[data[position + 1]]),
+          data[position + 3] != 0);
+      position = skipSources(position + 4);
+    }
+
+    int methodCount = data[position++];
+    for (int i = 0; i < methodCount; i++) {
+      Type methodType = Type.getMethodType(strings[data[position + 1]]);
+      builder.addMethod(
+          toSources(position + 3),
+          toFlags(data[position + 2]),
+          strings[data[position]],
+          methodType.getReturnType(),
+          methodType.getArgumentTypes());
+      position = skipSources(position + 3);
+    }
+
+    for (Source source : toSources(position)) {
+      builder.addSource(source.getName(), source.getLine());
+    }
+    return builder.build();
+  }
+
+  private Source[] toSources(int position) {
+    Source[] sources = new Source[data[position]];
+    for (int i = 0; i < sources.length; i++) {
+      sources[i] = new Source(strings[data[position + 1 + 2 * i]], data[position + 2 + 2 * i]);
+    }
+    return sources;
+  }
+
+  private static Flag[] toFlags(int flags) {
+    List<Flag> result = new ArrayList<>(Integer.bitCount(flags));
+    for (int i = 0; flags != 0; i++, flags >>>= 1) {
+      if ((flags & 1) != 0) {
+        result.add(FLAGS[i]);
+      }
+    }
+    return result.toArray(new Flag[0]);
+  }
+
+  private static Flag[] allFlags() {
+    List<Flag> flags = new ArrayList<>();
+    flags.addAll(Arrays.asList(Flag.VisibilityFlag.values()));
+    flags.addAll(Arrays.asList(Flag.MinimumVisibilityFlag.values()));
+    flags.addAll(Arrays.asList(Flag.ManifestationFlag.values()));
+    flags.addAll(Arrays.asList(Flag.OwnershipFlag.values()));
+    return flags.toArray(new Flag[0]);
+  }
+
+  /** The string table and the encoded references of an index. */
+  public static final class Encoded {
+    private final String[] strings;
+    private final String[] data;
+
+    private Encoded(String[] strings, String[] data) {
+      this.strings = strings;
+      this.data = data;
+    }
+
+    /** Returns the string table. */
+    public String[] getStrings() {
+      return strings;
+    }
+
+    /**
+     * Returns the references, as variable length integers in chunks that fit in constant strings.
+     */
+    public String[] getData() {
+      return data;
+    }
+  }
+
+  private static final class Encoder {
+    private final Map<String, Integer> strings = new LinkedHashMap<>();
+    private final StringBuilder data = new StringBuilder();
+
+    void writeClass(ClassRef reference) {
+      writeString(reference.getClassName());
+      writeFlags(reference.getFlags());
+      writeInt(
+          reference.getSuperClassName() == null ? 0 : string(reference.getSuperClassName()) + 1);
+      writeInt(reference.getInterfaceNames().size());
+      for (String interfaceName : reference.getInterfaceNames()) {
+        writeString(interfaceName);
+      }
+
+      writeInt(reference.getFields().size());
+      for (FieldRef field : reference.getFields()) {
+        writeString(field.getName());
+        writeString(field.getDescriptor());
+        writeFlags(field.getFlags());
+        writeInt(field.isDeclared() ? 1 : 0);
+        writeSources(field.getSources());
+      }
+
+      writeInt(reference.getMethods().size());
+      for (MethodRef method : reference.getMethods()) {
+        writeString(method.getName());
+        // a method descriptor wouldn't be relocated when the agent is shaded, its types are
+        Type methodType = Type.getMethodType(method.getDescriptor());
+        writeString(methodType.getReturnType().getDescriptor());
+        writeInt(methodType.getArgumentTypes().length);
+        for (Type argumentType : methodType.getArgumentTypes()) {
+          writeString(argumentType.getDescriptor());
+        }
+        writeFlags(method.getFlags());
+        writeSources(method.getSources());
+      }
+
+      writeSources(reference.getSources());
+    }
+
+    private void writeSources(Set<Source> sources) {
+      writeInt(sources.size());
+      for (Source source : sources) {
+        writeString(source.getName());
+        writeInt(source.getLine());
+      }
+    }
+
+    private void writeFlags(Set<Flag> flags) {
+      int bits = 0;
+      for (Flag flag : flags) {
+        bits |= 1 << indexOf(flag);
+      }
+      writeInt(bits);
+    }
+
+    private static int indexOf(Flag flag) {
+      for (int i = 0; i < FLAGS.length; i++) {
+        if (FLAGS[i] == flag) {
+          return i;
+        }
+      }
+      throw new IllegalArgumentException("Unknown flag " + flag);
+    }
+
+    private void writeString(String value) {
+      writeInt(string(value));
+    }
+
+    private int string(String value) {
+      return strings.computeIfAbsent(value, unused -> strings.size());
+    }
+
+    // 15 bits per char, the highest bit is set when more chars follow
+    void writeInt(int value) {
+      if (value < 0) {
+        throw new IllegalArgumentException("Negative value " + value);
+      }
+      while (value >= 0x8000) {
+        data.append((char) (0x8000 | (value & 0x7fff)));
+        value >>>= 15;
+      }
+      data.append((char) value);
+    }
+
+    String[] chunks() {
+      List<String> chunks = new ArrayList<>();
+      for (int start = 0; start < data.length(); start += MAX_CHUNK_LENGTH) {
+        chunks.add(data.substring(start, Math.min(start + MAX_CHUNK_LENGTH, data.length())));
+      }
+      return chunks.toArray(new String[0]);
+    }
+  }
+
+  private static final class Decoder {
+    private final List<String> strings;
+    private final String encoded;
+    private int position;
+    // the method descriptors that were put together while decoding, by descriptor
+    private final Map<String, Integer> methodDescriptors = new HashMap<>();
+    private int[] data;
+    private int size;
+
+    Decoder(String[] strings, String encoded) {
+      this.strings = new ArrayList<>(Arrays.asList(strings));
+      this.encoded = encoded;
+      // the decoded data is never longer than the encoded data
+      this.data = new int[encoded.length()];
+    }
+
+    ReferenceIndex decode() {
+      int classCount = readInt();
+      for (int i = 0; i < classCount; i++) {
+        decodeClass();
+      }
+      return new ReferenceIndex(
+          strings.toArray(new String[0]), Arrays.copyOf(data, size), classCount);
+    }
+
+    private void decodeClass() {
+      copy(2);
+      append(readInt() - 1);
+      copy(copy(1));
+
+      int fieldCount = copy(1);
+      for (int i = 0; i < fieldCount; i++) {
+        copy(4);
+        copySources();
+      }
+
+      int methodCount = copy(1);
+      for (int i = 0; i < methodCount; i++) {
+        copy(1);
+        append(methodDescriptor());
+        copy(1);
+        copySources();
+      }
+
+      copySources();
+    }
+
+    private int methodDescriptor() {
+      String returnType = strings.get(readInt());
+      int argumentCount = readInt();
+      StringBuilder descriptor = new StringBuilder("(");
+      for (int i = 0; i < argumentCount; i++) {
+        descriptor.append(strings.get(readInt()));
+      }
+      String value = descriptor.append(')').append(returnType).toString();
+      return methodDescriptors.computeIfAbsent(
+          value,
+          unused -> {
+            strings.add(value);
+            return strings.size() - 1;
+          });
+    }
+
+    private void copySources() {
+      copy(2 * copy(1));
+    }
+
+    // copies count ints, returns the last one
+    private int copy(int count) {
+      int value = 0;
+      for (int i = 0; i < count; i++) {
+        value = readInt();
+        append(value);
+      }
+      return value;
+    }
+
+    private void append(int value) {
+      data[size++] = value;
+    }
+
+    private int readInt() {
+      int value = 0;
+      int shift = 0;
+      char c;
+      do {
+        c = encoded.charAt(position++);
+        value |= (c & 0x7fff) << shift;
+        shift += 15;
+      } while ((c & 0x8000) != 0);
+      return value;
+    }
+  }
+}
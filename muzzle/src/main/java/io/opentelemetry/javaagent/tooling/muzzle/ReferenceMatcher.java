@@ -7,6 +7,7 @@ package io.opentelemetry.javaagent.tooling.muzzle;
 
 import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
+import static java.util.Objects.requireNonNull;
 
 import io.opentelemetry.javaagent.extension.instrumentation.InstrumentationModule;
 import io.opentelemetry.javaagent.tooling.muzzle.references.ClassRef;
@@ -21,6 +22,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 import net.bytebuddy.description.field.FieldDescription;
 import net.bytebuddy.description.method.MethodDescription;
 import net.bytebuddy.description.type.TypeDescription;
@@ -30,13 +32,25 @@ import org.objectweb.asm.Type;
 /** Matches a set of references against a class loader. */
 public final class ReferenceMatcher {
 
-  private final Map<String, ClassRef> references;
+  @Nullable private final Map<String, ClassRef> references;
+  // when the module has a reference index the references are checked from the index, and only the
+  // references of the helper classes are created
+  @Nullable private final ReferenceIndex referenceIndex;
+  @Nullable private volatile Map<String, ClassRef> helperReferences;
   private final Set<String> helperClassNames;
   private final HelperClassPredicate helperClassPredicate;
 
   public static ReferenceMatcher of(InstrumentationModule instrumentationModule) {
+    List<String> helperClassNames =
+        InstrumentationModuleMuzzle.getHelperClassNames(instrumentationModule);
+    ReferenceIndex referenceIndex =
+        InstrumentationModuleMuzzle.getMuzzleReferenceIndex(instrumentationModule);
+    if (referenceIndex != null) {
+      return new ReferenceMatcher(
+          helperClassNames, referenceIndex, instrumentationModule::isHelperClass);
+    }
     return new ReferenceMatcher(
-        InstrumentationModuleMuzzle.getHelperClassNames(instrumentationModule),
+        helperClassNames,
         InstrumentationModuleMuzzle.getMuzzleReferences(instrumentationModule),
         instrumentationModule::isHelperClass);
   }
@@ -45,7 +59,23 @@ public final class ReferenceMatcher {
       List<String> helperClassNames,
       Map<String, ClassRef> references,
       Predicate<String> libraryInstrumentationPredicate) {
+    this(helperClassNames, references, null, libraryInstrumentationPredicate);
+  }
+
+  ReferenceMatcher(
+      List<String> helperClassNames,
+      ReferenceIndex referenceIndex,
+      Predicate<String> libraryInstrumentationPredicate) {
+    this(helperClassNames, null, referenceIndex, libraryInstrumentationPredicate);
+  }
+
+  private ReferenceMatcher(
+      List<String> helperClassNames,
+      @Nullable Map<String, ClassRef> references,
+      @Nullable ReferenceIndex referenceIndex,
+      Predicate<String> libraryInstrumentationPredicate) {
     this.references = references;
+    this.referenceIndex = referenceIndex;
     this.helperClassNames = new HashSet<>(helperClassNames);
     this.helperClassPredicate = new HelperClassPredicate(libraryInstrumentationPredicate);
   }
@@ -60,8 +90,18 @@ public final class ReferenceMatcher {
    */
   public boolean matches(ClassLoader loader) {
     TypePool typePool = createTypePool(loader);
+    if (referenceIndex != null) {
+      Map<String, ClassRef> helperReferences = getHelperReferences(referenceIndex);
+      return referenceIndex.matches(
+          typePool,
+          helperClassPredicate::isHelperClass,
+          className ->
+              checkMatch(helperReferences.get(className), helperReferences, typePool, loader)
+                  .isEmpty());
+    }
+    Map<String, ClassRef> references = getReferences();
     for (ClassRef reference : references.values()) {
-      if (!checkMatch(reference, typePool, loader).isEmpty()) {
+      if (!checkMatch(reference, references, typePool, loader).isEmpty()) {
         return false;
       }
     }
@@ -80,13 +120,31 @@ public final class ReferenceMatcher {
 
     List<Mismatch> mismatches = emptyList();
 
+    Map<String, ClassRef> references = getReferences();
     for (ClassRef reference : references.values()) {
-      mismatches = addAll(mismatches, checkMatch(reference, typePool, loader));
+      mismatches = addAll(mismatches, checkMatch(reference, references, typePool, loader));
     }
 
     return mismatches;
   }
 
+  private Map<String, ClassRef> getReferences() {
+    if (references != null) {
+      return references;
+    }
+    // mismatches are only needed for debugging, so the references are not kept
+    return requireNonNull(referenceIndex).toClassRefs(className -> true);
+  }
+
+  private Map<String, ClassRef> getHelperReferences(ReferenceIndex referenceIndex) {
+    Map<String, ClassRef> result = helperReferences;
+    if (result == null) {
+      result = referenceIndex.toClassRefs(helperClassPredicate::isHelperClass);
+      helperReferences = result;
+    }
+    return result;
+  }
+
   // loader cannot be null, must pass "bootstrap proxy" instead of bootstrap class loader
   private static TypePool createTypePool(ClassLoader loader) {
     // ok to use locationStrategy() without fallback bootstrap proxy here since loader is non-null
@@ -99,7 +157,8 @@ public final class ReferenceMatcher {
    *
    * @return A list of mismatched sources. A list of size 0 means the reference matches the class.
    */
-  private List<Mismatch> checkMatch(ClassRef reference, TypePool typePool, ClassLoader loader) {
+  private List<Mismatch> checkMatch(
+      ClassRef reference, Map<String, ClassRef> references, TypePool typePool, ClassLoader loader) {
     try {
       if (helperClassPredicate.isHelperClass(reference.getClassName())) {
         // make sure helper class is registered
@@ -107,7 +166,7 @@ public final class ReferenceMatcher {
           return singletonList(new Mismatch.MissingClass(reference));
         }
         // helper classes get their own check: whether they implement all abstract methods
-        return checkHelperClassMatch(reference, typePool);
+        return checkHelperClassMatch(reference, references, typePool);
       } else {
         TypePool.Resolution resolution = typePool.describe(reference.getClassName());
         if (!resolution.isResolved()) {
@@ -130,7 +189,8 @@ public final class ReferenceMatcher {
 
   // for helper classes we make sure that all abstract methods from super classes and interfaces are
   // implemented and that all accessed fields are defined somewhere in the type hierarchy
-  private List<Mismatch> checkHelperClassMatch(ClassRef helperClass, TypePool typePool) {
+  private List<Mismatch> checkHelperClassMatch(
+      ClassRef helperClass, Map<String, ClassRef> references, TypePool typePool) {
     List<Mismatch> mismatches = emptyList();
 
     HelperReferenceWrapper helperWrapper =
@@ -210,7 +270,8 @@ public final class ReferenceMatcher {
     }
 
     for (FieldRef fieldRef : reference.getFields()) {
-      FieldDescription.InDefinedShape fieldDescription = findField(fieldRef, typeOnClasspath);
+      FieldDescription.InDefinedShape fieldDescription =
+          findField(fieldRef.getName(), fieldRef.getDescriptor(), typeOnClasspath);
       if (fieldDescription == null) {
         mismatches = add(mismatches, new Mismatch.MissingField(reference, fieldRef));
       } else {
@@ -232,7 +293,8 @@ public final class ReferenceMatcher {
     }
 
     for (MethodRef methodRef : reference.getMethods()) {
-      MethodDescription.InDefinedShape methodDescription = findMethod(methodRef, typeOnClasspath);
+      MethodDescription.InDefinedShape methodDescription =
+          findMethod(methodRef.getName(), methodRef.getDescriptor(), typeOnClasspath);
       if (methodDescription == null) {
         mismatches = add(mismatches, new Mismatch.MissingMethod(reference, methodRef));
       } else {
@@ -252,24 +314,24 @@ public final class ReferenceMatcher {
     return mismatches;
   }
 
-  private static FieldDescription.InDefinedShape findField(
-      FieldRef fieldRef, TypeDescription typeOnClasspath) {
+  @Nullable
+  static FieldDescription.InDefinedShape findField(
+      String name, String descriptor, TypeDescription typeOnClasspath) {
     for (FieldDescription.InDefinedShape fieldType : typeOnClasspath.getDeclaredFields()) {
-      if (fieldType.getName().equals(fieldRef.getName())
-          && fieldType.getDescriptor().equals(fieldRef.getDescriptor())) {
+      if (fieldType.getName().equals(name) && fieldType.getDescriptor().equals(descriptor)) {
         return fieldType;
       }
     }
     if (typeOnClasspath.getSuperClass() != null) {
       FieldDescription.InDefinedShape fieldOnSupertype =
-          findField(fieldRef, typeOnClasspath.getSuperClass().asErasure());
+          findField(name, descriptor, typeOnClasspath.getSuperClass().asErasure());
       if (fieldOnSupertype != null) {
         return fieldOnSupertype;
       }
     }
     for (TypeDescription.Generic interfaceType : typeOnClasspath.getInterfaces()) {
       FieldDescription.InDefinedShape fieldOnSupertype =
-          findField(fieldRef, interfaceType.asErasure());
+          findField(name, descriptor, interfaceType.asErasure());
       if (fieldOnSupertype != null) {
         return fieldOnSupertype;
       }
@@ -277,20 +339,21 @@ public final class ReferenceMatcher {
     return null;
   }
 
-  private static MethodDescription.InDefinedShape findMethod(
-      MethodRef methodRef, TypeDescription typeOnClasspath) {
+  @Nullable
+  static MethodDescription.InDefinedShape findMethod(
+      String name, String descriptor, TypeDescription typeOnClasspath) {
 
     for (MethodDescription.InDefinedShape methodDescription :
         typeOnClasspath.getDeclaredMethods()) {
-      if (methodDescription.getInternalName().equals(methodRef.getName())
-          && methodDescription.getDescriptor().equals(methodRef.getDescriptor())) {
+      if (methodDescription.getInternalName().equals(name)
+          && methodDescription.getDescriptor().equals(descriptor)) {
         return methodDescription;
       }
     }
 
     // if the method we're looking for is a constructor, we're only checking the direct super type;
     // and skipping all the interfaces and indirect superclasses
-    if (methodRef.isConstructor()) {
+    if ("<init>".equals(name)) {
       return null;
     }
 
@@ -301,7 +364,7 @@ public final class ReferenceMatcher {
       superType = TypeDescription.ForLoadedType.of(Object.class);
     }
     if (superType != null) {
-      MethodDescription.InDefinedShape methodOnSupertype = findMethod(methodRef, superType);
+      MethodDescription.InDefinedShape methodOnSupertype = findMethod(name, descriptor, superType);
       if (methodOnSupertype != null) {
         return methodOnSupertype;
       }
@@ -309,7 +372,7 @@ public final class ReferenceMatcher {
 
     for (TypeDescription.Generic interfaceType : typeOnClasspath.getInterfaces()) {
       MethodDescription.InDefinedShape methodOnSupertype =
-          findMethod(methodRef, interfaceType.asErasure());
+          findMethod(name, descriptor, interfaceType.asErasure());
       if (methodOnSupertype != null) {
         return methodOnSupertype;
       }
@@ -15,6 +15,7 @@ import io.opentelemetry.javaagent.tooling.muzzle.HelperResource;
 import io.opentelemetry.javaagent.tooling.muzzle.HelperResourceBuilderImpl;
 import io.opentelemetry.javaagent.tooling.muzzle.InstrumentationModuleMuzzle;
 import io.opentelemetry.javaagent.tooling.muzzle.ReferenceCollector;
+import io.opentelemetry.javaagent.tooling.muzzle.ReferenceIndex;
 import io.opentelemetry.javaagent.tooling.muzzle.VirtualFieldMappings;
 import io.opentelemetry.javaagent.tooling.muzzle.references.ClassRef;
 import io.opentelemetry.javaagent.tooling.muzzle.references.ClassRefBuilder;
@@ -46,7 +47,9 @@ import org.objectweb.asm.Type;
  * This class generates the actual implementation of the {@code
  * InstrumentationModule#getMuzzleReferences()} method. It collects references from all advice
  * classes defined in an instrumentation and writes them as Java bytecode in the generated {@code
- * InstrumentationModule#getMuzzleReferences()} method.
+ * InstrumentationModule#getMuzzleReferences()} method. The same references are also written as a
+ * compact {@link ReferenceIndex} in the generated {@code
+ * InstrumentationModuleMuzzle#getMuzzleReferenceIndex()} method.
  *
  * <p>This class is run at compile time by the {@link MuzzleCodeGenerationPlugin} ByteBuddy plugin.
  */
@@ -54,6 +57,7 @@ final class MuzzleCodeGenerator implements AsmVisitorWrapper {
   private static final Logger logger = Logger.getLogger(MuzzleCodeGenerator.class.getName());
 
   private static final String MUZZLE_REFERENCES_METHOD_NAME = "getMuzzleReferences";
+  private static final String MUZZLE_REFERENCE_INDEX_METHOD_NAME = "getMuzzleReferenceIndex";
   private static final String MUZZLE_HELPER_CLASSES_METHOD_NAME = "getMuzzleHelperClassNames";
   private static final String MUZZLE_VIRTUAL_FIELDS_METHOD_NAME = "registerMuzzleVirtualFields";
   private final URLClassLoader classLoader;
@@ -95,6 +99,7 @@ final class MuzzleCodeGenerator implements AsmVisitorWrapper {
     private InstrumentationModule instrumentationModule;
 
     private boolean generateReferencesMethod = true;
+    private boolean generateReferenceIndexMethod = true;
     private boolean generateHelperClassNamesMethod = true;
     private boolean generateVirtualFieldsMethod = true;
 
@@ -144,6 +149,10 @@ final class MuzzleCodeGenerator implements AsmVisitorWrapper {
         generateReferencesMethod = false;
         logMethodAlreadyExistsMessage(MUZZLE_REFERENCES_METHOD_NAME);
       }
+      if (MUZZLE_REFERENCE_INDEX_METHOD_NAME.equals(name)) {
+        generateReferenceIndexMethod = false;
+        logMethodAlreadyExistsMessage(MUZZLE_REFERENCE_INDEX_METHOD_NAME);
+      }
       if (MUZZLE_HELPER_CLASSES_METHOD_NAME.equals(name)) {
         generateHelperClassNamesMethod = false;
         logMethodAlreadyExistsMessage(MUZZLE_HELPER_CLASSES_METHOD_NAME);
@@ -170,6 +179,10 @@ final class MuzzleCodeGenerator implements AsmVisitorWrapper {
       if (generateReferencesMethod) {
         generateMuzzleReferencesMethod(collector);
       }
+      // the index must describe the same references as getMuzzleReferences()
+      if (generateReferencesMethod && generateReferenceIndexMethod) {
+        generateMuzzleReferenceIndexMethod(collector);
+      }
       if (generateHelperClassNamesMethod) {
         generateMuzzleHelperClassNamesMethod(collector);
       }
@@ -387,6 +400,56 @@ final class MuzzleCodeGenerator implements AsmVisitorWrapper {
       mv.visitEnd();
     }
 
+    private void generateMuzzleReferenceIndexMethod(ReferenceCollector collector) {
+      Type referenceIndexType = Type.getType(ReferenceIndex.class);
+      Type stringArrayType = Type.getType(String[].class);
+
+      /*
+       * public ReferenceIndex getMuzzleReferenceIndex() {
+       *   return ReferenceIndex.decode(new String[] {...}, new String[] {...});
+       * }
+       */
+      MethodVisitor mv =
+          super.visitMethod(
+              Opcodes.ACC_PUBLIC,
+              MUZZLE_REFERENCE_INDEX_METHOD_NAME,
+              Type.getMethodDescriptor(referenceIndexType),
+              null,
+              null);
+      mv.visitCode();
+
+      ReferenceIndex.Encoded encoded = ReferenceIndex.encode(collector.getReferences().values());
+      // every string is a separate constant, so that class names and type descriptors are
+      // relocated when the agent is shaded
+      writeStringArray(mv, encoded.getStrings());
+      // stack: strings
+      writeStringArray(mv, encoded.getData());
+      // stack: strings, data
+      mv.visitMethodInsn(
+          Opcodes.INVOKESTATIC,
+          referenceIndexType.getInternalName(),
+          "decode",
+          Type.getMethodDescriptor(referenceIndexType, stringArrayType, stringArrayType),
+          /* isInterface= */ false);
+      // stack: referenceIndex
+      mv.visitInsn(Opcodes.ARETURN);
+
+      mv.visitMaxs(0, 0); // recomputed
+      mv.visitEnd();
+    }
+
+    private static void writeStringArray(MethodVisitor mv, String[] values) {
+      mv.visitLdcInsn(values.length);
+      mv.visitTypeInsn(Opcodes.ANEWARRAY, "java/lang/String");
+
+      for (int i = 0; i < values.length; i++) {
+        mv.visitInsn(Opcodes.DUP);
+        mv.visitLdcInsn(i);
+        mv.visitLdcInsn(values[i]);
+        mv.visitInsn(Opcodes.AASTORE);
+      }
+    }
+
     private static void writeNewMap(MethodVisitor mv, int size) {
       mv.visitTypeInsn(Opcodes.NEW, "java/util/HashMap");
       // stack: map
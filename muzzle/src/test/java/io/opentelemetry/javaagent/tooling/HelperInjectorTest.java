@@ -0,0 +1,82 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.tooling;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class HelperInjectorTest {
+
+  @AfterEach
+  void tearDown() {
+    HelperInjector.setBatchInjection(false);
+  }
+
+  @Test
+  void injectHelperClassesOneAtATime() {
+    InspectableClassLoader classLoader = new InspectableClassLoader();
+    newHelperInjector().transform(null, null, classLoader, null, null);
+
+    Class<?> helperClass = HelperInjector.loadHelperClass(classLoader, FirstHelper.class.getName());
+
+    assertThat(helperClass.getClassLoader()).isSameAs(classLoader);
+    assertThat(classLoader.loadedClass(SecondHelper.class.getName())).isNull();
+  }
+
+  @Test
+  void injectAllHelperClassesAtOnce() {
+    HelperInjector.setBatchInjection(true);
+    InspectableClassLoader classLoader = new InspectableClassLoader();
+    newHelperInjector().transform(null, null, classLoader, null, null);
+
+    Class<?> helperClass = HelperInjector.loadHelperClass(classLoader, FirstHelper.class.getName());
+
+    assertThat(helperClass.getClassLoader()).isSameAs(classLoader);
+    assertThat(classLoader.loadedClass(SecondHelper.class.getName())).isNotNull();
+    assertThat(HelperInjector.loadHelperClass(classLoader, SecondHelper.class.getName()))
+        .isSameAs(classLoader.loadedClass(SecondHelper.class.getName()));
+  }
+
+  @Test
+  void shareHelperBytecode() {
+    ClassLoader helpersSource = HelperInjectorTest.class.getClassLoader();
+
+    byte[] bytecode =
+        BytecodeWithUrl.create(FirstHelper.class.getName(), helpersSource).getBytecode();
+
+    assertThat(BytecodeWithUrl.create(FirstHelper.class.getName(), helpersSource).getBytecode())
+        .isSameAs(bytecode);
+  }
+
+  private static HelperInjector newHelperInjector() {
+    return new HelperInjector(
+        "test",
+        Arrays.asList(FirstHelper.class.getName(), SecondHelper.class.getName()),
+        Collections.emptyList(),
+        HelperInjectorTest.class.getClassLoader(),
+        null);
+  }
+
+  private static class InspectableClassLoader extends URLClassLoader {
+    InspectableClassLoader() {
+      super(new URL[0], null);
+    }
+
+    Class<?> loadedClass(String className) {
+      return findLoadedClass(className);
+    }
+  }
+
+  static class FirstHelper {}
+
+  static class SecondHelper {}
+}
@@ -7,15 +7,21 @@ package io.opentelemetry.javaagent.tooling.muzzle;
 
 import static net.bytebuddy.matcher.ElementMatchers.declaresMethod;
 import static net.bytebuddy.matcher.ElementMatchers.isAnnotatedWith;
+import static net.bytebuddy.matcher.ElementMatchers.named;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import io.opentelemetry.test.AnnotatedTestClass;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.net.URLClassLoader;
 import java.util.Enumeration;
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.description.modifier.Visibility;
 import net.bytebuddy.description.type.TypeDescription;
 import net.bytebuddy.dynamic.ClassFileLocator;
+import net.bytebuddy.implementation.FixedValue;
 import net.bytebuddy.pool.TypePool;
 import org.junit.jupiter.api.Test;
 
@@ -61,4 +67,115 @@ class AgentCachingPoolStrategyTest {
         declaresMethod(isAnnotatedWith(AnnotatedTestClass.TestAnnotation.class))
             .matches(typeDescription));
   }
+
+  @Test
+  void shareTypeDescriptionsOfIdenticalClassFiles() {
+    AgentCachingPoolStrategy poolStrategy =
+        new AgentCachingPoolStrategy(AgentTooling.locationStrategy(), true);
+    byte[] classFile = classFile("first");
+
+    TypeDescription first = describe(poolStrategy, classFile);
+    TypeDescription second = describe(poolStrategy, classFile);
+
+    assertThat(first.getDeclaredMethods().filter(named("first"))).hasSize(1);
+    assertThat(second.getDeclaredMethods().filter(named("first"))).hasSize(1);
+    // types referenced by the shared description are resolved through the type pools
+    assertThat(
+            second
+                .getDeclaredMethods()
+                .filter(named("first"))
+                .getOnly()
+                .getReturnType()
+                .asErasure()
+                .represents(String.class))
+        .isTrue();
+    assertThat(poolStrategy.contentTypeCache.hitRate()).isEqualTo(0.5);
+  }
+
+  @Test
+  void doNotShareTypeDescriptionsOfDifferentClassFiles() {
+    AgentCachingPoolStrategy poolStrategy =
+        new AgentCachingPoolStrategy(AgentTooling.locationStrategy(), true);
+
+    TypeDescription first = describe(poolStrategy, classFile("first"));
+    TypeDescription second = describe(poolStrategy, classFile("second"));
+
+    assertThat(first.getDeclaredMethods().filter(named("first"))).hasSize(1);
+    assertThat(second.getDeclaredMethods().filter(named("first"))).isEmpty();
+    assertThat(second.getDeclaredMethods().filter(named("second"))).hasSize(1);
+    assertThat(poolStrategy.contentTypeCache.hitRate()).isEqualTo(0);
+  }
+
+  @Test
+  void resolveReferencedTypesThroughRequestingPool() {
+    AgentCachingPoolStrategy poolStrategy =
+        new AgentCachingPoolStrategy(AgentTooling.locationStrategy(), true);
+    byte[] classFile = subclassFile();
+
+    // the class loaders see different versions of the super class
+    TypeDescription first =
+        describe(poolStrategy, classFile, ClassFileLocator.Simple.of(BASE_CLASS_NAME, baseFile()));
+    TypeDescription second =
+        describe(
+            poolStrategy,
+            classFile,
+            ClassFileLocator.Simple.of(BASE_CLASS_NAME, baseFile(Runnable.class)));
+
+    assertThat(second.isAssignableTo(Runnable.class)).isTrue();
+    assertThat(first.isAssignableTo(Runnable.class)).isFalse();
+    // the subclass is parsed once, the two versions of the super class are parsed separately
+    assertThat(poolStrategy.contentTypeCache.hitRate()).isEqualTo(0.25);
+  }
+
+  private static final String SHARED_CLASS_NAME = "test.SharedClass";
+  private static final String BASE_CLASS_NAME = "test.BaseClass";
+
+  private static byte[] subclassFile() {
+    return new ByteBuddy()
+        .subclass(
+            new ByteBuddy()
+                .subclass(Object.class)
+                .name(BASE_CLASS_NAME)
+                .make()
+                .getTypeDescription())
+        .name(SHARED_CLASS_NAME)
+        .make()
+        .getBytes();
+  }
+
+  private static byte[] baseFile(Class<?>... interfaces) {
+    return new ByteBuddy()
+        .subclass(Object.class)
+        .name(BASE_CLASS_NAME)
+        .implement(interfaces)
+        .make()
+        .getBytes();
+  }
+
+  private static byte[] classFile(String methodName) {
+    return new ByteBuddy()
+        .subclass(Object.class)
+        .name(SHARED_CLASS_NAME)
+        .defineMethod(methodName, String.class, Visibility.PUBLIC)
+        .intercept(FixedValue.value(methodName))
+        .make()
+        .getBytes();
+  }
+
+  private static TypeDescription describe(AgentCachingPoolStrategy poolStrategy, byte[] classFile) {
+    return describe(poolStrategy, classFile, ClassFileLocator.NoOp.INSTANCE);
+  }
+
+  private static TypeDescription describe(
+      AgentCachingPoolStrategy poolStrategy, byte[] classFile, ClassFileLocator otherClasses) {
+    // every deployment has its own class loader
+    ClassLoader classLoader = new URLClassLoader(new URL[0], null);
+    ClassFileLocator locator =
+        new ClassFileLocator.Compound(
+            ClassFileLocator.Simple.of(SHARED_CLASS_NAME, classFile),
+            otherClasses,
+            ClassFileLocator.ForClassLoader.of(ClassLoader.getSystemClassLoader()));
+    TypePool pool = poolStrategy.typePool(locator, classLoader);
+    return pool.describe(SHARED_CLASS_NAME).resolve();
+  }
 }
@@ -0,0 +1,67 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.tooling.muzzle;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class ContentTypeCacheTest {
+
+  @Test
+  void growWhenEvictedEntriesWouldHit() {
+    ContentTypeCache<String> cache = new ContentTypeCache<>();
+    int lookups = 0;
+    // more classes than fit into the cache, so that entries are evicted
+    for (int i = 0; i < ContentTypeCache.MIN_CAPACITY + 1; i++, lookups++) {
+      cache.computeIfAbsent("test.Class" + i, classFile(i), () -> "value");
+    }
+    // then most lookups hit
+    for (; lookups < ContentTypeCache.ADAPT_INTERVAL; lookups++) {
+      cache.computeIfAbsent("test.Class1", classFile(1), () -> "other value");
+    }
+
+    assertThat(cache.capacity()).isEqualTo(2L * ContentTypeCache.MIN_CAPACITY);
+    assertThat(cache.computeIfAbsent("test.Class1", classFile(1), () -> "other value"))
+        .isEqualTo("value");
+  }
+
+  @Test
+  void shrinkWhenLookupsMiss() {
+    ContentTypeCache<String> cache = new ContentTypeCache<>();
+    int lookups = 0;
+    for (int i = 0; i < ContentTypeCache.MIN_CAPACITY + 1; i++, lookups++) {
+      cache.computeIfAbsent("test.Class" + i, classFile(i), () -> "value");
+    }
+    for (; lookups < ContentTypeCache.ADAPT_INTERVAL; lookups++) {
+      cache.computeIfAbsent("test.Class1", classFile(1), () -> "value");
+    }
+    assertThat(cache.capacity()).isEqualTo(2L * ContentTypeCache.MIN_CAPACITY);
+
+    // every class is loaded only once
+    for (int i = 0; i < ContentTypeCache.ADAPT_INTERVAL; i++) {
+      cache.computeIfAbsent("test.Other" + i, classFile(i), () -> "value");
+    }
+
+    assertThat(cache.capacity()).isEqualTo(ContentTypeCache.MIN_CAPACITY);
+  }
+
+  @Test
+  void distinguishClassFilesWithTheSameName() {
+    ContentTypeCache<String> cache = new ContentTypeCache<>();
+
+    assertThat(cache.computeIfAbsent("test.Class", classFile(1), () -> "first")).isEqualTo("first");
+    assertThat(cache.computeIfAbsent("test.Class", classFile(2), () -> "second"))
+        .isEqualTo("second");
+    assertThat(cache.computeIfAbsent("test.Class", classFile(1), () -> "third")).isEqualTo("first");
+    assertThat(cache.hitRate()).isEqualTo(1 / 3.0);
+  }
+
+  private static byte[] classFile(int version) {
+    return ("class file " + version).getBytes(UTF_8);
+  }
+}
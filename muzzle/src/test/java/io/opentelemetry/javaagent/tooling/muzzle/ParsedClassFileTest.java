@@ -0,0 +1,87 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.tooling.muzzle;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.ClassFileLocator;
+import net.bytebuddy.pool.TypePool;
+import net.bytebuddy.utility.AsmClassReader;
+import org.junit.jupiter.api.Test;
+
+class ParsedClassFileTest {
+
+  @Test
+  void isAvailable() {
+    assertThat(ParsedClassFile.isAvailable()).isTrue();
+  }
+
+  @Test
+  void createTypeDescriptionLikeTypePool() {
+    byte[] classFile = ClassFileLocator.ForClassLoader.read(SampleClass.class);
+    ParsedClassFile parsed = parse(classFile);
+
+    TypePool.Default typePool = typePool();
+    TypeDescription expected = typePool(classFile).describe(SampleClass.class.getName()).resolve();
+    // the tokens are not used up by creating a type description
+    parsed.toTypeDescription(typePool());
+    TypeDescription actual = parsed.toTypeDescription(typePool);
+
+    assertThat(actual).isNotNull();
+    assertThat(actual.getName()).isEqualTo(expected.getName());
+    assertThat(actual.getModifiers()).isEqualTo(expected.getModifiers());
+    assertThat(actual.getSuperClass()).isEqualTo(expected.getSuperClass());
+    assertThat(actual.getInterfaces()).isEqualTo(expected.getInterfaces());
+    assertThat(actual.getTypeVariables()).isEqualTo(expected.getTypeVariables());
+    assertThat(actual.getDeclaredAnnotations()).isEqualTo(expected.getDeclaredAnnotations());
+    assertThat(actual.getDeclaredFields()).isEqualTo(expected.getDeclaredFields());
+    assertThat(actual.getDeclaredMethods()).isEqualTo(expected.getDeclaredMethods());
+    assertThat(actual.getDeclaringType()).isEqualTo(expected.getDeclaringType());
+    // the types it refers to are resolved through the given pool, the parsing pool can't locate any
+    // class file
+    assertThat(actual.isAssignableTo(Callable.class)).isTrue();
+  }
+
+  private static ParsedClassFile parse(byte[] classFile) {
+    return ParsedClassFile.parse(
+        AsmClassReader.Factory.Default.INSTANCE, TypePool.Default.ReaderMode.FAST, classFile);
+  }
+
+  private static TypePool.Default typePool() {
+    return new TypePool.Default(
+        new TypePool.CacheProvider.Simple(),
+        ClassFileLocator.ForClassLoader.of(ParsedClassFileTest.class.getClassLoader()),
+        TypePool.Default.ReaderMode.FAST);
+  }
+
+  private static TypePool.Default typePool(byte[] classFile) {
+    return new TypePool.Default(
+        new TypePool.CacheProvider.Simple(),
+        new ClassFileLocator.Compound(
+            ClassFileLocator.Simple.of(SampleClass.class.getName(), classFile),
+            ClassFileLocator.ForClassLoader.of(ParsedClassFileTest.class.getClassLoader())),
+        TypePool.Default.ReaderMode.FAST);
+  }
+
+  @Deprecated
+  @SuppressWarnings("serial")
+  static class SampleClass<T extends Comparable<T>> extends ArrayList<T>
+      implements Callable<String> {
+    private final String value = "value";
+
+    @Override
+    public String call() {
+      return value;
+    }
+
+    <E extends Exception> T first(Class<E> type) throws E {
+      return get(0);
+    }
+  }
+}
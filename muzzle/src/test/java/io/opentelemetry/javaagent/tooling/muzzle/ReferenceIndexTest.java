@@ -0,0 +1,189 @@
+/*
+ * Copyright The OpenTelemetry Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package io.opentelemetry.javaagent.tooling.muzzle;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.opentelemetry.instrumentation.test.utils.ClasspathUtils;
+import io.opentelemetry.javaagent.tooling.muzzle.references.ClassRef;
+import io.opentelemetry.javaagent.tooling.muzzle.references.FieldRef;
+import io.opentelemetry.javaagent.tooling.muzzle.references.Flag;
+import io.opentelemetry.javaagent.tooling.muzzle.references.Flag.ManifestationFlag;
+import io.opentelemetry.javaagent.tooling.muzzle.references.MethodRef;
+import io.opentelemetry.javaagent.tooling.muzzle.references.Source;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import muzzle.TestClasses.HelperAdvice;
+import muzzle.TestClasses.MethodBodyAdvice;
+import muzzle.TestClasses.Nested;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.Type;
+
+class ReferenceIndexTest {
+
+  @Test
+  void decodesTheEncodedReferences() {
+    ReferenceCollector collector = new ReferenceCollector(className -> false);
+    collector.collectReferencesFromAdvice(MethodBodyAdvice.class.getName());
+    collector.prune();
+    Map<String, ClassRef> references = collector.getReferences();
+
+    ReferenceIndex index = encodeAndDecode(references.values());
+
+    assertThat(index.size()).isEqualTo(references.size());
+    Map<String, ClassRef> decoded = index.toClassRefs(className -> true);
+    assertThat(decoded).containsOnlyKeys(references.keySet());
+    references.forEach(
+        (className, reference) -> assertSameReference(decoded.get(className), reference));
+  }
+
+  @Test
+  void decodesLargeValues() {
+    ClassRef reference =
+        ClassRef.builder("com.example.Large")
+            .addSource("com.example.Advice", 1_000_000)
+            .addMethod(
+                new Source[] {new Source("com.example.Advice", 40_000)},
+                new Flag[] {ManifestationFlag.FINAL},
+                "method",
+                Type.VOID_TYPE,
+                Type.INT_TYPE,
+                Type.getType(String[].class))
+            .build();
+    List<ClassRef> references = new ArrayList<>();
+    references.add(reference);
+    // enough strings that their indexes don't fit in a single char
+    for (int i = 0; i < 40_000; i++) {
+      references.add(ClassRef.builder("com.example.Class" + i).build());
+    }
+    references.add(
+        ClassRef.builder("com.example.Last").setSuperClassName("com.example.Large").build());
+
+    Map<String, ClassRef> decoded = encodeAndDecode(references).toClassRefs(className -> true);
+
+    assertSameReference(decoded.get("com.example.Large"), reference);
+    assertThat(decoded.get("com.example.Last").getSuperClassName()).isEqualTo("com.example.Large");
+  }
+
+  @Test
+  void matchesLikeReferences() throws Exception {
+    ReferenceCollector collector = new ReferenceCollector(className -> false);
+    collector.collectReferencesFromAdvice(MethodBodyAdvice.class.getName());
+    collector.prune();
+    ReferenceMatcher matcher =
+        new ReferenceMatcher(
+            Collections.emptyList(),
+            encodeAndDecode(collector.getReferences().values()),
+            className -> false);
+
+    ClassLoader safeClasspath =
+        new URLClassLoader(
+            new URL[] {
+              ClasspathUtils.createJarWithClasses(
+                  Nested.A.class,
+                  Nested.B.class,
+                  Nested.SomeInterface.class,
+                  Nested.SomeImplementation.class)
+            },
+            null);
+    ClassLoader unsafeClasspath =
+        new URLClassLoader(
+            new URL[] {
+              ClasspathUtils.createJarWithClasses(
+                  Nested.A.class, Nested.SomeInterface.class, Nested.SomeImplementation.class)
+            },
+            null);
+
+    assertThat(matcher.matches(safeClasspath)).isTrue();
+    assertThat(matcher.getMismatchedReferenceSources(safeClasspath)).isEmpty();
+    assertThat(matcher.matches(unsafeClasspath)).isFalse();
+    assertThat(matcher.getMismatchedReferenceSources(unsafeClasspath))
+        .hasOnlyElementsOfType(Mismatch.MissingClass.class)
+        .isNotEmpty();
+  }
+
+  @Test
+  void checksFlags() {
+    ClassRef reference =
+        ClassRef.builder(Nested.B.class.getName()).addFlag(ManifestationFlag.INTERFACE).build();
+    ReferenceMatcher matcher =
+        new ReferenceMatcher(
+            Collections.emptyList(),
+            encodeAndDecode(Collections.singletonList(reference)),
+            className -> false);
+
+    assertThat(matcher.matches(ReferenceIndexTest.class.getClassLoader())).isFalse();
+    assertThat(matcher.getMismatchedReferenceSources(ReferenceIndexTest.class.getClassLoader()))
+        .hasOnlyElementsOfType(Mismatch.MissingFlag.class)
+        .isNotEmpty();
+  }
+
+  @Test
+  void checksHelperClasses() {
+    ReferenceCollector collector = new ReferenceCollector(className -> false);
+    // not pruned, so that the references of the helper classes are kept
+    collector.collectReferencesFromAdvice(HelperAdvice.class.getName());
+    ReferenceIndex index = encodeAndDecode(collector.getReferences().values());
+    ClassLoader classLoader = ReferenceIndexTest.class.getClassLoader();
+
+    assertThat(
+            new ReferenceMatcher(collector.getSortedHelperClasses(), index, className -> false)
+                .matches(classLoader))
+        .isTrue();
+    // helper classes that are not registered are missing
+    assertThat(
+            new ReferenceMatcher(Collections.emptyList(), index, className -> false)
+                .matches(classLoader))
+        .isFalse();
+  }
+
+  private static ReferenceIndex encodeAndDecode(Collection<ClassRef> references) {
+    ReferenceIndex.Encoded encoded = ReferenceIndex.encode(references);
+    return ReferenceIndex.decode(encoded.getStrings(), encoded.getData());
+  }
+
+  private static void assertSameReference(ClassRef actual, ClassRef expected) {
+    assertThat(actual.getClassName()).isEqualTo(expected.getClassName());
+    assertThat(actual.getFlags()).containsExactlyInAnyOrderElementsOf(expected.getFlags());
+    assertThat(actual.getSuperClassName()).isEqualTo(expected.getSuperClassName());
+    assertThat(actual.getInterfaceNames()).containsExactlyElementsOf(expected.getInterfaceNames());
+    assertThat(actual.getSources()).containsExactlyElementsOf(expected.getSources());
+
+    assertThat(actual.getFields()).hasSameSizeAs(expected.getFields());
+    for (FieldRef expectedField : expected.getFields()) {
+      FieldRef actualField =
+          actual.getFields().stream()
+              .filter(field -> field.getName().equals(expectedField.getName()))
+              .findFirst()
+              .orElseThrow(AssertionError::new);
+      assertThat(actualField.getDescriptor()).isEqualTo(expectedField.getDescriptor());
+      assertThat(actualField.isDeclared()).isEqualTo(expectedField.isDeclared());
+      assertThat(actualField.getFlags())
+          .containsExactlyInAnyOrderElementsOf(expectedField.getFlags());
+      assertThat(actualField.getSources()).containsExactlyElementsOf(expectedField.getSources());
+    }
+
+    assertThat(actual.getMethods()).hasSameSizeAs(expected.getMethods());
+    for (MethodRef expectedMethod : expected.getMethods()) {
+      MethodRef actualMethod =
+          actual.getMethods().stream()
+              .filter(
+                  method ->
+                      method.getName().equals(expectedMethod.getName())
+                          && method.getDescriptor().equals(expectedMethod.getDescriptor()))
+              .findFirst()
+              .orElseThrow(AssertionError::new);
+      assertThat(actualMethod.getFlags())
+          .containsExactlyInAnyOrderElementsOf(expectedMethod.getFlags());
+      assertThat(actualMethod.getSources()).containsExactlyElementsOf(expectedMethod.getSources());
+    }
+  }
+}